@@ -0,0 +1,101 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+/**
+ * A Bloom filter of 64-bit key hashes, with its bits held off-heap.
+ *
+ * The bit positions for a key are derived from its hash by double hashing, so each key costs a
+ * few multiplications rather than a hash function per probe.
+ */
+public class BloomFilter {
+
+	private static final int BITS_PER_KEY = 10;	//<- About 1% false positives with 7 probes
+	private static final int PROBES = 7;
+
+	private final OffHeapLongArray words;
+	private final long bitMask;
+	private long size;
+
+	/**
+	 * @param maxBytes The memory the filter may use; its bit count is the largest power of two that fits.
+	 */
+	public BloomFilter(long maxBytes) {
+
+		long wordCount = Long.highestOneBit(Math.max(1, maxBytes / 8));
+		this.words = new OffHeapLongArray(wordCount);
+		this.bitMask = wordCount * 64 - 1;
+	}
+
+	public long size() {
+		return this.size;
+	}
+
+	public long getBytes() {
+		return this.words.getBytes();
+	}
+
+	/**
+	 * The number of keys the filter holds at about 1% false positives.
+	 */
+	public long getCapacity() {
+		return (this.bitMask + 1) / BITS_PER_KEY;
+	}
+
+	/**
+	 * The chance that a key that has not been added is reported as present, (1 - e^(-kn/m))^k.
+	 */
+	public double getFalsePositiveRate() {
+
+		return Math.pow(1 - Math.exp(-(double)PROBES * this.size / (this.bitMask + 1)), PROBES);
+	}
+
+	/**
+	 * Adds the key.
+	 *
+	 * @return False if the key may already have been added (all of its bits were already set).
+	 */
+	public boolean add(long key) {
+
+		boolean added = false;
+		long h2 = Long.rotateLeft(key, 32) * 0x9E3779B97F4A7C15L | 1;	//<- Odd, so the probes never repeat
+		for(int probe = 0; probe < PROBES; probe++) {
+			long bit = (key + probe * h2) & this.bitMask;
+			long wordIdx = bit >>> 6;
+			long word = this.words.get(wordIdx);
+			long bitValue = 1L << bit;
+			if((word & bitValue) == 0) {
+				this.words.set(wordIdx, word | bitValue);
+				added = true;
+			}
+		}
+		if(added)
+			this.size++;
+		return added;
+	}
+
+	public boolean mightContain(long key) {
+
+		long h2 = Long.rotateLeft(key, 32) * 0x9E3779B97F4A7C15L | 1;
+		for(int probe = 0; probe < PROBES; probe++) {
+			long bit = (key + probe * h2) & this.bitMask;
+			if((this.words.get(bit >>> 6) & (1L << bit)) == 0)
+				return false;
+		}
+		return true;
+	}
+}
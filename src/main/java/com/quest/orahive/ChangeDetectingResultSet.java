@@ -0,0 +1,259 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Passes on only the Hive rows that are new to the Oracle table or differ from the row already
+ * there, with a hash of each row appended as an extra column for the row hash column of the table.
+ *
+ * Before the first row is returned, the key and row hash columns of the Oracle table are read
+ * into an off-heap map from the hash of each key to its row hash. A Hive row whose row hash
+ * matches the one stored for its key is unchanged and is skipped.
+ *
+ * Row hashes are 63 bits (the lowest bit is always set) so that even values can mark keys that
+ * have been seen, or whose row hash is not known yet. Two different versions of a row share a hash
+ * with a probability of 1 in 2^63, so a change is missed far less often than a disk fails.
+ */
+public class ChangeDetectingResultSet extends ForwardOnlyResultSet {
+
+	private static final Log LOG = LogFactory.getLog(ChangeDetectingResultSet.class);
+
+	private static final int ORACLE_FETCH_SIZE = 10000;
+
+	// Values in the map that are never row hashes...
+	private static final long ABSENT = 0;
+	private static final long SEEN = 2;
+	private static final long UNKNOWN = 4;	//<- The Oracle row's hash is NULL
+
+	private final ResultSet resultSet;
+	private final SimpleResultSetMetaData metaData;
+	private final int rowHashColumn;
+	private final RowKeyHasher keyHasher;
+	private final RowKeyHasher rowHasher;
+	private final LongLongHashMap oracleRows;
+	private final OraHiveCounters counters;
+
+	private final String oracleTableName;
+	private final String[] oracleKeyColumns;
+	private long rowHash;
+
+	/**
+	 * @param tableName The Oracle table, optionally qualified by its owner.
+	 * @param keyColumns The key column names, which must be in both the Hive results and the Oracle table.
+	 * @param rowHashColumnName The Oracle column that holds each row's hash.
+	 * @param metadataCacheDirectory Where the Oracle table's metadata is cached, or null if it is not.
+	 * @param maxBytes The memory the Oracle table's keys and row hashes may use.
+	 * @throws SQLException If the table or a column does not exist, or the keys do not fit in maxBytes.
+	 */
+	public ChangeDetectingResultSet(ResultSet resultSet
+									, Connection connection
+									, String tableName
+									, String[] keyColumns
+									, String rowHashColumnName
+									, File metadataCacheDirectory
+									, long maxBytes
+									, OraHiveCounters counters) throws SQLException {
+
+		this.resultSet = resultSet;
+		this.counters = counters;
+
+		ResultSetMetaData hiveMetaData = resultSet.getMetaData();
+		for(int column = 1; column <= hiveMetaData.getColumnCount(); column++)	//<- JDBC is 1-based
+			if(hiveMetaData.getColumnLabel(column).equalsIgnoreCase(rowHashColumnName))
+				throw new SQLException(String.format("The Hive results must not have a column named %s, as it is the row hash column.", rowHashColumnName));
+
+		this.keyHasher = new RowKeyHasher(hiveMetaData, keyColumns);
+		this.rowHasher = new RowKeyHasher(hiveMetaData, hiveMetaData.getColumnCount());
+		this.metaData = new SimpleResultSetMetaData(hiveMetaData);
+		this.metaData.addColumn(rowHashColumnName, Types.BIGINT);
+		this.rowHashColumn = this.metaData.getColumnCount();
+
+		OracleTableMetadata metadata = OracleTableMetadata.get(connection, tableName, metadataCacheDirectory);
+		if(metadata == null)
+			throw new SQLException(String.format("The Oracle table %s does not exist.", tableName));
+		this.oracleTableName = metadata.getOwner() + "." + metadata.getTableName();
+
+		StringBuilder selectList = new StringBuilder();
+		int[] columnTypes = new int[keyColumns.length];
+		this.oracleKeyColumns = new String[keyColumns.length];
+		for(int idx = 0; idx < keyColumns.length; idx++) {
+			OracleTableMetadata.Column column = metadata.getColumn(keyColumns[idx]);
+			if(column == null)
+				throw new SQLException(String.format("The key column \"%s\" is not in the Oracle table %s.", keyColumns[idx], tableName));
+			this.oracleKeyColumns[idx] = column.getSqlName();
+			selectList.append(column.getSqlName()).append(", ");
+			columnTypes[idx] = OracleColumnConverter.create(column).getSqlType();
+		}
+		this.keyHasher.setColumnTypes(columnTypes);
+
+		OracleTableMetadata.Column hashColumn = metadata.getColumn(rowHashColumnName);
+		if(hashColumn == null || !hashColumn.dataType.equals("NUMBER"))
+			throw new SQLException(String.format("The Oracle table %s must have a NUMBER(19) column named %s to hold the row hashes."
+												,tableName
+												,rowHashColumnName));
+		selectList.append(hashColumn.getSqlName());
+
+		long start = System.nanoTime();
+		this.oracleRows = readOracleRows(connection
+										,String.format("SELECT %s FROM %s", selectList, this.oracleTableName)
+										,keyColumns.length
+										,maxBytes);
+		counters.oracleKeyReadTimeNanoSec = System.nanoTime() - start;
+
+		LOG.info(String.format("Read the row hashes of %d rows from the Oracle table %s in %.1f sec. (%.1f MB); only Hive rows that are new or have changed will be loaded."
+								,this.oracleRows.size()
+								,this.oracleTableName
+								,counters.oracleKeyReadTimeNanoSec / Math.pow(10, 9)
+								,this.oracleRows.getBytes() / (1024.0 * 1024.0)));
+	}
+
+	private static LongLongHashMap readOracleRows(Connection connection, String sql, int keyColumnCount, long maxBytes) throws SQLException {
+
+		LOG.debug("Running: " + sql);
+
+		LongLongHashMap result = new LongLongHashMap(maxBytes);
+		Statement statement = connection.createStatement();
+		try {
+			statement.setFetchSize(ORACLE_FETCH_SIZE);
+			ResultSet resultSet = statement.executeQuery(sql);
+			RowKeyHasher hasher = new RowKeyHasher(resultSet.getMetaData(), keyColumnCount);
+			while(resultSet.next()) {
+				if(result.isFull())
+					throw new SQLException(String.format("The keys of the Oracle table do not fit in the %d MB allowed. Allow more memory with the \"%s\" option."
+														,maxBytes / (1024 * 1024)
+														,Constants.CONF_DEDUP_MEMORY_MB));
+
+				long rowHash = resultSet.getLong(keyColumnCount + 1);
+				if(resultSet.wasNull() || (rowHash & 1) == 0)
+					rowHash = UNKNOWN;
+				result.put(hasher.hash(resultSet), rowHash);
+			}
+			resultSet.close();
+		}
+		finally {
+			statement.close();
+		}
+		return result;
+	}
+
+	@Override
+	public boolean next() throws SQLException {
+
+		while(this.resultSet.next()) {
+			long key = this.keyHasher.hash(this.resultSet);
+			this.rowHash = this.rowHasher.hash(this.resultSet) | 1;
+
+			long oracleRowHash = this.oracleRows.get(key, ABSENT);
+			if(oracleRowHash == ABSENT) {
+				this.counters.rowsInserted++;
+				return true;
+			}
+
+			this.oracleRows.put(key, SEEN);
+			if(oracleRowHash == this.rowHash) {
+				this.counters.rowsUnchanged++;
+				continue;
+			}
+			this.counters.rowsUpdated++;	//<- Or a second Hive row with the same key
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public Object getObject(int columnIndex) throws SQLException {
+
+		if(columnIndex == this.rowHashColumn)
+			return this.rowHash;
+		return this.resultSet.getObject(columnIndex);
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return this.metaData;
+	}
+
+	/**
+	 * Deletes the rows of the Oracle table whose keys were not in the Hive results, reading the
+	 * table's keys again to find them. Rows loaded since the table was first read are not deleted,
+	 * as their keys are not in the map. Call this once every row has been read and loaded.
+	 *
+	 * @return The number of rows deleted (not yet committed).
+	 */
+	public long deleteMissingOracleRows(Connection connection, int batchSize) throws SQLException {
+
+		StringBuilder selectList = new StringBuilder();
+		StringBuilder whereClause = new StringBuilder();
+		for(int idx = 0; idx < this.oracleKeyColumns.length; idx++) {
+			if(idx > 0) {
+				selectList.append(", ");
+				whereClause.append(" AND ");
+			}
+			selectList.append(this.oracleKeyColumns[idx]);
+			whereClause.append(this.oracleKeyColumns[idx]).append(" = ?");
+		}
+		String deleteSql = String.format("DELETE FROM %s WHERE %s", this.oracleTableName, whereClause);
+		LOG.debug("Running: " + deleteSql);
+
+		long result = 0;
+		Statement statement = connection.createStatement();
+		PreparedStatement deleteStatement = connection.prepareStatement(deleteSql);
+		try {
+			statement.setFetchSize(ORACLE_FETCH_SIZE);
+			ResultSet resultSet = statement.executeQuery(String.format("SELECT %s FROM %s", selectList, this.oracleTableName));
+			RowKeyHasher hasher = new RowKeyHasher(resultSet.getMetaData(), this.oracleKeyColumns.length);
+
+			int batchRows = 0;
+			while(resultSet.next()) {
+				long oracleRowHash = this.oracleRows.get(hasher.hash(resultSet), SEEN);
+				if(oracleRowHash == SEEN)
+					continue;
+
+				for(int idx = 1; idx <= this.oracleKeyColumns.length; idx++)
+					deleteStatement.setObject(idx, resultSet.getObject(idx));
+				deleteStatement.addBatch();
+				if(++batchRows == batchSize) {
+					deleteStatement.executeBatch();
+					result += batchRows;
+					batchRows = 0;
+				}
+			}
+			if(batchRows > 0) {
+				deleteStatement.executeBatch();
+				result += batchRows;
+			}
+			resultSet.close();
+		}
+		finally {
+			deleteStatement.close();
+			statement.close();
+		}
+		return result;
+	}
+}
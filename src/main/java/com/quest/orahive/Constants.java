@@ -24,7 +24,7 @@ public class Constants {
 	public static final String HIVE_JDBC_DRIVER_CLASS = "org.apache.hadoop.hive.jdbc.HiveDriver";
 	public static final String ORACLE_JDBC_DRIVER_CLASS = "oracle.jdbc.OracleDriver";
 	
-	public static enum OracleType {NUMBER, VARCHAR2};
+	public static enum OracleType {NUMBER, VARCHAR2, TIMESTAMP};
 //	public static final String ORACLE_DATA_TYPE_NUMBER = "NUMBER";
 //	public static final String ORACLE_DATA_TYPE_VARCHAR2 = "VARCHAR2";
 	
@@ -36,6 +36,45 @@ public class Constants {
 
 	public static final String CONF_HIVE_QUERY = "hql";
 	public static final String CONF_HIVE_QUERY_FILENAME = "hqlfile";
+	public static final String CONF_SYNTHETIC_SOURCE = "synthetic";
+	
+	public static final String CONF_SINK = "sink";
+	public static final String SINK_ORACLE = "oracle";
+	public static final String SINK_NULL = "null";
+	public static final String SINK_FILE_PREFIX = "file:";
+	public static final String SINK_JDBC_PREFIX = "jdbc:";
+	
+	public static final String CONF_HIVE_FETCH_SIZE = "fetchsize";
+	public static final String CONF_PLAN_LOAD = "plan";
+	public static final String CONF_PLAN_ONLY = "planonly";
+	
+	public static final String CONF_PROGRESS_INTERVAL_SEC = "progressinterval";
+	public static final int DEFAULT_PROGRESS_INTERVAL_SEC = 30;
+	public static final String CONF_ESTIMATED_ROWS = "estimatedrows";
+	public static final String CONF_METRICS_FILE = "metricsfile";
+	public static final String METRICS_MAIN_THREAD_NAME = "main";
+	public static final String CONF_FLIGHT_RECORDING = "jfr";
+	public static final String CONF_VERIFY_LOAD = "verify";
+	
+	public static final String CONF_FAN_OUT_TARGETS = "targets";
+	public static final String CONF_FAN_OUT_BUFFER_BATCHES = "targetbuffer";
+	public static final int DEFAULT_FAN_OUT_BUFFER_BATCHES = 16;
+	public static final String FAN_OUT_PRIMARY_TARGET_NAME = "primary";
+	public static final String CONF_VIRTUAL_THREADS = "virtualthreads";
+	
+	public static final String CONF_MEMORY_BUDGET_MB = "memorybudgetmb";
+	public static final int DEFAULT_MEMORY_BUDGET_PERCENT_OF_HEAP = 25;
+	public static final String CONF_OFF_HEAP_BATCHES = "offheapbatches";
+	
+	public static final String CONF_HIVE_METASTORE_URI = "metastore";
+	public static final String CONF_HIVE_INPUT_TABLES = "hivetables";
+	public static final String CONF_INCREMENTAL_WATERMARK_FILE = "incremental";
+	
+	public static final String CONF_HIVE_RESULT_CACHE_DIR = "cachedir";
+	public static final String CONF_HIVE_RESULT_CACHE_MAX_MB = "cachemaxmb";
+	public static final long DEFAULT_HIVE_RESULT_CACHE_MAX_MB = 10240;
+	public static final String CONF_HIVE_RESULT_CACHE_TTL_HOURS = "cachettl";
+	public static final int DEFAULT_HIVE_RESULT_CACHE_TTL_HOURS = 24;
 	
 	public static final String CONF_ORACLE_JDBC_URL = "oracle";
 	public static final String CONF_ORACLE_JDBC_USER = "oracleuser";
@@ -46,6 +85,10 @@ public class Constants {
 	public static final String CONF_ORACLE_TABLESPACE = "oracletablespace";
 	
 	public static final String CONF_EXPORT_MODE = "exportmode";
+	public static final String CONF_ORACLE_SKIP_EXISTING_KEYS = "skipexisting";
+	public static final String CONF_ORACLE_ROW_HASH_COLUMN = "rowhashcolumn";
+	public static final String CONF_ORACLE_CDC_DELETES = "cdcdeletes";
+	public static final String CONF_ORACLE_METADATA_CACHE_DIR = "oraclemetadatacache";
 	
 	public static final String CONF_ORACLE_INSERT_BATCH_SIZE = "insertbatchsize";
 	public static final int DEFAULT_ORACLE_INSERT_BATCH_SIZE = 500;
@@ -53,9 +96,40 @@ public class Constants {
 	public static final String CONF_ORACLE_INSERT_COMMIT_BATCH_COUNT = "commitbatchcount";
 	public static final int DEFAULT_ORACLE_INSERT_COMMIT_BATCH_COUNT = 20;
 	
+	public static final String CONF_ORACLE_ASYNC_COMMIT = "asynccommit";
+	
+	public static final String CONF_ORACLE_REJECT_LIMIT = "rejectlimit";
+	public static final String CONF_ORACLE_ERROR_LOG_TABLE = "errorlogtable";
+	public static final String ORACLE_REJECT_LIMIT_UNLIMITED = "UNLIMITED";
+	public static final String ORACLE_ERROR_LOG_TABLE_PREFIX = "ERR$_";
+	public static final int ORACLE_ERROR_LOG_TABLE_NAME_MAX_CHARS = 25;
+	public static final String ORACLE_ERROR_LOG_TAG_PREFIX = "OraHive";
+	
 	public static final String CONF_LOG4J_PROPERTIES_FILE = "log4j";
 	
-	public static enum ExportMode {CREATE, INSERT};
+	public static enum ExportMode {CREATE, INSERT, UPSERT, REPLACE};
 	public static final ExportMode DEFAULT_EXPORT_MODE = ExportMode.CREATE;
 	
+	public static final String CONF_ORACLE_KEY_COLUMNS = "keycolumns";
+	public static final String ORACLE_STAGING_TABLE_PREFIX = "ORAHIVE$STG_";
+	
+	public static final String CONF_ORACLE_SUSPEND_INDEXES = "suspendindexes";
+	public static final String CONF_ORACLE_DISABLE_CONSTRAINTS = "disableconstraints";
+	public static final String CONF_ORACLE_INDEX_REBUILD_PARALLELISM = "rebuildparallel";
+	public static final int DEFAULT_ORACLE_INDEX_REBUILD_PARALLELISM = 4;
+	
+	public static final String CONF_ORACLE_ROUTES = "routes";
+	public static final String CONF_TRANSFORM_RULES = "transform";
+	
+	public static final String CONF_DEDUP = "dedup";
+	public static enum DuplicateKeyAction {DROP, COUNT, FAIL};
+	public static final String CONF_DEDUP_MEMORY_MB = "dedupmemorymb";
+	public static final long DEFAULT_DEDUP_MEMORY_MB = 1024;
+	
+	public static final int ORACLE_MAX_IDENTIFIER_LENGTH = 30;
+	public static final String ORACLE_SHADOW_TABLE_SUFFIX = "$OHN";
+	public static final String ORACLE_RETIRED_TABLE_SUFFIX = "$OHO";
+	public static final String ORACLE_SHADOW_OBJECT_PREFIX = "ORAHIVE$NEW_";
+	public static final String ORACLE_RETIRED_OBJECT_PREFIX = "ORAHIVE$OLD_";
+	
 }
@@ -0,0 +1,153 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Finds the Hive rows whose key columns repeat those of an earlier row, and drops them, counts
+ * them or stops the load, before they are bound to an Oracle insert.
+ *
+ * Each key is reduced to a 64-bit hash (see RowKeyHasher) and kept in an off-heap hash set. Two
+ * different keys share a hash with a probability of about n^2 / 2^65 over n keys, i.e. less than
+ * one in a million for 100 million keys, so a repeated hash is treated as a repeated key.
+ *
+ * The set may use half of the memory allowed. Once it is full it stops growing, and the keys of
+ * later rows are instead added to a Bloom filter in the other half, which holds about ten times
+ * as many keys. A row whose key is in the set is a duplicate; a row whose key is only in the
+ * filter is probably a duplicate (about 1% of new keys look like this), so it is counted but
+ * always loaded.
+ */
+public class DeduplicatingResultSet extends ForwardOnlyResultSet {
+
+	private static final Log LOG = LogFactory.getLog(DeduplicatingResultSet.class);
+
+	private static final int MAX_LOGGED_DUPLICATES = 10;
+
+	private final ResultSet resultSet;
+	private final RowKeyHasher hasher;
+	private final Constants.DuplicateKeyAction action;
+	private final OraHiveCounters counters;
+	private final long maxBytes;
+
+	private final LongHashSet keys;
+	private BloomFilter overflowKeys;	//<- Only once the set is full
+	private boolean overflowFullLogged;
+
+	/**
+	 * @throws SQLException If a key column is not in the result set.
+	 */
+	public DeduplicatingResultSet(ResultSet resultSet
+								, String[] keyColumns
+								, Constants.DuplicateKeyAction action
+								, long maxBytes
+								, OraHiveCounters counters) throws SQLException {
+
+		this.resultSet = resultSet;
+		this.hasher = new RowKeyHasher(resultSet.getMetaData(), keyColumns);
+		this.action = action;
+		this.counters = counters;
+		this.maxBytes = maxBytes;
+		this.keys = new LongHashSet(maxBytes / 2);
+	}
+
+	@Override
+	public boolean next() throws SQLException {
+
+		while(this.resultSet.next()) {
+			long key = this.hasher.hash(this.resultSet);
+
+			if(this.overflowKeys == null) {
+				if(this.keys.isFull()) {
+					LOG.info(String.format("The %d keys seen so far fill the %.1f MB allowed for their set; the keys of the remaining rows will be kept in a Bloom filter, so later duplicates of them will only be counted as probable duplicates."
+											,this.keys.size()
+											,this.keys.getBytes() / (1024.0 * 1024.0)));
+					this.overflowKeys = new BloomFilter(this.maxBytes - this.keys.getBytes());
+				}
+				else if(this.keys.add(key))
+					return true;
+				else {
+					if(onDuplicate())
+						continue;
+					return true;
+				}
+			}
+
+			if(this.keys.contains(key)) {
+				if(onDuplicate())
+					continue;
+				return true;
+			}
+
+			if(!this.overflowKeys.add(key))
+				this.counters.probableDuplicateKeys++;
+			else if(!this.overflowFullLogged && this.overflowKeys.size() > this.overflowKeys.getCapacity()) {
+				LOG.warn(String.format("The Bloom filter of keys has passed %d keys, so more than 1%% of the remaining rows will be counted as probable duplicates. Allow more memory with the \"%s\" option."
+										,this.overflowKeys.getCapacity()
+										,Constants.CONF_DEDUP_MEMORY_MB));
+				this.overflowFullLogged = true;
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return True if the row should be dropped.
+	 */
+	private boolean onDuplicate() throws SQLException {
+
+		this.counters.duplicateKeys++;
+
+		switch(this.action) {
+			case FAIL:
+				throw new SQLException(String.format("The Hive results have more than one row with the key %s."
+													,this.hasher.describe(this.resultSet)));
+			case DROP:
+				if(this.counters.duplicateKeys <= MAX_LOGGED_DUPLICATES)
+					LOG.info(String.format("Dropped a row with the duplicate key %s.", this.hasher.describe(this.resultSet)));
+				return true;
+			default:
+				if(this.counters.duplicateKeys <= MAX_LOGGED_DUPLICATES)
+					LOG.info(String.format("Found a row with the duplicate key %s.", this.hasher.describe(this.resultSet)));
+				return false;
+		}
+	}
+
+	/**
+	 * The memory held by the keys, in bytes.
+	 */
+	public long getBytes() {
+
+		return this.keys.getBytes() + (this.overflowKeys == null ? 0 : this.overflowKeys.getBytes());
+	}
+
+	@Override
+	public Object getObject(int columnIndex) throws SQLException {
+		return this.resultSet.getObject(columnIndex);
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return this.resultSet.getMetaData();
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Skips the Hive rows whose key columns are already in the Oracle table, so that a load that
+ * overlaps an earlier one only inserts the new rows.
+ *
+ * The table's keys are read before the first row is returned and kept as 64-bit hashes (see
+ * RowKeyHasher) in an off-heap hash set. A Hive key is hashed as the Oracle column would store it,
+ * so that e.g. the string "42" matches the NUMBER 42.
+ *
+ * The keys must all fit in the set: a Bloom filter would use less memory, but each of its false
+ * positives would be a new row that is never loaded.
+ */
+public class ExistingKeyFilteringResultSet extends ForwardOnlyResultSet {
+
+	private static final Log LOG = LogFactory.getLog(ExistingKeyFilteringResultSet.class);
+
+	private static final int ORACLE_FETCH_SIZE = 10000;
+
+	private final ResultSet resultSet;
+	private final RowKeyHasher hasher;
+	private final LongHashSet oracleKeys;
+	private final OraHiveCounters counters;
+
+	/**
+	 * @param tableName The Oracle table, optionally qualified by its owner.
+	 * @param keyColumns The key column names, which must be in both the Hive results and the Oracle table.
+	 * @param metadataCacheDirectory Where the Oracle table's metadata is cached, or null if it is not.
+	 * @param maxBytes The memory the Oracle table's keys may use.
+	 * @throws SQLException If the table or a key column does not exist, or the keys do not fit in maxBytes.
+	 */
+	public ExistingKeyFilteringResultSet(ResultSet resultSet
+										, Connection connection
+										, String tableName
+										, String[] keyColumns
+										, File metadataCacheDirectory
+										, long maxBytes
+										, OraHiveCounters counters) throws SQLException {
+
+		this.resultSet = resultSet;
+		this.counters = counters;
+		this.hasher = new RowKeyHasher(resultSet.getMetaData(), keyColumns);
+
+		OracleTableMetadata metadata = OracleTableMetadata.get(connection, tableName, metadataCacheDirectory);
+		if(metadata == null)
+			throw new SQLException(String.format("The Oracle table %s does not exist.", tableName));
+
+		StringBuilder selectList = new StringBuilder();
+		int[] columnTypes = new int[keyColumns.length];
+		for(int idx = 0; idx < keyColumns.length; idx++) {
+			OracleTableMetadata.Column column = metadata.getColumn(keyColumns[idx]);
+			if(column == null)
+				throw new SQLException(String.format("The key column \"%s\" is not in the Oracle table %s.", keyColumns[idx], tableName));
+			if(idx > 0)
+				selectList.append(", ");
+			selectList.append(column.getSqlName());
+			columnTypes[idx] = OracleColumnConverter.create(column).getSqlType();
+		}
+		this.hasher.setColumnTypes(columnTypes);
+
+		long start = System.nanoTime();
+		this.oracleKeys = readOracleKeys(connection
+										,String.format("SELECT %s FROM %s.%s", selectList, metadata.getOwner(), metadata.getTableName())
+										,maxBytes);
+		counters.oracleKeyReadTimeNanoSec = System.nanoTime() - start;
+
+		LOG.info(String.format("Read %d keys from the Oracle table %s.%s in %.1f sec. (%.1f MB); Hive rows with these keys will not be inserted."
+								,this.oracleKeys.size()
+								,metadata.getOwner()
+								,metadata.getTableName()
+								,counters.oracleKeyReadTimeNanoSec / Math.pow(10, 9)
+								,this.oracleKeys.getBytes() / (1024.0 * 1024.0)));
+	}
+
+	private static LongHashSet readOracleKeys(Connection connection, String sql, long maxBytes) throws SQLException {
+
+		LOG.debug("Running: " + sql);
+
+		LongHashSet result = new LongHashSet(maxBytes);
+		Statement statement = connection.createStatement();
+		try {
+			statement.setFetchSize(ORACLE_FETCH_SIZE);
+			ResultSet resultSet = statement.executeQuery(sql);
+			RowKeyHasher hasher = new RowKeyHasher(resultSet.getMetaData(), resultSet.getMetaData().getColumnCount());
+			while(resultSet.next()) {
+				if(result.isFull())
+					throw new SQLException(String.format("The keys of the Oracle table do not fit in the %d MB allowed. Allow more memory with the \"%s\" option."
+														,maxBytes / (1024 * 1024)
+														,Constants.CONF_DEDUP_MEMORY_MB));
+				result.add(hasher.hash(resultSet));
+			}
+			resultSet.close();
+		}
+		finally {
+			statement.close();
+		}
+		return result;
+	}
+
+	@Override
+	public boolean next() throws SQLException {
+
+		while(this.resultSet.next()) {
+			if(!this.oracleKeys.contains(this.hasher.hash(this.resultSet)))
+				return true;
+			this.counters.existingKeys++;
+		}
+		return false;
+	}
+
+	@Override
+	public Object getObject(int columnIndex) throws SQLException {
+		return this.resultSet.getObject(columnIndex);
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return this.resultSet.getMetaData();
+	}
+}
@@ -38,8 +38,6 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -48,6 +46,7 @@ import org.apache.hadoop.hive.serde2.SerDeException;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils.ObjectInspectorCopyOption;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.service.HiveInterface;
@@ -67,11 +66,27 @@ public class FetchNResultSet implements ResultSet
   private final HiveInterface hiveInterface;
   private int fetchSize = Constants.DEFAULT_ORACLE_INSERT_BATCH_SIZE;
 
-  private List<String> currentBatch = Collections.emptyList();
-  private Iterator<String> batchIter = currentBatch.iterator();
-  private final List<Object> currentRow;
+  // The current batch of rows is decoded into one buffer per column
+  private final int columnCount;
+  private Object[][] columns = new Object[0][];
+  private int batchRowCount;
+  private int batchRowIdx = -1;
+  private boolean endOfResults;
   private boolean use05deserialize;
 
+  // Looked up once rather than for every row
+  private final BytesWritable rowBytes = new BytesWritable();
+  private StructObjectInspector rowInspector;
+  private StructField[] fieldRefs;
+  private ObjectInspector[] fieldInspectors;
+
+  // The decoded batch is counted against the governor's budget until the next batch is fetched
+  private MemoryGovernor governor;
+  private long batchBytes;
+
+  private PhaseAccounting phases;
+  private long batchesFetched;
+
   public FetchNResultSet(ResultSet hiveResultSet)
   {
     this.hiveResultSet = hiveResultSet;
@@ -96,11 +111,7 @@ public class FetchNResultSet implements ResultSet
       if (!dsField.isAccessible())
         dsField.setAccessible(true);
       ds = (SerDe)dsField.get(hiveResultSet);
-      currentRow = new ArrayList<Object>(hiveResultSet.getMetaData().getColumnCount());
-      for (int i = 0; i < hiveResultSet.getMetaData().getColumnCount(); i++)
-      {
-        currentRow.add(null);
-      }
+      columnCount = hiveResultSet.getMetaData().getColumnCount();
     }
     catch(Exception e)
     {
@@ -142,38 +153,74 @@ public class FetchNResultSet implements ResultSet
     return fetchSize;
   }
 
+  /**
+   * Fetch fewer rows at a time when a batch of them would be larger than the governor allows.
+   */
+  public void setMemoryGovernor(MemoryGovernor governor)
+  {
+    this.governor = governor;
+  }
+
+  /**
+   * Account for the time spent waiting for Hive and deserializing rows as phases of their own.
+   */
+  public void setPhaseAccounting(PhaseAccounting phases)
+  {
+    this.phases = phases;
+  }
+
+  private PhaseAccounting.Phase switchPhase(PhaseAccounting.Phase phase)
+  {
+    return (phases == null) ? null : phases.switchTo(phase);
+  }
+
   private void fetchNextBatch() throws SQLException
   {
+    PhaseAccounting.Phase previousPhase = switchPhase(PhaseAccounting.Phase.HIVE_FETCH);
+    FlightRecorderEvents.Span fetchEvent = FlightRecorderEvents.begin(FlightRecorderEvents.Type.HIVE_FETCH);
+    List<String> batch;
     try
     {
-      currentBatch = hiveInterface.fetchN(fetchSize);
-      batchIter = currentBatch.iterator();
+      batch = hiveInterface.fetchN(fetchSize);
     }
     catch(Exception e)
     {
       throw new SQLException("Unable to fetch batch from Hive", e);
     }
-  }
+    fetchEvent.end();
+    switchPhase(PhaseAccounting.Phase.HIVE_DESERIALIZE);
+    FlightRecorderEvents.Span deserializeEvent = FlightRecorderEvents.begin(FlightRecorderEvents.Type.HIVE_DESERIALIZE);
 
-  @Override
-  public boolean next() throws SQLException
-  {
-    if (!batchIter.hasNext())
+    if (columns.length != columnCount || (columnCount > 0 && columns[0].length < batch.size()))
     {
-      fetchNextBatch();
+      columns = new Object[columnCount][Math.max(fetchSize, batch.size())];
+    }
+
+    batchRowCount = 0;
+    batchRowIdx = 0;
+    releaseBatchBytes();
+    long rawBytes = 0;
+    if (batch.isEmpty())
+    {
+      endOfResults = true;
     }
 
-    if (batchIter.hasNext())
+    // Decode the whole batch column by column before handing out any of its rows
+    for (String data : batch)
     {
-      String data = batchIter.next();
       if (data.equals(""))
       {
-        return false;
+        endOfResults = true;
+        break;
       }
+
+      rawBytes += MemoryGovernor.estimateStringBytes(data.length());
       Object o;
       try
       {
-        o = ds.deserialize(new BytesWritable(data.getBytes()));
+        byte[] bytes = data.getBytes();
+        rowBytes.set(bytes, 0, bytes.length);
+        o = ds.deserialize(rowBytes);
       }
       catch(SerDeException e)
       {
@@ -182,47 +229,110 @@ public class FetchNResultSet implements ResultSet
 
       if (use05deserialize)
       {
-        hive05deserialize(o);
+        hive05deserialize(o, batchRowCount);
       }
       else
       {
-        hive07deserialize(o);
+        hive07deserialize(o, batchRowCount);
       }
+      batchRowCount++;
+    }
+    if (governor != null && batchRowCount > 0)
+    {
+      reserveBatchBytes(rawBytes);
+    }
+    batchesFetched++;
+    fetchEvent.commit(batchesFetched, batch.size(), rawBytes, null);
+    deserializeEvent.commit(batchesFetched, batchRowCount, rawBytes, null);
+    switchPhase(previousPhase);
+  }
 
-      return true;
+  private void reserveBatchBytes(long rawBytes)
+  {
+    // The decoded values take up about as much as the serialized rows
+    batchBytes = rawBytes;
+    governor.reserve(batchBytes);
+
+    if (batchBytes > governor.getMaxBatchBytes() && fetchSize > 1)
+    {
+      // Wide rows: fetch fewer of them at a time from now on
+      long rowBytes = Math.max(1, batchBytes / batchRowCount);
+      fetchSize = (int)Math.max(1, Math.min(fetchSize - 1, governor.getMaxBatchBytes() / rowBytes));
+      governor.batchCutShort();
     }
-    else
+  }
+
+  private void releaseBatchBytes()
+  {
+    if (governor != null && batchBytes > 0)
     {
-      return false;
+      governor.release(batchBytes);
     }
+    batchBytes = 0;
   }
 
-  private void hive05deserialize(Object o)
+  @Override
+  public boolean next() throws SQLException
+  {
+    batchRowIdx++;
+    while (batchRowIdx >= batchRowCount)
+    {
+      if (endOfResults)
+      {
+        return false;
+      }
+      fetchNextBatch();
+    }
+    return true;
+  }
+
+  private void hive05deserialize(Object o, int rowIdx)
   {
     ArrayList<?> row = (ArrayList<?>)o;
     for (int i = 0; i < row.size(); i++)
     {
-      currentRow.set(i, row.get(i));
+      columns[i][rowIdx] = row.get(i);
     }
   }
 
-  private void hive07deserialize(Object o) throws SQLException
+  private void initRowInspectors() throws SerDeException
+  {
+    rowInspector = (StructObjectInspector)ds.getObjectInspector();
+    List<? extends StructField> fields = rowInspector.getAllStructFieldRefs();
+    fieldRefs = fields.toArray(new StructField[fields.size()]);
+    fieldInspectors = new ObjectInspector[fieldRefs.length];
+    for (int i = 0; i < fieldRefs.length; i++)
+    {
+      fieldInspectors[i] = fieldRefs[i].getFieldObjectInspector();
+    }
+  }
+
+  private void hive07deserialize(Object o, int rowIdx) throws SQLException
   {
     try
     {
-      StructObjectInspector soi = (StructObjectInspector)ds.getObjectInspector();
-      List<? extends StructField> fieldRefs = soi.getAllStructFieldRefs();
-      for (int i = 0; i < fieldRefs.size(); i++)
+      if (rowInspector == null)
+      {
+        initRowInspectors();
+      }
+
+      for (int i = 0; i < fieldRefs.length; i++)
       {
-        StructField fieldRef = fieldRefs.get(i);
-        ObjectInspector oi = fieldRef.getFieldObjectInspector();
-        Object obj = soi.getStructFieldData(o, fieldRef);
-        obj = ObjectInspectorUtils.copyToStandardObject(obj, oi, ObjectInspectorCopyOption.JAVA);
-        if (obj != null && oi.getCategory() != ObjectInspector.Category.PRIMITIVE)
+        ObjectInspector oi = fieldInspectors[i];
+        Object obj = rowInspector.getStructFieldData(o, fieldRefs[i]);
+        if (obj != null)
         {
-          obj = obj.toString();
+          if (oi.getCategory() == ObjectInspector.Category.PRIMITIVE)
+          {
+            // Same as copyToStandardObject(..., JAVA) for a primitive, without the generic dispatch
+            obj = ((PrimitiveObjectInspector)oi).getPrimitiveJavaObject(obj);
+          }
+          else
+          {
+            obj = ObjectInspectorUtils.copyToStandardObject(obj, oi, ObjectInspectorCopyOption.JAVA).toString();
+          }
         }
-        currentRow.set(i, obj);
+        columns[i][rowIdx] = obj;
       }
     }
     catch(SerDeException e)
@@ -234,7 +344,7 @@ public class FetchNResultSet implements ResultSet
   @Override
   public Object getObject(int columnIndex) throws SQLException
   {
-    return currentRow.get(columnIndex - 1);
+    return columns[columnIndex - 1][batchRowIdx];
   }
 
   // Everything else passes args down to hiveResultSet
@@ -272,6 +382,7 @@ public class FetchNResultSet implements ResultSet
   @Override
   public void close() throws SQLException
   {
+    releaseBatchBytes();
     hiveResultSet.close();
   }
 
@@ -0,0 +1,337 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Writes the rows to a local file through a file channel, in large buffers, as CSV if the file
+ * name ends in ".csv" and otherwise in a simple binary format.
+ *
+ * The CSV file starts with a line of column names; values that contain a comma, a quote or a
+ * line break are quoted, and NULL is an empty field.
+ *
+ * The binary file starts with "OHR1", the number of columns (a 4-byte int) and their names. Each
+ * value is then a tag byte followed by its data (big-endian):
+ *
+ * 	0	NULL
+ * 	1	integer: 8-byte long
+ * 	2	floating point: 8-byte double
+ * 	3	boolean: 1 byte
+ * 	4	timestamp: 8-byte milliseconds since 1970, 4-byte nanoseconds
+ * 	5	anything else, as text: 4-byte length, then UTF-8
+ *
+ * A rollback truncates the file to the end of the last commit, so, as in Oracle, a failed load
+ * leaves only the rows that were committed.
+ */
+public class FileSink implements OraHiveSink {
+
+	public static final String CSV_EXTENSION = ".csv";
+
+	private static final int BUFFER_BYTES = 1 << 20;
+	private static final int TEXT_CHARS = 1 << 16;	//<- CSV rows are encoded in blocks of about this size
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final byte[] BINARY_MAGIC = {'O', 'H', 'R', '1'};
+
+	private static final byte TAG_NULL = 0;
+	private static final byte TAG_INTEGER = 1;
+	private static final byte TAG_DOUBLE = 2;
+	private static final byte TAG_BOOLEAN = 3;
+	private static final byte TAG_TIMESTAMP = 4;
+	private static final byte TAG_TEXT = 5;
+
+	private final File file;
+	private final boolean csv;
+	private final CharsetEncoder encoder = UTF8.newEncoder();
+	private final StringBuilder text = new StringBuilder();
+	private char[] chars = new char[TEXT_CHARS];
+
+	private FileChannel channel;
+	private ByteBuffer buffer;
+	private int columnCount;
+	private long committedBytes;
+
+	public FileSink(File file) {
+
+		this.file = file;
+		this.csv = file.getName().toLowerCase().endsWith(CSV_EXTENSION);
+	}
+
+	@Override
+	public String getName() {
+		return this.file.getPath();
+	}
+
+	@Override
+	public void open(List<OracleTableColumn> columns) throws SQLException {
+
+		this.columnCount = columns.size();
+		try {
+			this.channel = new FileOutputStream(this.file).getChannel();
+			// The encoder is much faster into an array, which the channel then copies once...
+			this.buffer = this.csv ? ByteBuffer.allocate(BUFFER_BYTES) : ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+			if(this.csv) {
+				this.text.setLength(0);
+				for(int idx = 0; idx < columns.size(); idx++) {
+					if(idx > 0)
+						this.text.append(',');
+					appendCsvText(columns.get(idx).getName());
+				}
+				this.text.append('\n');
+				putText();
+			}
+			else {
+				this.buffer.put(BINARY_MAGIC);
+				this.buffer.putInt(columns.size());
+				for(OracleTableColumn column : columns)
+					putBinaryValue(column.getName());
+			}
+			flush();
+			this.committedBytes = this.channel.position();
+		}
+		catch(IOException ex) {
+			throw writeFailed(ex);
+		}
+	}
+
+	@Override
+	public long addRow(ResultSet resultSet) throws SQLException {
+
+		try {
+			if(this.csv) {
+				int start = this.text.length();
+				for(int idx = 1; idx <= this.columnCount; idx++) {	//<- JDBC is 1-based
+					if(idx > 1)
+						this.text.append(',');
+					appendCsvValue(resultSet.getObject(idx));
+				}
+				this.text.append('\n');
+				long result = this.text.length() - start;
+				if(this.text.length() >= TEXT_CHARS)
+					putText();
+				return result;
+			}
+
+			long start = this.buffer.position();
+			for(int idx = 1; idx <= this.columnCount; idx++)
+				putBinaryValue(resultSet.getObject(idx));
+			// The buffer may have been written out part way through the row...
+			return Math.max(0, this.buffer.position() - start);
+		}
+		catch(IOException ex) {
+			throw writeFailed(ex);
+		}
+	}
+
+	private void appendCsvValue(Object value) {
+
+		if(value == null)
+			return;
+		if(value instanceof BigDecimal)
+			this.text.append(((BigDecimal)value).toPlainString());
+		else if(value instanceof Number || value instanceof Boolean)
+			this.text.append(value);
+		else
+			appendCsvText(value.toString());
+	}
+
+	private void appendCsvText(String value) {
+
+		boolean quote = false;
+		for(int idx = 0; idx < value.length() && !quote; idx++) {
+			char c = value.charAt(idx);
+			quote = (c == ',' || c == '"' || c == '\n' || c == '\r');
+		}
+		if(!quote) {
+			this.text.append(value);
+			return;
+		}
+		this.text.append('"');
+		for(int idx = 0; idx < value.length(); idx++) {
+			char c = value.charAt(idx);
+			if(c == '"')
+				this.text.append('"');
+			this.text.append(c);
+		}
+		this.text.append('"');
+	}
+
+	// Encodes the text straight into the buffer, writing the buffer out whenever it fills up...
+	private void putText() throws IOException {
+
+		if(this.chars.length < this.text.length())
+			this.chars = new char[this.text.length()];
+		this.text.getChars(0, this.text.length(), this.chars, 0);
+		CharBuffer chars = CharBuffer.wrap(this.chars, 0, this.text.length());
+		this.text.setLength(0);
+
+		this.encoder.reset();
+		while(true) {
+			CoderResult result = this.encoder.encode(chars, this.buffer, true);
+			if(result.isOverflow()) {
+				flush();
+				continue;
+			}
+			if(result.isError())
+				result.throwException();
+			break;
+		}
+		while(this.encoder.flush(this.buffer).isOverflow())
+			flush();
+	}
+
+	private void putBinaryValue(Object value) throws IOException {
+
+		ensureRemaining(13);	//<- The longest value other than text
+
+		if(value == null)
+			this.buffer.put(TAG_NULL);
+		else if(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			this.buffer.put(TAG_INTEGER);
+			this.buffer.putLong(((Number)value).longValue());
+		}
+		else if(value instanceof Double || value instanceof Float) {
+			this.buffer.put(TAG_DOUBLE);
+			this.buffer.putDouble(((Number)value).doubleValue());
+		}
+		else if(value instanceof Boolean) {
+			this.buffer.put(TAG_BOOLEAN);
+			this.buffer.put((byte)(((Boolean)value).booleanValue() ? 1 : 0));
+		}
+		else if(value instanceof java.util.Date) {
+			this.buffer.put(TAG_TIMESTAMP);
+			this.buffer.putLong(((java.util.Date)value).getTime());
+			this.buffer.putInt(value instanceof Timestamp ? ((Timestamp)value).getNanos() : 0);
+		}
+		else {
+			String text = (value instanceof BigDecimal) ? ((BigDecimal)value).toPlainString() : value.toString();
+			byte[] bytes = text.getBytes(UTF8);
+			this.buffer.put(TAG_TEXT);
+			ensureRemaining(4);
+			this.buffer.putInt(bytes.length);
+			if(bytes.length <= this.buffer.capacity()) {
+				ensureRemaining(bytes.length);
+				this.buffer.put(bytes);
+			}
+			else {
+				flush();
+				writeFully(ByteBuffer.wrap(bytes));
+			}
+		}
+	}
+
+	private void ensureRemaining(int bytes) throws IOException {
+
+		if(this.buffer.remaining() < bytes)
+			flush();
+	}
+
+	// Writes out everything added so far...
+	private void writeOut() throws IOException {
+
+		if(this.text.length() > 0)
+			putText();
+		flush();
+	}
+
+	private void flush() throws IOException {
+
+		this.buffer.flip();
+		writeFully(this.buffer);
+		this.buffer.clear();
+	}
+
+	private void writeFully(ByteBuffer bytes) throws IOException {
+
+		while(bytes.hasRemaining())
+			this.channel.write(bytes);
+	}
+
+	@Override
+	public void writeBatch() throws SQLException {
+
+		try {
+			writeOut();
+		}
+		catch(IOException ex) {
+			throw writeFailed(ex);
+		}
+	}
+
+	@Override
+	public void commit(boolean durable) throws SQLException {
+
+		try {
+			writeOut();
+			if(durable)
+				this.channel.force(false);
+			this.committedBytes = this.channel.position();
+		}
+		catch(IOException ex) {
+			throw writeFailed(ex);
+		}
+	}
+
+	@Override
+	public void rollback() {
+
+		if(this.channel == null)
+			return;
+		try {
+			this.text.setLength(0);
+			this.buffer.clear();
+			this.channel.truncate(this.committedBytes);
+		}
+		catch(IOException e) {}
+	}
+
+	@Override
+	public void close() throws SQLException {
+
+		if(this.channel == null)
+			return;
+		try {
+			try {
+				writeOut();
+			}
+			finally {
+				this.channel.close();
+			}
+		}
+		catch(IOException ex) {
+			throw writeFailed(ex);
+		}
+	}
+
+	private SQLException writeFailed(IOException ex) {
+		return new SQLException(String.format("Unable to write to the file \"%s\".", this.file), ex);
+	}
+}
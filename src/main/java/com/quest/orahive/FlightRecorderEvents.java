@@ -0,0 +1,263 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.quest.orahive;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Java Flight Recorder events for each stage a batch of rows goes through, so that a slow load
+ * can be lined up against garbage collection and socket waits in the same recording.
+ *
+ * JFR events would normally be subclasses of jdk.jfr.Event, but OraHive is built for JVMs that
+ * predate JFR, so the event types are defined at run-time through jdk.jfr.EventFactory (Java 11
+ * onwards) via reflection. Every event has the same fields: a batch id, a row count, an estimate
+ * of the bytes in the batch and the Oracle table the batch is for (if any).
+ *
+ * When JFR is unavailable, or no recording has the event enabled, begin() returns a span that
+ * does nothing, so the cost is one check per batch.
+ */
+public class FlightRecorderEvents {
+
+	private static final Log LOG = LogFactory.getLog(FlightRecorderEvents.class);
+
+	private static final String CATEGORY = "OraHive";
+
+	public enum Type {
+
+		HIVE_FETCH("com.quest.orahive.HiveFetch", "Hive Fetch", "A batch of rows fetched from Hive over Thrift"),
+		HIVE_DESERIALIZE("com.quest.orahive.HiveDeserialize", "Hive Deserialize", "A batch of Hive rows deserialized"),
+		ORACLE_EXECUTE_BATCH("com.quest.orahive.OracleExecuteBatch", "Oracle Execute Batch", "A batch of rows sent to Oracle"),
+		ORACLE_COMMIT("com.quest.orahive.OracleCommit", "Oracle Commit", "A commit of the rows loaded into Oracle so far");
+
+		private final String name;
+		private final String label;
+		private final String description;
+
+		private Object factory;		//<- jdk.jfr.EventFactory
+		private Object eventType;	//<- jdk.jfr.EventType
+
+		private Type(String name, String label, String description) {
+
+			this.name = name;
+			this.label = label;
+			this.description = description;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+	}
+
+	/**
+	 * An event that has begun. end() marks the end of the stage, which may be before the event's
+	 * fields are known and it is committed.
+	 */
+	public static class Span {
+
+		private final Object event;	//<- jdk.jfr.Event
+
+		private Span(Object event) {
+			this.event = event;
+		}
+
+		public void end() {
+
+			if(this.event != null)
+				invoke(EVENT_END, this.event);
+		}
+
+		public void commit(long batchId, long rows, long bytes, String target) {
+
+			if(this.event == null)
+				return;
+
+			invoke(EVENT_SET, this.event, 0, batchId);
+			invoke(EVENT_SET, this.event, 1, rows);
+			invoke(EVENT_SET, this.event, 2, bytes);
+			invoke(EVENT_SET, this.event, 3, target);
+			invoke(EVENT_COMMIT, this.event);
+		}
+	}
+
+	private static final Span DISABLED = new Span(null);
+
+	private static Method EVENT_TYPE_IS_ENABLED;
+	private static Method FACTORY_NEW_EVENT;
+	private static Method EVENT_BEGIN;
+	private static Method EVENT_END;
+	private static Method EVENT_SET;
+	private static Method EVENT_COMMIT;
+
+	private static final boolean AVAILABLE = registerEventTypes();
+
+	public static boolean isAvailable() {
+		return AVAILABLE;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static boolean registerEventTypes() {
+
+		try {
+			Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+			Constructor<?> annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+			Class<? extends Annotation> nameAnnotation = (Class<? extends Annotation>)Class.forName("jdk.jfr.Name");
+			Class<? extends Annotation> labelAnnotation = (Class<? extends Annotation>)Class.forName("jdk.jfr.Label");
+			Class<? extends Annotation> descriptionAnnotation = (Class<? extends Annotation>)Class.forName("jdk.jfr.Description");
+			Class<? extends Annotation> categoryAnnotation = (Class<? extends Annotation>)Class.forName("jdk.jfr.Category");
+			Class<? extends Annotation> dataAmountAnnotation = (Class<? extends Annotation>)Class.forName("jdk.jfr.DataAmount");
+			Class<? extends Annotation> stackTraceAnnotation = (Class<? extends Annotation>)Class.forName("jdk.jfr.StackTrace");
+
+			Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+			Constructor<?> valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+
+			Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+			Method createFactory = eventFactoryClass.getMethod("create", List.class, List.class);
+			Method getEventType = eventFactoryClass.getMethod("getEventType");
+
+			Class<?> eventClass = Class.forName("jdk.jfr.Event");
+			EVENT_TYPE_IS_ENABLED = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+			FACTORY_NEW_EVENT = eventFactoryClass.getMethod("newEvent");
+			EVENT_BEGIN = eventClass.getMethod("begin");
+			EVENT_END = eventClass.getMethod("end");
+			EVENT_SET = eventClass.getMethod("set", int.class, Object.class);
+			EVENT_COMMIT = eventClass.getMethod("commit");
+
+			// The fields, in the order Span.commit() sets them...
+			List<Object> fields = new ArrayList<Object>();
+			fields.add(valueDescriptor.newInstance(long.class, "batchId"
+							,Arrays.asList(annotationElement.newInstance(labelAnnotation, "Batch Id"))));
+			fields.add(valueDescriptor.newInstance(long.class, "rows"
+							,Arrays.asList(annotationElement.newInstance(labelAnnotation, "Rows"))));
+			fields.add(valueDescriptor.newInstance(long.class, "bytes"
+							,Arrays.asList(annotationElement.newInstance(labelAnnotation, "Estimated Bytes")
+										  ,annotationElement.newInstance(dataAmountAnnotation, "BYTES"))));
+			fields.add(valueDescriptor.newInstance(String.class, "target"
+							,Arrays.asList(annotationElement.newInstance(labelAnnotation, "Oracle Table"))));
+
+			for(Type type : Type.values()) {
+				List<Object> annotations = new ArrayList<Object>();
+				annotations.add(annotationElement.newInstance(nameAnnotation, type.name));
+				annotations.add(annotationElement.newInstance(labelAnnotation, type.label));
+				annotations.add(annotationElement.newInstance(descriptionAnnotation, type.description));
+				annotations.add(annotationElement.newInstance(categoryAnnotation, new String[] {CATEGORY}));
+				// The stack trace would only show the reflective call to commit()...
+				annotations.add(annotationElement.newInstance(stackTraceAnnotation, Boolean.FALSE));
+
+				type.factory = createFactory.invoke(null, annotations, Collections.unmodifiableList(fields));
+				type.eventType = getEventType.invoke(type.factory);
+			}
+			return true;
+		}
+		catch(ClassNotFoundException ex) {
+			LOG.debug("Java Flight Recorder events are not available in this JVM.");
+			return false;
+		}
+		catch(Exception ex) {
+			LOG.debug("Unable to define the Java Flight Recorder events.", ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Begins an event, or returns a span that does nothing if no recording wants the event.
+	 */
+	public static Span begin(Type type) {
+
+		if(!AVAILABLE || !Boolean.TRUE.equals(invoke(EVENT_TYPE_IS_ENABLED, type.eventType)))
+			return DISABLED;
+
+		Object event = invoke(FACTORY_NEW_EVENT, type.factory);
+		if(event == null)
+			return DISABLED;
+		invoke(EVENT_BEGIN, event);
+		return new Span(event);
+	}
+
+	private static Object invoke(Method method, Object target, Object... args) {
+
+		try {
+			return method.invoke(target, args);
+		}
+		catch(Exception ex) {
+			LOG.debug(String.format("Unable to call %s on a Java Flight Recorder event.", method.getName()), ex);
+			return null;
+		}
+	}
+
+	/**
+	 * Starts a recording of the JVM's usual events and OraHive's own, which is written to the file when it is stopped.
+	 *
+	 * @return The recording (a jdk.jfr.Recording), or null if a recording cannot be made.
+	 */
+	public static Object startRecording(String fileName) {
+
+		if(!AVAILABLE) {
+			LOG.warn("A Java Flight Recorder recording cannot be made as this JVM does not support custom events (Java 11 or later is required).");
+			return null;
+		}
+
+		try {
+			Class<?> configurationClass = Class.forName("jdk.jfr.Configuration");
+			Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+			Class<?> pathClass = Class.forName("java.nio.file.Path");
+
+			Object configuration = configurationClass.getMethod("getConfiguration", String.class).invoke(null, "default");
+			Object recording = recordingClass.getConstructor(configurationClass).newInstance(configuration);
+
+			for(Type type : Type.values())
+				recordingClass.getMethod("enable", String.class).invoke(recording, type.name);
+
+			Object path = Class.forName("java.nio.file.Paths").getMethod("get", String.class, String[].class).invoke(null, fileName, new String[0]);
+			recordingClass.getMethod("setDestination", pathClass).invoke(recording, path);
+			recordingClass.getMethod("setName", String.class).invoke(recording, Constants.ORAHIVE_PRODUCT_NAME);
+			// So that the recording is still written if OraHive exits with an error...
+			recordingClass.getMethod("setDumpOnExit", boolean.class).invoke(recording, true);
+			recordingClass.getMethod("start").invoke(recording);
+
+			LOG.info(String.format("Recording the load with Java Flight Recorder into \"%s\".", fileName));
+			return recording;
+		}
+		catch(Exception ex) {
+			LOG.warn(String.format("Unable to start a Java Flight Recorder recording into \"%s\".", fileName), ex);
+			return null;
+		}
+	}
+
+	public static void stopRecording(Object recording) {
+
+		if(recording == null)
+			return;
+
+		try {
+			recording.getClass().getMethod("stop").invoke(recording);
+			recording.getClass().getMethod("close").invoke(recording);
+		}
+		catch(Exception ex) {
+			LOG.warn("Unable to stop the Java Flight Recorder recording.", ex);
+		}
+	}
+}
@@ -16,10 +16,18 @@
 
 package com.quest.orahive;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.sql.CallableStatement;
+import java.sql.Clob;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -27,6 +35,13 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -61,6 +76,25 @@ import org.apache.log4j.PropertyConfigurator;
 public class HiveJdbcClient {
 
 	private static final Log /*OraOopLog*/ LOG = /*OraOop*/LogFactory.getLog(HiveJdbcClient.class);
+	
+	// The options that can be given to each of the targets in a targets file...
+	private static final List<String> FAN_OUT_TARGET_OPTIONS = Arrays.asList(Constants.CONF_ORACLE_JDBC_URL
+																			,Constants.CONF_ORACLE_JDBC_USER
+																			,Constants.CONF_ORACLE_JDBC_PASSWORD
+																			,Constants.CONF_ORACLE_SCHEMA
+																			,Constants.CONF_ORACLE_TABLENAME
+																			,Constants.CONF_ORACLE_TABLESPACE
+																			,Constants.CONF_EXPORT_MODE
+																			,Constants.CONF_ORACLE_INSERT_BATCH_SIZE
+																			,Constants.CONF_ORACLE_INSERT_COMMIT_BATCH_COUNT
+																			,Constants.CONF_ORACLE_ASYNC_COMMIT
+																			,Constants.CONF_ORACLE_REJECT_LIMIT
+																			,Constants.CONF_ORACLE_ERROR_LOG_TABLE
+																			,Constants.CONF_ORACLE_KEY_COLUMNS
+																			,Constants.CONF_ORACLE_SUSPEND_INDEXES
+																			,Constants.CONF_ORACLE_DISABLE_CONSTRAINTS
+																			,Constants.CONF_ORACLE_INDEX_REBUILD_PARALLELISM
+																			,Constants.CONF_ORACLE_ROUTES);
 
 	public static void main(String[] args) {
 		
@@ -83,45 +117,156 @@ public class HiveJdbcClient {
 		OraHiveOptions opts = getOraHiveOptions(conf);
 		OraHiveCounters counters = new OraHiveCounters();
 		
+		// The HQL is narrowed to the partitions that have not been exported yet...
+		IncrementalExport incrementalExport = null;
+		if(!opts.incrementalWatermarkFile.isEmpty())
+			incrementalExport = planIncrementalExport(opts);
+		
+		Object flightRecording = null;
+		if(!opts.flightRecordingFile.isEmpty())
+			flightRecording = FlightRecorderEvents.startRecording(opts.flightRecordingFile);
+		
+		// Other Oracle tables to be loaded from the same Hive results...
+		List<OraHiveTarget> targets = getOraHiveTargets(conf, opts);
+		
+		// Every batch of rows held in memory counts against the one budget...
+		opts.memoryGovernor = createMemoryGovernor(opts);
+		for(OraHiveTarget target : targets)
+			target.opts.memoryGovernor = opts.memoryGovernor;
+		
+		long estimatedRows = getEstimatedHiveRowCount(opts);
+		
+		// Results cached by an earlier run make the Hive query unnecessary...
+		HiveResultCache resultCache = null;
+		String resultCacheKey = null;
+		ResultSet hiveResultSet = null;
+		if(opts.syntheticSource != null) {
+			LOG.info(opts.syntheticSource.describe());
+			hiveResultSet = opts.syntheticSource;
+		}
+		else if(!opts.resultCacheDir.isEmpty()) {
+			resultCache = createHiveResultCache(opts);
+			resultCacheKey = getHiveResultCacheKey(opts);
+			if(resultCacheKey != null)
+				hiveResultSet = openHiveResultCache(resultCache, resultCacheKey);
+			counters.hiveResultCacheHit = (hiveResultSet != null);
+		}
+		
     	try {		
-    		Connection hiveConnection = createHiveJdbcConnection(opts.hiveJdbcUrl, opts.hiveUserName, opts.hivePassword);
+    		Connection hiveConnection = null;
+    		if(hiveResultSet == null)
+    			hiveConnection = createHiveJdbcConnection(opts.hiveJdbcUrl, opts.hiveUserName, opts.hivePassword);
     		try {
-    			Connection oracleConnection = createOracleJdbcConnection(opts.oracleJdbcUrl, opts.oracleUserName, opts.oraclePassword);
+    			Connection oracleConnection = null;
+    			if(opts.sink.isEmpty()) {
+    				oracleConnection = createOracleJdbcConnection(opts.oracleJdbcUrl, opts.oracleUserName, opts.oraclePassword);
+    				initializeOracleSession(oracleConnection, opts);
+    			}
     			try {
-    	    		initializeOracleSession(oracleConnection, opts);
+    	    		connectOraHiveTargets(targets, oracleConnection);
     	    		 
-		    		Statement statement = hiveConnection.createStatement();
-			    
-				    LOG.info("Running: " + opts.hql);
-
-				    // Execute Hive Query...
-		    		long start = System.nanoTime();
-		    		ResultSet hiveResultSet = statement.executeQuery(opts.hql);
-		    		counters.hiveQueryTimeNanoSec = System.nanoTime() - start; 
+    	    		Statement statement = null;
+    	    		if(hiveConnection != null) {
+			    		statement = hiveConnection.createStatement();
+				    
+					    LOG.info("Running: " + opts.hql);
+	
+					    // Execute Hive Query...
+			    		long start = System.nanoTime();
+			    		hiveResultSet = statement.executeQuery(opts.hql);
+			    		counters.hiveQueryTimeNanoSec = System.nanoTime() - start; 
+			    		
+			    		// The batch settings can be chosen now that the shape of the results is known...
+			    		if(opts.planLoad)
+			    			planOracleLoad(opts, targets, hiveResultSet, estimatedRows);
+			    		
+			    		hiveResultSet = getBatchFetchingHiveResultSet(hiveResultSet, opts.fetchSize, opts.memoryGovernor, counters.phases);
+			    		
+			    		if(resultCache != null && resultCacheKey != null)
+			    			hiveResultSet = recordHiveResultCache(resultCache, resultCacheKey, hiveResultSet);
+    	    		}
+    	    		else if(opts.planLoad)
+    	    			planOracleLoad(opts, targets, hiveResultSet, estimatedRows);
+    	    		
+    	    		// The rows are transformed after they have been cached, so that changing the rules does not invalidate the cache...
+    	    		if(opts.transformer != null)
+    	    			hiveResultSet = transformHiveResults(opts, hiveResultSet);
+    	    		
+    	    		if(opts.skipExistingKeys)
+    	    			hiveResultSet = skipExistingOracleKeys(opts, oracleConnection, hiveResultSet, counters);
+    	    		
+    	    		if(opts.duplicateKeyAction != null)
+    	    			hiveResultSet = deduplicateHiveResults(opts, hiveResultSet, counters);
+    	    		
+    	    		// Unchanged rows are dropped last, so that the row hash column is the last column.
+    	    		// The detector is kept, as it also knows which Oracle rows are no longer in the Hive results...
+    	    		ChangeDetectingResultSet changedRows = null;
+    	    		if(!opts.rowHashColumn.isEmpty()) {
+    	    			changedRows = detectChangedHiveRows(opts, oracleConnection, hiveResultSet, counters);
+    	    			hiveResultSet = changedRows;
+    	    		}
+    	    		
+    	    		// The rows are checked as they are handed to the Oracle inserts, after any have been dropped...
+    	    		LoadVerifier loadVerifier = null;
+    	    		if(opts.verifyLoad) {
+    	    			loadVerifier = createLoadVerifier(opts, oracleConnection, hiveResultSet);
+    	    			hiveResultSet = loadVerifier.wrap(hiveResultSet);
+    	    		}
 		    		
-		    		// Get column definitions from the Hive resultset...
-				    List<OracleTableColumn> oracleColumns = getOracleTableColumnsForHiveResults(hiveResultSet);
+    	    		if(opts.progressIntervalSec > 0) {
+    	    			counters.progress = new ProgressReporter(estimatedRows);
+    	    			counters.progress.start(opts.progressIntervalSec * 1000L);
+    	    		}
+    	    		
+    	    		boolean exported;
+    	    		try {
+	    	    		if(!opts.sink.isEmpty()) {
+	    	    			// The rows go somewhere other than Oracle, through the same batches and commits...
+	    	    			List<OracleTableColumn> columns = getOracleTableColumnsForHiveResults(hiveResultSet);
+	    	    			
+	    	    			exported = columns != null && writeHiveResultsToSink(opts, createSink(opts), columns, hiveResultSet, counters);
+	    	    		}
+	    	    		else if(targets.isEmpty()) {
+				    		// Get column definitions from the Hive resultset...
+						    List<OracleTableColumn> oracleColumns = getOracleTableColumnsForHiveResults(hiveResultSet);
+						    
+						    exported = oracleColumns != null && exportHiveResultsToOracle(opts, oracleColumns, oracleConnection, hiveResultSet, changedRows, counters, true);
+	    	    		}
+	    	    		else
+	    	    			exported = exportHiveResultsToOracleTargets(opts, targets, hiveResultSet, counters);
+    	    		}
+    	    		finally {
+    	    			if(counters.progress != null)
+    	    				counters.progress.stop();
+    	    		}
 
-				    if (opts.exportMode.equals(Constants.ExportMode.CREATE)) {
-				    	// Create an Oracle table based on the columns in the Hive resultset...
-				    	createOracleTableWithRetry(opts, oracleColumns, oracleConnection);	//<- Lets the user retry this if it fails.
+				    if(!exported) {
+				    	
+				    	if(hiveResultSet instanceof HiveResultCache.CachingResultSet)
+				    		((HiveResultCache.CachingResultSet)hiveResultSet).drain();
+				    	System.exit(1);
 				    }
 				    
-		    		// Generate the Oracle insert statement...
-				    String insertSql = generateOracleInsertStatement(opts, oracleColumns);
+				    if(loadVerifier != null && !verifyOracleLoad(opts, loadVerifier, oracleConnection))
+				    	System.exit(1);
 				    
-				    // Insert the Hive data into Oracle...
-				    insertHiveResultsIntoOracleTable(opts, insertSql, oracleColumns, oracleConnection, hiveResultSet, counters);
+				    // The rows have been committed, so these partitions need not be exported again...
+				    if(incrementalExport != null)
+				    	commitIncrementalExport(opts, incrementalExport);
 				    
 				    //hiveResultSet.close();	//<- Not required/supported
-				    statement.close();
+				    if(statement != null)
+				    	statement.close();
 		    	}
 		    	finally {
-				    oracleConnection.close();
+		    		closeOraHiveTargets(targets, oracleConnection);
+		    		if(oracleConnection != null)
+		    			oracleConnection.close();
 		    	}
 	    	}
 	    	finally {
-			    hiveConnection.close();
+	    		if(hiveConnection != null)
+	    			hiveConnection.close();
 	    	}
 		    
 		} 
@@ -131,20 +276,358 @@ public class HiveJdbcClient {
     				, ex);
     	}
 
-    	LOG.info(String.format("\n\n********************************************************************\n"+
+    	StringBuilder summary = new StringBuilder(); 
+    	summary.append(String.format("\n\n********************************************************************\n"+
     							"\tTotal time                        : %s sec.\n"+
     							"\tNumber of records processed       : %s\n"+
     							"\tTime spent executing HQL statement: %s sec.\n"+ 
-    							"\tTime spent fetching Hive data     : %s sec.\n"+
-    							"\tTime spent inserting into Oracle  : %s sec."
+    							"\tTime spent fetching Hive data     : %s sec."
     							,(System.nanoTime() - mainStartTime) / Math.pow(10,9)
     							,counters.rowsProcessed
     							,counters.hiveQueryTimeNanoSec / Math.pow(10,9)
-    							,counters.hiveFetchTimeNanoSec / Math.pow(10,9)
-    							,counters.oracleInsertTimeNanoSec / Math.pow(10,9)));
+    							,counters.hiveFetchTimeNanoSec / Math.pow(10,9)));
+    	
+    	if(counters.hiveResultCacheHit)
+    		summary.append("\n\tThe Hive results were replayed from the local result cache.");
+    	
+    	if(opts.syntheticSource != null)
+    		summary.append("\n\tThe rows were generated by the synthetic source; Hive was not used.");
+    	
+    	if(!opts.sink.isEmpty())
+    		summary.append(String.format("\n\tThe rows were written to the sink %s; the Oracle times below are for the sink."
+    							,opts.sink));
+    	
+    	summary.append(String.format("\n\tPeak memory held by row batches   : %.1f MB (budget %.1f MB)"
+    							,opts.memoryGovernor.getPeakInFlightBytes() / (1024.0 * 1024.0)
+    							,opts.memoryGovernor.getBudgetBytes() / (1024.0 * 1024.0)));
+    	
+    	if(opts.memoryGovernor.getBatchesCutShort() > 0)
+    		summary.append(String.format("\n\tBatches cut short for wide rows   : %s"
+    							,opts.memoryGovernor.getBatchesCutShort()));
+    	
+    	if(!targets.isEmpty())
+    		summary.append(String.format("\n\tTime Hive reader waited for memory: %s sec."
+    							,opts.memoryGovernor.getWaitTimeNanoSec() / Math.pow(10,9)));
+    	
+    	if(opts.skipExistingKeys)
+    		summary.append(String.format("\n\tRows skipped as already in Oracle : %s"+
+    							"\n\tTime spent reading Oracle keys    : %s sec."
+    							,counters.existingKeys
+    							,counters.oracleKeyReadTimeNanoSec / Math.pow(10,9)));
+    	
+    	if(opts.duplicateKeyAction != null)
+    		summary.append(String.format("\n\tRows with duplicate keys %-9s: %s"+
+    							"\n\tRows with probable duplicate keys : %s"
+    							,opts.duplicateKeyAction == Constants.DuplicateKeyAction.DROP ? "dropped" : "found"
+    							,counters.duplicateKeys
+    							,counters.probableDuplicateKeys));
+    	
+    	if(!counters.phases.isEmpty())
+    		summary.append(counters.phases.describe());
+    	
+    	if(targets.isEmpty())
+    		appendOracleSummary(summary, opts, counters);
+    	
+    	for(OraHiveTarget target : targets) {
+    		summary.append(String.format("\n\n\tTarget \"%s\" (%s)"+
+    							"\n\tNumber of records processed       : %s"+
+    							"\n\tTime Hive reader waited on target : %s sec."
+    							,target.name
+    							,getOracleTableName(target.opts)
+    							,target.counters.rowsProcessed
+    							,target.resultSet.getStallTimeNanoSec() / Math.pow(10,9)));
+    		appendOracleSummary(summary, target.opts, target.counters);
+    		if(!target.counters.phases.isEmpty())
+    			summary.append(target.counters.phases.describe());
+    	}
+    	
+    	LOG.info(summary.toString());
+    	
+    	if(!opts.metricsFile.isEmpty())
+    		writeMetricsFile(opts, counters, targets);
+    	
+    	FlightRecorderEvents.stopRecording(flightRecording);
 		
 	  }
 	
+	private static void writeMetricsFile(OraHiveOptions opts, OraHiveCounters counters, List<OraHiveTarget> targets) {
+		
+		StringBuilder metrics = new StringBuilder();
+		metrics.append("thread,phase,wall_nanosec,cpu_nanosec,allocated_bytes\n");
+		
+		counters.phases.appendMetrics(metrics, Constants.METRICS_MAIN_THREAD_NAME);
+		for(OraHiveTarget target : targets)
+			target.counters.phases.appendMetrics(metrics, target.name);
+		
+		try {
+			Writer writer = new FileWriter(opts.metricsFile);
+			try {
+				writer.write(metrics.toString());
+			}
+			finally {
+				writer.close();
+			}
+			LOG.info(String.format("The metrics for each phase of the load have been written to \"%s\".", opts.metricsFile));
+		}
+		catch(IOException ex) {
+			LOG.error(String.format("Unable to write the metrics file named \"%s\".", opts.metricsFile), ex);
+		}
+	}
+	
+	private static void appendOracleSummary(StringBuilder summary, OraHiveOptions opts, OraHiveCounters counters) {
+		
+    	summary.append(String.format("\n\tTime spent inserting into Oracle  : %s sec."
+    							,counters.oracleInsertTimeNanoSec / Math.pow(10,9)));
+    	
+    	summary.append(String.format("\n\tNumber of intermediate commits    : %s (%s)"+
+    							"\n\tAverage intermediate commit time  : %.3f ms"+
+    							"\n\tTime spent in the final commit    : %.3f ms"
+    							,counters.oracleCommits
+    							,opts.asyncCommit ? "COMMIT WRITE BATCH NOWAIT" : "COMMIT"
+    							,counters.oracleCommits == 0 ? 0.0 : (counters.oracleCommitTimeNanoSec / Math.pow(10,6)) / counters.oracleCommits
+    							,counters.oracleFinalCommitTimeNanoSec / Math.pow(10,6)));
+    	
+    	if(opts.router != null)
+    		for(int route = 0; route < opts.router.getRouteCount(); route++)
+    			summary.append(String.format("\n\tNumber of records routed to %s : %s"
+    								,getOracleRouteTarget(opts, route)
+    								,opts.router.getRowsRouted(route)));
+    	
+    	if(opts.rejectLimit != null)
+    		summary.append(String.format("\n\tNumber of records rejected        : %s"
+    							,counters.rowsRejected));
+    	
+    	if(opts.suspendIndexes || opts.disableConstraints.length > 0)
+    		summary.append(String.format("\n\tTime spent rebuilding indexes     : %s sec."+
+    							"\n\tTime spent enabling constraints   : %s sec."
+    							,counters.oracleIndexRebuildTimeNanoSec / Math.pow(10,9)
+    							,counters.oracleConstraintEnableTimeNanoSec / Math.pow(10,9)));
+    	
+    	if(opts.exportMode.equals(Constants.ExportMode.REPLACE))
+    		summary.append(String.format("\n\tTime spent swapping Oracle tables : %s sec."
+    							,counters.oracleSwapTimeNanoSec / Math.pow(10,9)));
+    	
+    	if(opts.exportMode.equals(Constants.ExportMode.UPSERT))
+    		summary.append(String.format("\n\tNumber of records merged          : %s"+
+    							"\n\tTime spent merging into Oracle    : %s sec."
+    							,counters.rowsMerged
+    							,counters.oracleMergeTimeNanoSec / Math.pow(10,9)));
+    	
+    	if(!opts.rowHashColumn.isEmpty())
+    		summary.append(String.format("\n\tRows new / changed / unchanged    : %s / %s / %s"+
+    							"\n\tTime spent reading Oracle hashes  : %s sec."
+    							,counters.rowsInserted
+    							,counters.rowsUpdated
+    							,counters.rowsUnchanged
+    							,counters.oracleKeyReadTimeNanoSec / Math.pow(10,9)));
+    	
+    	if(opts.cdcDeletes)
+    		summary.append(String.format("\n\tNumber of records deleted         : %s"+
+    							"\n\tTime spent deleting from Oracle   : %s sec."
+    							,counters.rowsDeleted
+    							,counters.oracleDeleteTimeNanoSec / Math.pow(10,9)));
+	}
+	
+	private static boolean exportHiveResultsToOracleTargets(OraHiveOptions opts
+															, List<OraHiveTarget> targets
+															, ResultSet hiveResultSet
+															, OraHiveCounters counters) {
+		
+		HiveResultFanOut fanOut = new HiveResultFanOut(hiveResultSet, opts.insertBatchSize, opts.memoryGovernor);
+		fanOut.setProgressReporter(counters.progress);
+		fanOut.setOffHeapBatches(opts.offHeapBatches);
+		fanOut.setPhaseAccounting(counters.phases);
+		
+		WorkerScope writers = new WorkerScope("OraHive target", opts.virtualThreads);
+		LOG.debug(String.format("The Oracle targets will be loaded on %s threads."
+								,writers.usesVirtualThreads() ? "virtual" : "platform"));
+		try {
+			try {
+				// Each target is loaded by its own thread from a bounded queue of the Hive results...
+				for(final OraHiveTarget target : targets) {
+					target.resultSet = fanOut.addTarget(target.name, opts.targetBufferBatches);
+					target.resultSet.setPhaseAccounting(target.counters.phases);
+					
+					writers.fork(new Callable<Boolean>() {
+						@Override
+						public Boolean call() {
+							try {
+								List<OracleTableColumn> oracleColumns = getOracleTableColumnsForHiveResults(target.resultSet);
+								
+								target.succeeded = oracleColumns != null && exportHiveResultsToOracle(target.opts
+																			, oracleColumns
+																			, target.oracleConnection
+																			, target.resultSet
+																			, null
+																			, target.counters
+																			, false);
+							}
+							catch(RuntimeException ex) {
+								LOG.error(String.format("An error occurred while loading the target \"%s\".", target.name), ex);
+							}
+							finally {
+								// The Hive reader must not wait for a target that has stopped reading...
+								target.resultSet.abandon();
+							}
+							return target.succeeded;
+						}
+					});
+				}
+				
+				fanOut.run();
+			}
+			catch(SQLException ex) {
+				LOG.error("An error occurred while fetching the Hive results for the Oracle targets.", ex);
+			}
+			finally {
+				counters.rowsProcessed = fanOut.getRowsRead();
+				counters.hiveFetchTimeNanoSec = fanOut.getFetchTimeNanoSec();
+			}
+			
+			writers.join();
+		}
+		catch(InterruptedException ex) {
+			LOG.error("Interrupted while loading the Oracle targets.", ex);
+			for(OraHiveTarget target : targets)
+				if(target.resultSet != null)
+					target.resultSet.fail(new SQLException("The load was interrupted.", ex));
+			Thread.currentThread().interrupt();
+		}
+		catch(ExecutionException ex) {
+			LOG.error("An error occurred while loading the Oracle targets.", ex.getCause());
+		}
+		finally {
+			writers.close();
+		}
+		
+		boolean result = true;
+		for(OraHiveTarget target : targets) {
+			if(!target.succeeded) {
+				LOG.error(String.format("The target \"%s\" (%s) was not loaded."
+										,target.name
+										,getOracleTableName(target.opts)));
+				result = false;
+			}
+		}
+		return result;
+	}
+	
+	private static boolean exportHiveResultsToOracle(OraHiveOptions opts
+													, List<OracleTableColumn> oracleColumns
+													, Connection oracleConnection
+													, ResultSet hiveResultSet
+													, ChangeDetectingResultSet changedRows
+													, OraHiveCounters counters
+													, boolean interactive) {
+		
+		// Failures are returned rather than ending the program, as a target's thread must only fail its own target,
+		// and only the main thread may ask the user anything...
+		
+		// In replace mode an Oracle table that does not exist yet is simply created and loaded...
+		boolean replaceOracleTable;
+		try {
+			replaceOracleTable = opts.exportMode.equals(Constants.ExportMode.REPLACE) &&
+								 oracleTableExists(opts, opts.oracleTable, oracleConnection);
+		}
+		catch(SQLException ex) {
+			LOG.error(String.format("Unable to determine whether the Oracle table %s exists."
+									,getOracleTableName(opts))
+					, ex);
+			return false;
+		}
+		
+	    if (opts.exportMode.equals(Constants.ExportMode.CREATE) ||
+	    	(opts.exportMode.equals(Constants.ExportMode.REPLACE) && !replaceOracleTable)) {
+	    	// Create an Oracle table based on the columns in the Hive resultset...
+	    	if (!createOracleTableWithRetry(opts, oracleColumns, oracleConnection, interactive))	//<- Lets the user retry this if it fails.
+	    		return false;
+	    }
+	    
+	    if (opts.rejectLimit != null) {
+	    	// Rows that Oracle rejects will be logged rather than aborting the load...
+	    	if (!createOracleErrorLogTable(opts, oracleConnection))
+	    		return false;
+	    }
+	    
+	    boolean result;
+	    if (opts.exportMode.equals(Constants.ExportMode.UPSERT)) {
+	    	
+	    	if (!checkOracleKeyColumns(opts, oracleColumns))
+	    		return false;
+	    	
+	    	// Load the Hive data into a session-private staging table and then merge it into the Oracle table...
+	    	String stagingTable = createOracleStagingTable(opts, oracleColumns, oracleConnection);
+	    	if (stagingTable == null)
+	    		return false;
+	    	try {
+	    		String insertSql = generateOracleInsertStatement(stagingTable, oracleColumns, "");
+	    		
+	    		result = insertHiveResultsIntoOracleTable(opts, insertSql, oracleColumns, oracleConnection, hiveResultSet, counters)
+	    				&& mergeOracleStagingTable(opts, stagingTable, oracleColumns, oracleConnection, counters);
+	    		
+	    		if (result && opts.cdcDeletes)
+	    			result = deleteMissingOracleRows(opts, changedRows, oracleConnection, counters);
+	    	}
+	    	finally {
+	    		dropOracleStagingTable(stagingTable, oracleConnection);
+	    	}
+	    }
+	    else if (replaceOracleTable) {
+	    	
+	    	// Load a shadow copy of the Oracle table and swap it in once it is complete...
+	    	result = replaceOracleTableWithShadowTable(opts, oracleColumns, oracleConnection, hiveResultSet, counters);
+	    }
+	    else {
+		    // Index maintenance is deferred until after the load when inserting into an existing table...
+		    List<String[]> suspendedIndexes = new ArrayList<String[]>();
+		    List<String> disabledConstraints = new ArrayList<String>();
+		    if (opts.exportMode.equals(Constants.ExportMode.INSERT)) {
+		    	if (opts.suspendIndexes) {
+		    		suspendedIndexes = suspendOracleTableIndexes(opts, oracleConnection);
+		    		if (suspendedIndexes == null)
+		    			return false;
+		    	}
+		    	disabledConstraints = disableOracleTableConstraints(opts, oracleConnection);
+		    	if (disabledConstraints == null) {
+		    		rebuildOracleTableIndexes(opts, suspendedIndexes, oracleConnection, counters);
+		    		return false;
+		    	}
+		    }
+		    
+		    result = false;
+		    try {
+		    	if (opts.router != null) {
+		    		// Insert each row of the Hive data into the Oracle table or partition it is routed to...
+		    		result = insertHiveResultsIntoOracleRoutes(opts, oracleColumns, oracleConnection, hiveResultSet, counters);
+		    	}
+		    	else {
+		    		// An existing table's columns are bound as the types they really are...
+		    		List<OracleTableColumn> insertColumns = oracleColumns;
+		    		if (opts.exportMode.equals(Constants.ExportMode.INSERT))
+		    			insertColumns = getOracleInsertColumns(opts, getOracleTableName(opts), oracleColumns, oracleConnection);
+		    		
+		    		if (insertColumns != null) {
+			    		// Generate the Oracle insert statement...
+			    		String insertSql = generateOracleInsertStatement(opts, insertColumns);
+			    		
+			    		// Insert the Hive data into Oracle...
+			    		result = insertHiveResultsIntoOracleTable(opts, insertSql, insertColumns, oracleConnection, hiveResultSet, counters);
+		    		}
+		    	}
+		    }
+		    finally {
+		    	// Put the indexes and constraints back the way they were, whether or not the load succeeded...
+		    	result = rebuildOracleTableIndexes(opts, suspendedIndexes, oracleConnection, counters) & result;
+		    	result = enableOracleTableConstraints(opts, disabledConstraints, oracleConnection, counters) & result;
+		    }
+	    }
+	    
+	    if (opts.rejectLimit != null)
+	    	counters.rowsRejected = getOracleErrorLogRowCount(opts, oracleConnection);
+	    
+	    return result;
+	}
+	
 	private static void showWelcomeMessage() {
 
 		String msg1 = String.format("Using %s %s"
@@ -205,6 +688,35 @@ public class HiveJdbcClient {
 		  
 		  processGeneralOption(conf, line, Constants.CONF_HIVE_QUERY);
 		  processGeneralOption(conf, line, Constants.CONF_HIVE_QUERY_FILENAME);
+		  processGeneralOption(conf, line, Constants.CONF_SYNTHETIC_SOURCE);
+		  processGeneralOption(conf, line, Constants.CONF_SINK);
+		  processGeneralOption(conf, line, Constants.CONF_TRANSFORM_RULES);
+		  processGeneralOption(conf, line, Constants.CONF_DEDUP);
+		  processGeneralOption(conf, line, Constants.CONF_DEDUP_MEMORY_MB);
+		  
+		  processGeneralOption(conf, line, Constants.CONF_HIVE_FETCH_SIZE);
+		  processGeneralOption(conf, line, Constants.CONF_PLAN_LOAD);
+		  processGeneralOption(conf, line, Constants.CONF_PLAN_ONLY);
+		  
+		  processGeneralOption(conf, line, Constants.CONF_PROGRESS_INTERVAL_SEC);
+		  processGeneralOption(conf, line, Constants.CONF_ESTIMATED_ROWS);
+		  processGeneralOption(conf, line, Constants.CONF_METRICS_FILE);
+		  processGeneralOption(conf, line, Constants.CONF_FLIGHT_RECORDING);
+		  processGeneralOption(conf, line, Constants.CONF_VERIFY_LOAD);
+		  
+		  processGeneralOption(conf, line, Constants.CONF_FAN_OUT_TARGETS);
+		  processGeneralOption(conf, line, Constants.CONF_FAN_OUT_BUFFER_BATCHES);
+		  processGeneralOption(conf, line, Constants.CONF_VIRTUAL_THREADS);
+		  
+		  processGeneralOption(conf, line, Constants.CONF_MEMORY_BUDGET_MB);
+		  processGeneralOption(conf, line, Constants.CONF_OFF_HEAP_BATCHES);
+		  
+		  processGeneralOption(conf, line, Constants.CONF_HIVE_RESULT_CACHE_DIR);
+		  processGeneralOption(conf, line, Constants.CONF_HIVE_RESULT_CACHE_MAX_MB);
+		  processGeneralOption(conf, line, Constants.CONF_HIVE_RESULT_CACHE_TTL_HOURS);
+		  processGeneralOption(conf, line, Constants.CONF_HIVE_METASTORE_URI);
+		  processGeneralOption(conf, line, Constants.CONF_HIVE_INPUT_TABLES);
+		  processGeneralOption(conf, line, Constants.CONF_INCREMENTAL_WATERMARK_FILE);
 		  
 		  processGeneralOption(conf, line, Constants.CONF_ORACLE_SCHEMA);
 		  processGeneralOption(conf, line, Constants.CONF_ORACLE_TABLENAME);
@@ -212,8 +724,22 @@ public class HiveJdbcClient {
 		  
 		  processGeneralOption(conf, line, Constants.CONF_ORACLE_INSERT_BATCH_SIZE);
 		  processGeneralOption(conf, line, Constants.CONF_ORACLE_INSERT_COMMIT_BATCH_COUNT);
+		  processGeneralOption(conf, line, Constants.CONF_ORACLE_ASYNC_COMMIT);
+		  
+		  processGeneralOption(conf, line, Constants.CONF_ORACLE_REJECT_LIMIT);
+		  processGeneralOption(conf, line, Constants.CONF_ORACLE_ERROR_LOG_TABLE);
 		  
 		  processGeneralOption(conf, line, Constants.CONF_EXPORT_MODE);
+		  processGeneralOption(conf, line, Constants.CONF_ORACLE_KEY_COLUMNS);
+		  processGeneralOption(conf, line, Constants.CONF_ORACLE_SKIP_EXISTING_KEYS);
+		  processGeneralOption(conf, line, Constants.CONF_ORACLE_ROW_HASH_COLUMN);
+		  processGeneralOption(conf, line, Constants.CONF_ORACLE_CDC_DELETES);
+		  processGeneralOption(conf, line, Constants.CONF_ORACLE_METADATA_CACHE_DIR);
+		  
+		  processGeneralOption(conf, line, Constants.CONF_ORACLE_SUSPEND_INDEXES);
+		  processGeneralOption(conf, line, Constants.CONF_ORACLE_DISABLE_CONSTRAINTS);
+		  processGeneralOption(conf, line, Constants.CONF_ORACLE_INDEX_REBUILD_PARALLELISM);
+		  processGeneralOption(conf, line, Constants.CONF_ORACLE_ROUTES);
 		  
 			
 		  if(line.hasOption(Constants.CONF_LOG4J_PROPERTIES_FILE)) {
@@ -289,14 +815,225 @@ public class HiveJdbcClient {
 	    
 	    opts.addOption(hql);
 	    opts.addOption(hqlFile);
+	    
+	    // SYNTHETIC SOURCE
+	    
+	    Option syntheticSource = OptionBuilder.withArgName("properties-file")
+	    .hasArg()
+	    .withDescription("A file declaring the columns (type, length, nulls, distinct values) and number of rows to generate instead of running a Hive query, to measure how fast Oracle can load them")
+	    .create(Constants.CONF_SYNTHETIC_SOURCE);
+	    
+	    opts.addOption(syntheticSource);
+	    
+	    // SINK
+	    
+	    Option sink = OptionBuilder.withArgName("oracle/null/file:path/jdbc:url")
+	    .hasArg()
+	    .withDescription("Where the rows are written (default oracle): nowhere, to measure the Hive side of the load on its own; a local CSV (*.csv) or binary file; or the table of the same name in another database")
+	    .create(Constants.CONF_SINK);
+	    
+	    opts.addOption(sink);
+	    
+	    // TRANSFORMATION
+	    
+	    Option transformRules = OptionBuilder.withArgName("properties-file")
+	    .hasArg()
+	    .withDescription("A file of rules (trim, nullif, cast, substr, multiply, round, const, loadtime) applied to the columns of the Hive results before they are inserted into Oracle")
+	    .create(Constants.CONF_TRANSFORM_RULES);
+	    
+	    opts.addOption(transformRules);
+	    
+	    // DUPLICATE KEYS
+	    
+	    Option dedup = OptionBuilder.withArgName("drop/count/fail")
+	    .hasArg()
+	    .withDescription("Drop, count or fail on Hive rows that repeat the key columns of an earlier row, before they are inserted into Oracle")
+	    .create(Constants.CONF_DEDUP);
+	    
+	    Option dedupMemory = OptionBuilder.withArgName("MB")
+	    .hasArg()
+	    .withDescription(String.format("The memory (outside the heap) used to remember the keys seen (default is %d); once half of it is full, later duplicates are only counted. The \"" + Constants.CONF_ORACLE_SKIP_EXISTING_KEYS + "\" option may use as much again for the Oracle table's keys"
+	    								,Constants.DEFAULT_DEDUP_MEMORY_MB))
+	    .create(Constants.CONF_DEDUP_MEMORY_MB);
+	    
+	    opts.addOption(dedup);
+	    opts.addOption(dedupMemory);
+	    
+	    // LOAD PLANNING
+	    
+	    Option fetchSize = OptionBuilder.withArgName("rows")
+	    .hasArg()
+	    .withDescription("The number of rows to fetch from Hive at a time (default is the insert batch size)")
+	    .create(Constants.CONF_HIVE_FETCH_SIZE);
+	    
+	    Option planLoad = OptionBuilder.withArgName("true/false")
+	    .hasArg()
+	    .withDescription("Choose the insert batch size, batches per commit and fetch size from the shape of the Hive results, unless they are supplied")
+	    .create(Constants.CONF_PLAN_LOAD);
+	    
+	    Option planOnly = OptionBuilder.withArgName("true/false")
+	    .hasArg()
+	    .withDescription(String.format("Print the load plan chosen by the \"%s\" option and stop without loading any rows"
+	    								,Constants.CONF_PLAN_LOAD))
+	    .create(Constants.CONF_PLAN_ONLY);
+	    
+	    opts.addOption(fetchSize);
+	    opts.addOption(planLoad);
+	    opts.addOption(planOnly);
+	    
+	    // PROGRESS
+	    
+	    Option progressInterval = OptionBuilder.withArgName("seconds")
+	    .hasArg()
+	    .withDescription(String.format("How often to report the progress of the load, or 0 for never (default %d)"
+	    								,Constants.DEFAULT_PROGRESS_INTERVAL_SEC))
+	    .create(Constants.CONF_PROGRESS_INTERVAL_SEC);
+	    
+	    Option estimatedRows = OptionBuilder.withArgName("rows")
+	    .hasArg()
+	    .withDescription("The expected number of rows, used to report the percentage complete and the time remaining (by default taken from the metastore statistics)")
+	    .create(Constants.CONF_ESTIMATED_ROWS);
+	    
+	    Option metricsFile = OptionBuilder.withArgName("file")
+	    .hasArg()
+	    .withDescription("Write the wall-clock time, CPU time and memory allocated in each phase of the load to this CSV file")
+	    .create(Constants.CONF_METRICS_FILE);
+	    
+	    Option flightRecording = OptionBuilder.withArgName("file")
+	    .hasArg()
+	    .withDescription("Record the load with Java Flight Recorder into this file, including an event for each batch fetched from Hive and sent to Oracle (requires Java 11 or later)")
+	    .create(Constants.CONF_FLIGHT_RECORDING);
+	    
+	    opts.addOption(progressInterval);
+	    opts.addOption(estimatedRows);
+	    opts.addOption(metricsFile);
+	    opts.addOption(flightRecording);
+	    
+	    // VERIFICATION
+	    
+	    Option verifyLoad = OptionBuilder.withArgName("true/false")
+	    .hasArg()
+	    .withDescription("Check the loaded Oracle table against counts, sums and minimum/maximum values of each column kept while loading, without reading either side again (not in upsert mode, or with \"" + Constants.CONF_ORACLE_REJECT_LIMIT + "\")")
+	    .create(Constants.CONF_VERIFY_LOAD);
+	    
+	    opts.addOption(verifyLoad);
+	    
+	    // ADDITIONAL ORACLE TARGETS
+	    
+	    Option targets = OptionBuilder.withArgName("properties-file")
+	    .hasArg()
+	    .withDescription("A file of <target>.<option>=<value> properties describing other Oracle tables to load from the same Hive results")
+	    .create(Constants.CONF_FAN_OUT_TARGETS);
+	    
+	    Option targetBuffer = OptionBuilder.withArgName("batches")
+	    .hasArg()
+	    .withDescription(String.format("The number of batches of Hive results each target may fall behind by (default %d)"
+	    								,Constants.DEFAULT_FAN_OUT_BUFFER_BATCHES))
+	    .create(Constants.CONF_FAN_OUT_BUFFER_BATCHES);
+	    
+	    Option virtualThreads = OptionBuilder.withArgName("true/false")
+	    .hasArg()
+	    .withDescription("Load the targets on virtual threads when the JVM supports them (default true)")
+	    .create(Constants.CONF_VIRTUAL_THREADS);
+	    
+	    opts.addOption(targets);
+	    opts.addOption(targetBuffer);
+	    opts.addOption(virtualThreads);
+	    
+	    // MEMORY
+	    
+	    Option memoryBudget = OptionBuilder.withArgName("megabytes")
+	    .hasArg()
+	    .withDescription(String.format("The memory that batches of rows may hold at any one time (default %d%% of the maximum heap size)"
+	    								,Constants.DEFAULT_MEMORY_BUDGET_PERCENT_OF_HEAP))
+	    .create(Constants.CONF_MEMORY_BUDGET_MB);
+	    
+	    Option offHeapBatches = OptionBuilder.withArgName("true/false")
+	    .hasArg()
+	    .withDescription("Hold the batches of Hive results waiting for the targets in off-heap buffers (default false)")
+	    .create(Constants.CONF_OFF_HEAP_BATCHES);
+	    
+	    opts.addOption(memoryBudget);
+	    opts.addOption(offHeapBatches);
+	    
+	    // HIVE RESULT CACHE
+	    
+	    Option resultCacheDir = OptionBuilder.withArgName("directory")
+	    .hasArg()
+	    .withDescription("Cache the Hive results in this local directory and replay them on later runs of the same query over unchanged Hive data (needs \"" + Constants.CONF_HIVE_METASTORE_URI + "\")")
+	    .create(Constants.CONF_HIVE_RESULT_CACHE_DIR);
+	    
+	    Option resultCacheMaxSize = OptionBuilder.withArgName("megabytes")
+	    .hasArg()
+	    .withDescription(String.format("The maximum size of the Hive result cache (default %d)"
+	    								,Constants.DEFAULT_HIVE_RESULT_CACHE_MAX_MB))
+	    .create(Constants.CONF_HIVE_RESULT_CACHE_MAX_MB);
+	    
+	    Option resultCacheTtl = OptionBuilder.withArgName("hours")
+	    .hasArg()
+	    .withDescription(String.format("How long cached Hive results may be replayed for (default %d)"
+	    								,Constants.DEFAULT_HIVE_RESULT_CACHE_TTL_HOURS))
+	    .create(Constants.CONF_HIVE_RESULT_CACHE_TTL_HOURS);
+	    
+	    Option hiveMetastoreUri = OptionBuilder.withArgName("thrift-uri")
+	    .hasArg()
+	    .withDescription("The URI of the Hive metastore, used to detect changes to the Hive tables the query reads")
+	    .create(Constants.CONF_HIVE_METASTORE_URI);
+	    
+	    Option hiveInputTables = OptionBuilder.withArgName("hive-tables")
+	    .hasArg()
+	    .withDescription("A comma-separated list of the Hive tables the query reads (by default they are taken from its FROM/JOIN clauses)")
+	    .create(Constants.CONF_HIVE_INPUT_TABLES);
+	    
+	    opts.addOption(resultCacheDir);
+	    opts.addOption(resultCacheMaxSize);
+	    opts.addOption(resultCacheTtl);
+	    opts.addOption(hiveMetastoreUri);
+	    opts.addOption(hiveInputTables);
+	    
+	    // INCREMENTAL EXPORT
+	    
+	    Option incremental = OptionBuilder.withArgName("watermark-file")
+	    .hasArg()
+	    .withDescription("Only export the partitions of the (partitioned) Hive table that are new or changed since the last export recorded in this file. The HQL selects them with " + IncrementalExport.HQL_PARTITIONS_PLACEHOLDER + ", e.g. \"WHERE " + IncrementalExport.HQL_PARTITIONS_PLACEHOLDER + "\"")
+	    .create(Constants.CONF_INCREMENTAL_WATERMARK_FILE);
+	    
+	    opts.addOption(incremental);
 
 	    // ORACLE
 	    
 	    Option exportMode = OptionBuilder.withArgName("export-mode")
 	    .hasArg()
-	    .withDescription("Export mode to run (create or insert)")
+	    .withDescription("Export mode to run (create, insert, upsert or replace). Replace loads a copy of the table and renames it into place. " +
+	    				 "The swap is not atomic: statements against the table fail with ORA-00942 for the moment between the two renames. " +
+	    				 "The replaced table is kept, with the suffix \"" + Constants.ORACLE_RETIRED_TABLE_SUFFIX + "\", until the next run")
 	    .create(Constants.CONF_EXPORT_MODE);
 	    
+	    Option oracleKeyColumns = OptionBuilder.withArgName("oracle-key-columns")
+	    .hasArg()
+	    .withDescription("A comma-separated list of the columns that uniquely identify a row (upsert mode, or with the \"" + Constants.CONF_ORACLE_SKIP_EXISTING_KEYS + "\" or \"" + Constants.CONF_DEDUP + "\" options)")
+	    .create(Constants.CONF_ORACLE_KEY_COLUMNS);
+	    
+	    Option oracleSkipExistingKeys = OptionBuilder.withArgName("true/false")
+	    .hasArg()
+	    .withDescription("Read the key columns of the Oracle table before loading it, and skip the Hive rows whose keys are already there (insert mode only)")
+	    .create(Constants.CONF_ORACLE_SKIP_EXISTING_KEYS);
+	    
+	    Option oracleRowHashColumn = OptionBuilder.withArgName("column")
+	    .hasArg()
+	    .withDescription("A NUMBER(19) column of the Oracle table that holds a hash of each row, so that only new and changed rows are merged (upsert mode only)")
+	    .create(Constants.CONF_ORACLE_ROW_HASH_COLUMN);
+	    
+	    Option oracleCdcDeletes = OptionBuilder.withArgName("true/false")
+	    .hasArg()
+	    .withDescription("Delete the rows of the Oracle table whose keys are no longer in the Hive results (with the \"" + Constants.CONF_ORACLE_ROW_HASH_COLUMN + "\" option only)")
+	    .create(Constants.CONF_ORACLE_CDC_DELETES);
+	    
+	    Option oracleMetadataCache = OptionBuilder.withArgName("dir")
+	    .hasArg()
+	    .withDescription("Keep the column definitions of the Oracle table (read in insert mode) in this directory, so that they are only read again once the table's DDL has changed")
+	    .create(Constants.CONF_ORACLE_METADATA_CACHE_DIR);
+	    
 	    Option oracleTable = OptionBuilder.withArgName("oracle-table")
 	    .hasArg()
 	    .withDescription("The name of the Oracle to create")
@@ -322,12 +1059,67 @@ public class HiveJdbcClient {
 	    .withDescription("The number of batch-inserts to perform before performing an Oracle commit")
 	    .create(Constants.CONF_ORACLE_INSERT_COMMIT_BATCH_COUNT);		    
 	    
+	    Option asyncCommit = OptionBuilder.withArgName("true/false")
+	    .hasArg()
+	    .withDescription("Don't wait for the redo of intermediate commits to be written to disk (the final commit is still durable)")
+	    .create(Constants.CONF_ORACLE_ASYNC_COMMIT);
+	    
 	    opts.addOption(exportMode);
+	    opts.addOption(oracleKeyColumns);
+	    opts.addOption(oracleSkipExistingKeys);
+	    opts.addOption(oracleRowHashColumn);
+	    opts.addOption(oracleCdcDeletes);
+	    opts.addOption(oracleMetadataCache);
 	    opts.addOption(oracleTable);
 	    opts.addOption(oracleSchema);
 	    opts.addOption(oracleTablespace);	
 	    opts.addOption(oracleInsertBatchSize);
 	    opts.addOption(oracleInsertCommitBatchCount);
+	    opts.addOption(asyncCommit);
+	    
+	    // ORACLE ERROR LOGGING
+	    
+	    Option oracleRejectLimit = OptionBuilder.withArgName("oracle-reject-limit")
+	    .hasArg()
+	    .withDescription("Log rows rejected by Oracle to an error table instead of aborting the load; "+
+	    				"the load fails once more than this number of rows (or unlimited) have been rejected")
+	    .create(Constants.CONF_ORACLE_REJECT_LIMIT);
+	    
+	    Option oracleErrorLogTable = OptionBuilder.withArgName("oracle-error-log-table")
+	    .hasArg()
+	    .withDescription("The name of the Oracle table rejected rows are logged to (defaults to ERR$_<oracle-table>)")
+	    .create(Constants.CONF_ORACLE_ERROR_LOG_TABLE);
+	    
+	    opts.addOption(oracleRejectLimit);
+	    opts.addOption(oracleErrorLogTable);
+	    
+	    // ORACLE INDEXES AND CONSTRAINTS
+	    
+	    Option oracleSuspendIndexes = OptionBuilder.withArgName("true/false")
+	    .hasArg()
+	    .withDescription("Mark the non-unique indexes of the Oracle table unusable during the load and rebuild them afterwards (insert mode only)")
+	    .create(Constants.CONF_ORACLE_SUSPEND_INDEXES);
+	    
+	    Option oracleDisableConstraints = OptionBuilder.withArgName("oracle-constraints")
+	    .hasArg()
+	    .withDescription("A comma-separated list of constraints to disable during the load and re-enable afterwards (insert mode only)")
+	    .create(Constants.CONF_ORACLE_DISABLE_CONSTRAINTS);
+	    
+	    Option oracleIndexRebuildParallelism = OptionBuilder.withArgName("degree")
+	    .hasArg()
+	    .withDescription(String.format("The degree of parallelism used to rebuild suspended indexes (default %d)"
+	    								,Constants.DEFAULT_ORACLE_INDEX_REBUILD_PARALLELISM))
+	    .create(Constants.CONF_ORACLE_INDEX_REBUILD_PARALLELISM);
+	    
+	    Option oracleRoutes = OptionBuilder.withArgName("properties-file")
+	    .hasArg()
+	    .withDescription("A file of rules that route each row to an Oracle table or partition by the value or hash of a column (insert mode only)")
+	    .create(Constants.CONF_ORACLE_ROUTES);
+	    
+	    opts.addOption(oracleSuspendIndexes);
+	    opts.addOption(oracleDisableConstraints);
+	    opts.addOption(oracleIndexRebuildParallelism);
+	    opts.addOption(oracleRoutes);
 	    
 	    // OTHER
 	    Option log4j = OptionBuilder.withArgName("log4j-properties-file")
@@ -365,13 +1157,21 @@ public class HiveJdbcClient {
 	
 	private static void checkConfiguration(Configuration conf) {
 		
-		checkConfigurationPropertyIsNotEmpty(conf, Constants.CONF_HIVE_JDBC_URL, Constants.DEFAULT_LOCAL_HIVE_JDBC_URL);
-		checkConfigurationPropertyIsNotEmpty(conf, Constants.CONF_HIVE_JDBC_USER, null);
+		// Generated rows need no Hive connection...
+		if(conf.get(Constants.CONF_SYNTHETIC_SOURCE, "").trim().isEmpty()) {
+			checkConfigurationPropertyIsNotEmpty(conf, Constants.CONF_HIVE_JDBC_URL, Constants.DEFAULT_LOCAL_HIVE_JDBC_URL);
+			checkConfigurationPropertyIsNotEmpty(conf, Constants.CONF_HIVE_JDBC_USER, null);
+		}
 		
-		checkConfigurationPropertyIsNotEmpty(conf, Constants.CONF_ORACLE_JDBC_URL, null);
-		checkConfigurationPropertyIsNotEmpty(conf, Constants.CONF_ORACLE_JDBC_USER, null);
+		// Rows written to another sink need no Oracle connection...
+		String sink = conf.get(Constants.CONF_SINK, Constants.SINK_ORACLE).trim();
+		if(sink.isEmpty() || sink.equalsIgnoreCase(Constants.SINK_ORACLE)) {
+			checkConfigurationPropertyIsNotEmpty(conf, Constants.CONF_ORACLE_JDBC_URL, null);
+			checkConfigurationPropertyIsNotEmpty(conf, Constants.CONF_ORACLE_JDBC_USER, null);
+		}
 		
-		checkConfigurationPropertyIsNotEmpty(conf, Constants.CONF_ORACLE_TABLENAME, null);
+		if(!sink.equalsIgnoreCase(Constants.SINK_NULL) && !sink.startsWith(Constants.SINK_FILE_PREFIX))
+			checkConfigurationPropertyIsNotEmpty(conf, Constants.CONF_ORACLE_TABLENAME, null);
 	}
 	
 	private static void checkConfigurationPropertyIsNotEmpty(Configuration conf, String propertyName, String defaultValue) {
@@ -400,6 +1200,18 @@ public class HiveJdbcClient {
 		
 		result.insertBatchSize = conf.getInt(Constants.CONF_ORACLE_INSERT_BATCH_SIZE, Constants.DEFAULT_ORACLE_INSERT_BATCH_SIZE);
 		result.commitBatchCount = conf.getInt(Constants.CONF_ORACLE_INSERT_COMMIT_BATCH_COUNT, Constants.DEFAULT_ORACLE_INSERT_COMMIT_BATCH_COUNT);
+		result.asyncCommit = conf.getBoolean(Constants.CONF_ORACLE_ASYNC_COMMIT, false);
+		
+		String rejectLimitStr = conf.get(Constants.CONF_ORACLE_REJECT_LIMIT);
+		if (rejectLimitStr != null) {
+			result.rejectLimit = getOracleRejectLimit(rejectLimitStr);
+			result.errorLogTable = conf.get(Constants.CONF_ORACLE_ERROR_LOG_TABLE, "").trim();
+			if(result.errorLogTable.isEmpty())
+				result.errorLogTable = getDefaultOracleErrorLogTableName(result.oracleTable);
+			result.errorLogTag = String.format("%s %d"
+											,Constants.ORACLE_ERROR_LOG_TAG_PREFIX
+											,System.currentTimeMillis());
+		}
 		
 		String exportModeStr = conf.get(Constants.CONF_EXPORT_MODE);
 		if (exportModeStr != null) {
@@ -411,55 +1223,413 @@ public class HiveJdbcClient {
 			}
 		}
 		
-		result.hql = conf.get(Constants.CONF_HIVE_QUERY);
-		if(result.hql == null || result.hql.trim().isEmpty()) {
-			LOG.debug(String.format("No HQL was provided via the \"%s\" argument."
-									,Constants.CONF_HIVE_QUERY));
-			
-			String hqlFileName = conf.get(Constants.CONF_HIVE_QUERY_FILENAME);
-			if(hqlFileName == null || hqlFileName.isEmpty()) {
-				LOG.error(String.format("A Hive HQL statement must be provided.\n" +
-										"Please specify one of the following command-line arguments:\n"+
-										"\t" + Constants.CONF_HIVE_QUERY + "\n"+
-										"\t" + Constants.CONF_HIVE_QUERY_FILENAME));
+		result.suspendIndexes = conf.getBoolean(Constants.CONF_ORACLE_SUSPEND_INDEXES, false);
+		result.indexRebuildParallelism = conf.getInt(Constants.CONF_ORACLE_INDEX_REBUILD_PARALLELISM, Constants.DEFAULT_ORACLE_INDEX_REBUILD_PARALLELISM);
+		
+		String disableConstraintsStr = conf.get(Constants.CONF_ORACLE_DISABLE_CONSTRAINTS, "");
+		if (!disableConstraintsStr.trim().isEmpty()) {
+			result.disableConstraints = disableConstraintsStr.trim().split("\\s*,\\s*");
+		}
+		
+		if ((result.suspendIndexes || result.disableConstraints.length > 0) &&
+			!result.exportMode.equals(Constants.ExportMode.INSERT)) {
+			LOG.warn(String.format("The \"%s\" and \"%s\" options only apply to the \"%s\" export mode and will be ignored."
+									,Constants.CONF_ORACLE_SUSPEND_INDEXES
+									,Constants.CONF_ORACLE_DISABLE_CONSTRAINTS
+									,Constants.ExportMode.INSERT.toString().toLowerCase()));
+			result.suspendIndexes = false;
+			result.disableConstraints = new String[0];
+		}
+		
+		String routesFileName = conf.get(Constants.CONF_ORACLE_ROUTES, "").trim();
+		if (!routesFileName.isEmpty()) {
+			if (!result.exportMode.equals(Constants.ExportMode.INSERT)) {
+				LOG.error(String.format("The \"%s\" option can only be used with the \"%s\" export mode."
+										,Constants.CONF_ORACLE_ROUTES
+										,Constants.ExportMode.INSERT.toString().toLowerCase()));
 				System.exit(1);
 			}
 			try {
-				result.hql = getHql(hqlFileName);
+				result.router = HiveResultRouter.load(routesFileName);
 			}
-			catch(FileNotFoundException ex) {
-				LOG.error(String.format("Unable to load the HQL file named \"%s\".", hqlFileName), ex);
+			catch(IOException ex) {
+				LOG.error(String.format("Unable to load the routes file named \"%s\".", routesFileName), ex);
 				System.exit(1);
 			}
-			catch(IOException ex) {
-				LOG.error(String.format("Unable to load the HQL file named \"%s\".", hqlFileName), ex);
+			catch(IllegalArgumentException ex) {
+				LOG.error(ex.getMessage());
 				System.exit(1);
-			}			
+			}
 		}
 		
-		result.hivePassword = getPassword(conf
-				, Constants.CONF_HIVE_JDBC_PASSWORD
-				, String.format("Enter the password for the Hive Service at %s :"
-								, conf.get(Constants.CONF_HIVE_JDBC_URL)));
+		String transformFileName = conf.get(Constants.CONF_TRANSFORM_RULES, "").trim();
+		if (!transformFileName.isEmpty()) {
+			try {
+				result.transformer = HiveResultTransformer.load(transformFileName);
+			}
+			catch(IOException ex) {
+				LOG.error(String.format("Unable to load the transformation file named \"%s\".", transformFileName), ex);
+				System.exit(1);
+			}
+			catch(IllegalArgumentException ex) {
+				LOG.error(ex.getMessage());
+				System.exit(1);
+			}
+		}
 		
-		result.oraclePassword = getPassword(conf
-				, Constants.CONF_ORACLE_JDBC_PASSWORD
-				, String.format("Enter the password for the Oracle database at %s :"
-								, conf.get(Constants.CONF_ORACLE_JDBC_URL)));
-
-
-		return result;
-	}
-	
-	private static String getHql(String hqlFileName) 
-		throws FileNotFoundException, IOException {
+		String keyColumnsStr = conf.get(Constants.CONF_ORACLE_KEY_COLUMNS, "");
+		if (!keyColumnsStr.trim().isEmpty()) {
+			result.keyColumns = keyColumnsStr.trim().split("\\s*,\\s*");
+		}
 		
-		return Utilities.readTextFile(hqlFileName);
-	}
-	
-	private static String getPassword(Configuration conf, String propertyName, String userPromptText) {
+		if (result.exportMode.equals(Constants.ExportMode.UPSERT) &&
+			result.keyColumns.length == 0) {
+			LOG.error(String.format("The \"%s\" option must be supplied when the \"%s\" export mode is used."
+									,Constants.CONF_ORACLE_KEY_COLUMNS
+									,Constants.ExportMode.UPSERT.toString().toLowerCase()));
+			System.exit(1);
+		}
 		
-		String result = conf.get(propertyName);
+		String dedupStr = conf.get(Constants.CONF_DEDUP, "").trim();
+		if (!dedupStr.isEmpty()) {
+			try {
+				result.duplicateKeyAction = Constants.DuplicateKeyAction.valueOf(dedupStr.toUpperCase());
+			} catch(IllegalArgumentException e) {
+				LOG.error(String.format("The \"%s\" option must be drop, count or fail, not \"%s\"."
+										,Constants.CONF_DEDUP
+										,dedupStr));
+				System.exit(1);
+			}
+			
+			if (result.keyColumns.length == 0) {
+				LOG.error(String.format("The \"%s\" option must be supplied when the \"%s\" option is used."
+										,Constants.CONF_ORACLE_KEY_COLUMNS
+										,Constants.CONF_DEDUP));
+				System.exit(1);
+			}
+		}
+		result.dedupMemoryMB = conf.getLong(Constants.CONF_DEDUP_MEMORY_MB, Constants.DEFAULT_DEDUP_MEMORY_MB);
+		
+		result.oracleMetadataCacheDir = conf.get(Constants.CONF_ORACLE_METADATA_CACHE_DIR, "");
+		
+		String syntheticFileName = conf.get(Constants.CONF_SYNTHETIC_SOURCE, "").trim();
+		if (!syntheticFileName.isEmpty()) {
+			try {
+				result.syntheticSource = SyntheticResultSet.load(syntheticFileName);
+			}
+			catch(IOException ex) {
+				LOG.error(String.format("Unable to load the synthetic source file named \"%s\".", syntheticFileName), ex);
+				System.exit(1);
+			}
+			catch(IllegalArgumentException ex) {
+				LOG.error(ex.getMessage());
+				System.exit(1);
+			}
+		}
+		
+		result.hql = conf.get(Constants.CONF_HIVE_QUERY);
+		if(result.syntheticSource != null)
+			result.hql = "";
+		else if(result.hql == null || result.hql.trim().isEmpty()) {
+			LOG.debug(String.format("No HQL was provided via the \"%s\" argument."
+									,Constants.CONF_HIVE_QUERY));
+			
+			String hqlFileName = conf.get(Constants.CONF_HIVE_QUERY_FILENAME);
+			if(hqlFileName == null || hqlFileName.isEmpty()) {
+				LOG.error(String.format("A Hive HQL statement must be provided.\n" +
+										"Please specify one of the following command-line arguments:\n"+
+										"\t" + Constants.CONF_HIVE_QUERY + "\n"+
+										"\t" + Constants.CONF_HIVE_QUERY_FILENAME));
+				System.exit(1);
+			}
+			try {
+				result.hql = getHql(hqlFileName);
+			}
+			catch(FileNotFoundException ex) {
+				LOG.error(String.format("Unable to load the HQL file named \"%s\".", hqlFileName), ex);
+				System.exit(1);
+			}
+			catch(IOException ex) {
+				LOG.error(String.format("Unable to load the HQL file named \"%s\".", hqlFileName), ex);
+				System.exit(1);
+			}			
+		}
+		
+		result.fetchSize = conf.getInt(Constants.CONF_HIVE_FETCH_SIZE, result.insertBatchSize);
+		result.planOnly = conf.getBoolean(Constants.CONF_PLAN_ONLY, false);
+		result.planLoad = conf.getBoolean(Constants.CONF_PLAN_LOAD, false) || result.planOnly;
+		
+		// Settings that have been supplied are not replaced by the plan...
+		result.planInsertBatchSize = result.planLoad && conf.get(Constants.CONF_ORACLE_INSERT_BATCH_SIZE) == null;
+		result.planCommitBatchCount = result.planLoad && conf.get(Constants.CONF_ORACLE_INSERT_COMMIT_BATCH_COUNT) == null;
+		result.planFetchSize = result.planLoad && conf.get(Constants.CONF_HIVE_FETCH_SIZE) == null;
+		
+		result.progressIntervalSec = conf.getInt(Constants.CONF_PROGRESS_INTERVAL_SEC, Constants.DEFAULT_PROGRESS_INTERVAL_SEC);
+		result.estimatedRows = conf.getLong(Constants.CONF_ESTIMATED_ROWS, -1);
+		result.metricsFile = conf.get(Constants.CONF_METRICS_FILE, "");
+		result.flightRecordingFile = conf.get(Constants.CONF_FLIGHT_RECORDING, "");
+		
+		result.targetsFile = conf.get(Constants.CONF_FAN_OUT_TARGETS, "");
+		result.targetBufferBatches = conf.getInt(Constants.CONF_FAN_OUT_BUFFER_BATCHES, Constants.DEFAULT_FAN_OUT_BUFFER_BATCHES);
+		result.virtualThreads = conf.getBoolean(Constants.CONF_VIRTUAL_THREADS, true);
+		
+		result.skipExistingKeys = conf.getBoolean(Constants.CONF_ORACLE_SKIP_EXISTING_KEYS, false);
+		if (result.skipExistingKeys) {
+			if (!result.exportMode.equals(Constants.ExportMode.INSERT) || result.router != null || !result.targetsFile.isEmpty()) {
+				LOG.error(String.format("The \"%s\" option can only be used with the \"%s\" export mode, and not with the \"%s\" or \"%s\" options."
+										,Constants.CONF_ORACLE_SKIP_EXISTING_KEYS
+										,Constants.ExportMode.INSERT.toString().toLowerCase()
+										,Constants.CONF_ORACLE_ROUTES
+										,Constants.CONF_FAN_OUT_TARGETS));
+				System.exit(1);
+			}
+			if (result.keyColumns.length == 0) {
+				LOG.error(String.format("The \"%s\" option must be supplied when the \"%s\" option is used."
+										,Constants.CONF_ORACLE_KEY_COLUMNS
+										,Constants.CONF_ORACLE_SKIP_EXISTING_KEYS));
+				System.exit(1);
+			}
+		}
+		result.memoryBudgetMB = conf.getLong(Constants.CONF_MEMORY_BUDGET_MB, 0);
+		result.offHeapBatches = conf.getBoolean(Constants.CONF_OFF_HEAP_BATCHES, false);
+		
+		result.resultCacheDir = conf.get(Constants.CONF_HIVE_RESULT_CACHE_DIR, "");
+		result.resultCacheMaxMB = conf.getLong(Constants.CONF_HIVE_RESULT_CACHE_MAX_MB, Constants.DEFAULT_HIVE_RESULT_CACHE_MAX_MB);
+		result.resultCacheTtlHours = conf.getInt(Constants.CONF_HIVE_RESULT_CACHE_TTL_HOURS, Constants.DEFAULT_HIVE_RESULT_CACHE_TTL_HOURS);
+		result.hiveMetastoreUri = conf.get(Constants.CONF_HIVE_METASTORE_URI, "");
+		
+		String hiveInputTablesStr = conf.get(Constants.CONF_HIVE_INPUT_TABLES, "");
+		if (!hiveInputTablesStr.trim().isEmpty()) {
+			result.hiveInputTables = hiveInputTablesStr.trim().split("\\s*,\\s*");
+		}
+		
+		result.incrementalWatermarkFile = conf.get(Constants.CONF_INCREMENTAL_WATERMARK_FILE, "").trim();
+		if (!result.incrementalWatermarkFile.isEmpty()) {
+			if (result.hiveMetastoreUri.isEmpty()) {
+				LOG.error(String.format("The \"%s\" option must be supplied when the \"%s\" option is used."
+										,Constants.CONF_HIVE_METASTORE_URI
+										,Constants.CONF_INCREMENTAL_WATERMARK_FILE));
+				System.exit(1);
+			}
+			// Each run adds to what the earlier runs loaded...
+			if (!result.exportMode.equals(Constants.ExportMode.INSERT) && !result.exportMode.equals(Constants.ExportMode.UPSERT)) {
+				LOG.error(String.format("The \"%s\" option can only be used with the \"%s\" and \"%s\" export modes."
+										,Constants.CONF_INCREMENTAL_WATERMARK_FILE
+										,Constants.ExportMode.INSERT.toString().toLowerCase()
+										,Constants.ExportMode.UPSERT.toString().toLowerCase()));
+				System.exit(1);
+			}
+		}
+		
+		if (result.syntheticSource != null) {
+			// There is no Hive query whose results could be cached or limited to new partitions...
+			if (!result.resultCacheDir.isEmpty() || !result.incrementalWatermarkFile.isEmpty()) {
+				LOG.error(String.format("The \"%s\" option cannot be used with the \"%s\" or \"%s\" options."
+										,Constants.CONF_SYNTHETIC_SOURCE
+										,Constants.CONF_HIVE_RESULT_CACHE_DIR
+										,Constants.CONF_INCREMENTAL_WATERMARK_FILE));
+				System.exit(1);
+			}
+			if (result.estimatedRows <= 0)
+				result.estimatedRows = result.syntheticSource.getRowCount();
+		}
+		
+		result.rowHashColumn = conf.get(Constants.CONF_ORACLE_ROW_HASH_COLUMN, "").trim();
+		result.cdcDeletes = conf.getBoolean(Constants.CONF_ORACLE_CDC_DELETES, false);
+		if (!result.rowHashColumn.isEmpty() && 
+			(!result.exportMode.equals(Constants.ExportMode.UPSERT) || !result.targetsFile.isEmpty())) {
+			LOG.error(String.format("The \"%s\" option can only be used with the \"%s\" export mode, and not with the \"%s\" option."
+									,Constants.CONF_ORACLE_ROW_HASH_COLUMN
+									,Constants.ExportMode.UPSERT.toString().toLowerCase()
+									,Constants.CONF_FAN_OUT_TARGETS));
+			System.exit(1);
+		}
+		// Deleting the rows that are not in the Hive results needs all of the Hive results...
+		if (result.cdcDeletes && (result.rowHashColumn.isEmpty() || !result.incrementalWatermarkFile.isEmpty())) {
+			LOG.error(String.format("The \"%s\" option requires the \"%s\" option, and cannot be used with the \"%s\" option."
+									,Constants.CONF_ORACLE_CDC_DELETES
+									,Constants.CONF_ORACLE_ROW_HASH_COLUMN
+									,Constants.CONF_INCREMENTAL_WATERMARK_FILE));
+			System.exit(1);
+		}
+		
+		result.verifyLoad = conf.getBoolean(Constants.CONF_VERIFY_LOAD, false);
+		// Rows that Oracle rejects into the error log would make every count and sum differ...
+		if (result.verifyLoad &&
+			(result.exportMode.equals(Constants.ExportMode.UPSERT) || result.router != null || !result.targetsFile.isEmpty() || result.rejectLimit != null)) {
+			LOG.error(String.format("The \"%s\" option cannot be used with the \"%s\" export mode, or with the \"%s\", \"%s\" or \"%s\" options."
+									,Constants.CONF_VERIFY_LOAD
+									,Constants.ExportMode.UPSERT.toString().toLowerCase()
+									,Constants.CONF_ORACLE_ROUTES
+									,Constants.CONF_FAN_OUT_TARGETS
+									,Constants.CONF_ORACLE_REJECT_LIMIT));
+			System.exit(1);
+		}
+		
+		if(result.syntheticSource == null)
+			result.hivePassword = getPassword(conf
+					, Constants.CONF_HIVE_JDBC_PASSWORD
+					, String.format("Enter the password for the Hive Service at %s :"
+									, conf.get(Constants.CONF_HIVE_JDBC_URL)));
+		
+		result.sink = conf.get(Constants.CONF_SINK, "").trim();
+		if (result.sink.equalsIgnoreCase(Constants.SINK_ORACLE))
+			result.sink = "";
+		if (!result.sink.isEmpty()) {
+			if (!result.sink.equalsIgnoreCase(Constants.SINK_NULL) &&
+				!(result.sink.startsWith(Constants.SINK_FILE_PREFIX) && result.sink.length() > Constants.SINK_FILE_PREFIX.length()) &&
+				!result.sink.startsWith(Constants.SINK_JDBC_PREFIX)) {
+				LOG.error(String.format("The \"%s\" option must be %s, %s, %s<path> or %s<url>."
+										,Constants.CONF_SINK
+										,Constants.SINK_ORACLE
+										,Constants.SINK_NULL
+										,Constants.SINK_FILE_PREFIX
+										,Constants.SINK_JDBC_PREFIX));
+				System.exit(1);
+			}
+			// The other sinks simply receive the rows; everything else needs the Oracle table...
+			if ((!result.exportMode.equals(Constants.ExportMode.CREATE) && !result.exportMode.equals(Constants.ExportMode.INSERT)) ||
+				result.router != null || !result.targetsFile.isEmpty() || result.rejectLimit != null ||
+				result.skipExistingKeys || !result.rowHashColumn.isEmpty() || result.verifyLoad ||
+				!result.incrementalWatermarkFile.isEmpty()) {
+				// ...and a watermark must only move on once the rows are in the Oracle table...
+				LOG.error(String.format("A \"%s\" other than %s can only be used with the \"%s\" and \"%s\" export modes, and not with the \"%s\", \"%s\", \"%s\", \"%s\", \"%s\", \"%s\" or \"%s\" options."
+										,Constants.CONF_SINK
+										,Constants.SINK_ORACLE
+										,Constants.ExportMode.CREATE.toString().toLowerCase()
+										,Constants.ExportMode.INSERT.toString().toLowerCase()
+										,Constants.CONF_ORACLE_ROUTES
+										,Constants.CONF_FAN_OUT_TARGETS
+										,Constants.CONF_ORACLE_REJECT_LIMIT
+										,Constants.CONF_ORACLE_SKIP_EXISTING_KEYS
+										,Constants.CONF_ORACLE_ROW_HASH_COLUMN
+										,Constants.CONF_VERIFY_LOAD
+										,Constants.CONF_INCREMENTAL_WATERMARK_FILE));
+				System.exit(1);
+			}
+		}
+		
+		if(result.sink.isEmpty())
+			result.oraclePassword = getPassword(conf
+					, Constants.CONF_ORACLE_JDBC_PASSWORD
+					, String.format("Enter the password for the Oracle database at %s :"
+									, conf.get(Constants.CONF_ORACLE_JDBC_URL)));
+
+
+		return result;
+	}
+	
+	private static List<OraHiveTarget> getOraHiveTargets(Configuration conf, OraHiveOptions opts) {
+		
+		List<OraHiveTarget> result = new ArrayList<OraHiveTarget>();
+		if(opts.targetsFile.isEmpty())
+			return result;
+		
+		Properties properties = new Properties();
+		try {
+			InputStream in = new FileInputStream(opts.targetsFile);
+			try {
+				properties.load(in);
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch(IOException ex) {
+			LOG.error(String.format("Unable to load the targets file named \"%s\".", opts.targetsFile), ex);
+			System.exit(1);
+		}
+		
+		// Each target starts with the options on the command-line and overrides them...
+		Map<String, Configuration> targetConfs = new TreeMap<String, Configuration>();
+		for(String propertyName : properties.stringPropertyNames()) {
+			
+			int idx = propertyName.indexOf('.');
+			String optionName = (idx < 0) ? "" : propertyName.substring(idx + 1).trim();
+			if(!FAN_OUT_TARGET_OPTIONS.contains(optionName)) {
+				LOG.error(String.format("The property \"%s\" in the targets file \"%s\" is invalid. "+
+										"Properties must be named <target>.<option>, where <option> is one of: %s"
+										,propertyName
+										,opts.targetsFile
+										,FAN_OUT_TARGET_OPTIONS));
+				System.exit(1);
+			}
+			
+			String targetName = propertyName.substring(0, idx).trim();
+			Configuration targetConf = targetConfs.get(targetName);
+			if(targetConf == null) {
+				targetConf = new Configuration(conf);
+				targetConfs.put(targetName, targetConf);
+			}
+			targetConf.set(optionName, properties.getProperty(propertyName).trim());
+		}
+		
+		result.add(new OraHiveTarget(Constants.FAN_OUT_PRIMARY_TARGET_NAME, opts));
+		
+		for(Map.Entry<String, Configuration> entry : targetConfs.entrySet()) {
+			
+			Configuration targetConf = entry.getValue();
+			
+			// The error log table on the command-line belongs to the table on the command-line...
+			String targetTable = targetConf.get(Constants.CONF_ORACLE_TABLENAME, "");
+			if(!targetTable.equalsIgnoreCase(opts.oracleTable) &&
+			   !properties.containsKey(entry.getKey() + "." + Constants.CONF_ORACLE_ERROR_LOG_TABLE))
+				targetConf.set(Constants.CONF_ORACLE_ERROR_LOG_TABLE, "");
+			
+			// Don't prompt again for passwords that have already been entered...
+			if(opts.hivePassword != null)
+				targetConf.set(Constants.CONF_HIVE_JDBC_PASSWORD, opts.hivePassword);
+			if(opts.oraclePassword != null &&
+			   opts.oracleJdbcUrl.equals(targetConf.get(Constants.CONF_ORACLE_JDBC_URL)) &&
+			   opts.oracleUserName.equals(targetConf.get(Constants.CONF_ORACLE_JDBC_USER)) &&
+			   !properties.containsKey(entry.getKey() + "." + Constants.CONF_ORACLE_JDBC_PASSWORD))
+				targetConf.set(Constants.CONF_ORACLE_JDBC_PASSWORD, opts.oraclePassword);
+			
+			checkConfiguration(targetConf);
+			result.add(new OraHiveTarget(entry.getKey(), getOraHiveOptions(targetConf)));
+		}
+		
+		LOG.info(String.format("The Hive results will be loaded into %d Oracle targets.", result.size()));
+		return result;
+	}
+	
+	private static String getOracleRejectLimit(String rejectLimit) {
+		
+		rejectLimit = rejectLimit.trim().toUpperCase();
+		if(rejectLimit.equals(Constants.ORACLE_REJECT_LIMIT_UNLIMITED))
+			return rejectLimit;
+		
+		try {
+			if(Integer.parseInt(rejectLimit) >= 0)
+				return rejectLimit;
+		}
+		catch(NumberFormatException e) {}
+		
+		LOG.error(String.format("The \"%s\" option must be a non-negative integer or \"%s\"."
+								,Constants.CONF_ORACLE_REJECT_LIMIT
+								,Constants.ORACLE_REJECT_LIMIT_UNLIMITED.toLowerCase()));
+		System.exit(1);
+		return null;
+	}
+	
+	private static String getDefaultOracleErrorLogTableName(String oracleTable) {
+		
+		// This is the same name that DBMS_ERRLOG.CREATE_ERROR_LOG would generate...
+		String result = oracleTable.toUpperCase();
+		if(result.length() > Constants.ORACLE_ERROR_LOG_TABLE_NAME_MAX_CHARS)
+			result = result.substring(0, Constants.ORACLE_ERROR_LOG_TABLE_NAME_MAX_CHARS);
+		return Constants.ORACLE_ERROR_LOG_TABLE_PREFIX + result;
+	}
+	
+	private static String getHql(String hqlFileName) 
+		throws FileNotFoundException, IOException {
+		
+		return Utilities.readTextFile(hqlFileName);
+	}
+	
+	private static String getPassword(Configuration conf, String propertyName, String userPromptText) {
+		
+		String result = conf.get(propertyName);
 		if(result == null) {
 			System.out.println(userPromptText);
 			try { 
@@ -497,249 +1667,375 @@ public class HiveJdbcClient {
     	return null;
     }
     
-    private static Connection createOracleJdbcConnection(String url, String userName, String password) { 
+    private static HiveResultCache createHiveResultCache(OraHiveOptions opts) {
     	
-		try {
-			Class.forName(Constants.ORACLE_JDBC_DRIVER_CLASS);
-	    } 
-		catch (ClassNotFoundException ex) {
-	      LOG.error(String.format("Unable to load the Oracle JDBC driver \"%s\"."
-	    		  				, Constants.ORACLE_JDBC_DRIVER_CLASS)
-	    		  	,ex);
-	      System.exit(1);
-	    }
-		
     	try {
-    		 return DriverManager.getConnection(url, userName, password);
+    		return new HiveResultCache(new File(opts.resultCacheDir)
+    									,opts.resultCacheMaxMB * 1024 * 1024
+    									,opts.resultCacheTtlHours * 60L * 60L * 1000L);
     	}
-    	catch(SQLException ex) {
-    		LOG.error(String.format("Unable to connect to Oracle via the JDBC URL \"%s\" as user \"%s\"."
-    								,url
-    								,userName)
-    				, ex);
+    	catch(IOException ex) {
+    		LOG.error(String.format("Unable to use the Hive result cache directory \"%s\".", opts.resultCacheDir), ex);
     		System.exit(1);
-    	}   	
+    	}
     	return null;
-    }    
+    }
     
-    private static void initializeOracleSession(Connection connection, OraHiveOptions opts) {
+    private static String getHiveResultCacheKey(OraHiveOptions opts) {
     	
-   		String sql = "";
-   		try {
-   			sql = "begin \n" +
-   				 "  dbms_application_info.set_module(module_name => '%s', action_name => '%s'); \n" +
-   				 "end;";
-    			
-   			sql = String.format(sql
-   								, Constants.ORAHIVE_PRODUCT_NAME
-   								, getOracleTableName(opts));
-    			
-   			Statement statement = connection.createStatement();
-   			statement.execute(sql);
-   			statement.close();
-   		} 
-   		catch(Exception ex) {
-   			LOG.error(String.format("An error occurred while attempting to execute "+
-   						 	"the following Oracle session-initialization statement:"+
-   						 	"\n%s"+
-   						 	"\nError:"+
-   						 	"\n%s"
-   						 	,sql
-   						 	,ex.getMessage()));
-   		}		
+    	// Results are only replayed if the Hive data they came from is known not to have changed...
+    	if(opts.hiveMetastoreUri.isEmpty()) {
+    		LOG.warn(String.format("The \"%s\" option has not been supplied, so changes to the Hive data cannot be detected. "+
+    								"The Hive result cache will not be used for this run."
+    								,Constants.CONF_HIVE_METASTORE_URI));
+    		return null;
+    	}
+    	
+    	List<String> hiveInputTables = getHiveInputTables(opts);
+    	if(hiveInputTables.isEmpty()) {
+    		LOG.warn(String.format("The Hive tables the query reads could not be found in the HQL; supply them with the \"%s\" option. "+
+    							   "The Hive result cache will not be used for this run."
+    							   ,Constants.CONF_HIVE_INPUT_TABLES));
+    		return null;
+    	}
+    	
+    	try {
+    		HiveMetastore metastore = new HiveMetastore(opts.hiveMetastoreUri);
+    		try {
+    			return HiveResultCache.getKey(opts.hql, metastore.getDataState(hiveInputTables));
+    		}
+    		finally {
+    			metastore.close();
+    		}
+    	}
+    	catch(Exception ex) {
+    		LOG.warn(String.format("Unable to read the state of the Hive tables %s from the metastore. "+
+    							   "The Hive result cache will not be used for this run."
+    							   ,hiveInputTables)
+    				, ex);
+    	}
+    	return null;
     }
-
-    private static List<OracleTableColumn> getOracleTableColumnsForHiveResults(ResultSet resultSet) {
+    
+    private static long getEstimatedHiveRowCount(OraHiveOptions opts) {
     	
-    	List<OracleTableColumn> result = null;
+    	if(opts.estimatedRows > 0)
+    		return opts.estimatedRows;
+    	
+    	if((opts.progressIntervalSec <= 0 && !opts.planLoad) || opts.hiveMetastoreUri.isEmpty())
+    		return -1;
+    	
+    	List<String> hiveInputTables = getHiveInputTables(opts);
     	
     	try {
-	    	ResultSetMetaData metaData = resultSet.getMetaData();
-	    	
-	    	result = new ArrayList<OracleTableColumn>(metaData.getColumnCount());
-	    	
-	    	for(int idx = 0; idx < metaData.getColumnCount(); idx++) {
-	    		OracleTableColumn column = new OracleTableColumn();
-	    		result.add(column);
-	    		
-	    		// column Name...
-	    		column.setName(metaData.getColumnLabel(idx+1));	//<- 1-based in JDBC;
-	    		
-	    		// Sql Type...
-	    		column.sqlType = metaData.getColumnType(idx+1);	//<- 1-based in JDBC
-	    		
-	    		// column Oracle data-type...
-	    		
-	    		Constants.OracleType oracleType = javaSqlTypeToOracleType(column.sqlType);
-	    		
-	    		switch(oracleType) {
-	    		
-	    			case VARCHAR2: {
-	    				
-	    				column.oracleDataType = String.format("%s(%d)"
-	    													, oracleType.toString()
-	    													, 4000 // Max length for a varchar
-	    													);
-	    				break;
-	    			}
-	    			
-	    			default: {
-	    				column.oracleDataType = oracleType.toString();
-	    				break;
-	    			}    			
-	    				
-	    		}
-	    	}
-	    	
+    		HiveMetastore metastore = new HiveMetastore(opts.hiveMetastoreUri);
+    		try {
+    			long result = metastore.getRowCount(hiveInputTables);
+    			if(result >= 0)
+    				LOG.info(String.format("The Hive tables %s hold about %,d rows according to the metastore statistics."
+    									   ,hiveInputTables
+    									   ,result));
+    			else
+    				LOG.info(String.format("The metastore has no row count statistics for the Hive tables %s, "+
+    									   "so the number of rows cannot be estimated. "+
+    									   "Use the \"%s\" option to supply an estimate."
+    									   ,hiveInputTables
+    									   ,Constants.CONF_ESTIMATED_ROWS));
+    			return result;
+    		}
+    		finally {
+    			metastore.close();
+    		}
     	}
-    	catch(SQLException ex) {
-    		LOG.error("An error occurred when processing the metadata for the Hive result-set.", ex);
-    		System.exit(1);
-    	}   	
+    	catch(Exception ex) {
+    		LOG.warn(String.format("Unable to read the statistics for the Hive tables %s from the metastore."
+    							   ,hiveInputTables)
+    				, ex);
+    	}
+    	return -1;
+    }
+    
+    private static long getEstimatedHiveRowBytes(OraHiveOptions opts) {
     	
-    	return result;
+    	if(opts.hiveMetastoreUri.isEmpty())
+    		return -1;
+    	
+    	List<String> hiveInputTables = getHiveInputTables(opts);
+    	try {
+    		HiveMetastore metastore = new HiveMetastore(opts.hiveMetastoreUri);
+    		try {
+    			return metastore.getAverageRowBytes(hiveInputTables);
+    		}
+    		finally {
+    			metastore.close();
+    		}
+    	}
+    	catch(Exception ex) {
+    		LOG.warn(String.format("Unable to read the statistics for the Hive tables %s from the metastore."
+    							   ,hiveInputTables)
+    				, ex);
+    	}
+    	return -1;
     }
     
-    private static Constants.OracleType javaSqlTypeToOracleType(int javaSqlType) {
-
-		switch(javaSqlType) {
-		
-			case java.sql.Types.VARCHAR: return Constants.OracleType.VARCHAR2;
-			
-			case java.sql.Types.BOOLEAN: return Constants.OracleType.NUMBER; // Constants.OracleType.VARCHAR2;
-			
-			case java.sql.Types.BIGINT:
-			case java.sql.Types.DECIMAL:
-			case java.sql.Types.DOUBLE:
-			case java.sql.Types.FLOAT:
-			case java.sql.Types.INTEGER: 
-			case java.sql.Types.NUMERIC:
-			case java.sql.Types.REAL:
-			case java.sql.Types.SMALLINT: return Constants.OracleType.NUMBER;
-			
-			default:
-				throw new RuntimeException(String.format("Unsupported SQL type: %d.", javaSqlType));
-				
-		}
+    private static IncrementalExport planIncrementalExport(OraHiveOptions opts) {
     	
+    	String tableName = null;
+    	try {
+    		HiveMetastore metastore = new HiveMetastore(opts.hiveMetastoreUri);
+    		try {
+    			// The table is the one partitioned table the query reads...
+    			for(String hiveInputTable : getHiveInputTables(opts)) {
+    				if(!metastore.isPartitioned(metastore.getTable(hiveInputTable)))
+    					continue;
+    				if(tableName != null)
+    					throw new IllegalArgumentException(String.format("The HQL statement reads more than one partitioned table (%s and %s). Use the \"%s\" option to name the one to export incrementally."
+    																	,tableName
+    																	,hiveInputTable
+    																	,Constants.CONF_HIVE_INPUT_TABLES));
+    				tableName = hiveInputTable;
+    			}
+    			if(tableName == null)
+    				throw new IllegalArgumentException(String.format("The HQL statement does not read a partitioned table (it reads %s), so it cannot be exported incrementally."
+    																,getHiveInputTables(opts)));
+    			
+    			IncrementalExport result = IncrementalExport.plan(metastore, tableName, new File(opts.incrementalWatermarkFile));
+    			LOG.info(result.describe());
+    			
+    			if(result.isEmpty()) {
+    				LOG.info("There is nothing new to export.");
+    				System.exit(0);
+    			}
+    			if(result.getChangedPartitionCount() > 0 && opts.exportMode.equals(Constants.ExportMode.INSERT) && !opts.skipExistingKeys)
+    				LOG.warn(String.format("Rows that were exported before from the changed partitions will be inserted again. Use the \"%s\" option or the \"%s\" export mode to avoid this."
+    									   ,Constants.CONF_ORACLE_SKIP_EXISTING_KEYS
+    									   ,Constants.ExportMode.UPSERT.toString().toLowerCase()));
+    			
+    			opts.hql = result.applyTo(opts.hql);
+    			LOG.debug("HQL for the new partitions: " + opts.hql);
+    			
+    			// The row count estimate is for the new partitions only...
+    			if(opts.estimatedRows <= 0 && result.getRowCount() >= 0)
+    				opts.estimatedRows = result.getRowCount();
+    			return result;
+    		}
+    		finally {
+    			metastore.close();
+    		}
+    	}
+    	catch(IllegalArgumentException ex) {
+    		LOG.error(ex.getMessage());
+    	}
+    	catch(Exception ex) {
+    		LOG.error(String.format("Unable to read the partitions of the Hive table%s from the metastore."
+    								,tableName == null ? "s " + getHiveInputTables(opts) : " " + tableName)
+    				, ex);
+    	}
+    	System.exit(1);
+    	return null;
     }
     
-    private static void createOracleTableWithRetry(OraHiveOptions opts, List<OracleTableColumn> oracleColumns, Connection oracleConnection) { 
+    private static void commitIncrementalExport(OraHiveOptions opts, IncrementalExport incrementalExport) {
     	
     	try {
-	
-	    	Statement statement = oracleConnection.createStatement();
-	    	
-	    	StringBuilder columnClause = new StringBuilder();
-	    	for(int idx = 0; idx < oracleColumns.size(); idx++) {
-	    		OracleTableColumn column = oracleColumns.get(idx);
-	    		if(idx > 0)
-	    			columnClause.append(", ");
-	    		columnClause.append(String.format("%s %s"
-	    							,column.getName()
-	    							,column.oracleDataType));
-	    	}
-	    	
-	    	String sql = String.format("CREATE TABLE %s (%s)"
-	    							,getOracleTableName(opts)
-	    							,columnClause.toString());
-	    	
-	    	sql += getOracleTablespaceClause(opts);
-	    	
-	    	LOG.info(String.format("Executing SQL: %s", sql));
-	    	
-    		statement.execute(sql);
-	    	statement.close();
+    		incrementalExport.commit();
+    	}
+    	catch(IOException ex) {
+    		LOG.error(String.format("The rows have been loaded, but the watermark file \"%s\" could not be updated, so the next run will export the same partitions again."
+    								,opts.incrementalWatermarkFile)
+    				, ex);
+    		System.exit(1);
     	}
-	    catch(SQLException ex) {
-	    	LOG.error("Unable to create an Oracle table to store the results of the Hive query.", ex);
-	    	
-	    	System.out.println(String.format("\nWould you like to retry creating the Oracle table \"%s\"?\n"+
-	    									"(y/n)"
-	    									,getOracleTableName(opts)));
-	    	
-	    	try {
-	    		if(Utilities.readYNFromStdIn())
-	    			// Recurse...
-	    			createOracleTableWithRetry(opts, oracleColumns, oracleConnection);
-	    		else
-	    			System.exit(1);
-	    	}
-	    	catch(IOException e) {
-	    		LOG.error(e.getMessage());
-	    		System.exit(1);
-	    	}
-	    }   
-
     }
     
-    private static String getOracleTableName(OraHiveOptions opts) {
+    private static List<String> getHiveInputTables(OraHiveOptions opts) {
     	
-    	String result = opts.oracleTable;
-    	if(!opts.oracleSchema.isEmpty())
-    		result = opts.oracleSchema + "." + result;
+    	List<String> result = Arrays.asList(opts.hiveInputTables);
+    	if(result.isEmpty())
+    		result = HiveMetastore.getHqlInputTables(opts.hql);
     	return result;
     }
     
-    private static String getOracleTablespaceClause(OraHiveOptions opts) {
+    private static void planOracleLoad(OraHiveOptions opts
+    									, List<OraHiveTarget> targets
+    									, ResultSet hiveResultSet
+    									, long estimatedRows) {
     	
-    	String result = "";
-    	if(!opts.oracleTablespace.isEmpty())
-    		result = String.format(" TABLESPACE %s ", opts.oracleTablespace);
-    	return result;
-    }    
+    	// The plan is for the columns as they will be after the transformation rules (no rows are read here)...
+    	if(opts.transformer != null)
+    		hiveResultSet = transformHiveResults(opts, hiveResultSet);
+    	
+    	List<OracleTableColumn> oracleColumns = getOracleTableColumnsForHiveResults(hiveResultSet);
+    	if(oracleColumns == null)
+    		System.exit(1);
+    	LoadPlan plan = LoadPlan.create(oracleColumns, getEstimatedHiveRowBytes(opts), estimatedRows);
+    	
+    	plan.apply(opts);
+    	LOG.info(String.format("Load plan for %s:%s", getOracleTableName(opts), plan.describe(opts)));
+    	
+    	// The first target is the one on the command-line...
+    	for(int idx = 1; idx < targets.size(); idx++) {
+    		OraHiveOptions targetOpts = targets.get(idx).opts;
+    		plan.apply(targetOpts);
+    		LOG.info(String.format("Load plan for the target \"%s\" (%s):%s"
+    								,targets.get(idx).name
+    								,getOracleTableName(targetOpts)
+    								,plan.describe(targetOpts)));
+    	}
+    	
+    	if(opts.planOnly) {
+    		LOG.info(String.format("The \"%s\" option has been supplied, so nothing will be loaded into Oracle."
+    								,Constants.CONF_PLAN_ONLY));
+    		System.exit(0);
+    	}
+    }
     
-    private static String generateOracleInsertStatement(OraHiveOptions opts, List<OracleTableColumn> oracleColumns) {
+    private static ResultSet transformHiveResults(OraHiveOptions opts, ResultSet hiveResultSet) {
+    	
+    	try {
+    		return opts.transformer.transform(hiveResultSet);
+    	}
+    	catch(SQLException ex) {
+    		LOG.error(ex.getMessage());
+    		System.exit(1);
+    	}
+    	return null;
+    }
     
-    	StringBuilder result = new StringBuilder();
+    private static ResultSet skipExistingOracleKeys(OraHiveOptions opts
+    												, Connection oracleConnection
+    												, ResultSet hiveResultSet
+    												, OraHiveCounters counters) {
     	
-    	result.append(String.format("INSERT INTO %s\n", getOracleTableName(opts)));
+    	try {
+    		return new ExistingKeyFilteringResultSet(hiveResultSet
+    												,oracleConnection
+    												,getOracleTableName(opts)
+    												,opts.keyColumns
+    												,opts.oracleMetadataCacheDir.isEmpty() ? null : new File(opts.oracleMetadataCacheDir)
+    												,opts.dedupMemoryMB * 1024 * 1024
+    												,counters);
+    	}
+    	catch(SQLException ex) {
+    		LOG.error(ex.getMessage());
+    		System.exit(1);
+    	}
+    	return null;
+    }
+    
+    private static ChangeDetectingResultSet detectChangedHiveRows(OraHiveOptions opts
+    												, Connection oracleConnection
+    												, ResultSet hiveResultSet
+    												, OraHiveCounters counters) {
     	
-    	for(int idx = 0; idx < oracleColumns.size(); idx++) {
-    		if(idx == 0)
-    			result.append("(");
-    		else
-    			result.append(",");
-    		result.append(oracleColumns.get(idx).getName());
+    	try {
+    		return new ChangeDetectingResultSet(hiveResultSet
+    											,oracleConnection
+    											,getOracleTableName(opts)
+    											,opts.keyColumns
+    											,opts.rowHashColumn
+    											,opts.oracleMetadataCacheDir.isEmpty() ? null : new File(opts.oracleMetadataCacheDir)
+    											,opts.dedupMemoryMB * 1024 * 1024
+    											,counters);
     	}
-    	result.append(")\n");
-    	result.append("VALUES\n");
-    	for(int idx = 0; idx < oracleColumns.size(); idx++) {
-    		if(idx == 0)
-    			result.append("(");
-    		else
-    			result.append(",");
-    		result.append("?");
-    	}    	
-    	result.append(")\n");
+    	catch(SQLException ex) {
+    		LOG.error(ex.getMessage());
+    		System.exit(1);
+    	}
+    	return null;
+    }
+    
+    private static LoadVerifier createLoadVerifier(OraHiveOptions opts, Connection oracleConnection, ResultSet hiveResultSet) {
     	
-    	LOG.info(String.format("INSERT SQL:\n%s", result.toString()));
+    	try {
+    		LoadVerifier result = new LoadVerifier(hiveResultSet.getMetaData());
+    		
+    		// Rows already in the table are taken away from the totals after the load...
+    		if(opts.exportMode.equals(Constants.ExportMode.INSERT))
+    			result.readBaseline(oracleConnection
+    								,getOracleTableName(opts)
+    								,opts.oracleMetadataCacheDir.isEmpty() ? null : new File(opts.oracleMetadataCacheDir));
+    		return result;
+    	}
+    	catch(SQLException ex) {
+    		LOG.error(String.format("Unable to prepare to verify the load of the Oracle table %s."
+    								,getOracleTableName(opts))
+    				, ex);
+    		System.exit(1);
+    	}
+    	return null;
+    }
+    
+    private static boolean verifyOracleLoad(OraHiveOptions opts
+    										, LoadVerifier loadVerifier
+    										, Connection oracleConnection) {
     	
-    	return result.toString();
-    }    
+    	try {
+    		int mismatches = loadVerifier.verify(oracleConnection
+    											,getOracleTableName(opts)
+    											,opts.oracleMetadataCacheDir.isEmpty() ? null : new File(opts.oracleMetadataCacheDir));
+    		if(mismatches == 0)
+    			return true;
+    		
+    		LOG.error(String.format("The Oracle table %s does not match the rows loaded from Hive (%d differences)."
+    								,getOracleTableName(opts)
+    								,mismatches));
+    	}
+    	catch(SQLException ex) {
+    		LOG.error(String.format("Unable to verify the load of the Oracle table %s."
+    								,getOracleTableName(opts))
+    				, ex);
+    	}
+    	return false;
+    }
     
-    private static void insertHiveResultsIntoOracleTable(OraHiveOptions opts
-    													, String insertSql
-    													, List<OracleTableColumn> oracleColumns
-    													, Connection oracleConnection
-    													, ResultSet resultSet
-    													, OraHiveCounters counters) {
+    private static ResultSet deduplicateHiveResults(OraHiveOptions opts, ResultSet hiveResultSet, OraHiveCounters counters) {
+    	
+    	try {
+    		return new DeduplicatingResultSet(hiveResultSet
+    										,opts.keyColumns
+    										,opts.duplicateKeyAction
+    										,opts.dedupMemoryMB * 1024 * 1024
+    										,counters);
+    	}
+    	catch(SQLException ex) {
+    		LOG.error(ex.getMessage());
+    		System.exit(1);
+    	}
+    	return null;
+    }
     
-		long timerHiveFetching = 0;
-		long timerOracleInserting = 0;  
-		long rowsProcessed = 0;
+    private static ResultSet openHiveResultCache(HiveResultCache resultCache, String resultCacheKey) {
     	
     	try {
-	    	
-	    	oracle.jdbc.OraclePreparedStatement statement = (oracle.jdbc.OraclePreparedStatement)oracleConnection.prepareStatement(insertSql);
-	    
-	    	int rowIdx = 0;
-	    	int batchIdx = 0;
-	    	int numberOfBatchesCommitted = 0;
-	    	
+    		return resultCache.open(resultCacheKey);
+    	}
+    	catch(IOException ex) {
+    		LOG.warn("Unable to read the Hive result cache. The Hive query will be executed.", ex);
+    	}
+    	return null;
+    }
+    
+    private static ResultSet recordHiveResultCache(HiveResultCache resultCache, String resultCacheKey, ResultSet hiveResultSet) 
+    	throws SQLException {
+    	
+    	try {
+    		return resultCache.record(resultCacheKey, hiveResultSet);
+    	}
+    	catch(IOException ex) {
+    		LOG.warn("Unable to write to the Hive result cache. The results of this run will not be cached.", ex);
+    	}
+    	return hiveResultSet;
+    }
+    
+    private static ResultSet getBatchFetchingHiveResultSet(ResultSet resultSet
+    													, int fetchSize
+    													, MemoryGovernor governor
+    													, PhaseAccounting phases) {
+    	
       try
       {
-        resultSet.setFetchSize(opts.insertBatchSize);
+        resultSet.setFetchSize(fetchSize);
       }
       catch(SQLException e)
       {
@@ -747,100 +2043,1652 @@ public class HiveJdbcClient {
         {
           // Apply fetchN hack for much better performance with pre 0.8 JDBC driver
           LOG.info("Hive ResultSet does not implement setFetchSize. Wrapping with FetchNResultSet for better performance.");
-          resultSet = new FetchNResultSet(resultSet);
-          resultSet.setFetchSize(opts.insertBatchSize);
+          FetchNResultSet fetchNResultSet = new FetchNResultSet(resultSet);
+          fetchNResultSet.setFetchSize(fetchSize);
+          fetchNResultSet.setMemoryGovernor(governor);
+          fetchNResultSet.setPhaseAccounting(phases);
+          resultSet = fetchNResultSet;
         }
         catch(IllegalArgumentException iae)
         {
           LOG.warn("Wrapping Hive ResultSet with FetchNResultSet failed. Performance may be poor for large result sets.");
           LOG.debug("FetchNResultSet exception was:", iae);
         }
-      }
-      long start = System.nanoTime();
-      while (resultSet.next())
-      {
-        for (int idx = 0; idx < oracleColumns.size(); idx++)
-        { // <- JDBC is 1-based
-          statement.setObject(idx + 1, resultSet.getObject(idx + 1));
-        }
-        timerHiveFetching += System.nanoTime() - start;
-
-        rowsProcessed++;
-        statement.addBatch();
-
-        rowIdx++;
-        if (rowIdx == opts.insertBatchSize)
-        {
-          rowIdx = 0;
-
-          start = System.nanoTime();
-
-          // executeBatchWithRetry(statement, oracleConnection);
-          statement.executeBatch();
-          statement.clearBatch();
-
-          timerOracleInserting += System.nanoTime() - start;
-
-          batchIdx++;
-        }
-
-        if (batchIdx == opts.commitBatchCount)
+        catch(SQLException sqle)
         {
-          batchIdx = 0;
-          oracleConnection.commit();
-          numberOfBatchesCommitted++;
-          LOG.info(String.format("Number of rows inserted so far: %d",
-                                 numberOfBatchesCommitted * (opts.insertBatchSize * opts.commitBatchCount)));
+          LOG.warn("Unable to set the fetch size of the Hive ResultSet.", sqle);
         }
-        start = System.nanoTime();
       }
-	    	
-    		if(rowIdx > 0) {
-        start = System.nanoTime();
-	    		
-	    		//executeBatchWithRetry(statement, oracleConnection);
-	    		statement.executeBatch();
-	    		
-	    		timerOracleInserting += System.nanoTime() - start;	    			
-    		}	    	
-	    	
-    		oracleConnection.commit();
+      return resultSet;
+    }
+    
+    private static void connectOraHiveTargets(List<OraHiveTarget> targets, Connection oracleConnection) {
+    	
+    	for(OraHiveTarget target : targets) {
     		
-	    	statement.close();
-    	}
-    	catch(SQLException ex) {
+    		// The first target is the one on the command-line, which is already connected...
+    		if(target == targets.get(0)) {
+    			target.oracleConnection = oracleConnection;
+    			continue;
+    		}
     		
-			if(Utilities.oracleSessionHasBeenKilled(ex)) {
-				LOG.info("\n*********************************************************"+
-						 "\nThe Oracle session in use has been killed by a 3rd party."+
-                         "\n*********************************************************");
-			}
-			else
-				LOG.error("An error occurred within the process of fetching Hive results "+
-				          "and inserting them into an Oracle table. (1)", ex);
+    		target.oracleConnection = createOracleJdbcConnection(target.opts.oracleJdbcUrl
+    															, target.opts.oracleUserName
+    															, target.opts.oraclePassword);
+    		initializeOracleSession(target.oracleConnection, target.opts);
+    	}
+    }
+    
+    private static void closeOraHiveTargets(List<OraHiveTarget> targets, Connection oracleConnection) {
+    	
+    	for(OraHiveTarget target : targets) {
+    		if(target.oracleConnection == null || target.oracleConnection == oracleConnection)
+    			continue;
     		
     		try {
-    			oracleConnection.rollback();
+    			target.oracleConnection.close();
+    		}
+    		catch(SQLException ex) {
+    			LOG.warn(String.format("Unable to close the Oracle connection for the target \"%s\".", target.name), ex);
     		}
-    		catch(SQLException e) {}	
-    		
-    		System.exit(1);
-    	}
-    	catch(Exception ex) {
-            LOG.error("An error occurred within the process of fetching Hive results "+
-                      "and inserting them into an Oracle table. (2)", ex);
-    	}
-    	finally {
-    	    LOG.info(String.format("Number of rows obtained from Hive: %d"
-    	                          ,rowsProcessed));
     	}
+    }
+    
+    private static OraHiveSink createSink(OraHiveOptions opts) {
+    	
+    	if(opts.sink.equalsIgnoreCase(Constants.SINK_NULL))
+    		return new NullSink();
+    	
+    	if(opts.sink.startsWith(Constants.SINK_FILE_PREFIX))
+    		return new FileSink(new File(opts.sink.substring(Constants.SINK_FILE_PREFIX.length())));
     	
-    	counters.rowsProcessed = rowsProcessed;
-    	counters.hiveFetchTimeNanoSec = timerHiveFetching;
-    	counters.oracleInsertTimeNanoSec = timerOracleInserting;
+    	// The table in the other database is named as the Oracle table would be...
+    	return new JdbcSink(opts.sink, getOracleTableName(opts));
     }
     
+    private static MemoryGovernor createMemoryGovernor(OraHiveOptions opts) {
+    	
+    	long budgetBytes = opts.memoryBudgetMB * 1024 * 1024;
+    	if(budgetBytes <= 0)
+    		budgetBytes = (Runtime.getRuntime().maxMemory() / 100) * Constants.DEFAULT_MEMORY_BUDGET_PERCENT_OF_HEAP;
+    	
+    	MemoryGovernor result = new MemoryGovernor(budgetBytes);
+    	LOG.debug(String.format("Batches of rows may hold up to %,d bytes in all, and %,d bytes each."
+    							,result.getBudgetBytes()
+    							,result.getMaxBatchBytes()));
+    	return result;
+    }
     
+    private static Connection createOracleJdbcConnection(String url, String userName, String password) { 
+    	
+		try {
+			Class.forName(Constants.ORACLE_JDBC_DRIVER_CLASS);
+	    } 
+		catch (ClassNotFoundException ex) {
+	      LOG.error(String.format("Unable to load the Oracle JDBC driver \"%s\"."
+	    		  				, Constants.ORACLE_JDBC_DRIVER_CLASS)
+	    		  	,ex);
+	      System.exit(1);
+	    }
+		
+    	try {
+    		 return DriverManager.getConnection(url, userName, password);
+    	}
+    	catch(SQLException ex) {
+    		LOG.error(String.format("Unable to connect to Oracle via the JDBC URL \"%s\" as user \"%s\"."
+    								,url
+    								,userName)
+    				, ex);
+    		System.exit(1);
+    	}   	
+    	return null;
+    }    
+    
+    private static void initializeOracleSession(Connection connection, OraHiveOptions opts) {
+    	
+   		String sql = "";
+   		try {
+   			sql = "begin \n" +
+   				 "  dbms_application_info.set_module(module_name => '%s', action_name => '%s'); \n" +
+   				 "end;";
+    			
+   			sql = String.format(sql
+   								, Constants.ORAHIVE_PRODUCT_NAME
+   								, getOracleTableName(opts));
+    			
+   			Statement statement = connection.createStatement();
+   			statement.execute(sql);
+   			statement.close();
+   		} 
+   		catch(Exception ex) {
+   			LOG.error(String.format("An error occurred while attempting to execute "+
+   						 	"the following Oracle session-initialization statement:"+
+   						 	"\n%s"+
+   						 	"\nError:"+
+   						 	"\n%s"
+   						 	,sql
+   						 	,ex.getMessage()));
+   		}		
+    }
+
+    private static List<OracleTableColumn> getOracleTableColumnsForHiveResults(ResultSet resultSet) {
+    	
+    	List<OracleTableColumn> result = null;
+    	
+    	try {
+	    	ResultSetMetaData metaData = resultSet.getMetaData();
+	    	
+	    	result = new ArrayList<OracleTableColumn>(metaData.getColumnCount());
+	    	
+	    	for(int idx = 0; idx < metaData.getColumnCount(); idx++) {
+	    		OracleTableColumn column = new OracleTableColumn();
+	    		result.add(column);
+	    		
+	    		// column Name...
+	    		column.setName(metaData.getColumnLabel(idx+1));	//<- 1-based in JDBC;
+	    		
+	    		// Sql Type...
+	    		column.sqlType = metaData.getColumnType(idx+1);	//<- 1-based in JDBC
+	    		
+	    		// column Oracle data-type...
+	    		
+	    		Constants.OracleType oracleType = javaSqlTypeToOracleType(column.sqlType);
+	    		
+	    		switch(oracleType) {
+	    		
+	    			case VARCHAR2: {
+	    				
+	    				column.oracleDataType = String.format("%s(%d)"
+	    													, oracleType.toString()
+	    													, 4000 // Max length for a varchar
+	    													);
+	    				break;
+	    			}
+	    			
+	    			default: {
+	    				column.oracleDataType = oracleType.toString();
+	    				break;
+	    			}    			
+	    				
+	    		}
+	    	}
+	    	
+    	}
+    	catch(SQLException ex) {
+    		LOG.error("An error occurred when processing the metadata for the Hive result-set.", ex);
+    		return null;
+    	}   	
+    	
+    	return result;
+    }
+    
+    private static Constants.OracleType javaSqlTypeToOracleType(int javaSqlType) {
+
+		switch(javaSqlType) {
+		
+			case java.sql.Types.VARCHAR: return Constants.OracleType.VARCHAR2;
+			
+			case java.sql.Types.BOOLEAN: return Constants.OracleType.NUMBER; // Constants.OracleType.VARCHAR2;
+			
+			case java.sql.Types.BIGINT:
+			case java.sql.Types.DECIMAL:
+			case java.sql.Types.DOUBLE:
+			case java.sql.Types.FLOAT:
+			case java.sql.Types.INTEGER: 
+			case java.sql.Types.NUMERIC:
+			case java.sql.Types.REAL:
+			case java.sql.Types.SMALLINT: return Constants.OracleType.NUMBER;
+			
+			case java.sql.Types.TIMESTAMP: return Constants.OracleType.TIMESTAMP;	//<- Only from the transformation rules or the synthetic source
+			
+			default:
+				throw new RuntimeException(String.format("Unsupported SQL type: %d.", javaSqlType));
+				
+		}
+    	
+    }
+    
+    /**
+     * Matches the columns of the Hive results by name to the columns of an existing Oracle table,
+     * and gives each one a converter for the type of the Oracle column.
+     */
+    private static List<OracleTableColumn> getOracleInsertColumns(OraHiveOptions opts
+    															, String oracleTableName
+    															, List<OracleTableColumn> hiveColumns
+    															, Connection oracleConnection) {
+    	
+    	OracleTableMetadata metadata = null;
+    	try {
+    		File cacheDirectory = opts.oracleMetadataCacheDir.isEmpty() ? null : new File(opts.oracleMetadataCacheDir);
+    		metadata = OracleTableMetadata.get(oracleConnection, oracleTableName, cacheDirectory);
+    	}
+    	catch(SQLException ex) {
+    		LOG.error(String.format("Unable to read the column definitions of the Oracle table %s."
+    								,oracleTableName)
+    				, ex);
+    		return null;
+    	}
+    	
+    	// Views (and anything else that is not a table) are inserted into as before, bound as the Hive column types...
+    	if(metadata == null) {
+    		LOG.warn(String.format("%s is not an Oracle table, so the Hive results will be bound as the types of the Hive columns."
+    								,oracleTableName));
+    		return hiveColumns;
+    	}
+    	
+    	List<OracleTableColumn> result = new ArrayList<OracleTableColumn>(hiveColumns.size());
+    	List<String> missingColumns = new ArrayList<String>();
+    	
+    	for(OracleTableColumn hiveColumn : hiveColumns) {
+    		OracleTableMetadata.Column oracleColumn = metadata.getColumn(hiveColumn.getName());
+    		if(oracleColumn == null) {
+    			missingColumns.add(hiveColumn.getName());
+    			continue;
+    		}
+    		
+    		OracleTableColumn column = new OracleTableColumn();
+    		column.setName(oracleColumn.getSqlName());
+    		column.oracleDataType = oracleColumn.describe();
+    		column.converter = OracleColumnConverter.create(oracleColumn);
+    		column.sqlType = column.converter.getSqlType();
+    		result.add(column);
+    		
+    		LOG.debug(String.format("The Hive column %s will be bound as %s for the Oracle column %s."
+    								,hiveColumn.getName()
+    								,column.oracleDataType
+    								,column.getName()));
+    	}
+    	
+    	if(!missingColumns.isEmpty()) {
+    		LOG.error(String.format("The Oracle table %s.%s has no columns named %s to insert the Hive results of the same name into."
+    								,metadata.getOwner()
+    								,metadata.getTableName()
+    								,missingColumns));
+    		return null;
+    	}
+    	
+    	return result;
+    }
+    
+    private static boolean createOracleTableWithRetry(OraHiveOptions opts, List<OracleTableColumn> oracleColumns, Connection oracleConnection, boolean interactive) { 
+    	
+    	return createOracleTableWithRetry(opts, getOracleTableName(opts), oracleColumns, oracleConnection, interactive);
+    }
+    
+    private static boolean createOracleTableWithRetry(OraHiveOptions opts, String oracleTableName, List<OracleTableColumn> oracleColumns, Connection oracleConnection, boolean interactive) { 
+    	
+    	try {
+	
+	    	Statement statement = oracleConnection.createStatement();
+	    	
+	    	StringBuilder columnClause = new StringBuilder();
+	    	for(int idx = 0; idx < oracleColumns.size(); idx++) {
+	    		OracleTableColumn column = oracleColumns.get(idx);
+	    		if(idx > 0)
+	    			columnClause.append(", ");
+	    		columnClause.append(String.format("%s %s"
+	    							,column.getName()
+	    							,column.oracleDataType));
+	    	}
+	    	
+	    	String sql = String.format("CREATE TABLE %s (%s)"
+	    							,oracleTableName
+	    							,columnClause.toString());
+	    	
+	    	sql += getOracleTablespaceClause(opts);
+	    	
+	    	LOG.info(String.format("Executing SQL: %s", sql));
+	    	
+    		statement.execute(sql);
+	    	statement.close();
+    	}
+	    catch(SQLException ex) {
+	    	LOG.error("Unable to create an Oracle table to store the results of the Hive query.", ex);
+	    	
+	    	if(!interactive)
+	    		return false;
+	    	
+	    	System.out.println(String.format("\nWould you like to retry creating the Oracle table \"%s\"?\n"+
+	    									"(y/n)"
+	    									,oracleTableName));
+	    	
+	    	try {
+	    		if(Utilities.readYNFromStdIn())
+	    			// Recurse...
+	    			return createOracleTableWithRetry(opts, oracleTableName, oracleColumns, oracleConnection, interactive);
+	    	}
+	    	catch(IOException e) {
+	    		LOG.error(e.getMessage());
+	    	}
+	    	return false;
+	    }   
+
+	    return true;
+    }
+    
+    private static String getOracleTableName(OraHiveOptions opts) {
+    	
+    	return getOracleObjectName(opts, opts.oracleTable);
+    }
+    
+    private static String getOracleObjectName(OraHiveOptions opts, String objectName) {
+    	
+    	String result = objectName;
+    	if(!opts.oracleSchema.isEmpty())
+    		result = opts.oracleSchema + "." + result;
+    	return result;
+    }
+    
+    private static String getOracleErrorLogTableName(OraHiveOptions opts) {
+    	
+    	return getOracleObjectName(opts, opts.errorLogTable);
+    }
+    
+    private static boolean createOracleErrorLogTable(OraHiveOptions opts, Connection oracleConnection) {
+    	
+    	String sql = "begin \n" +
+    				 "  dbms_errlog.create_error_log(dml_table_name => ?, err_log_table_name => ?, \n" +
+    				 "                               err_log_table_owner => ?, skip_unsupported => TRUE); \n" +
+    				 "end;";
+    	try {
+    		CallableStatement statement = oracleConnection.prepareCall(sql);
+    		try {
+	    		statement.setString(1, getOracleTableName(opts));
+	    		statement.setString(2, opts.errorLogTable);
+	    		statement.setString(3, opts.oracleSchema.isEmpty() ? null : opts.oracleSchema);
+	    		
+	    		LOG.info(String.format("Creating the Oracle error log table %s", getOracleErrorLogTableName(opts)));
+	    		statement.execute();
+    		}
+    		finally {
+    			statement.close();
+    		}
+    	}
+    	catch(SQLException ex) {
+    		if(ex.getErrorCode() == 955) { // ORA-00955: name is already used by an existing object
+    			LOG.info(String.format("Rows rejected by Oracle will be logged to the existing table %s"
+    									,getOracleErrorLogTableName(opts)));
+    			return true;
+    		}
+    		
+    		LOG.error(String.format("Unable to create the Oracle error log table %s."
+    								,getOracleErrorLogTableName(opts))
+    				, ex);
+    		return false;
+    	}
+    	return true;
+    }
+    
+    private static String generateOracleErrorLoggingClause(OraHiveOptions opts) {
+    	
+    	return String.format("LOG ERRORS INTO %s ('%s') REJECT LIMIT %s\n"
+    						,getOracleErrorLogTableName(opts)
+    						,opts.errorLogTag
+    						,opts.rejectLimit);
+    }
+    
+    private static long getOracleErrorLogRowCount(OraHiveOptions opts, Connection oracleConnection) {
+    	
+    	String sql = String.format("SELECT COUNT(*) FROM %s WHERE ora_err_tag$ = ?"
+    								,getOracleErrorLogTableName(opts));
+    	try {
+    		PreparedStatement statement = oracleConnection.prepareStatement(sql);
+    		try {
+    			statement.setString(1, opts.errorLogTag);
+    			ResultSet resultSet = statement.executeQuery();
+    			resultSet.next();
+    			long result = resultSet.getLong(1);
+    			resultSet.close();
+    			
+    			if(result > 0)
+    				LOG.warn(String.format("%d row(s) were rejected by Oracle. They have been logged to %s with ORA_ERR_TAG$ = '%s'."
+    									,result
+    									,getOracleErrorLogTableName(opts)
+    									,opts.errorLogTag));
+    			return result;
+    		}
+    		finally {
+    			statement.close();
+    		}
+    	}
+    	catch(SQLException ex) {
+    		LOG.error(String.format("Unable to count the rows logged to the Oracle error log table %s."
+    								,getOracleErrorLogTableName(opts))
+    				, ex);
+    	}
+    	return 0;
+    }
+    
+    private static String getOracleTablespaceClause(OraHiveOptions opts) {
+    	
+    	String result = "";
+    	if(!opts.oracleTablespace.isEmpty())
+    		result = String.format(" TABLESPACE %s ", opts.oracleTablespace);
+    	return result;
+    }    
+    
+    private static String generateOracleInsertStatement(OraHiveOptions opts, List<OracleTableColumn> oracleColumns) {
+    	
+    	String errorLoggingClause = "";
+    	if(opts.rejectLimit != null)
+    		errorLoggingClause = generateOracleErrorLoggingClause(opts);
+    	
+    	return generateOracleInsertStatement(getOracleTableName(opts), oracleColumns, errorLoggingClause);
+    }
+    
+    private static String generateOracleInsertStatement(String oracleTableName
+    													, List<OracleTableColumn> oracleColumns
+    													, String errorLoggingClause) {
+    
+    	StringBuilder result = new StringBuilder();
+    	
+    	result.append(String.format("INSERT INTO %s\n", oracleTableName));
+    	
+    	for(int idx = 0; idx < oracleColumns.size(); idx++) {
+    		if(idx == 0)
+    			result.append("(");
+    		else
+    			result.append(",");
+    		result.append(oracleColumns.get(idx).getName());
+    	}
+    	result.append(")\n");
+    	result.append("VALUES\n");
+    	for(int idx = 0; idx < oracleColumns.size(); idx++) {
+    		if(idx == 0)
+    			result.append("(");
+    		else
+    			result.append(",");
+    		result.append("?");
+    	}    	
+    	result.append(")\n");
+    	result.append(errorLoggingClause);
+    	
+    	LOG.info(String.format("INSERT SQL:\n%s", result.toString()));
+    	
+    	return result.toString();
+    }    
+    
+    private static boolean insertHiveResultsIntoOracleTable(OraHiveOptions opts
+    													, String insertSql
+    													, List<OracleTableColumn> oracleColumns
+    													, Connection oracleConnection
+    													, ResultSet resultSet
+    													, OraHiveCounters counters) {
+    	
+    	OracleSink sink = new OracleSink(oracleConnection, insertSql, getOracleTableName(opts), opts.asyncCommit);
+    	return writeHiveResultsToSink(opts, sink, oracleColumns, resultSet, counters);
+    }
+    
+    private static boolean writeHiveResultsToSink(OraHiveOptions opts
+    											, OraHiveSink sink
+    											, List<OracleTableColumn> columns
+    											, ResultSet resultSet
+    											, OraHiveCounters counters) {
+    
+		long timerHiveFetching = 0;
+		long timerOracleInserting = 0;  
+		long rowsProcessed = 0;
+		
+		// The rows bound into the sink's batch are held against the budget until the batch is written...
+		MemoryGovernor governor = opts.memoryGovernor;
+		long batchBytes = 0;
+    	
+    	try {
+	    	
+	    	sink.open(columns);
+	    
+	    	int rowIdx = 0;
+	    	int batchIdx = 0;
+	    	long batchId = 0;
+	    	
+      counters.phases.switchTo(PhaseAccounting.Phase.ORACLE_BIND);
+      long start = System.nanoTime();
+      while (resultSet.next())
+      {
+        long rowBytes = sink.addRow(resultSet);
+        governor.reserve(rowBytes);
+        batchBytes += rowBytes;
+        timerHiveFetching += System.nanoTime() - start;
+
+        rowsProcessed++;
+
+        rowIdx++;
+        // Wide rows are sent in smaller batches...
+        if (rowIdx == opts.insertBatchSize || batchBytes >= governor.getMaxBatchBytes())
+        {
+          if (rowIdx < opts.insertBatchSize)
+            governor.batchCutShort();
+
+          start = System.nanoTime();
+
+          writeSinkBatch(sink, ++batchId, rowIdx, batchBytes, opts, counters);
+          governor.release(batchBytes);
+          rowIdx = 0;
+          batchBytes = 0;
+
+          timerOracleInserting += System.nanoTime() - start;
+
+          batchIdx++;
+
+          if (counters.progress != null)
+            counters.progress.update(rowsProcessed);
+        }
+
+        if (batchIdx == opts.commitBatchCount)
+        {
+          batchIdx = 0;
+          commitSink(sink, rowsProcessed, counters);
+          LOG.info(String.format("Number of rows inserted so far: %d", rowsProcessed));
+        }
+        start = System.nanoTime();
+      }
+	    	
+    		if(rowIdx > 0) {
+        start = System.nanoTime();
+	    		
+	    		writeSinkBatch(sink, ++batchId, rowIdx, batchBytes, opts, counters);
+	    		governor.release(batchBytes);
+	    		batchBytes = 0;
+	    		
+	    		timerOracleInserting += System.nanoTime() - start;	    			
+    		}	    	
+	    	
+    		commitSinkDurably(sink, rowsProcessed, counters);
+    	}
+    	catch(SQLException ex) {
+    		
+			if(Utilities.oracleSessionHasBeenKilled(ex)) {
+				LOG.info("\n*********************************************************"+
+						 "\nThe Oracle session in use has been killed by a 3rd party."+
+                         "\n*********************************************************");
+			}
+			else
+				LOG.error(String.format("An error occurred within the process of fetching Hive results "+
+				          				"and writing them to %s. (1)", sink.getName()), ex);
+    		
+    		sink.rollback();
+    		
+    		return false;
+    	}
+    	catch(Exception ex) {
+            LOG.error(String.format("An error occurred within the process of fetching Hive results "+
+                      				"and writing them to %s. (2)", sink.getName()), ex);
+            
+            // Otherwise closing the sink could write out the rows that were not committed...
+            sink.rollback();
+            
+            return false;
+    	}
+    	finally {
+    		closeSink(sink);
+    		// A batch that was not written is no longer held once the sink is closed...
+    		governor.release(batchBytes);
+    		
+    	    LOG.info(String.format("Number of rows obtained from Hive: %d"
+    	                          ,rowsProcessed));
+    	    
+        	counters.rowsProcessed = rowsProcessed;
+        	counters.hiveFetchTimeNanoSec = timerHiveFetching;
+        	counters.oracleInsertTimeNanoSec = timerOracleInserting;
+        	counters.phases.stop();
+    	}
+    	
+    	return true;
+    }
+    
+    private static void closeSink(OraHiveSink sink) {
+    	
+    	try {
+    		sink.close();
+    	}
+    	catch(SQLException ex) {
+    		LOG.warn(String.format("Unable to close %s.", sink.getName()), ex);
+    	}
+    }
+    
+    /**
+     * Writes a batch of rows that have been added to the sink. The caller reserves the batch's bytes
+     * with the memory governor as the rows are added and releases them once the batch is written.
+     */
+    private static void writeSinkBatch(OraHiveSink sink
+    								, long batchId
+    								, int rows
+    								, long batchBytes
+    								, OraHiveOptions opts
+    								, OraHiveCounters counters) throws SQLException {
+    	
+    	PhaseAccounting.Phase previousPhase = counters.phases.switchTo(PhaseAccounting.Phase.ORACLE_EXECUTE);
+    	FlightRecorderEvents.Span event = FlightRecorderEvents.begin(FlightRecorderEvents.Type.ORACLE_EXECUTE_BATCH);
+    	
+    	sink.writeBatch();
+    	
+    	event.commit(batchId, rows, batchBytes, sink.getName());
+    	counters.phases.switchTo(previousPhase);
+    }
+    
+    private static void commitSink(OraHiveSink sink, long rowsCommitted, OraHiveCounters counters) 
+    	throws SQLException {
+    	
+    	PhaseAccounting.Phase previousPhase = counters.phases.switchTo(PhaseAccounting.Phase.ORACLE_COMMIT);
+    	FlightRecorderEvents.Span event = FlightRecorderEvents.begin(FlightRecorderEvents.Type.ORACLE_COMMIT);
+    	long start = System.nanoTime();
+    	
+    	sink.commit(false);
+    	
+    	counters.oracleCommitTimeNanoSec += System.nanoTime() - start;
+    	counters.oracleCommits++;
+    	event.commit(counters.oracleCommits, rowsCommitted, 0, sink.getName());
+    	counters.phases.switchTo(previousPhase);
+    }
+    
+    private static void commitSinkDurably(OraHiveSink sink, long rowsCommitted, OraHiveCounters counters) 
+    	throws SQLException {
+    	
+    	PhaseAccounting.Phase previousPhase = counters.phases.switchTo(PhaseAccounting.Phase.ORACLE_COMMIT);
+    	FlightRecorderEvents.Span event = FlightRecorderEvents.begin(FlightRecorderEvents.Type.ORACLE_COMMIT);
+    	long start = System.nanoTime();
+    	sink.commit(true);
+    	counters.oracleFinalCommitTimeNanoSec = System.nanoTime() - start;
+    	event.commit(counters.oracleCommits + 1, rowsCommitted, 0, sink.getName());
+    	counters.phases.switchTo(previousPhase);
+    }
+    
+    private static String getOracleRouteTarget(OraHiveOptions opts, int route) {
+    	
+    	String result = getOracleRouteTable(opts, route);
+    	
+    	String partition = opts.router.getRoutePartition(route);
+    	if(partition != null)
+    		result = String.format("%s PARTITION (%s)", result, partition);
+    	return result;
+    }
+    
+    private static String getOracleRouteTable(OraHiveOptions opts, int route) {
+    	
+    	String result = opts.router.getRouteTable(route);
+    	if(result == null)
+    		result = getOracleTableName(opts);
+    	else if(result.indexOf('.') < 0)
+    		result = getOracleObjectName(opts, result);
+    	return result;
+    }
+    
+    private static boolean insertHiveResultsIntoOracleRoutes(OraHiveOptions opts
+    														, List<OracleTableColumn> oracleColumns
+    														, Connection oracleConnection
+    														, ResultSet resultSet
+    														, OraHiveCounters counters) {
+    	
+    	HiveResultRouter router = opts.router;
+    	
+    	int routeColumnIdx = -1;
+    	for(int idx = 0; idx < oracleColumns.size(); idx++)
+    		if(oracleColumns.get(idx).getName().equalsIgnoreCase(router.getColumnName()))
+    			routeColumnIdx = idx;
+    	
+    	if(routeColumnIdx < 0) {
+    		LOG.error(String.format("The Hive results do not contain the column \"%s\" that the rows are routed on."
+    								,router.getColumnName()));
+    		return false;
+    	}
+    	
+		long timerHiveFetching = 0;
+		long timerOracleInserting = 0;  
+		long rowsProcessed = 0;
+		
+		// Each route has its own sink and batch...
+		OracleSink[] sinks = new OracleSink[router.getRouteCount()];
+		int[] rowIdx = new int[router.getRouteCount()];
+		long[] batchBytes = new long[router.getRouteCount()];
+		String[] routeTargets = new String[router.getRouteCount()];
+		List<List<OracleTableColumn>> routeColumns = new ArrayList<List<OracleTableColumn>>(router.getRouteCount());
+		MemoryGovernor governor = opts.memoryGovernor;
+		
+    	try {
+    		try {
+	    		for(int route = 0; route < sinks.length; route++) {
+	    			
+	    			// Rows rejected by Oracle can only be logged for the table the error log table was made for...
+	    			String errorLoggingClause = "";
+	    			if(opts.rejectLimit != null) {
+	    				if(router.getRouteTable(route) == null)
+	    					errorLoggingClause = generateOracleErrorLoggingClause(opts);
+	    				else
+	    					LOG.warn(String.format("Rows rejected by Oracle for the route \"%s\" will not be logged."
+	    											,router.getRouteName(route)));
+	    			}
+	    			
+	    			// The routes' tables may differ, so each is bound as its own column types...
+	    			if(opts.exportMode.equals(Constants.ExportMode.INSERT)) {
+	    				List<OracleTableColumn> columns = getOracleInsertColumns(opts, getOracleRouteTable(opts, route), oracleColumns, oracleConnection);
+	    				if(columns == null)
+	    					return false;
+	    				routeColumns.add(columns);
+	    			}
+	    			else
+	    				routeColumns.add(oracleColumns);
+	    			
+	    			routeTargets[route] = getOracleRouteTarget(opts, route);
+	    			String insertSql = generateOracleInsertStatement(routeTargets[route], routeColumns.get(route), errorLoggingClause);
+	    			sinks[route] = new OracleSink(oracleConnection, insertSql, routeTargets[route], opts.asyncCommit);
+	    			sinks[route].open(routeColumns.get(route));
+	    		}
+	    		
+	    		int batchIdx = 0;
+	    		long batchId = 0;
+	    		
+	    		counters.phases.switchTo(PhaseAccounting.Phase.ORACLE_BIND);
+	    		long start = System.nanoTime();
+	    		while(resultSet.next()) {
+	    			
+	    			int route = router.getRoute(resultSet.getObject(routeColumnIdx + 1));	//<- JDBC is 1-based
+	    			if(route < 0)
+	    				throw new SQLException(String.format("There is no route for the value \"%s\" of the column %s."
+	    													,resultSet.getObject(routeColumnIdx + 1)
+	    													,router.getColumnName()));
+	    			
+	    			long rowBytes = sinks[route].addRow(resultSet);
+	    			governor.reserve(rowBytes);
+	    			batchBytes[route] += rowBytes;
+	    			timerHiveFetching += System.nanoTime() - start;
+	    			
+	    			rowsProcessed++;
+	    			
+	    			rowIdx[route]++;
+	    			// Wide rows are sent in smaller batches...
+	    			if(rowIdx[route] == opts.insertBatchSize || batchBytes[route] >= governor.getMaxBatchBytes()) {
+	    				if(rowIdx[route] < opts.insertBatchSize)
+	    					governor.batchCutShort();
+	    				
+	    				start = System.nanoTime();
+	    				writeSinkBatch(sinks[route], ++batchId, rowIdx[route], batchBytes[route], opts, counters);
+	    				governor.release(batchBytes[route]);
+	    				rowIdx[route] = 0;
+	    				batchBytes[route] = 0;
+	    				timerOracleInserting += System.nanoTime() - start;
+	    				
+	    				batchIdx++;
+	    				
+	    				if(counters.progress != null)
+	    					counters.progress.update(rowsProcessed);
+	    			}
+	    			
+	    			// A commit covers the batches of every route, as their sinks share the connection...
+	    			if(batchIdx == opts.commitBatchCount) {
+	    				batchIdx = 0;
+	    				commitSink(sinks[0], rowsProcessed, counters);
+	    				LOG.info(String.format("Number of rows inserted so far: %d", rowsProcessed));
+	    			}
+	    			start = System.nanoTime();
+	    		}
+	    		
+	    		start = System.nanoTime();
+	    		for(int route = 0; route < sinks.length; route++)
+	    			if(rowIdx[route] > 0) {
+	    				writeSinkBatch(sinks[route], ++batchId, rowIdx[route], batchBytes[route], opts, counters);
+	    				governor.release(batchBytes[route]);
+	    				batchBytes[route] = 0;
+	    			}
+	    		timerOracleInserting += System.nanoTime() - start;
+	    		
+	    		commitSinkDurably(sinks[0], rowsProcessed, counters);
+    		}
+    		finally {
+    			// The batches that were not written are no longer held once the sinks are closed...
+    			for(int route = 0; route < sinks.length; route++)
+    				governor.release(batchBytes[route]);
+    			for(OracleSink sink : sinks)
+    				if(sink != null)
+    					sink.close();
+    		}
+    	}
+    	catch(SQLException ex) {
+    		
+			if(Utilities.oracleSessionHasBeenKilled(ex)) {
+				LOG.info("\n*********************************************************"+
+						 "\nThe Oracle session in use has been killed by a 3rd party."+
+                         "\n*********************************************************");
+			}
+			else
+				LOG.error("An error occurred within the process of fetching Hive results "+
+				          "and inserting them into the Oracle tables they are routed to.", ex);
+    		
+    		try {
+    			oracleConnection.rollback();
+    		}
+    		catch(SQLException e) {}	
+    		
+    		return false;
+    	}
+    	finally {
+    	    LOG.info(String.format("Number of rows obtained from Hive: %d"
+    	                          ,rowsProcessed));
+    	    
+        	counters.rowsProcessed = rowsProcessed;
+        	counters.hiveFetchTimeNanoSec = timerHiveFetching;
+        	counters.oracleInsertTimeNanoSec = timerOracleInserting;
+        	counters.phases.stop();
+    	}
+    	
+    	return true;
+    }
+    
+    private static boolean checkOracleKeyColumns(OraHiveOptions opts, List<OracleTableColumn> oracleColumns) {
+    	
+    	for(int idx = 0; idx < opts.keyColumns.length; idx++) {
+    		OracleTableColumn column = getOracleTableColumn(oracleColumns, opts.keyColumns[idx]);
+    		if(column == null) {
+    			LOG.error(String.format("The key column \"%s\" is not one of the columns returned by the Hive query."
+    									,opts.keyColumns[idx]));
+    			return false;
+    		}
+    		opts.keyColumns[idx] = column.getName();
+    	}
+    	return true;
+    }
+    
+    private static OracleTableColumn getOracleTableColumn(List<OracleTableColumn> oracleColumns, String columnName) {
+    	
+    	for(OracleTableColumn column : oracleColumns)
+    		if(column.getName().equalsIgnoreCase(columnName))
+    			return column;
+    	return null;
+    }
+    
+    private static boolean isOracleKeyColumn(OraHiveOptions opts, OracleTableColumn column) {
+    	
+    	for(String keyColumn : opts.keyColumns)
+    		if(keyColumn.equalsIgnoreCase(column.getName()))
+    			return true;
+    	return false;
+    }
+    
+    private static String createOracleStagingTable(OraHiveOptions opts, List<OracleTableColumn> oracleColumns, Connection oracleConnection) {
+    	
+    	String sql = "";
+    	try {
+	    	Statement statement = oracleConnection.createStatement();
+	    	try {
+	    		// Each session gets its own staging table, so concurrent jobs never see each other's rows.
+	    		// SIDs are only unique within an instance, so the name also has the RAC instance number...
+		    	ResultSet resultSet = statement.executeQuery("SELECT SYS_CONTEXT('USERENV', 'INSTANCE') || '_' || SYS_CONTEXT('USERENV', 'SID') FROM dual");
+		    	resultSet.next();
+		    	String tableName = Constants.ORACLE_STAGING_TABLE_PREFIX + resultSet.getString(1);
+		    	String result = getOracleObjectName(opts, tableName);
+		    	resultSet.close();
+		    	
+		    	// A run that was killed leaves its staging table behind for the next session with the same instance
+		    	// and SID. No other live session can have that instance and SID, so the table is this session's to drop...
+		    	dropOracleTable(opts, tableName, oracleConnection);
+		    	
+		    	StringBuilder columnClause = new StringBuilder();
+		    	for(int idx = 0; idx < oracleColumns.size(); idx++) {
+		    		OracleTableColumn column = oracleColumns.get(idx);
+		    		if(idx > 0)
+		    			columnClause.append(", ");
+		    		columnClause.append(String.format("%s %s"
+		    							,column.getName()
+		    							,column.oracleDataType));
+		    	}
+		    	
+		    	sql = String.format("CREATE GLOBAL TEMPORARY TABLE %s (%s) ON COMMIT PRESERVE ROWS"
+		    						,result
+		    						,columnClause.toString());
+		    	
+		    	LOG.info(String.format("Executing SQL: %s", sql));
+		    	statement.execute(sql);
+		    	
+		    	return result;
+	    	}
+	    	finally {
+	    		statement.close();
+	    	}
+    	}
+    	catch(SQLException ex) {
+    		LOG.error(String.format("Unable to create the Oracle staging table for the \"%s\" export mode.\n%s"
+    								,Constants.ExportMode.UPSERT.toString().toLowerCase()
+    								,sql)
+    				, ex);
+    	}
+    	return null;
+    }
+    
+    private static void dropOracleStagingTable(String stagingTable, Connection oracleConnection) {
+    	
+    	try {
+    		Statement statement = oracleConnection.createStatement();
+    		try {
+    			// A temporary table cannot be dropped while this session still has rows in it...
+    			statement.execute(String.format("TRUNCATE TABLE %s", stagingTable));
+    			statement.execute(String.format("DROP TABLE %s PURGE", stagingTable));
+    		}
+    		finally {
+    			statement.close();
+    		}
+    	}
+    	catch(SQLException ex) {
+    		LOG.warn(String.format("Unable to drop the Oracle staging table %s.", stagingTable), ex);
+    	}
+    }
+    
+    private static String generateOracleMergeStatement(OraHiveOptions opts
+    													, String stagingTable
+    													, List<OracleTableColumn> oracleColumns) {
+    	
+    	StringBuilder onClause = new StringBuilder();
+    	StringBuilder setClause = new StringBuilder();
+    	StringBuilder insertColumns = new StringBuilder();
+    	StringBuilder insertValues = new StringBuilder();
+    	
+    	for(OracleTableColumn column : oracleColumns) {
+    		String name = column.getName();
+    		
+    		if(isOracleKeyColumn(opts, column)) {
+    			if(onClause.length() > 0)
+    				onClause.append(" AND ");
+    			onClause.append(String.format("t.%1$s = s.%1$s", name));
+    		}
+    		else {
+    			if(setClause.length() > 0)
+    				setClause.append(", ");
+    			setClause.append(String.format("t.%1$s = s.%1$s", name));
+    		}
+    		
+    		if(insertColumns.length() > 0) {
+    			insertColumns.append(",");
+    			insertValues.append(",");
+    		}
+    		insertColumns.append(name);
+    		insertValues.append("s." + name);
+    	}
+    	
+    	StringBuilder result = new StringBuilder();
+    	result.append(String.format("MERGE INTO %s t\n", getOracleTableName(opts)));
+    	result.append(String.format("USING %s s\n", stagingTable));
+    	result.append(String.format("ON (%s)\n", onClause.toString()));
+    	if(setClause.length() > 0)	//<- Every column may be part of the key
+    		result.append(String.format("WHEN MATCHED THEN UPDATE SET %s\n", setClause.toString()));
+    	result.append(String.format("WHEN NOT MATCHED THEN INSERT (%s) VALUES (%s)\n"
+    								,insertColumns.toString()
+    								,insertValues.toString()));
+    	
+    	if(opts.rejectLimit != null)
+    		result.append(generateOracleErrorLoggingClause(opts));
+    	
+    	LOG.info(String.format("MERGE SQL:\n%s", result.toString()));
+    	
+    	return result.toString();
+    }
+    
+    private static boolean mergeOracleStagingTable(OraHiveOptions opts
+    												, String stagingTable
+    												, List<OracleTableColumn> oracleColumns
+    												, Connection oracleConnection
+    												, OraHiveCounters counters) {
+    	
+    	String mergeSql = generateOracleMergeStatement(opts, stagingTable, oracleColumns);
+    	
+    	try {
+    		long start = System.nanoTime();
+    		
+    		Statement statement = oracleConnection.createStatement();
+    		try {
+    			counters.rowsMerged = statement.executeUpdate(mergeSql);
+    		}
+    		finally {
+    			statement.close();
+    		}
+    		oracleConnection.commit();
+    		
+    		counters.oracleMergeTimeNanoSec = System.nanoTime() - start;
+    		LOG.info(String.format("Number of rows merged into %s: %d"
+    								,getOracleTableName(opts)
+    								,counters.rowsMerged));
+    		return true;
+    	}
+    	catch(SQLException ex) {
+    		if(ex.getErrorCode() == 30926) // ORA-30926: unable to get a stable set of rows in the source tables
+    			LOG.error(String.format("The Hive results contain more than one row for the same key (%s)."
+    									,Arrays.toString(opts.keyColumns)));
+    		
+    		LOG.error(String.format("Unable to merge the staged Hive results into the Oracle table %s."
+    								,getOracleTableName(opts))
+    				, ex);
+    		try {
+    			oracleConnection.rollback();
+    		}
+    		catch(SQLException e) {}
+    		
+    		return false;
+    	}
+    }
+    
+    private static boolean deleteMissingOracleRows(OraHiveOptions opts
+    												, ChangeDetectingResultSet changes
+    												, Connection oracleConnection
+    												, OraHiveCounters counters) {
+    	
+    	try {
+    		long start = System.nanoTime();
+    		counters.rowsDeleted = changes.deleteMissingOracleRows(oracleConnection, opts.insertBatchSize);
+    		oracleConnection.commit();
+    		counters.oracleDeleteTimeNanoSec = System.nanoTime() - start;
+    		
+    		LOG.info(String.format("Number of rows deleted from %s: %d"
+    								,getOracleTableName(opts)
+    								,counters.rowsDeleted));
+    		return true;
+    	}
+    	catch(SQLException ex) {
+    		LOG.error(String.format("Unable to delete the rows that are no longer in the Hive results from the Oracle table %s."
+    								,getOracleTableName(opts))
+    				, ex);
+    		try {
+    			oracleConnection.rollback();
+    		}
+    		catch(SQLException e) {}
+    		
+    		return false;
+    	}
+    }
+    
+    private static String getOracleSchemaClause(OraHiveOptions opts) {
+
+    	// Dictionary predicate for the owner of the objects OraHive works with...
+    	if(opts.oracleSchema.isEmpty())
+    		return "SYS_CONTEXT('USERENV', 'CURRENT_SCHEMA')";
+    	return String.format("'%s'", opts.oracleSchema.toUpperCase());
+    }
+
+    private static boolean oracleTableExists(OraHiveOptions opts, String tableName, Connection oracleConnection)
+    	throws SQLException {
+
+    	String sql = String.format("SELECT COUNT(*) FROM all_tables WHERE owner = %s AND table_name = ?"
+    								,getOracleSchemaClause(opts));
+    	PreparedStatement statement = oracleConnection.prepareStatement(sql);
+    	try {
+    		statement.setString(1, tableName.toUpperCase());
+    		ResultSet resultSet = statement.executeQuery();
+    		resultSet.next();
+    		boolean result = resultSet.getInt(1) > 0;
+    		resultSet.close();
+    		return result;
+    	}
+    	finally {
+    		statement.close();
+    	}
+    }
+
+    private static void executeOracleStatement(String sql, Connection oracleConnection) throws SQLException {
+
+    	LOG.info(String.format("Executing SQL: %s", sql));
+
+    	Statement statement = oracleConnection.createStatement();
+    	try {
+    		statement.execute(sql);
+    	}
+    	finally {
+    		statement.close();
+    	}
+    }
+
+    private static void dropOracleTable(OraHiveOptions opts, String tableName, Connection oracleConnection) {
+
+    	try {
+    		if(oracleTableExists(opts, tableName, oracleConnection))
+    			executeOracleStatement(String.format("DROP TABLE %s PURGE", getOracleObjectName(opts, tableName))
+    									,oracleConnection);
+    	}
+    	catch(SQLException ex) {
+    		LOG.warn(String.format("Unable to drop the Oracle table %s."
+    								,getOracleObjectName(opts, tableName))
+    				, ex);
+    	}
+    }
+
+    private static String getOracleTableNameWithSuffix(OraHiveOptions opts, String suffix) {
+
+    	String result = opts.oracleTable.toUpperCase();
+    	int maxLength = Constants.ORACLE_MAX_IDENTIFIER_LENGTH - suffix.length();
+    	if(result.length() > maxLength)
+    		result = result.substring(0, maxLength);
+    	return result + suffix;
+    }
+
+    private static boolean replaceOracleTableWithShadowTable(OraHiveOptions opts
+    														, List<OracleTableColumn> oracleColumns
+    														, Connection oracleConnection
+    														, ResultSet hiveResultSet
+    														, OraHiveCounters counters) {
+
+    	String shadowTable = getOracleTableNameWithSuffix(opts, Constants.ORACLE_SHADOW_TABLE_SUFFIX);
+    	String retiredTable = getOracleTableNameWithSuffix(opts, Constants.ORACLE_RETIRED_TABLE_SUFFIX);
+
+    	// Remove anything left behind by an earlier run, including the table that run replaced...
+    	dropOracleTable(opts, shadowTable, oracleConnection);
+    	dropOracleTable(opts, retiredTable, oracleConnection);
+
+    	boolean result = false;
+    	try {
+    		if(!canReplaceOracleTable(opts, retiredTable, oracleConnection))
+    			return false;
+
+    		// The constraints and indexes on the new table have names of their own until the swap...
+    		String stamp = String.valueOf(System.currentTimeMillis() % 1000000);
+    		List<String[]> objectNames = createOracleShadowTable(opts, shadowTable, stamp, oracleConnection);
+
+    		String errorLoggingClause = "";
+    		if(opts.rejectLimit != null)
+    			errorLoggingClause = generateOracleErrorLoggingClause(opts);
+
+    		List<OracleTableColumn> insertColumns = getOracleInsertColumns(opts, getOracleObjectName(opts, shadowTable), oracleColumns, oracleConnection);
+    		if(insertColumns == null)
+    			return false;
+    		String insertSql = generateOracleInsertStatement(getOracleObjectName(opts, shadowTable), insertColumns, errorLoggingClause);
+
+    		if(!insertHiveResultsIntoOracleTable(opts, insertSql, insertColumns, oracleConnection, hiveResultSet, counters))
+    			return false;
+
+    		long start = System.nanoTime();
+
+    		// Readers still see the old table while its indexes and grants are copied onto the new one...
+    		copyOracleTableIndexes(opts, shadowTable, stamp, objectNames, oracleConnection);
+    		copyOracleTableGrants(opts, shadowTable, oracleConnection);
+
+    		swapOracleTables(opts, shadowTable, retiredTable, stamp, objectNames, oracleConnection);
+
+    		counters.oracleSwapTimeNanoSec = System.nanoTime() - start;
+    		result = true;
+    	}
+    	catch(SQLException ex) {
+    		LOG.error(String.format("Unable to replace the Oracle table %s with the newly loaded table %s."
+    								,getOracleTableName(opts)
+    								,getOracleObjectName(opts, shadowTable))
+    				, ex);
+    	}
+    	finally {
+    		if(!result)
+    			dropOracleTable(opts, shadowTable, oracleConnection);
+    	}
+    	return result;
+    }
+
+    private static boolean canReplaceOracleTable(OraHiveOptions opts, String retiredTable, Connection oracleConnection)
+    	throws SQLException {
+
+    	if(oracleTableExists(opts, retiredTable, oracleConnection)) {
+    		LOG.error(String.format("The Oracle table %s cannot be replaced until the table %s left by an earlier run has been dropped."
+    								,getOracleTableName(opts)
+    								,getOracleObjectName(opts, retiredTable)));
+    		return false;
+    	}
+
+    	// Foreign keys on other tables would go on referring to the old table once the new one is swapped in...
+    	String sql = String.format("SELECT c.owner, c.table_name, c.constraint_name \n" +
+    								"FROM all_constraints c, all_constraints p \n" +
+    								"WHERE p.owner = %s AND p.table_name = ? \n" +
+    								"AND c.constraint_type = 'R' AND c.r_owner = p.owner AND c.r_constraint_name = p.constraint_name \n" +
+    								"AND (c.owner <> p.owner OR c.table_name <> p.table_name)"
+    								,getOracleSchemaClause(opts));
+
+    	List<String> foreignKeys = new ArrayList<String>();
+    	PreparedStatement statement = oracleConnection.prepareStatement(sql);
+    	try {
+    		statement.setString(1, opts.oracleTable.toUpperCase());
+    		ResultSet resultSet = statement.executeQuery();
+    		while(resultSet.next())
+    			foreignKeys.add(String.format("%s.%s.%s"
+    										,resultSet.getString(1)
+    										,resultSet.getString(2)
+    										,resultSet.getString(3)));
+    		resultSet.close();
+    	}
+    	finally {
+    		statement.close();
+    	}
+
+    	if(!foreignKeys.isEmpty()) {
+    		LOG.error(String.format("The Oracle table %s cannot be replaced while the foreign keys %s refer to it. " +
+    								"Use the \"%s\" export mode instead."
+    								,getOracleTableName(opts)
+    								,foreignKeys
+    								,Constants.ExportMode.INSERT.toString().toLowerCase()));
+    		return false;
+    	}
+    	return true;
+    }
+
+    private static List<String[]> createOracleShadowTable(OraHiveOptions opts, String shadowTable, String stamp, Connection oracleConnection)
+    	throws SQLException {
+
+    	// Returns {object type, new owner, new name, original owner, original name} for each constraint and
+    	// index on the new table that is to take its original name after the swap...
+    	List<String[]> result = new ArrayList<String[]>();
+
+    	String owner = getOracleTableOwner(opts, oracleConnection);
+    	String tableName = opts.oracleTable.toUpperCase();
+
+    	// The new table is created from the old one's definition, so that it keeps its column types, defaults,
+    	// constraints, partitioning and organization rather than what the Hive results would suggest...
+    	String ddl = getOracleObjectDdl("TABLE", owner, tableName, oracleConnection);
+
+    	// Constraint names are unique within a schema, so the ones that were named are renamed for now...
+    	Matcher matcher = Pattern.compile("CONSTRAINT\\s+\"([^\"]+)\"").matcher(ddl);
+    	StringBuffer shadowDdl = new StringBuffer();
+    	while(matcher.find()) {
+    		String newName = getOracleShadowObjectName(stamp, result);
+    		result.add(new String[] {"CONSTRAINT", owner, newName, owner, matcher.group(1)});
+    		matcher.appendReplacement(shadowDdl, Matcher.quoteReplacement(String.format("CONSTRAINT \"%s\"", newName)));
+    	}
+    	matcher.appendTail(shadowDdl);
+
+    	// ...and the table is named for itself wherever it appears, including in foreign keys that refer to it...
+    	executeOracleStatement(shadowDdl.toString().replace(getOracleQuotedName(owner, tableName)
+    														,getOracleQuotedName(owner, shadowTable))
+    							,oracleConnection);
+
+    	// The indexes that enforce the primary and unique keys are named after the constraints that created them...
+    	Map<String, String[]> oldIndexes = getOracleConstraintIndexes(owner, tableName, oracleConnection);
+    	Map<String, String[]> newIndexes = getOracleConstraintIndexes(owner, shadowTable, oracleConnection);
+    	int constraintCount = result.size();
+    	for(int idx = 0; idx < constraintCount; idx++) {
+    		String[] constraintName = result.get(idx);
+    		String[] oldIndex = oldIndexes.get(constraintName[4]);
+    		String[] newIndex = newIndexes.get(constraintName[2]);
+    		if(oldIndex != null && newIndex != null)
+    			result.add(new String[] {"INDEX", newIndex[0], newIndex[1], oldIndex[0], oldIndex[1]});
+    	}
+
+    	return result;
+    }
+
+    private static Map<String, String[]> getOracleConstraintIndexes(String owner, String tableName, Connection oracleConnection)
+    	throws SQLException {
+
+    	Map<String, String[]> result = new TreeMap<String, String[]>();
+    	PreparedStatement statement = oracleConnection.prepareStatement("SELECT constraint_name, index_owner, index_name FROM all_constraints \n" +
+    																	"WHERE owner = ? AND table_name = ? AND index_name IS NOT NULL");
+    	try {
+    		statement.setString(1, owner);
+    		statement.setString(2, tableName);
+    		ResultSet resultSet = statement.executeQuery();
+    		while(resultSet.next())
+    			result.put(resultSet.getString(1), new String[] {resultSet.getString(2), resultSet.getString(3)});
+    		resultSet.close();
+    	}
+    	finally {
+    		statement.close();
+    	}
+    	return result;
+    }
+
+    private static void copyOracleTableIndexes(OraHiveOptions opts
+    										, String shadowTable
+    										, String stamp
+    										, List<String[]> objectNames
+    										, Connection oracleConnection)
+    	throws SQLException {
+
+    	String owner = getOracleTableOwner(opts, oracleConnection);
+    	String tableName = opts.oracleTable.toUpperCase();
+
+    	// The indexes that enforce constraints came with the table, and LOB and index-organized table indexes
+    	// come with their segments...
+    	PreparedStatement statement = oracleConnection.prepareStatement("SELECT i.owner, i.index_name FROM all_indexes i \n" +
+    																	"WHERE i.table_owner = ? AND i.table_name = ? \n" +
+    																	"AND i.index_type NOT IN ('LOB', 'IOT - TOP', 'CLUSTER') \n" +
+    																	"AND NOT EXISTS (SELECT 1 FROM all_constraints c \n" +
+    																	"                WHERE c.owner = i.table_owner AND c.table_name = i.table_name \n" +
+    																	"                AND c.index_owner = i.owner AND c.index_name = i.index_name) \n" +
+    																	"ORDER BY i.index_name");
+    	List<String[]> indexes = new ArrayList<String[]>();
+    	try {
+    		statement.setString(1, owner);
+    		statement.setString(2, tableName);
+    		ResultSet resultSet = statement.executeQuery();
+    		while(resultSet.next())
+    			indexes.add(new String[] {resultSet.getString(1), resultSet.getString(2)});
+    		resultSet.close();
+    	}
+    	finally {
+    		statement.close();
+    	}
+
+    	// Function-based, bitmap, domain and partitioned indexes are all copied from their own definitions.
+    	// The index's name comes first; every other mention of the table (as in a bitmap join index) is of the one being indexed...
+    	for(String[] index : indexes) {
+    		String newName = getOracleShadowObjectName(stamp, objectNames);
+    		String ddl = getOracleObjectDdl("INDEX", index[0], index[1], oracleConnection);
+    		ddl = ddl.replaceFirst(Pattern.quote(getOracleQuotedName(index[0], index[1]))
+    							,Matcher.quoteReplacement(getOracleQuotedName(index[0], newName)));
+    		ddl = ddl.replace(getOracleQuotedName(owner, tableName), getOracleQuotedName(owner, shadowTable));
+
+    		executeOracleStatement(ddl, oracleConnection);
+
+    		objectNames.add(new String[] {"INDEX", index[0], newName, index[0], index[1]});
+    	}
+    }
+
+    private static String getOracleTableOwner(OraHiveOptions opts, Connection oracleConnection) throws SQLException {
+
+    	Statement statement = oracleConnection.createStatement();
+    	try {
+    		ResultSet resultSet = statement.executeQuery(String.format("SELECT %s FROM dual", getOracleSchemaClause(opts)));
+    		resultSet.next();
+    		String result = resultSet.getString(1);
+    		resultSet.close();
+    		return result;
+    	}
+    	finally {
+    		statement.close();
+    	}
+    }
+
+    private static String getOracleObjectDdl(String objectType, String owner, String objectName, Connection oracleConnection)
+    	throws SQLException {
+
+    	// Without its storage clause a copy is sized for the data it gets rather than the data the original has...
+    	executeOracleStatement("BEGIN DBMS_METADATA.SET_TRANSFORM_PARAM(DBMS_METADATA.SESSION_TRANSFORM, 'STORAGE', FALSE); END;"
+    							,oracleConnection);
+    	try {
+    		PreparedStatement statement = oracleConnection.prepareStatement("SELECT DBMS_METADATA.GET_DDL(?, ?, ?) FROM dual");
+    		try {
+    			statement.setString(1, objectType);
+    			statement.setString(2, objectName);
+    			statement.setString(3, owner);
+    			ResultSet resultSet = statement.executeQuery();
+    			resultSet.next();
+    			Clob ddl = resultSet.getClob(1);
+    			String result = ddl.getSubString(1, (int)ddl.length()).trim();
+    			resultSet.close();
+    			return result;
+    		}
+    		finally {
+    			statement.close();
+    		}
+    	}
+    	finally {
+    		executeOracleStatement("BEGIN DBMS_METADATA.SET_TRANSFORM_PARAM(DBMS_METADATA.SESSION_TRANSFORM, 'DEFAULT'); END;"
+    								,oracleConnection);
+    	}
+    }
+
+    private static String getOracleQuotedName(String owner, String objectName) {
+
+    	return String.format("\"%s\".\"%s\"", owner, objectName);
+    }
+
+    private static String getOracleShadowObjectName(String stamp, List<String[]> objectNames) {
+
+    	return String.format("%s%s_%d", Constants.ORACLE_SHADOW_OBJECT_PREFIX, stamp, objectNames.size());
+    }
+
+    private static void copyOracleTableGrants(OraHiveOptions opts, String shadowTable, Connection oracleConnection)
+    	throws SQLException {
+
+    	String sql = String.format("SELECT grantee, privilege, grantable FROM all_tab_privs \n" +
+    								"WHERE table_schema = %s AND table_name = ?"
+    								,getOracleSchemaClause(opts));
+
+    	List<String> grants = new ArrayList<String>();
+    	PreparedStatement statement = oracleConnection.prepareStatement(sql);
+    	try {
+    		statement.setString(1, opts.oracleTable.toUpperCase());
+    		ResultSet resultSet = statement.executeQuery();
+    		while(resultSet.next())
+    			grants.add(String.format("GRANT %s ON %s TO \"%s\"%s"
+    									,resultSet.getString(2)
+    									,getOracleObjectName(opts, shadowTable)
+    									,resultSet.getString(1)
+    									,"YES".equals(resultSet.getString(3)) ? " WITH GRANT OPTION" : ""));
+    		resultSet.close();
+    	}
+    	finally {
+    		statement.close();
+    	}
+
+    	for(String grant : grants)
+    		executeOracleStatement(grant, oracleConnection);
+    }
+
+    private static void swapOracleTables(OraHiveOptions opts
+    									, String shadowTable
+    									, String retiredTable
+    									, String stamp
+    									, List<String[]> objectNames
+    									, Connection oracleConnection)
+    	throws SQLException {
+
+    	// The swap is not atomic: statements that reach the table between the two renames fail with ORA-00942.
+    	// Both renames (and putting the original table back if the second fails) run in one block on the
+    	// server, so the gap is not widened by a round trip for each...
+    	executeOracleStatement(String.format("BEGIN \n" +
+    										 "  EXECUTE IMMEDIATE 'ALTER TABLE %s RENAME TO %s'; \n" +
+    										 "  BEGIN \n" +
+    										 "    EXECUTE IMMEDIATE 'ALTER TABLE %s RENAME TO %s'; \n" +
+    										 "  EXCEPTION \n" +
+    										 "    WHEN OTHERS THEN \n" +
+    										 "      EXECUTE IMMEDIATE 'ALTER TABLE %s RENAME TO %s'; \n" +
+    										 "      RAISE; \n" +
+    										 "  END; \n" +
+    										 "END;"
+    										,getOracleTableName(opts)
+    										,retiredTable
+    										,getOracleObjectName(opts, shadowTable)
+    										,opts.oracleTable
+    										,getOracleObjectName(opts, retiredTable)
+    										,opts.oracleTable)
+    							,oracleConnection);
+
+    	LOG.info(String.format("The Oracle table %s now contains the newly loaded data. The table it replaced is kept as %s until the next run."
+    							,getOracleTableName(opts)
+    							,getOracleObjectName(opts, retiredTable)));
+
+    	// The retired table's constraints and indexes are moved out of the way so that the new ones can take their names...
+    	for(int idx = 0; idx < objectNames.size(); idx++) {
+    		String[] objectName = objectNames.get(idx);
+    		String retiredName = String.format("%s%s_%d", Constants.ORACLE_RETIRED_OBJECT_PREFIX, stamp, idx);
+    		try {
+    			if("INDEX".equals(objectName[0])) {
+    				executeOracleStatement(String.format("ALTER INDEX %s RENAME TO \"%s\""
+    													,getOracleQuotedName(objectName[3], objectName[4])
+    													,retiredName)
+    									,oracleConnection);
+    				executeOracleStatement(String.format("ALTER INDEX %s RENAME TO \"%s\""
+    													,getOracleQuotedName(objectName[1], objectName[2])
+    													,objectName[4])
+    									,oracleConnection);
+    			}
+    			else {
+    				executeOracleStatement(String.format("ALTER TABLE %s RENAME CONSTRAINT \"%s\" TO \"%s\""
+    													,getOracleObjectName(opts, retiredTable)
+    													,objectName[4]
+    													,retiredName)
+    									,oracleConnection);
+    				executeOracleStatement(String.format("ALTER TABLE %s RENAME CONSTRAINT \"%s\" TO \"%s\""
+    													,getOracleTableName(opts)
+    													,objectName[2]
+    													,objectName[4])
+    									,oracleConnection);
+    			}
+    		}
+    		catch(SQLException ex) {
+    			LOG.warn(String.format("Unable to rename the %s %s on the Oracle table %s to %s."
+    								,objectName[0].toLowerCase()
+    								,objectName[2]
+    								,getOracleTableName(opts)
+    								,objectName[4])
+    					, ex);
+    		}
+    	}
+    }
+
+    private static List<String[]> suspendOracleTableIndexes(OraHiveOptions opts, Connection oracleConnection) {
+
+    	// Returns {index name, logging, degree} for each index that has been marked unusable...
+    	List<String[]> result = new ArrayList<String[]>();
+
+    	String sql = String.format("SELECT i.owner || '.' || i.index_name, i.logging, TRIM(i.degree), i.partitioned \n" +
+    								"FROM all_indexes i \n" +
+    								"WHERE i.table_owner = %s AND i.table_name = ? \n" +
+    								"AND i.uniqueness = 'NONUNIQUE' AND i.status = 'VALID' \n" +
+    								"AND i.index_type IN ('NORMAL', 'BITMAP') \n" +
+    								"AND NOT EXISTS (SELECT 1 FROM all_constraints c \n" +
+    								"                WHERE c.index_owner = i.owner AND c.index_name = i.index_name)"
+    								,getOracleSchemaClause(opts));
+    	try {
+    		// Unique indexes, and non-unique ones that enforce a primary or unique key, must stay usable,
+    		// but the unusable ones are skipped by the inserts...
+    		executeOracleStatement("ALTER SESSION SET skip_unusable_indexes = TRUE", oracleConnection);
+
+    		List<String[]> indexes = new ArrayList<String[]>();
+    		PreparedStatement statement = oracleConnection.prepareStatement(sql);
+    		try {
+    			statement.setString(1, opts.oracleTable.toUpperCase());
+    			ResultSet resultSet = statement.executeQuery();
+    			while(resultSet.next()) {
+    				if("YES".equals(resultSet.getString(4))) {
+    					LOG.info(String.format("The partitioned index %s will be maintained during the load."
+    											,resultSet.getString(1)));
+    					continue;
+    				}
+    				indexes.add(new String[] {resultSet.getString(1)
+    										,resultSet.getString(2)
+    										,resultSet.getString(3)});
+    			}
+    			resultSet.close();
+    		}
+    		finally {
+    			statement.close();
+    		}
+
+    		for(String[] index : indexes) {
+    			executeOracleStatement(String.format("ALTER INDEX %s UNUSABLE", index[0]), oracleConnection);
+    			result.add(index);
+    		}
+    	}
+    	catch(SQLException ex) {
+    		LOG.error(String.format("Unable to suspend the indexes on the Oracle table %s."
+    								,getOracleTableName(opts))
+    				, ex);
+    		rebuildOracleTableIndexes(opts, result, oracleConnection, new OraHiveCounters());
+    		return null;
+    	}
+    	return result;
+    }
+
+    private static boolean rebuildOracleTableIndexes(OraHiveOptions opts
+    												, List<String[]> indexes
+    												, Connection oracleConnection
+    												, OraHiveCounters counters) {
+
+    	boolean result = true;
+    	long start = System.nanoTime();
+
+    	for(String[] index : indexes) {
+    		try {
+    			executeOracleStatement(String.format("ALTER INDEX %s REBUILD PARALLEL %d NOLOGGING"
+    												,index[0]
+    												,opts.indexRebuildParallelism)
+    									,oracleConnection);
+
+    			// Restore the attributes the rebuild has changed...
+    			String parallelClause = "NOPARALLEL";
+    			if("DEFAULT".equals(index[2]))
+    				parallelClause = "PARALLEL";
+    			else if(!"1".equals(index[2]))
+    				parallelClause = String.format("PARALLEL %s", index[2]);
+
+    			executeOracleStatement(String.format("ALTER INDEX %s %s %s"
+    												,index[0]
+    												,"YES".equals(index[1]) ? "LOGGING" : "NOLOGGING"
+    												,parallelClause)
+    									,oracleConnection);
+    		}
+    		catch(SQLException ex) {
+    			LOG.error(String.format("Unable to rebuild the index %s. It remains unusable.", index[0]), ex);
+    			result = false;
+    		}
+    	}
+
+    	counters.oracleIndexRebuildTimeNanoSec += System.nanoTime() - start;
+    	return result;
+    }
+
+    private static List<String> disableOracleTableConstraints(OraHiveOptions opts, Connection oracleConnection) {
+
+    	List<String> result = new ArrayList<String>();
+
+    	String sql = String.format("SELECT status FROM all_constraints \n" +
+    								"WHERE owner = %s AND table_name = ? AND constraint_name = ?"
+    								,getOracleSchemaClause(opts));
+    	try {
+    		PreparedStatement statement = oracleConnection.prepareStatement(sql);
+    		try {
+    			for(String constraint : opts.disableConstraints) {
+    				statement.setString(1, opts.oracleTable.toUpperCase());
+    				statement.setString(2, constraint.toUpperCase());
+    				ResultSet resultSet = statement.executeQuery();
+    				String status = resultSet.next() ? resultSet.getString(1) : null;
+    				resultSet.close();
+
+    				if(status == null)
+    					throw new SQLException(String.format("The Oracle table %s has no constraint named %s."
+    														,getOracleTableName(opts)
+    														,constraint));
+
+    				// Only constraints that are enabled now are re-enabled after the load...
+    				if(!"ENABLED".equals(status)) {
+    					LOG.info(String.format("The constraint %s is already disabled.", constraint));
+    					continue;
+    				}
+
+    				executeOracleStatement(String.format("ALTER TABLE %s DISABLE CONSTRAINT %s"
+    													,getOracleTableName(opts)
+    													,constraint)
+    										,oracleConnection);
+    				result.add(constraint);
+    			}
+    		}
+    		finally {
+    			statement.close();
+    		}
+    	}
+    	catch(SQLException ex) {
+    		LOG.error(String.format("Unable to disable the constraints on the Oracle table %s."
+    								,getOracleTableName(opts))
+    				, ex);
+    		enableOracleTableConstraints(opts, result, oracleConnection, new OraHiveCounters());
+    		return null;
+    	}
+    	return result;
+    }
+
+    private static boolean enableOracleTableConstraints(OraHiveOptions opts
+    													, List<String> constraints
+    													, Connection oracleConnection
+    													, OraHiveCounters counters) {
+
+    	boolean result = true;
+    	long start = System.nanoTime();
+
+    	for(String constraint : constraints) {
+    		try {
+    			executeOracleStatement(String.format("ALTER TABLE %s ENABLE CONSTRAINT %s"
+    												,getOracleTableName(opts)
+    												,constraint)
+    									,oracleConnection);
+    		}
+    		catch(SQLException ex) {
+    			LOG.error(String.format("Unable to re-enable the constraint %s. It remains disabled.", constraint), ex);
+    			result = false;
+    		}
+    	}
+
+    	counters.oracleConstraintEnableTimeNanoSec += System.nanoTime() - start;
+    	return result;
+    }
+
 /*
  * HiveResultSet does not support the relative() method - so there's no way to retry a failed batch insert.
  * i.e. There's no way to rollback the current transaction, *reposition resultSet* and try again.    
@@ -0,0 +1,327 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.HiveMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.Table;
+
+/**
+ * Read-only access to the Hive metastore for the tables an HQL statement reads from.
+ */
+public class HiveMetastore {
+
+	private static final Log LOG = LogFactory.getLog(HiveMetastore.class);
+
+	// Table/partition parameters that change whenever Hive itself rewrites the data underneath them
+	// (files written straight to the table's location are only seen in the files themselves)...
+	private static final String[] DATA_STATE_PARAMETERS = {"transient_lastDdlTime", "numFiles", "totalSize", "numRows"};
+
+	private static final Pattern HQL_INPUT_TABLE_PATTERN = Pattern.compile("(?i)\\b(?:from|join)\\s+([a-z_][a-z0-9_]*(?:\\.[a-z_][a-z0-9_]*)?)");
+
+	private static final String VIRTUAL_VIEW_TABLE_TYPE = "VIRTUAL_VIEW";
+
+	private final HiveConf hiveConf;
+	private final HiveMetaStoreClient client;
+
+	public HiveMetastore(String metastoreUri) throws Exception {
+
+		this.hiveConf = new HiveConf(HiveMetastore.class);
+		this.hiveConf.setVar(HiveConf.ConfVars.METASTOREURIS, metastoreUri);
+		this.client = new HiveMetaStoreClient(this.hiveConf);
+	}
+
+	public void close() {
+
+		this.client.close();
+	}
+
+	public Table getTable(String tableName) throws Exception {
+
+		String[] names = splitTableName(tableName);
+		return this.client.getTable(names[0], names[1]);
+	}
+
+	public List<Partition> getPartitions(String tableName) throws Exception {
+
+		String[] names = splitTableName(tableName);
+		return this.client.listPartitions(names[0], names[1], (short)-1);
+	}
+
+	public boolean isPartitioned(Table table) {
+
+		return table.getPartitionKeys() != null && !table.getPartitionKeys().isEmpty();
+	}
+
+	/**
+	 * A description of the current data in each table (and each of its partitions) that
+	 * changes whenever any of that data is rewritten. Views are described by the tables they read.
+	 *
+	 * @throws IllegalArgumentException If the tables a view reads cannot be found in its text.
+	 */
+	public String getDataState(List<String> tableNames) throws Exception {
+
+		StringBuilder result = new StringBuilder();
+
+		List<String> sortedTableNames = new ArrayList<String>(getBaseTables(tableNames, new LinkedHashSet<String>()));
+		Collections.sort(sortedTableNames);
+
+		for(String tableName : sortedTableNames) {
+			Table table = getTable(tableName);
+			result.append(tableName.toLowerCase());
+			appendDataState(result, table.getParameters());
+			if(table.getSd() != null)
+				appendLocationState(result, table.getSd().getLocation());
+			result.append("\n");
+
+			if(!isPartitioned(table))
+				continue;
+
+			for(Partition partition : getPartitions(tableName)) {
+				result.append("\t").append(partition.getValues());
+				appendDataState(result, partition.getParameters());
+				if(partition.getSd() != null)
+					appendLocationState(result, partition.getSd().getLocation());
+				result.append("\n");
+			}
+		}
+
+		return result.toString();
+	}
+
+	private Set<String> getBaseTables(List<String> tableNames, Set<String> viewNames) throws Exception {
+
+		Set<String> result = new LinkedHashSet<String>();
+
+		for(String tableName : tableNames) {
+			Table table = getTable(tableName);
+			if(!VIRTUAL_VIEW_TABLE_TYPE.equals(table.getTableType())) {
+				result.add(tableName.toLowerCase());
+				continue;
+			}
+
+			if(!viewNames.add(tableName.toLowerCase()))
+				continue;
+
+			// The expanded text names every table in full, quoted with back-ticks...
+			List<String> viewTableNames = getHqlInputTables(table.getViewExpandedText().replace("`", ""));
+			if(viewTableNames.isEmpty())
+				throw new IllegalArgumentException(String.format("The tables read by the Hive view %s could not be found in its text.", tableName));
+			result.addAll(getBaseTables(viewTableNames, viewNames));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Appends the number, size and latest modification time of the files under the location, which
+	 * change even when the data is rewritten without Hive (e.g. for external tables).
+	 */
+	private void appendLocationState(StringBuilder result, String location) throws IOException {
+
+		if(location == null)
+			return;
+
+		Path path = new Path(location);
+		long[] state = new long[3];		//<- {files, bytes, latest modification time}
+		appendLocationState(path.getFileSystem(this.hiveConf), path, state);
+		result.append(String.format(" files=%d bytes=%d modified=%d", state[0], state[1], state[2]));
+	}
+
+	private static void appendLocationState(FileSystem fileSystem, Path path, long[] state) throws IOException {
+
+		FileStatus[] statuses = fileSystem.listStatus(path);
+		if(statuses == null)
+			return;
+
+		for(FileStatus status : statuses) {
+			// A directory's time changes when files are added to or removed from it...
+			state[2] = Math.max(state[2], status.getModificationTime());
+			if(status.isDir())
+				appendLocationState(fileSystem, status.getPath(), state);
+			else {
+				state[0]++;
+				state[1] += status.getLen();
+			}
+		}
+	}
+
+	/**
+	 * The number of rows in the largest of the tables according to the statistics held in the
+	 * metastore, or -1 if a table (or any of its partitions) has no statistics.
+	 */
+	public long getRowCount(List<String> tableNames) throws Exception {
+
+		long result = -1;
+
+		for(String tableName : tableNames) {
+			Table table = getTable(tableName);
+
+			long tableRows = 0;
+			if(!isPartitioned(table))
+				tableRows = getRowCount(table.getParameters());
+			else
+				for(Partition partition : getPartitions(tableName)) {
+					long partitionRows = getRowCount(partition.getParameters());
+					if(partitionRows < 0) {
+						tableRows = -1;
+						break;
+					}
+					tableRows += partitionRows;
+				}
+
+			if(tableRows < 0) {
+				LOG.debug(String.format("The metastore has no row count statistics for the table %s.", tableName));
+				return -1;
+			}
+			result = Math.max(result, tableRows);
+		}
+
+		return result;
+	}
+
+	/**
+	 * The average size of a row in the tables according to the statistics held in the metastore,
+	 * or -1 if there are no statistics.
+	 */
+	public long getAverageRowBytes(List<String> tableNames) throws Exception {
+
+		long totalRows = 0;
+		long totalBytes = 0;
+
+		for(String tableName : tableNames) {
+			Table table = getTable(tableName);
+
+			List<Map<String, String>> parameters = new ArrayList<Map<String, String>>();
+			if(!isPartitioned(table))
+				parameters.add(table.getParameters());
+			else
+				for(Partition partition : getPartitions(tableName))
+					parameters.add(partition.getParameters());
+
+			for(Map<String, String> parameter : parameters) {
+				long rows = getRowCount(parameter);
+				long bytes = getStatistic(parameter, "totalSize");
+				if(rows > 0 && bytes > 0) {
+					totalRows += rows;
+					totalBytes += bytes;
+				}
+			}
+		}
+
+		return totalRows > 0 ? totalBytes / totalRows : -1;
+	}
+
+	/**
+	 * A description of the partition's current data that changes whenever it is rewritten.
+	 */
+	public static String getDataState(Partition partition) {
+
+		StringBuilder result = new StringBuilder();
+		appendDataState(result, partition.getParameters());
+		return result.toString().trim();
+	}
+
+	/**
+	 * The partition's name as Hive writes it, e.g. "dt=2011-05-01/hr=01".
+	 */
+	public static String getPartitionName(Table table, Partition partition) {
+
+		StringBuilder result = new StringBuilder();
+		for(int idx = 0; idx < table.getPartitionKeys().size(); idx++) {
+			if(idx > 0)
+				result.append('/');
+			result.append(table.getPartitionKeys().get(idx).getName()).append('=').append(partition.getValues().get(idx));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * The number of rows in the partition according to the metastore statistics, or -1 if it has none.
+	 */
+	public static long getRowCount(Partition partition) {
+
+		return getRowCount(partition.getParameters());
+	}
+
+	private static long getRowCount(Map<String, String> parameters) {
+
+		return getStatistic(parameters, "numRows");
+	}
+
+	private static long getStatistic(Map<String, String> parameters, String statistic) {
+
+		if(parameters == null || !parameters.containsKey(statistic))
+			return -1;
+
+		try {
+			return Long.parseLong(parameters.get(statistic).trim());
+		}
+		catch(NumberFormatException ex) {
+			return -1;
+		}
+	}
+
+	private static void appendDataState(StringBuilder result, Map<String, String> parameters) {
+
+		if(parameters == null)
+			return;
+
+		for(String parameter : DATA_STATE_PARAMETERS)
+			if(parameters.containsKey(parameter))
+				result.append(String.format(" %s=%s", parameter, parameters.get(parameter)));
+	}
+
+	/**
+	 * Best-effort list of the tables named in the FROM/JOIN clauses of an HQL statement.
+	 */
+	public static List<String> getHqlInputTables(String hql) {
+
+		Set<String> result = new LinkedHashSet<String>();
+
+		Matcher matcher = HQL_INPUT_TABLE_PATTERN.matcher(hql);
+		while(matcher.find())
+			result.add(matcher.group(1).toLowerCase());
+
+		LOG.debug(String.format("Tables read by the HQL statement: %s", result));
+		return new ArrayList<String>(result);
+	}
+
+	private static String[] splitTableName(String tableName) {
+
+		int idx = tableName.indexOf('.');
+		if(idx < 0)
+			return new String[] {"default", tableName};
+		return new String[] {tableName.substring(0, idx), tableName.substring(idx + 1)};
+	}
+}
@@ -0,0 +1,585 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A local-disk cache of Hive query results.
+ *
+ * Results are keyed by the normalized HQL plus the state of the Hive data it reads, and are
+ * stored as a compact binary row stream that can be replayed in place of running the query.
+ */
+public class HiveResultCache {
+
+	private static final Log LOG = LogFactory.getLog(HiveResultCache.class);
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final int FILE_MAGIC = 0x4F484331;	//<- "OHC1"
+	private static final String FILE_EXTENSION = ".ohc";
+	private static final String TEMP_FILE_EXTENSION = ".tmp";
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private static final int END_OF_ROWS = 0;
+	private static final int ROW = 1;
+
+	private static final int VALUE_NULL = 0;
+	private static final int VALUE_FALSE = 1;
+	private static final int VALUE_TRUE = 2;
+	private static final int VALUE_BYTE = 3;
+	private static final int VALUE_SHORT = 4;
+	private static final int VALUE_INT = 5;
+	private static final int VALUE_LONG = 6;
+	private static final int VALUE_FLOAT = 7;
+	private static final int VALUE_DOUBLE = 8;
+	private static final int VALUE_STRING = 9;
+
+	private final File directory;
+	private final long maxBytes;
+	private final long ttlMillis;
+
+	public HiveResultCache(File directory, long maxBytes, long ttlMillis) throws IOException {
+
+		if(!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException(String.format("Unable to create the Hive result cache directory \"%s\".", directory));
+
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.ttlMillis = ttlMillis;
+	}
+
+	public static String getKey(String hql, String hiveDataState) {
+
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(normalizeHql(hql).getBytes(UTF8));
+			digest.update((byte)0);
+			digest.update(hiveDataState.getBytes(UTF8));
+
+			StringBuilder result = new StringBuilder();
+			for(byte b : digest.digest())
+				result.append(String.format("%02x", b & 0xff));
+			return result.toString();
+		}
+		catch(NoSuchAlgorithmException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
+	/**
+	 * Lower-cases the HQL and collapses its whitespace, leaving quoted text untouched, so that
+	 * cosmetic differences between otherwise identical queries share a cache entry.
+	 */
+	static String normalizeHql(String hql) {
+
+		StringBuilder result = new StringBuilder(hql.length());
+		char quote = 0;
+		boolean pendingSpace = false;
+
+		for(int idx = 0; idx < hql.length(); idx++) {
+			char c = hql.charAt(idx);
+
+			if(quote != 0) {
+				result.append(c);
+				// A backslash escapes the next character of a string literal, even a quote...
+				if(c == '\\' && quote != '`' && idx + 1 < hql.length())
+					result.append(hql.charAt(++idx));
+				else if(c == quote)
+					quote = 0;
+				continue;
+			}
+
+			if(Character.isWhitespace(c)) {
+				pendingSpace = result.length() > 0;
+				continue;
+			}
+
+			if(pendingSpace) {
+				result.append(' ');
+				pendingSpace = false;
+			}
+
+			if(c == '\'' || c == '"' || c == '`')
+				quote = c;
+			result.append(quote != 0 ? c : Character.toLowerCase(c));
+		}
+
+		while(result.length() > 0 && result.charAt(result.length() - 1) == ';')
+			result.setLength(result.length() - 1);
+
+		return result.toString().trim();
+	}
+
+	private File getFile(String key) {
+
+		return new File(this.directory, key + FILE_EXTENSION);
+	}
+
+	/**
+	 * Opens the cached results for the key, or returns null if there are none (or they have expired).
+	 */
+	public ResultSet open(String key) throws IOException {
+
+		File file = getFile(key);
+		if(!file.isFile())
+			return null;
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+		try {
+			if(in.readInt() != FILE_MAGIC)
+				throw new IOException(String.format("\"%s\" is not a Hive result cache file.", file));
+
+			long created = in.readLong();
+			if(isExpired(created)) {
+				in.close();
+				deleteFile(file);
+				return null;
+			}
+
+			// Recently used entries are the last to be evicted...
+			file.setLastModified(System.currentTimeMillis());
+
+			LOG.info(String.format("Replaying the Hive results cached in \"%s\" at %tc.", file, created));
+			return new CachedResultSet(in);
+		}
+		catch(IOException ex) {
+			in.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Wraps a Hive result-set so that the rows read from it are also written to the cache. The
+	 * entry only becomes visible once every row has been read.
+	 */
+	public CachingResultSet record(String key, ResultSet resultSet) throws IOException, SQLException {
+
+		return new CachingResultSet(key, resultSet);
+	}
+
+	private boolean isExpired(long created) {
+
+		return System.currentTimeMillis() - created > this.ttlMillis;
+	}
+
+	private static void deleteFile(File file) {
+
+		if(!file.delete())
+			LOG.warn(String.format("Unable to delete the Hive result cache file \"%s\".", file));
+	}
+
+	/**
+	 * Removes expired entries, abandoned partial entries and then the least recently used
+	 * entries until the cache fits within its size limit.
+	 */
+	public void evict() {
+
+		File[] files = this.directory.listFiles();
+		if(files == null)
+			return;
+
+		List<File> entries = new ArrayList<File>();
+		for(File file : files) {
+
+			if(file.getName().endsWith(TEMP_FILE_EXTENSION)) {
+				if(isExpired(file.lastModified()))
+					deleteFile(file);
+				continue;
+			}
+
+			if(!file.getName().endsWith(FILE_EXTENSION))
+				continue;
+
+			if(isExpired(getCreated(file))) {
+				LOG.debug(String.format("Evicting the expired Hive result cache file \"%s\".", file));
+				deleteFile(file);
+				continue;
+			}
+			entries.add(file);
+		}
+
+		Collections.sort(entries, new Comparator<File>() {
+			@Override
+			public int compare(File file1, File file2) {
+				return Long.valueOf(file1.lastModified()).compareTo(file2.lastModified());
+			}
+		});
+
+		long totalBytes = 0;
+		for(File file : entries)
+			totalBytes += file.length();
+
+		for(File file : entries) {
+			if(totalBytes <= this.maxBytes)
+				break;
+
+			LOG.debug(String.format("Evicting the Hive result cache file \"%s\" to stay within %d bytes.", file, this.maxBytes));
+			totalBytes -= file.length();
+			deleteFile(file);
+		}
+	}
+
+	private static long getCreated(File file) {
+
+		try {
+			DataInputStream in = new DataInputStream(new FileInputStream(file));
+			try {
+				if(in.readInt() != FILE_MAGIC)
+					return 0;
+				return in.readLong();
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch(IOException ex) {
+			return 0;
+		}
+	}
+
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+
+		// Zig-zag encoded so that small negative numbers are also short...
+		value = (value << 1) ^ (value >> 63);
+		while((value & ~0x7FL) != 0) {
+			out.writeByte((int)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int)value);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+
+		long value = 0;
+		for(int shift = 0; ; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long)(b & 0x7F) << shift;
+			if((b & 0x80) == 0)
+				break;
+		}
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+
+		byte[] bytes = value.getBytes(UTF8);
+		writeVarLong(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+
+		byte[] bytes = new byte[(int)readVarLong(in)];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+
+		if(value == null) {
+			out.writeByte(VALUE_NULL);
+		}
+		else if(value instanceof String) {
+			out.writeByte(VALUE_STRING);
+			writeString(out, (String)value);
+		}
+		else if(value instanceof Long) {
+			out.writeByte(VALUE_LONG);
+			writeVarLong(out, (Long)value);
+		}
+		else if(value instanceof Integer) {
+			out.writeByte(VALUE_INT);
+			writeVarLong(out, (Integer)value);
+		}
+		else if(value instanceof Double) {
+			out.writeByte(VALUE_DOUBLE);
+			out.writeDouble((Double)value);
+		}
+		else if(value instanceof Boolean) {
+			out.writeByte((Boolean)value ? VALUE_TRUE : VALUE_FALSE);
+		}
+		else if(value instanceof Short) {
+			out.writeByte(VALUE_SHORT);
+			writeVarLong(out, (Short)value);
+		}
+		else if(value instanceof Byte) {
+			out.writeByte(VALUE_BYTE);
+			out.writeByte((Byte)value);
+		}
+		else if(value instanceof Float) {
+			out.writeByte(VALUE_FLOAT);
+			out.writeFloat((Float)value);
+		}
+		else {
+			out.writeByte(VALUE_STRING);
+			writeString(out, value.toString());
+		}
+	}
+
+	private static Object readValue(DataInputStream in) throws IOException {
+
+		int type = in.readUnsignedByte();
+		switch(type) {
+			case VALUE_NULL: return null;
+			case VALUE_FALSE: return Boolean.FALSE;
+			case VALUE_TRUE: return Boolean.TRUE;
+			case VALUE_BYTE: return in.readByte();
+			case VALUE_SHORT: return (short)readVarLong(in);
+			case VALUE_INT: return (int)readVarLong(in);
+			case VALUE_LONG: return readVarLong(in);
+			case VALUE_FLOAT: return in.readFloat();
+			case VALUE_DOUBLE: return in.readDouble();
+			case VALUE_STRING: return readString(in);
+			default:
+				throw new IOException(String.format("Unknown value type %d in the Hive result cache.", type));
+		}
+	}
+
+	/**
+	 * Replays a cache entry.
+	 */
+	public static class CachedResultSet extends ForwardOnlyResultSet {
+
+		private final DataInputStream in;
+		private final SimpleResultSetMetaData metaData;
+		private final Object[] currentRow;
+		private boolean endOfRows;
+
+		private CachedResultSet(DataInputStream in) throws IOException {
+
+			this.in = in;
+			this.metaData = new SimpleResultSetMetaData();
+
+			int columnCount = (int)readVarLong(in);
+			for(int idx = 0; idx < columnCount; idx++)
+				this.metaData.addColumn(readString(in), (int)readVarLong(in));
+
+			this.currentRow = new Object[columnCount];
+		}
+
+		@Override
+		public boolean next() throws SQLException {
+
+			if(this.endOfRows)
+				return false;
+
+			try {
+				if(this.in.readUnsignedByte() != ROW) {
+					this.endOfRows = true;
+					close();
+					return false;
+				}
+
+				for(int idx = 0; idx < this.currentRow.length; idx++)
+					this.currentRow[idx] = readValue(this.in);
+				return true;
+			}
+			catch(EOFException ex) {
+				throw new SQLException("The Hive result cache file is incomplete.", ex);
+			}
+			catch(IOException ex) {
+				throw new SQLException("Unable to read the Hive result cache file.", ex);
+			}
+		}
+
+		@Override
+		public Object getObject(int columnIndex) throws SQLException {
+			return this.currentRow[columnIndex - 1];
+		}
+
+		@Override
+		public ResultSetMetaData getMetaData() throws SQLException {
+			return this.metaData;
+		}
+
+		@Override
+		public void close() throws SQLException {
+
+			super.close();
+			try {
+				this.in.close();
+			}
+			catch(IOException ex) {
+				throw new SQLException("Unable to close the Hive result cache file.", ex);
+			}
+		}
+	}
+
+	/**
+	 * Passes rows through from Hive while writing them to a new cache entry.
+	 */
+	public class CachingResultSet extends ForwardOnlyResultSet {
+
+		private final ResultSet resultSet;
+		private final SimpleResultSetMetaData metaData;
+		private final Object[] currentRow;
+		private final File file;
+		private final File tempFile;
+		private DataOutputStream out;
+
+		private CachingResultSet(String key, ResultSet resultSet) throws IOException, SQLException {
+
+			this.resultSet = resultSet;
+			this.metaData = new SimpleResultSetMetaData(resultSet.getMetaData());
+			this.currentRow = new Object[this.metaData.getColumnCount()];
+			this.file = getFile(key);
+			this.tempFile = File.createTempFile(key, TEMP_FILE_EXTENSION, HiveResultCache.this.directory);
+
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.tempFile), BUFFER_SIZE));
+			this.out.writeInt(FILE_MAGIC);
+			this.out.writeLong(System.currentTimeMillis());
+			writeVarLong(this.out, this.currentRow.length);
+			for(int idx = 1; idx <= this.currentRow.length; idx++) {
+				writeString(this.out, this.metaData.getColumnLabel(idx));
+				writeVarLong(this.out, this.metaData.getColumnType(idx));
+			}
+		}
+
+		@Override
+		public boolean next() throws SQLException {
+
+			try {
+				if(!this.resultSet.next()) {
+					finish();
+					return false;
+				}
+
+				for(int idx = 0; idx < this.currentRow.length; idx++)
+					this.currentRow[idx] = this.resultSet.getObject(idx + 1);
+			}
+			catch(SQLException ex) {
+				// A partial set of results must not be left behind in the cache directory...
+				abandon();
+				throw ex;
+			}
+			catch(RuntimeException ex) {
+				abandon();
+				throw ex;
+			}
+
+			if(this.out != null) {
+				try {
+					this.out.writeByte(ROW);
+					for(Object value : this.currentRow)
+						writeValue(this.out, value);
+				}
+				catch(IOException ex) {
+					// The load itself is unaffected - there just won't be a cache entry for it...
+					LOG.warn("Unable to write to the Hive result cache. Caching has been abandoned for this run.", ex);
+					abandon();
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Reads the rest of the Hive results into the cache. This lets a run that failed on the Oracle
+		 * side be repeated without running the Hive query again.
+		 */
+		public void drain() {
+
+			if(this.out == null)
+				return;
+
+			LOG.info("Caching the remaining Hive results so that this export can be rerun without re-executing the query.");
+			try {
+				while(next())
+					;
+			}
+			catch(SQLException ex) {
+				LOG.warn("Unable to read the remaining Hive results into the cache.", ex);
+				abandon();
+			}
+		}
+
+		private void finish() {
+
+			if(this.out == null)
+				return;
+
+			try {
+				this.out.writeByte(END_OF_ROWS);
+				this.out.close();
+				this.out = null;
+
+				if(this.file.exists())
+					deleteFile(this.file);
+				if(!this.tempFile.renameTo(this.file))
+					throw new IOException(String.format("Unable to rename \"%s\" to \"%s\".", this.tempFile, this.file));
+
+				LOG.info(String.format("The Hive results have been cached in \"%s\" (%d bytes).", this.file, this.file.length()));
+				evict();
+			}
+			catch(IOException ex) {
+				LOG.warn("Unable to complete the Hive result cache entry.", ex);
+				abandon();
+			}
+		}
+
+		private void abandon() {
+
+			if(this.out != null) {
+				try {
+					this.out.close();
+				}
+				catch(IOException ex) {}
+				this.out = null;
+			}
+			if(this.tempFile.exists())
+				deleteFile(this.tempFile);
+		}
+
+		@Override
+		public Object getObject(int columnIndex) throws SQLException {
+			return this.currentRow[columnIndex - 1];
+		}
+
+		@Override
+		public ResultSetMetaData getMetaData() throws SQLException {
+			return this.metaData;
+		}
+
+		@Override
+		public void close() throws SQLException {
+
+			super.close();
+			abandon();
+		}
+	}
+}
@@ -0,0 +1,261 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Reads a result-set once and hands every row to each of a number of QueuedResultSets,
+ * so that several consumers can load the same rows without it being re-read.
+ *
+ * Batches are cut short when their rows are wide, and reading waits while the batches that
+ * have been handed over use up the MemoryGovernor's budget.
+ *
+ * The batches are either arrays of row objects or, for off-heap batches, RowArenas.
+ */
+public class HiveResultFanOut {
+
+	private static final Log LOG = LogFactory.getLog(HiveResultFanOut.class);
+
+	private final ResultSet source;
+	private final List<QueuedResultSet> targets;
+	private final int batchSize;
+	private final MemoryGovernor governor;
+
+	private ProgressReporter progress;
+	private boolean offHeapBatches;
+	private PhaseAccounting phases;
+	private long fetchTimeNanoSec;
+	private long rowsRead;
+
+	public HiveResultFanOut(ResultSet source, int batchSize, MemoryGovernor governor) {
+
+		this.source = source;
+		this.targets = new ArrayList<QueuedResultSet>();
+		this.batchSize = Math.max(1, batchSize);
+		this.governor = governor;
+	}
+
+	public QueuedResultSet addTarget(String name, int maxBatches) throws SQLException {
+
+		QueuedResultSet result = new QueuedResultSet(name, this.source.getMetaData(), maxBatches);
+		this.targets.add(result);
+		return result;
+	}
+
+	public void setProgressReporter(ProgressReporter progress) {
+		this.progress = progress;
+	}
+
+	public void setOffHeapBatches(boolean offHeapBatches) {
+		this.offHeapBatches = offHeapBatches;
+	}
+
+	/**
+	 * Account for the reading thread's time as phases; the Hive result-set may account for some of it itself.
+	 */
+	public void setPhaseAccounting(PhaseAccounting phases) {
+		this.phases = phases;
+	}
+
+	private PhaseAccounting.Phase switchPhase(PhaseAccounting.Phase phase) {
+
+		return (this.phases == null) ? null : this.phases.switchTo(phase);
+	}
+
+	public long getFetchTimeNanoSec() {
+		return this.fetchTimeNanoSec;
+	}
+
+	public long getRowsRead() {
+		return this.rowsRead;
+	}
+
+	/**
+	 * Reads all of the rows, unless every target stops reading first. Returns false in that case.
+	 */
+	public boolean run() throws SQLException, InterruptedException {
+
+		PhaseAccounting.Phase previousPhase = switchPhase(PhaseAccounting.Phase.HAND_OVER);
+		try {
+			boolean read = this.offHeapBatches ? readIntoArenas() : readIntoObjects();
+			if(!read)
+				return false;
+
+			for(QueuedResultSet target : this.targets)
+				target.finish();
+			return true;
+		}
+		catch(SQLException ex) {
+			for(QueuedResultSet target : this.targets)
+				target.fail(ex);
+			throw ex;
+		}
+		finally {
+			switchPhase(previousPhase);
+		}
+	}
+
+	private boolean readIntoObjects() throws SQLException, InterruptedException {
+
+		int columnCount = this.source.getMetaData().getColumnCount();
+		long maxBatchBytes = this.governor.getMaxBatchBytes();
+
+		Object[][] batch = new Object[this.batchSize][];
+		int rowIdx = 0;
+		long batchBytes = 0;
+
+		long start = System.nanoTime();
+		while(this.source.next()) {
+
+			Object[] row = new Object[columnCount];
+			for(int idx = 0; idx < columnCount; idx++)
+				row[idx] = this.source.getObject(idx + 1);	//<- JDBC is 1-based
+			batch[rowIdx++] = row;
+			batchBytes += MemoryGovernor.estimateRowBytes(row);
+			this.rowsRead++;
+
+			if(rowIdx == this.batchSize || batchBytes >= maxBatchBytes) {
+				this.fetchTimeNanoSec += System.nanoTime() - start;
+
+				if(rowIdx < this.batchSize)
+					this.governor.batchCutShort();
+
+				if(!put(batch, rowIdx, batchBytes))
+					return false;
+				if(this.progress != null)
+					this.progress.update(this.rowsRead);
+				batch = new Object[this.batchSize][];
+				rowIdx = 0;
+				batchBytes = 0;
+
+				start = System.nanoTime();
+			}
+		}
+		this.fetchTimeNanoSec += System.nanoTime() - start;
+
+		if(rowIdx > 0 && !put(batch, rowIdx, batchBytes))
+			return false;
+		return true;
+	}
+
+	private boolean readIntoArenas() throws SQLException, InterruptedException {
+
+		ResultSetMetaData metaData = this.source.getMetaData();
+		int[] sqlTypes = new int[metaData.getColumnCount()];
+		for(int idx = 0; idx < sqlTypes.length; idx++)
+			sqlTypes[idx] = metaData.getColumnType(idx + 1);	//<- JDBC is 1-based
+
+		long maxBatchBytes = this.governor.getMaxBatchBytes();
+		RowArena.Pool arenaPool = new RowArena.Pool(sqlTypes, this.batchSize);
+
+		try {
+			RowArena arena = arenaPool.take();
+
+			long start = System.nanoTime();
+			while(this.source.next()) {
+
+				arena.addRow(this.source);
+				this.rowsRead++;
+
+				if(arena.getRowCount() == this.batchSize || arena.getUsedBytes() >= maxBatchBytes) {
+					this.fetchTimeNanoSec += System.nanoTime() - start;
+
+					if(arena.getRowCount() < this.batchSize)
+						this.governor.batchCutShort();
+
+					if(!put(arena, arenaPool))
+						return false;
+					if(this.progress != null)
+						this.progress.update(this.rowsRead);
+					arena = arenaPool.take();
+
+					start = System.nanoTime();
+				}
+			}
+			this.fetchTimeNanoSec += System.nanoTime() - start;
+
+			if(arena.getRowCount() == 0)
+				arenaPool.give(arena);
+			else if(!put(arena, arenaPool))
+				return false;
+			return true;
+		}
+		finally {
+			LOG.debug(String.format("%d off-heap row arenas were allocated for the Hive results."
+									,arenaPool.getArenasAllocated()));
+		}
+	}
+
+	private boolean put(Object[][] rows, int rowCount, long bytes) throws InterruptedException {
+
+		if(rowCount < rows.length) {
+			Object[][] batchRows = new Object[rowCount][];
+			System.arraycopy(rows, 0, batchRows, 0, rowCount);
+			rows = batchRows;
+		}
+
+		return put(new QueuedResultSet.RowBatch(rows, bytes, this.governor, this.targets.size()), bytes);
+	}
+
+	private boolean put(RowArena arena, RowArena.Pool arenaPool) throws InterruptedException {
+
+		long bytes = arena.getUsedBytes();
+		return put(new QueuedResultSet.RowBatch(arena, arenaPool, bytes, this.governor, this.targets.size()), bytes);
+	}
+
+	private boolean put(QueuedResultSet.RowBatch batch, long bytes) throws InterruptedException {
+
+		PhaseAccounting.Phase previousPhase = switchPhase(PhaseAccounting.Phase.QUEUE_WAIT);
+		try {
+			// Wait for the targets to catch up if the batches they hold use up the budget...
+			this.governor.acquireQueued(bytes);
+
+			return putShared(batch);
+		}
+		finally {
+			switchPhase(previousPhase);
+		}
+	}
+
+	private boolean putShared(QueuedResultSet.RowBatch batch) throws InterruptedException {
+
+		// The batch is shared by the targets, none of which modify it...
+		boolean result = false;
+		for(QueuedResultSet target : this.targets) {
+			if(target.isAbandoned()) {
+				batch.release();
+				continue;
+			}
+
+			if(target.put(batch))
+				result = true;
+			else {
+				batch.release();
+				LOG.warn(String.format("\"%s\" has stopped reading after %d rows.", target.getName(), this.rowsRead));
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which Oracle table (or table partition) each row of the Hive results is inserted into.
+ *
+ * The rules are read from a properties file:
+ *
+ * 	column=<the Hive column the rows are routed on>
+ * 	mode=value|hash
+ * 	route.<value>=<table> | <table> PARTITION (<partition>) | PARTITION (<partition>)
+ * 	default=<where rows without a route of their own go>
+ *
+ * In hash mode the routes are named route.0 to route.<n-1> and each row goes to the route
+ * numbered by the hash of its value modulo n. A route without a table name refers to the
+ * table being exported to.
+ */
+public class HiveResultRouter {
+
+	public static final String PROPERTY_COLUMN = "column";
+	public static final String PROPERTY_MODE = "mode";
+	public static final String PROPERTY_ROUTE_PREFIX = "route.";
+	public static final String PROPERTY_DEFAULT_ROUTE = "default";
+
+	public static enum Mode {VALUE, HASH};
+
+	private static final Pattern ROUTE_TARGET_PATTERN = Pattern.compile("(?i)^\\s*([a-z0-9_$#.\"]+)?\\s*(?:partition\\s*\\(\\s*([a-z0-9_$#\"]+)\\s*\\))?\\s*$");
+
+	private final String columnName;
+	private final Mode mode;
+	private final List<String> routeNames;
+	private final List<String> routeTables;
+	private final List<String> routePartitions;
+	private final Map<String, Integer> valueRoutes;
+	private final int defaultRoute;
+	private final long[] rowsRouted;
+
+	private HiveResultRouter(Properties properties, String fileName) {
+
+		this.columnName = getRequiredProperty(properties, PROPERTY_COLUMN, fileName);
+
+		try {
+			this.mode = Mode.valueOf(properties.getProperty(PROPERTY_MODE, Mode.VALUE.toString()).trim().toUpperCase());
+		}
+		catch(IllegalArgumentException ex) {
+			throw new IllegalArgumentException(String.format("The \"%s\" property in the routes file \"%s\" must be \"value\" or \"hash\"."
+															,PROPERTY_MODE
+															,fileName));
+		}
+
+		this.routeNames = new ArrayList<String>();
+		this.routeTables = new ArrayList<String>();
+		this.routePartitions = new ArrayList<String>();
+		this.valueRoutes = new HashMap<String, Integer>();
+
+		for(String propertyName : new TreeSet<String>(properties.stringPropertyNames())) {
+
+			if(propertyName.equals(PROPERTY_COLUMN) ||
+			   propertyName.equals(PROPERTY_MODE) ||
+			   propertyName.equals(PROPERTY_DEFAULT_ROUTE))
+				continue;
+
+			if(!propertyName.startsWith(PROPERTY_ROUTE_PREFIX))
+				throw new IllegalArgumentException(String.format("The property \"%s\" in the routes file \"%s\" is not recognized."
+																,propertyName
+																,fileName));
+
+			String value = propertyName.substring(PROPERTY_ROUTE_PREFIX.length());
+			this.valueRoutes.put(value, addRoute(propertyName, properties.getProperty(propertyName), fileName));
+		}
+
+		if(properties.containsKey(PROPERTY_DEFAULT_ROUTE))
+			this.defaultRoute = addRoute(PROPERTY_DEFAULT_ROUTE, properties.getProperty(PROPERTY_DEFAULT_ROUTE), fileName);
+		else
+			this.defaultRoute = -1;
+
+		if(this.valueRoutes.isEmpty())
+			throw new IllegalArgumentException(String.format("The routes file \"%s\" does not contain any routes.", fileName));
+
+		// Hash routes must be numbered 0 to n-1 so that every bucket has somewhere to go...
+		if(this.mode.equals(Mode.HASH))
+			for(int idx = 0; idx < this.valueRoutes.size(); idx++)
+				if(!this.valueRoutes.containsKey(Integer.toString(idx)))
+					throw new IllegalArgumentException(String.format("The routes file \"%s\" has %d hash routes, so they must be named %s0 to %s%d."
+																	,fileName
+																	,this.valueRoutes.size()
+																	,PROPERTY_ROUTE_PREFIX
+																	,PROPERTY_ROUTE_PREFIX
+																	,this.valueRoutes.size() - 1));
+
+		this.rowsRouted = new long[this.routeNames.size()];
+	}
+
+	public static HiveResultRouter load(String fileName) throws IOException {
+
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(fileName);
+		try {
+			properties.load(in);
+		}
+		finally {
+			in.close();
+		}
+		return new HiveResultRouter(properties, fileName);
+	}
+
+	private static String getRequiredProperty(Properties properties, String propertyName, String fileName) {
+
+		String result = properties.getProperty(propertyName, "").trim();
+		if(result.isEmpty())
+			throw new IllegalArgumentException(String.format("The \"%s\" property must be set in the routes file \"%s\"."
+															,propertyName
+															,fileName));
+		return result;
+	}
+
+	private int addRoute(String routeName, String target, String fileName) {
+
+		Matcher matcher = ROUTE_TARGET_PATTERN.matcher(target);
+		if(!matcher.matches() || (matcher.group(1) == null && matcher.group(2) == null))
+			throw new IllegalArgumentException(String.format("The route \"%s\" in the routes file \"%s\" must be a table name, "+
+															"a table name followed by PARTITION (<partition>) or PARTITION (<partition>)."
+															,routeName
+															,fileName));
+
+		this.routeNames.add(routeName);
+		this.routeTables.add(matcher.group(1));
+		this.routePartitions.add(matcher.group(2));
+		return this.routeNames.size() - 1;
+	}
+
+	public String getColumnName() {
+		return this.columnName;
+	}
+
+	public int getRouteCount() {
+		return this.routeNames.size();
+	}
+
+	public String getRouteName(int route) {
+		return this.routeNames.get(route);
+	}
+
+	/**
+	 * The table the route inserts into, or null for the table being exported to.
+	 */
+	public String getRouteTable(int route) {
+		return this.routeTables.get(route);
+	}
+
+	/**
+	 * The partition the route inserts into, or null.
+	 */
+	public String getRoutePartition(int route) {
+		return this.routePartitions.get(route);
+	}
+
+	public long getRowsRouted(int route) {
+		return this.rowsRouted[route];
+	}
+
+	/**
+	 * Returns the route for a row with the given value in the routing column, or -1 if it has none.
+	 */
+	public int getRoute(Object value) {
+
+		int result = this.defaultRoute;
+		if(value != null) {
+
+			String key = value.toString();
+			if(this.mode.equals(Mode.HASH))
+				key = Integer.toString((key.hashCode() & Integer.MAX_VALUE) % this.valueRoutes.size());
+
+			Integer route = this.valueRoutes.get(key);
+			if(route != null)
+				result = route;
+		}
+
+		if(result >= 0)
+			this.rowsRouted[result]++;
+		return result;
+	}
+}
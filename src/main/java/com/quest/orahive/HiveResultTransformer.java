@@ -0,0 +1,556 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the values of the Hive results on their way to Oracle, so that they do not have to be
+ * fixed up by UPDATE statements once they have been loaded.
+ *
+ * The rules are read from a properties file, with a property for each column:
+ *
+ * 	<column>=<rule> | <rule> | ...
+ *
+ * The rules for a column are applied from left to right:
+ *
+ * 	trim					removes leading and trailing white space
+ * 	nullif(<text>)			replaces the text with NULL (nullif() replaces empty strings)
+ * 	cast(string|integer|number|timestamp)
+ * 	substr(<start>[,<length>])	as Oracle's SUBSTR, counting from 1
+ * 	multiply(<factor>)
+ * 	round(<decimal places>)
+ * 	const(<text>)			replaces the value with the text
+ * 	loadtime				replaces the value with the time the load began
+ *
+ * A property for a column that is not in the Hive results adds that column, after the Hive
+ * columns and in order of name; its value comes from const() or loadtime. A value that a cast
+ * cannot convert is passed on unchanged, leaving Oracle to reject (or log) it.
+ *
+ * The rules are compiled once into flat arrays of operation codes, and columns whose value is
+ * the same for every row are evaluated once, so the per-row cost is a loop over the operations.
+ */
+public class HiveResultTransformer {
+
+	private static final int OP_TRIM = 0;
+	private static final int OP_NULL_IF = 1;
+	private static final int OP_CAST_STRING = 2;
+	private static final int OP_CAST_INTEGER = 3;
+	private static final int OP_CAST_NUMBER = 4;
+	private static final int OP_CAST_TIMESTAMP = 5;
+	private static final int OP_SUBSTRING = 6;
+	private static final int OP_MULTIPLY = 7;
+	private static final int OP_ROUND = 8;
+	private static final int OP_CONSTANT = 9;
+	private static final int OP_LOAD_TIME = 10;
+
+	// Text of up to this many digits always fits in a long...
+	private static final int MAX_LONG_DIGITS = 18;
+	private static final BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE);
+	private static final BigDecimal LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+
+	private static final Pattern RULE_PATTERN = Pattern.compile("(?i)^\\s*([a-z]+)\\s*(?:\\((.*)\\))?\\s*$");
+
+	private static class Rule {
+
+		public int op;
+		public String text;			//<- nullif() and const()
+		public BigDecimal number;	//<- multiply()
+		public int start;			//<- substr() and round()
+		public int length = -1;
+	}
+
+	private final String fileName;
+	private final List<String> columnNames;
+	private final List<List<Rule>> columnRules;
+	private final Timestamp loadTime;
+
+	private HiveResultTransformer(Properties properties, String fileName) {
+
+		this.fileName = fileName;
+		this.columnNames = new ArrayList<String>();
+		this.columnRules = new ArrayList<List<Rule>>();
+		this.loadTime = new Timestamp(System.currentTimeMillis());
+
+		for(String columnName : new TreeSet<String>(properties.stringPropertyNames())) {
+			this.columnNames.add(columnName);
+			this.columnRules.add(parseRules(columnName, properties.getProperty(columnName)));
+		}
+
+		if(this.columnNames.isEmpty())
+			throw new IllegalArgumentException(String.format("The transformation file \"%s\" does not contain any rules.", fileName));
+	}
+
+	public static HiveResultTransformer load(String fileName) throws IOException {
+
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(fileName);
+		try {
+			properties.load(in);
+		}
+		finally {
+			in.close();
+		}
+		return new HiveResultTransformer(properties, fileName);
+	}
+
+	private List<Rule> parseRules(String columnName, String rules) {
+
+		List<Rule> result = new ArrayList<Rule>();
+
+		for(String text : splitRules(rules)) {
+			Matcher matcher = RULE_PATTERN.matcher(text);
+			if(!matcher.matches())
+				throw invalidRule(columnName, text);
+
+			String name = matcher.group(1).toLowerCase();
+			String argument = matcher.group(2);
+
+			Rule rule = new Rule();
+			try {
+				if(name.equals("trim") && argument == null)
+					rule.op = OP_TRIM;
+				else if(name.equals("nullif") && argument != null) {
+					rule.op = OP_NULL_IF;
+					rule.text = argument;
+				}
+				else if(name.equals("cast") && argument != null) {
+					String type = argument.trim().toLowerCase();
+					if(type.equals("string"))
+						rule.op = OP_CAST_STRING;
+					else if(type.equals("integer"))
+						rule.op = OP_CAST_INTEGER;
+					else if(type.equals("number"))
+						rule.op = OP_CAST_NUMBER;
+					else if(type.equals("timestamp"))
+						rule.op = OP_CAST_TIMESTAMP;
+					else
+						throw invalidRule(columnName, text);
+				}
+				else if(name.equals("substr") && argument != null) {
+					String[] arguments = argument.split(",");
+					if(arguments.length > 2)
+						throw invalidRule(columnName, text);
+					rule.op = OP_SUBSTRING;
+					rule.start = Integer.parseInt(arguments[0].trim());
+					if(arguments.length == 2)
+						rule.length = Integer.parseInt(arguments[1].trim());
+				}
+				else if(name.equals("multiply") && argument != null) {
+					rule.op = OP_MULTIPLY;
+					rule.number = new BigDecimal(argument.trim());
+				}
+				else if(name.equals("round") && argument != null) {
+					rule.op = OP_ROUND;
+					rule.start = Integer.parseInt(argument.trim());
+				}
+				else if(name.equals("const") && argument != null) {
+					rule.op = OP_CONSTANT;
+					rule.text = argument;
+				}
+				else if(name.equals("loadtime") && argument == null)
+					rule.op = OP_LOAD_TIME;
+				else
+					throw invalidRule(columnName, text);
+			}
+			catch(NumberFormatException ex) {
+				throw invalidRule(columnName, text);
+			}
+			result.add(rule);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Splits the rules at each "|" that is not within the parentheses of a rule's argument.
+	 */
+	private static List<String> splitRules(String rules) {
+
+		List<String> result = new ArrayList<String>();
+		int depth = 0;
+		int start = 0;
+		for(int idx = 0; idx < rules.length(); idx++) {
+			char c = rules.charAt(idx);
+			if(c == '(')
+				depth++;
+			else if(c == ')' && depth > 0)
+				depth--;
+			else if(c == '|' && depth == 0) {
+				result.add(rules.substring(start, idx));
+				start = idx + 1;
+			}
+		}
+		result.add(rules.substring(start));
+		return result;
+	}
+
+	private IllegalArgumentException invalidRule(String columnName, String rule) {
+
+		return new IllegalArgumentException(String.format("The rule \"%s\" for the column \"%s\" in the transformation file \"%s\" is not valid."
+														,rule.trim()
+														,columnName
+														,this.fileName));
+	}
+
+	/**
+	 * Returns a result-set with the rules applied to the rows of the Hive results.
+	 */
+	public ResultSet transform(ResultSet resultSet) throws SQLException {
+
+		return new TransformingResultSet(resultSet);
+	}
+
+	private static boolean isIntegralType(int sqlType) {
+
+		return sqlType == Types.BIGINT || sqlType == Types.INTEGER || sqlType == Types.SMALLINT || sqlType == Types.TINYINT;
+	}
+
+	private static boolean isIntegral(Object value) {
+
+		return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+	}
+
+	private static Number toNumber(Object value) {
+
+		if(value instanceof Number)
+			return (Number)value;
+		if(value instanceof Boolean)
+			return Long.valueOf(((Boolean)value).booleanValue() ? 1 : 0);
+
+		// Only text that is certain to be a long is parsed as one, so that no exception is thrown for the rest...
+		String text = value.toString().trim();
+		if(isLongText(text))
+			return Long.valueOf(text);
+		return Double.valueOf(text);
+	}
+
+	private static boolean isLongText(String text) {
+
+		int start = (text.startsWith("-") || text.startsWith("+")) ? 1 : 0;
+		if(text.length() == start || text.length() - start > MAX_LONG_DIGITS)
+			return false;
+		for(int idx = start; idx < text.length(); idx++)
+			if(text.charAt(idx) < '0' || text.charAt(idx) > '9')
+				return false;
+		return true;
+	}
+
+	/**
+	 * Multiplies without the silent wrap-around of long arithmetic: a product that does not fit in a
+	 * long is returned as a BigDecimal, which Oracle's NUMBER holds exactly.
+	 */
+	private static Number multiply(long value, BigDecimal factor) {
+
+		if(factor.precision() - factor.scale() <= MAX_LONG_DIGITS) {
+			long longFactor = factor.longValue();
+			long product = value * longFactor;
+			// Operands below 2^31 cannot overflow; otherwise dividing the product back must give the value.
+			if(((Math.abs(value) | Math.abs(longFactor)) >>> 31) == 0
+					|| longFactor == 0
+					|| (product / longFactor == value && !(value == Long.MIN_VALUE && longFactor == -1)))
+				return Long.valueOf(product);
+		}
+		return toLongIfExact(BigDecimal.valueOf(value).multiply(factor));
+	}
+
+	private static Number toLongIfExact(BigDecimal value) {
+
+		if(value.compareTo(LONG_MIN) >= 0 && value.compareTo(LONG_MAX) <= 0)
+			return Long.valueOf(value.longValue());
+		return value;
+	}
+
+	/**
+	 * Rounds half away from zero, as Oracle does.
+	 */
+	private static long roundToLong(double value) {
+
+		if(Double.isNaN(value) || Math.abs(value) >= Long.MAX_VALUE)
+			throw new ArithmeticException(String.format("%s cannot be rounded to a long.", value));
+		return value >= 0 ? Math.round(value) : -Math.round(-value);
+	}
+
+	/**
+	 * The Hive results with the rules applied. Each row is transformed as next() moves to it.
+	 */
+	private class TransformingResultSet extends ForwardOnlyResultSet {
+
+		private final ResultSet resultSet;
+		private final SimpleResultSetMetaData metaData;
+
+		// For each column: the Hive column its value starts from (or -1 if it is the same for
+		// every row), and the range of its operations in the arrays below...
+		private final int[] sourceColumns;
+		private final int[] opStart;
+		private final Object[] constants;
+
+		private final int[] opCodes;
+		private final String[] opText;
+		private final BigDecimal[] opNumbers;
+		private final int[] opStart1;
+		private final int[] opLength;
+
+		private final Object[] row;
+
+		public TransformingResultSet(ResultSet resultSet) throws SQLException {
+
+			this.resultSet = resultSet;
+			this.metaData = new SimpleResultSetMetaData();
+
+			ResultSetMetaData sourceMetaData = resultSet.getMetaData();
+			int hiveColumnCount = sourceMetaData.getColumnCount();
+
+			// The Hive columns, then the columns the rules add...
+			List<String> labels = new ArrayList<String>();
+			List<Integer> sourceTypes = new ArrayList<Integer>();
+			List<List<Rule>> rules = new ArrayList<List<Rule>>();
+			Set<String> ruleColumns = new HashSet<String>();
+			for(int idx = 0; idx < hiveColumnCount; idx++) {
+				String label = sourceMetaData.getColumnLabel(idx + 1);	//<- JDBC is 1-based
+				labels.add(label);
+				sourceTypes.add(sourceMetaData.getColumnType(idx + 1));
+				rules.add(getRules(label, ruleColumns));
+			}
+			for(int idx = 0; idx < columnNames.size(); idx++) {
+				if(ruleColumns.contains(columnNames.get(idx)))
+					continue;
+				labels.add(columnNames.get(idx));
+				sourceTypes.add(Types.VARCHAR);
+				rules.add(columnRules.get(idx));
+			}
+
+			int opCount = 0;
+			for(List<Rule> columnOps : rules)
+				opCount += columnOps.size();
+
+			this.sourceColumns = new int[labels.size()];
+			this.opStart = new int[labels.size() + 1];
+			this.constants = new Object[labels.size()];
+			this.opCodes = new int[opCount];
+			this.opText = new String[opCount];
+			this.opNumbers = new BigDecimal[opCount];
+			this.opStart1 = new int[opCount];
+			this.opLength = new int[opCount];
+			this.row = new Object[labels.size()];
+
+			int op = 0;
+			for(int column = 0; column < labels.size(); column++) {
+				this.sourceColumns[column] = column < hiveColumnCount ? column : -1;
+				this.opStart[column] = op;
+
+				int sqlType = sourceTypes.get(column);
+				boolean constant = false;
+				for(Rule rule : rules.get(column)) {
+					this.opCodes[op] = rule.op;
+					this.opText[op] = rule.text;
+					this.opNumbers[op] = rule.number;
+					this.opStart1[op] = rule.start;
+					this.opLength[op] = rule.length;
+					op++;
+
+					sqlType = getResultType(rule, sqlType);
+
+					// The value no longer depends on the row (the operations before it are skipped)...
+					if(rule.op == OP_CONSTANT || rule.op == OP_LOAD_TIME)
+						constant = true;
+				}
+				this.opStart[column + 1] = op;
+
+				if(column >= hiveColumnCount && !constant)
+					throw new SQLException(String.format("The column \"%s\" in the transformation file \"%s\" is not in the Hive results, "+
+														"so its rules must give it a value with const() or loadtime."
+														,labels.get(column)
+														,fileName));
+
+				if(constant) {
+					this.sourceColumns[column] = -1;
+					this.constants[column] = evaluate(column, null);
+				}
+
+				this.metaData.addColumn(labels.get(column), sqlType);
+			}
+		}
+
+		private List<Rule> getRules(String hiveColumnLabel, Set<String> ruleColumns) {
+
+			for(int idx = 0; idx < columnNames.size(); idx++)
+				if(columnNames.get(idx).equalsIgnoreCase(hiveColumnLabel)) {
+					ruleColumns.add(columnNames.get(idx));
+					return columnRules.get(idx);
+				}
+			return new ArrayList<Rule>();
+		}
+
+		private int getResultType(Rule rule, int sqlType) {
+
+			switch(rule.op) {
+				case OP_NULL_IF:		return sqlType;
+				case OP_CAST_INTEGER:	return Types.BIGINT;
+				case OP_CAST_NUMBER:	return Types.DOUBLE;
+				case OP_CAST_TIMESTAMP:
+				case OP_LOAD_TIME:		return Types.TIMESTAMP;
+				case OP_MULTIPLY:
+					return isIntegralType(sqlType) && rule.number.scale() <= 0 ? Types.BIGINT : Types.DOUBLE;
+				case OP_ROUND:
+					return isIntegralType(sqlType) ? sqlType : Types.DOUBLE;
+				default:				return Types.VARCHAR;
+			}
+		}
+
+		/**
+		 * Applies a column's operations to a value.
+		 */
+		private Object evaluate(int column, Object value) {
+
+			int end = this.opStart[column + 1];
+			for(int op = this.opStart[column]; op < end; op++) {
+				if(value == null && this.opCodes[op] != OP_CONSTANT && this.opCodes[op] != OP_LOAD_TIME)
+					continue;
+
+				switch(this.opCodes[op]) {
+					case OP_TRIM:
+						value = value.toString().trim();
+						break;
+					case OP_NULL_IF:
+						if(value.toString().equals(this.opText[op]))
+							value = null;
+						break;
+					case OP_CAST_STRING:
+						value = value.toString();
+						break;
+					case OP_SUBSTRING:
+						value = substring(value.toString(), this.opStart1[op], this.opLength[op]);
+						break;
+					case OP_CONSTANT:
+						value = this.opText[op];
+						break;
+					case OP_LOAD_TIME:
+						value = loadTime;
+						break;
+					default:
+						value = convert(op, value);
+						break;
+				}
+			}
+			return value;
+		}
+
+		/**
+		 * The operations that may fail to convert a value, which then passes it on unchanged.
+		 */
+		private Object convert(int op, Object value) {
+
+			try {
+				switch(this.opCodes[op]) {
+					case OP_CAST_INTEGER: {
+						Number number = toNumber(value);
+						if(isIntegral(number))
+							return Long.valueOf(number.longValue());
+						return Long.valueOf(roundToLong(number.doubleValue()));
+					}
+					case OP_CAST_NUMBER:
+						return Double.valueOf(toNumber(value).doubleValue());
+					case OP_CAST_TIMESTAMP:
+						return OracleColumnConverter.toTimestamp(value);
+					case OP_MULTIPLY: {
+						Number number = toNumber(value);
+						if(isIntegral(number) && this.opNumbers[op].scale() <= 0)
+							return multiply(number.longValue(), this.opNumbers[op]);
+						return Double.valueOf(number.doubleValue() * this.opNumbers[op].doubleValue());
+					}
+					case OP_ROUND: {
+						Number number = toNumber(value);
+						if(isIntegral(number)) {
+							if(this.opStart1[op] >= 0)
+								return number;
+							return toLongIfExact(BigDecimal.valueOf(number.longValue()).setScale(this.opStart1[op], RoundingMode.HALF_UP));
+						}
+						if(this.opStart1[op] == 0)
+							return Double.valueOf(roundToLong(number.doubleValue()));
+						return Double.valueOf(BigDecimal.valueOf(number.doubleValue()).setScale(this.opStart1[op], RoundingMode.HALF_UP).doubleValue());
+					}
+					default:
+						return value;
+				}
+			}
+			catch(IllegalArgumentException ex) {	//<- Includes NumberFormatException
+				return value;
+			}
+			catch(ArithmeticException ex) {
+				return value;
+			}
+		}
+
+		@Override
+		public boolean next() throws SQLException {
+
+			if(!this.resultSet.next())
+				return false;
+
+			for(int column = 0; column < this.row.length; column++) {
+				int sourceColumn = this.sourceColumns[column];
+				if(sourceColumn < 0)
+					this.row[column] = this.constants[column];
+				else if(this.opStart[column] == this.opStart[column + 1])
+					this.row[column] = this.resultSet.getObject(sourceColumn + 1);	//<- JDBC is 1-based
+				else
+					this.row[column] = evaluate(column, this.resultSet.getObject(sourceColumn + 1));
+			}
+			return true;
+		}
+
+		@Override
+		public Object getObject(int columnIndex) throws SQLException {
+			return this.row[columnIndex - 1];
+		}
+
+		@Override
+		public ResultSetMetaData getMetaData() throws SQLException {
+			return this.metaData;
+		}
+	}
+
+	/**
+	 * As Oracle's SUBSTR: a negative start counts back from the end of the text, and a start of 0 is treated as 1.
+	 */
+	private static String substring(String text, int start, int length) {
+
+		int begin = start > 0 ? start - 1 : (start == 0 ? 0 : text.length() + start);
+		if(begin < 0 || begin >= text.length())
+			return null;	//<- Oracle's SUBSTR returns NULL (an empty string) here
+		int end = length < 0 ? text.length() : Math.min(text.length(), begin + length);
+		return end > begin ? text.substring(begin, end) : null;
+	}
+}
@@ -0,0 +1,268 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.Table;
+
+/**
+ * Limits an export to the partitions of a Hive table that are new, or have been rewritten, since
+ * the last successful export.
+ *
+ * The watermark file records the state of each partition (its last DDL time, number of files and
+ * size, as held in the metastore) as it was when it was last exported. The HQL statement selects
+ * the partitions to export with the placeholder ${partitions}, which is replaced by a condition on
+ * the partition columns, e.g. "dt IN ('2011-05-01','2011-05-02')".
+ *
+ * The watermark is only advanced, by commit(), once the rows have been committed to Oracle, so a
+ * failed run is simply repeated in full by the next one.
+ */
+public class IncrementalExport {
+
+	private static final Log LOG = LogFactory.getLog(IncrementalExport.class);
+
+	public static final String HQL_PARTITIONS_PLACEHOLDER = "${partitions}";
+
+	private static final String TEMP_FILE_EXTENSION = ".tmp";
+	private static final String BACKUP_FILE_EXTENSION = ".bak";
+	private static final String FILE_ENCODING = "UTF-8";
+
+	private final File watermarkFile;
+	private final Table table;
+	private final String tableName;
+
+	// Partition name -> data state...
+	private final Map<String, String> exportedStates;
+	private final Map<String, String> currentStates = new TreeMap<String, String>();
+
+	private final List<Partition> partitions = new ArrayList<Partition>();	//<- Those to export
+	private int changedPartitionCount;
+	private long rowCount;
+
+	private IncrementalExport(File watermarkFile, Table table, String tableName, Map<String, String> exportedStates) {
+
+		this.watermarkFile = watermarkFile;
+		this.table = table;
+		this.tableName = tableName;
+		this.exportedStates = exportedStates;
+	}
+
+	/**
+	 * Finds the partitions of the table that have not been exported in their current state.
+	 *
+	 * @throws IllegalArgumentException If the table is not partitioned, or the watermark file is for another table.
+	 */
+	public static IncrementalExport plan(HiveMetastore metastore, String tableName, File watermarkFile) throws Exception {
+
+		Table table = metastore.getTable(tableName);
+		if(!metastore.isPartitioned(table))
+			throw new IllegalArgumentException(String.format("The Hive table %s is not partitioned, so it cannot be exported incrementally.", tableName));
+
+		IncrementalExport result = new IncrementalExport(watermarkFile, table, tableName.toLowerCase(), readWatermarkFile(watermarkFile, tableName.toLowerCase()));
+
+		for(Partition partition : metastore.getPartitions(tableName)) {
+			String name = HiveMetastore.getPartitionName(table, partition);
+			String state = HiveMetastore.getDataState(partition);
+			result.currentStates.put(name, state);
+
+			String exportedState = result.exportedStates.get(name);
+			if(state.equals(exportedState))
+				continue;
+
+			result.partitions.add(partition);
+			if(exportedState != null)
+				result.changedPartitionCount++;
+
+			long partitionRows = HiveMetastore.getRowCount(partition);
+			result.rowCount = (partitionRows < 0 || result.rowCount < 0) ? -1 : result.rowCount + partitionRows;
+		}
+		return result;
+	}
+
+	public boolean isEmpty() {
+		return this.partitions.isEmpty();
+	}
+
+	/**
+	 * The number of partitions to export that were exported before, but have since been rewritten.
+	 */
+	public int getChangedPartitionCount() {
+		return this.changedPartitionCount;
+	}
+
+	/**
+	 * The number of rows in the partitions to export according to the metastore statistics, or -1 if any of them has none.
+	 */
+	public long getRowCount() {
+		return this.rowCount;
+	}
+
+	public String describe() {
+
+		return String.format("%d of the %d partitions of the Hive table %s will be exported (%d new, %d changed)."
+							,this.partitions.size()
+							,this.currentStates.size()
+							,this.tableName
+							,this.partitions.size() - this.changedPartitionCount
+							,this.changedPartitionCount);
+	}
+
+	/**
+	 * Replaces the partitions placeholder in the HQL statement with a condition that selects the partitions to export.
+	 *
+	 * @throws IllegalArgumentException If the statement has no placeholder.
+	 */
+	public String applyTo(String hql) {
+
+		if(!hql.contains(HQL_PARTITIONS_PLACEHOLDER))
+			throw new IllegalArgumentException(String.format("The HQL statement must contain %s where the condition on the partitions of %s is to go, e.g. \"WHERE %s\"."
+															,HQL_PARTITIONS_PLACEHOLDER
+															,this.tableName
+															,HQL_PARTITIONS_PLACEHOLDER));
+
+		return hql.replace(HQL_PARTITIONS_PLACEHOLDER, getPartitionCondition());
+	}
+
+	private String getPartitionCondition() {
+
+		StringBuilder result = new StringBuilder();
+
+		if(this.table.getPartitionKeys().size() == 1) {
+			// IN (...) lets Hive prune the partitions however many there are...
+			result.append(this.table.getPartitionKeys().get(0).getName()).append(" IN (");
+			for(int idx = 0; idx < this.partitions.size(); idx++) {
+				if(idx > 0)
+					result.append(", ");
+				result.append(toHqlLiteral(this.partitions.get(idx).getValues().get(0)));
+			}
+			return result.append(")").toString();
+		}
+
+		result.append("(");
+		for(int idx = 0; idx < this.partitions.size(); idx++) {
+			if(idx > 0)
+				result.append(" OR ");
+			result.append("(");
+			for(int keyIdx = 0; keyIdx < this.table.getPartitionKeys().size(); keyIdx++) {
+				if(keyIdx > 0)
+					result.append(" AND ");
+				result.append(this.table.getPartitionKeys().get(keyIdx).getName())
+					  .append(" = ")
+					  .append(toHqlLiteral(this.partitions.get(idx).getValues().get(keyIdx)));
+			}
+			result.append(")");
+		}
+		return result.append(")").toString();
+	}
+
+	private static String toHqlLiteral(String value) {
+
+		return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+	}
+
+	/**
+	 * Records the exported partitions in the watermark file. Partitions that no longer exist are forgotten.
+	 */
+	public void commit() throws IOException {
+
+		File tempFile = new File(this.watermarkFile.getPath() + TEMP_FILE_EXTENSION);
+		try {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), FILE_ENCODING));
+			try {
+				writer.write(this.tableName + "\n");
+				for(Map.Entry<String, String> entry : this.currentStates.entrySet())
+					writer.write(String.format("%s\t%s\n", entry.getKey(), entry.getValue()));
+			}
+			finally {
+				writer.close();
+			}
+
+			// The file is only replaced once the new one is complete. A rename replaces it in one step
+			// where it can (POSIX); otherwise the old file is kept as a backup until the new one is in place...
+			File backupFile = new File(this.watermarkFile.getPath() + BACKUP_FILE_EXTENSION);
+			if(!tempFile.renameTo(this.watermarkFile)) {
+				if(backupFile.exists() && !backupFile.delete())
+					throw new IOException(String.format("Unable to replace \"%s\".", backupFile));
+				if(this.watermarkFile.exists() && !this.watermarkFile.renameTo(backupFile))
+					throw new IOException(String.format("Unable to rename \"%s\" to \"%s\".", this.watermarkFile, backupFile));
+				if(!tempFile.renameTo(this.watermarkFile))
+					throw new IOException(String.format("Unable to rename \"%s\" to \"%s\".", tempFile, this.watermarkFile));
+			}
+			backupFile.delete();
+		}
+		catch(IOException ex) {
+			tempFile.delete();
+			throw ex;
+		}
+
+		LOG.info(String.format("The watermark in \"%s\" now includes the %d partitions exported.", this.watermarkFile, this.partitions.size()));
+	}
+
+	// The watermark file has a line with the table name, then a line for each partition with its
+	// name and its data state, separated by a tab...
+
+	private static Map<String, String> readWatermarkFile(File watermarkFile, String tableName) throws IOException {
+
+		Map<String, String> result = new TreeMap<String, String>();
+		if(!watermarkFile.exists()) {
+			// A run that stopped while replacing the file leaves the previous watermark as a backup...
+			File backupFile = new File(watermarkFile.getPath() + BACKUP_FILE_EXTENSION);
+			if(!backupFile.exists()) {
+				LOG.info(String.format("There is no watermark file \"%s\" yet, so every partition of %s will be exported.", watermarkFile, tableName));
+				return result;
+			}
+			LOG.warn(String.format("The watermark file \"%s\" is missing, so the previous watermark in \"%s\" will be used.", watermarkFile, backupFile));
+			watermarkFile = backupFile;
+		}
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(watermarkFile), FILE_ENCODING));
+		try {
+			String fileTableName = reader.readLine();
+			if(fileTableName == null || !fileTableName.equals(tableName))
+				throw new IllegalArgumentException(String.format("The watermark file \"%s\" is for the Hive table %s, not %s."
+																,watermarkFile
+																,fileTableName
+																,tableName));
+			String line;
+			while((line = reader.readLine()) != null) {
+				int idx = line.indexOf('\t');
+				if(idx >= 0)
+					result.put(line.substring(0, idx), line.substring(idx + 1));
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return result;
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Inserts the rows into an existing table of any database with a JDBC driver on the class-path,
+ * e.g. a local H2 or Derby database standing in for Oracle.
+ *
+ * The values are bound as they come from Hive, leaving the driver to convert them, and the
+ * table's columns must have the same names as the Hive columns. Any user name and password must
+ * be part of the JDBC URL.
+ */
+public class JdbcSink implements OraHiveSink {
+
+	private final String jdbcUrl;
+	private final String tableName;
+
+	private List<OracleTableColumn> columns;
+	private Connection connection;
+	private PreparedStatement statement;
+
+	public JdbcSink(String jdbcUrl, String tableName) {
+
+		this.jdbcUrl = jdbcUrl;
+		this.tableName = tableName;
+	}
+
+	@Override
+	public String getName() {
+		return this.tableName;
+	}
+
+	@Override
+	public void open(List<OracleTableColumn> columns) throws SQLException {
+
+		this.columns = columns;
+		this.connection = DriverManager.getConnection(this.jdbcUrl);
+		this.connection.setAutoCommit(false);
+
+		StringBuilder columnList = new StringBuilder();
+		StringBuilder valueList = new StringBuilder();
+		for(int idx = 0; idx < columns.size(); idx++) {
+			if(idx > 0) {
+				columnList.append(", ");
+				valueList.append(", ");
+			}
+			columnList.append(columns.get(idx).getName());
+			valueList.append("?");
+		}
+		this.statement = this.connection.prepareStatement(String.format("INSERT INTO %s (%s) VALUES (%s)"
+																		,this.tableName
+																		,columnList
+																		,valueList));
+	}
+
+	@Override
+	public long addRow(ResultSet resultSet) throws SQLException {
+
+		long result = MemoryGovernor.getRowOverheadBytes(this.columns.size());
+		for(int idx = 0; idx < this.columns.size(); idx++) {
+			Object value = resultSet.getObject(idx + 1);	//<- JDBC is 1-based
+			if(value == null)
+				this.statement.setNull(idx + 1, this.columns.get(idx).sqlType);
+			else
+				this.statement.setObject(idx + 1, value);
+			result += MemoryGovernor.estimateValueBytes(value);
+		}
+		this.statement.addBatch();
+		return result;
+	}
+
+	@Override
+	public void writeBatch() throws SQLException {
+
+		this.statement.executeBatch();
+		this.statement.clearBatch();
+	}
+
+	@Override
+	public void commit(boolean durable) throws SQLException {
+		this.connection.commit();
+	}
+
+	@Override
+	public void rollback() {
+
+		if(this.connection == null)
+			return;
+		try {
+			this.connection.rollback();
+		}
+		catch(SQLException e) {}
+	}
+
+	@Override
+	public void close() throws SQLException {
+
+		if(this.connection == null)
+			return;
+		try {
+			if(this.statement != null)
+				this.statement.close();
+		}
+		finally {
+			this.connection.close();
+		}
+	}
+}
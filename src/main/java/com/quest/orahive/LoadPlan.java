@@ -0,0 +1,127 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.util.List;
+
+/**
+ * Batch settings chosen from the shape of the Hive results: the width of a row and the number of rows.
+ *
+ * Batches are sized to bind about TARGET_BATCH_BYTES per round-trip to Oracle, and commits are
+ * spaced to write about TARGET_COMMIT_BYTES of rows each.
+ */
+public class LoadPlan {
+
+	private static final long TARGET_BATCH_BYTES = 1024 * 1024;
+	private static final long TARGET_COMMIT_BYTES = 64 * 1024 * 1024;
+
+	private static final int MIN_BATCH_SIZE = 100;
+	private static final int MAX_BATCH_SIZE = 5000;
+	private static final int MAX_COMMIT_BATCH_COUNT = 200;
+
+	// Guesses at the average size of a bound value when there are no statistics...
+	private static final int ESTIMATED_NUMBER_BYTES = 8;
+	private static final int ESTIMATED_VARCHAR2_BYTES = 32;
+
+	public int numberColumnCount;
+	public int varchar2ColumnCount;
+	public long estimatedRowBytes;
+	public boolean rowBytesFromStatistics;
+	public long estimatedRows;
+
+	public int insertBatchSize;
+	public int commitBatchCount;
+	public int fetchSize;
+
+	/**
+	 * @param statisticsRowBytes The average row size according to the metastore, or -1 if it is not known.
+	 * @param estimatedRows The expected number of rows, or -1 if it is not known.
+	 */
+	public static LoadPlan create(List<OracleTableColumn> oracleColumns, long statisticsRowBytes, long estimatedRows) {
+
+		LoadPlan result = new LoadPlan();
+		result.estimatedRows = estimatedRows;
+
+		long columnRowBytes = 0;
+		for(OracleTableColumn column : oracleColumns) {
+			if(column.oracleDataType.startsWith(Constants.OracleType.NUMBER.toString())) {
+				result.numberColumnCount++;
+				columnRowBytes += ESTIMATED_NUMBER_BYTES;
+			}
+			else {
+				result.varchar2ColumnCount++;
+				columnRowBytes += ESTIMATED_VARCHAR2_BYTES;
+			}
+		}
+
+		result.rowBytesFromStatistics = statisticsRowBytes > 0;
+		result.estimatedRowBytes = Math.max(1, result.rowBytesFromStatistics ? statisticsRowBytes : columnRowBytes);
+
+		// Round the batch size to a multiple of the minimum...
+		long batchSize = TARGET_BATCH_BYTES / result.estimatedRowBytes;
+		batchSize = (batchSize / MIN_BATCH_SIZE) * MIN_BATCH_SIZE;
+		result.insertBatchSize = (int)Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, batchSize));
+
+		long commitBatchCount = TARGET_COMMIT_BYTES / (result.insertBatchSize * result.estimatedRowBytes);
+
+		// There is no point in committing more often than needed for a small result...
+		if(estimatedRows > 0)
+			commitBatchCount = Math.min(commitBatchCount, (estimatedRows + result.insertBatchSize - 1) / result.insertBatchSize);
+		result.commitBatchCount = (int)Math.max(1, Math.min(MAX_COMMIT_BATCH_COUNT, commitBatchCount));
+
+		// Fetch a batch's worth of rows from Hive at a time...
+		result.fetchSize = result.insertBatchSize;
+
+		return result;
+	}
+
+	public void apply(OraHiveOptions opts) {
+
+		if(opts.planInsertBatchSize)
+			opts.insertBatchSize = this.insertBatchSize;
+		if(opts.planCommitBatchCount)
+			opts.commitBatchCount = this.commitBatchCount;
+		if(opts.planFetchSize)
+			opts.fetchSize = this.fetchSize;
+	}
+
+	public String describe(OraHiveOptions opts) {
+
+		long rowsPerCommit = (long)opts.insertBatchSize * opts.commitBatchCount;
+
+		return String.format("\n\tColumns                           : %d (%d NUMBER, %d VARCHAR2)"+
+							"\n\tEstimated row size                : %,d bytes (from the %s)"+
+							"\n\tEstimated number of rows          : %s"+
+							"\n\tInsert batch size                 : %,d%s"+
+							"\n\tBatches per commit                : %,d%s"+
+							"\n\tHive fetch size                   : %,d%s"+
+							"\n\tEstimated number of commits       : %s"
+							,this.numberColumnCount + this.varchar2ColumnCount
+							,this.numberColumnCount
+							,this.varchar2ColumnCount
+							,this.estimatedRowBytes
+							,this.rowBytesFromStatistics ? "metastore statistics" : "column types"
+							,this.estimatedRows > 0 ? String.format("%,d", this.estimatedRows) : "unknown"
+							,opts.insertBatchSize
+							,opts.planInsertBatchSize ? "" : " (as supplied)"
+							,opts.commitBatchCount
+							,opts.planCommitBatchCount ? "" : " (as supplied)"
+							,opts.fetchSize
+							,opts.planFetchSize ? "" : " (as supplied)"
+							,this.estimatedRows > 0 ? String.format("%,d", (this.estimatedRows + rowsPerCommit - 1) / rowsPerCommit) : "unknown");
+	}
+}
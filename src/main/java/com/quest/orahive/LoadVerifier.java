@@ -0,0 +1,580 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Checks that the Oracle table holds the rows that were loaded into it, without reading either
+ * the Hive results or the Oracle table a second time.
+ *
+ * While the rows are loaded, aggregates that do not depend on the order of the rows are kept for
+ * each column: the number of values and of nulls, the sum of the numbers or of the lengths of the
+ * strings, and the smallest and largest value. Once the load is complete, a single (parallel)
+ * query computes the same aggregates over the Oracle table, and any that differ are reported.
+ *
+ * The aggregates are the ones Oracle can compute itself, so they can be compared exactly; a sum
+ * of ORA_HASH values could not be, as the Java side has no way to compute ORA_HASH. Sums of
+ * floating point values, or of values rounded to the column's scale, are compared to within the
+ * rounding that can explain the difference.
+ *
+ * When rows are inserted into a table that already has rows, the aggregates are also read before
+ * the load, and the counts and sums are compared by difference (the smallest and largest values
+ * are then only compared if the table was empty).
+ */
+public class LoadVerifier {
+
+	private static final Log LOG = LogFactory.getLog(LoadVerifier.class);
+
+	private static final int MAX_LONG_DIGITS = 18;
+	private static final double RELATIVE_TOLERANCE = 1e-9;	//<- For sums of doubles, which depend on the order they are added in
+
+	// How a column's Oracle type is checked...
+	private static final int CHECK_COUNT = 0;	//<- e.g. RAW, CHAR (blank-padded), or values of mixed types
+	private static final int CHECK_NUMBER = 1;
+	private static final int CHECK_TEXT = 2;
+	private static final int CHECK_TEXT_LENGTH = 3;	//<- CLOBs cannot be compared
+	private static final int CHECK_TIME = 4;
+
+	private final String[] columnNames;
+	private final ColumnStatistics[] columns;
+	private long rowCount;
+
+	private OracleStatistics baseline;	//<- The table's aggregates before the load, or null if it was empty
+
+	/**
+	 * The Oracle aggregates for the table: the row count, then {count, sum, min, max} for each column.
+	 */
+	private static class OracleStatistics {
+
+		public long rowCount;
+		public long[] counts;
+		public BigDecimal[] sums;
+		public Object[] minimums;
+		public Object[] maximums;
+	}
+
+	private static class ColumnStatistics {
+
+		public long values;
+		public long nulls;
+
+		// Numbers (and strings that are numbers). A sum is kept for each type to avoid
+		// converting every value...
+		public boolean numeric = true;
+		public boolean hasLong;
+		public long longSum;
+		public long longMin = Long.MAX_VALUE;
+		public long longMax = Long.MIN_VALUE;
+		public boolean hasDouble;
+		public double doubleSum;
+		public double doubleMin = Double.POSITIVE_INFINITY;
+		public double doubleMax = Double.NEGATIVE_INFINITY;
+		public BigDecimal decimalSum = BigDecimal.ZERO;	//<- Also takes longSum when it would overflow
+		public BigDecimal decimalMin;
+		public BigDecimal decimalMax;
+		public int maxScale;
+
+		// Strings...
+		public boolean allText = true;
+		public long textLength;		//<- In characters (code points), as Oracle's LENGTH()
+		public String textMin;
+		public String textMax;
+
+		// Dates and times...
+		public java.util.Date timeMin;
+		public java.util.Date timeMax;
+
+		public void add(Object value) {
+
+			// Oracle stores an empty string as NULL...
+			if(value == null || (value instanceof String && ((String)value).length() == 0)) {
+				this.nulls++;
+				return;
+			}
+			this.values++;
+
+			if(value instanceof String) {
+				String text = (String)value;
+				this.textLength += text.codePointCount(0, text.length());
+				if(this.textMin == null || compareCodePoints(text, this.textMin) < 0)
+					this.textMin = text;
+				if(this.textMax == null || compareCodePoints(text, this.textMax) > 0)
+					this.textMax = text;
+				if(this.numeric)
+					addNumericText(text.trim());
+				return;
+			}
+
+			this.allText = false;
+			if(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+				addLong(((Number)value).longValue());
+			else if(value instanceof BigDecimal)
+				addDecimal((BigDecimal)value);
+			else if(value instanceof Number) {
+				double number = ((Number)value).doubleValue();
+				this.hasDouble = true;
+				this.doubleSum += number;
+				this.doubleMin = Math.min(this.doubleMin, number);
+				this.doubleMax = Math.max(this.doubleMax, number);
+			}
+			else if(value instanceof Boolean)
+				addLong(((Boolean)value).booleanValue() ? 1 : 0);	//<- As the driver binds a boolean
+			else if(value instanceof java.util.Date) {
+				this.numeric = false;
+				java.util.Date time = (java.util.Date)value;
+				if(this.timeMin == null || time.before(this.timeMin))
+					this.timeMin = time;
+				if(this.timeMax == null || time.after(this.timeMax))
+					this.timeMax = time;
+			}
+			else
+				this.numeric = false;
+		}
+
+		private void addLong(long number) {
+
+			this.hasLong = true;
+			long sum = this.longSum + number;
+			if(((this.longSum ^ sum) & (number ^ sum)) < 0) {	//<- Overflow
+				this.decimalSum = this.decimalSum.add(BigDecimal.valueOf(this.longSum));
+				sum = number;
+			}
+			this.longSum = sum;
+			if(number < this.longMin)
+				this.longMin = number;
+			if(number > this.longMax)
+				this.longMax = number;
+		}
+
+		private void addDecimal(BigDecimal number) {
+
+			this.decimalSum = this.decimalSum.add(number);
+			this.maxScale = Math.max(this.maxScale, number.scale());
+			if(this.decimalMin == null || number.compareTo(this.decimalMin) < 0)
+				this.decimalMin = number;
+			if(this.decimalMax == null || number.compareTo(this.decimalMax) > 0)
+				this.decimalMax = number;
+		}
+
+		private void addNumericText(String text) {
+
+			if(isLongText(text)) {
+				addLong(Long.parseLong(text.startsWith("+") ? text.substring(1) : text));
+				return;
+			}
+			try {
+				addDecimal(new BigDecimal(text));
+			}
+			catch(NumberFormatException ex) {
+				this.numeric = false;	//<- So no more strings are parsed
+			}
+		}
+
+		public BigDecimal getSum() {
+
+			BigDecimal result = this.decimalSum.add(BigDecimal.valueOf(this.longSum));
+			if(this.hasDouble)
+				result = result.add(new BigDecimal(this.doubleSum));
+			return result;
+		}
+
+		public BigDecimal getMin() {
+
+			BigDecimal result = this.decimalMin;
+			if(this.hasLong)
+				result = min(result, BigDecimal.valueOf(this.longMin));
+			if(this.hasDouble)
+				result = min(result, new BigDecimal(this.doubleMin));
+			return result;
+		}
+
+		public BigDecimal getMax() {
+
+			BigDecimal result = this.decimalMax;
+			if(this.hasLong)
+				result = max(result, BigDecimal.valueOf(this.longMax));
+			if(this.hasDouble)
+				result = max(result, new BigDecimal(this.doubleMax));
+			return result;
+		}
+
+		private static BigDecimal min(BigDecimal value1, BigDecimal value2) {
+			return value1 == null || value2.compareTo(value1) < 0 ? value2 : value1;
+		}
+
+		private static BigDecimal max(BigDecimal value1, BigDecimal value2) {
+			return value1 == null || value2.compareTo(value1) > 0 ? value2 : value1;
+		}
+	}
+
+	public LoadVerifier(ResultSetMetaData metaData) throws SQLException {
+
+		this.columnNames = new String[metaData.getColumnCount()];
+		this.columns = new ColumnStatistics[this.columnNames.length];
+		for(int idx = 0; idx < this.columns.length; idx++) {
+			this.columnNames[idx] = metaData.getColumnLabel(idx + 1);	//<- JDBC is 1-based
+			this.columns[idx] = new ColumnStatistics();
+		}
+	}
+
+	/**
+	 * Returns the result set with the aggregates kept for each of its rows as they are read.
+	 */
+	public ResultSet wrap(final ResultSet resultSet) {
+
+		return new ForwardOnlyResultSet() {
+
+			@Override
+			public boolean next() throws SQLException {
+
+				if(!resultSet.next())
+					return false;
+				rowCount++;
+				for(int idx = 0; idx < columns.length; idx++)
+					columns[idx].add(resultSet.getObject(idx + 1));
+				return true;
+			}
+
+			@Override
+			public Object getObject(int columnIndex) throws SQLException {
+				return resultSet.getObject(columnIndex);
+			}
+
+			@Override
+			public ResultSetMetaData getMetaData() throws SQLException {
+				return resultSet.getMetaData();
+			}
+		};
+	}
+
+	/**
+	 * Reads the aggregates of the rows the table already has, so that only the rows loaded are verified.
+	 */
+	public void readBaseline(Connection connection, String tableName, File metadataCacheDirectory) throws SQLException {
+
+		OracleTableMetadata metadata = getMetadata(connection, tableName, metadataCacheDirectory);
+		this.baseline = readOracleStatistics(connection, metadata, getChecks(metadata));
+		LOG.info(String.format("The Oracle table %s has %d rows before the load.", tableName, this.baseline.rowCount));
+	}
+
+	/**
+	 * Compares the aggregates of the rows loaded with those of the Oracle table, and logs any that differ.
+	 *
+	 * @return The number of aggregates that differ.
+	 */
+	public int verify(Connection connection, String tableName, File metadataCacheDirectory) throws SQLException {
+
+		OracleTableMetadata metadata = getMetadata(connection, tableName, metadataCacheDirectory);
+		int[] checks = getChecks(metadata);
+
+		long start = System.nanoTime();
+		OracleStatistics oracle = readOracleStatistics(connection, metadata, checks);
+		LOG.debug(String.format("Read the aggregates of the Oracle table %s in %.1f sec.", tableName, (System.nanoTime() - start) / Math.pow(10, 9)));
+
+		boolean wasEmpty = (this.baseline == null || this.baseline.rowCount == 0);
+
+		List<String> mismatches = new ArrayList<String>();
+		compare(mismatches, "the table", "the number of rows", oracle.rowCount - (this.baseline == null ? 0 : this.baseline.rowCount), this.rowCount);
+
+		for(int idx = 0; idx < this.columns.length; idx++) {
+			ColumnStatistics hive = this.columns[idx];
+			String columnName = this.columnNames[idx];
+			if(checks[idx] < 0)
+				continue;	//<- Not a column of the table (already reported)
+
+			long oracleValues = oracle.counts[idx] - (this.baseline == null ? 0 : this.baseline.counts[idx]);
+			long oracleNulls = (oracle.rowCount - oracle.counts[idx]) - (this.baseline == null ? 0 : this.baseline.rowCount - this.baseline.counts[idx]);
+			compare(mismatches, columnName, "the number of values", oracleValues, hive.values);
+			compare(mismatches, columnName, "the number of nulls", oracleNulls, hive.nulls);
+			if(hive.values == 0)
+				continue;
+
+			OracleTableMetadata.Column column = metadata.getColumn(columnName);
+			switch(checks[idx]) {
+				case CHECK_NUMBER: {
+					if(!hive.numeric)
+						break;
+					// Values with more decimal places than the column has are rounded, and doubles are inexact...
+					BigDecimal tolerance = BigDecimal.ZERO;
+					if(column.scale >= 0 && (hive.maxScale > column.scale || hive.hasDouble))
+						tolerance = BigDecimal.ONE.movePointLeft(column.scale).divide(BigDecimal.valueOf(2));
+					boolean relative = hive.hasDouble || !column.dataType.equals("NUMBER");
+
+					BigDecimal oracleSum = subtract(oracle.sums[idx], this.baseline == null ? null : this.baseline.sums[idx]);
+					compare(mismatches, columnName, "the sum", oracleSum, hive.getSum(), tolerance.multiply(BigDecimal.valueOf(hive.values)), relative);
+					if(wasEmpty) {
+						compare(mismatches, columnName, "the smallest value", (BigDecimal)oracle.minimums[idx], hive.getMin(), tolerance, relative);
+						compare(mismatches, columnName, "the largest value", (BigDecimal)oracle.maximums[idx], hive.getMax(), tolerance, relative);
+					}
+					break;
+				}
+				case CHECK_TEXT:
+				case CHECK_TEXT_LENGTH: {
+					if(!hive.allText)
+						break;
+					BigDecimal oracleLength = subtract(oracle.sums[idx], this.baseline == null ? null : this.baseline.sums[idx]);
+					compare(mismatches, columnName, "the total length", oracleLength.longValue(), hive.textLength);
+					if(wasEmpty && checks[idx] == CHECK_TEXT) {
+						compare(mismatches, columnName, "the smallest value", oracle.minimums[idx], hive.textMin);
+						compare(mismatches, columnName, "the largest value", oracle.maximums[idx], hive.textMax);
+					}
+					break;
+				}
+				case CHECK_TIME: {
+					if(!wasEmpty)
+						break;
+					// An Oracle DATE has no fractional seconds, and a TIMESTAMP may have fewer digits than Hive...
+					long toleranceMillis = column.dataType.equals("DATE") ? 999 : 1;
+					compareTimes(mismatches, columnName, "the smallest value", (Timestamp)oracle.minimums[idx], getHiveTime(hive, true), toleranceMillis);
+					compareTimes(mismatches, columnName, "the largest value", (Timestamp)oracle.maximums[idx], getHiveTime(hive, false), toleranceMillis);
+					break;
+				}
+				default:
+					break;
+			}
+		}
+
+		for(String mismatch : mismatches)
+			LOG.error(mismatch);
+		if(mismatches.isEmpty())
+			LOG.info(String.format("Verified the %d rows loaded into the Oracle table %s: the row count and the aggregates of all %d columns match."
+									,this.rowCount
+									,tableName
+									,this.columns.length));
+		return mismatches.size();
+	}
+
+	private static OracleTableMetadata getMetadata(Connection connection, String tableName, File metadataCacheDirectory) throws SQLException {
+
+		OracleTableMetadata result = OracleTableMetadata.get(connection, tableName, metadataCacheDirectory);
+		if(result == null)
+			throw new SQLException(String.format("The Oracle table %s does not exist.", tableName));
+		return result;
+	}
+
+	/**
+	 * How each column is checked, or -1 if it is not in the table.
+	 */
+	private int[] getChecks(OracleTableMetadata metadata) {
+
+		int[] result = new int[this.columns.length];
+		for(int idx = 0; idx < this.columns.length; idx++) {
+			OracleTableMetadata.Column column = metadata.getColumn(this.columnNames[idx]);
+			if(column == null) {
+				LOG.warn(String.format("The column %s is not in the Oracle table %s.%s, so it cannot be verified."
+										,this.columnNames[idx]
+										,metadata.getOwner()
+										,metadata.getTableName()));
+				result[idx] = -1;
+				continue;
+			}
+
+			String dataType = column.dataType;
+			if(dataType.equals("NUMBER") || dataType.equals("FLOAT") || dataType.startsWith("BINARY_"))
+				result[idx] = CHECK_NUMBER;
+			else if(dataType.equals("VARCHAR2") || dataType.equals("NVARCHAR2"))
+				result[idx] = CHECK_TEXT;
+			else if(dataType.equals("CLOB") || dataType.equals("NCLOB"))
+				result[idx] = CHECK_TEXT_LENGTH;
+			else if(dataType.equals("DATE") || dataType.startsWith("TIMESTAMP"))
+				result[idx] = CHECK_TIME;
+			else
+				result[idx] = CHECK_COUNT;
+		}
+		return result;
+	}
+
+	private OracleStatistics readOracleStatistics(Connection connection, OracleTableMetadata metadata, int[] checks) throws SQLException {
+
+		// COUNT(*), then COUNT, SUM, MIN and MAX (or NULL where they do not apply) for each column...
+		StringBuilder selectList = new StringBuilder("COUNT(*)");
+		for(int idx = 0; idx < this.columns.length; idx++) {
+			if(checks[idx] < 0) {
+				selectList.append(", 0, NULL, NULL, NULL");
+				continue;
+			}
+			String name = metadata.getColumn(this.columnNames[idx]).getSqlName();
+			switch(checks[idx]) {
+				case CHECK_NUMBER:
+					selectList.append(String.format(", COUNT(%1$s), SUM(%1$s), MIN(%1$s), MAX(%1$s)", name));
+					break;
+				case CHECK_TEXT:
+					selectList.append(String.format(", COUNT(%1$s), SUM(LENGTH(%1$s)), MIN(%1$s), MAX(%1$s)", name));
+					break;
+				case CHECK_TEXT_LENGTH:
+					selectList.append(String.format(", COUNT(%1$s), SUM(LENGTH(%1$s)), NULL, NULL", name));
+					break;
+				case CHECK_TIME:
+					selectList.append(String.format(", COUNT(%1$s), NULL, MIN(%1$s), MAX(%1$s)", name));
+					break;
+				default:
+					selectList.append(String.format(", COUNT(%1$s), NULL, NULL, NULL", name));
+					break;
+			}
+		}
+
+		String sql = String.format("SELECT /*+ PARALLEL */ %s FROM %s.%s", selectList, metadata.getOwner(), metadata.getTableName());
+		LOG.debug("Running: " + sql);
+
+		OracleStatistics result = new OracleStatistics();
+		result.counts = new long[this.columns.length];
+		result.sums = new BigDecimal[this.columns.length];
+		result.minimums = new Object[this.columns.length];
+		result.maximums = new Object[this.columns.length];
+
+		Statement statement = connection.createStatement();
+		try {
+			ResultSet resultSet = statement.executeQuery(sql);
+			resultSet.next();
+			result.rowCount = resultSet.getLong(1);
+			for(int idx = 0; idx < this.columns.length; idx++) {
+				int column = 2 + idx * 4;
+				result.counts[idx] = resultSet.getLong(column);
+				result.sums[idx] = resultSet.getBigDecimal(column + 1);
+				if(checks[idx] == CHECK_TIME) {
+					result.minimums[idx] = resultSet.getTimestamp(column + 2);
+					result.maximums[idx] = resultSet.getTimestamp(column + 3);
+				}
+				else if(checks[idx] == CHECK_NUMBER) {
+					result.minimums[idx] = resultSet.getBigDecimal(column + 2);
+					result.maximums[idx] = resultSet.getBigDecimal(column + 3);
+				}
+				else {
+					result.minimums[idx] = resultSet.getString(column + 2);
+					result.maximums[idx] = resultSet.getString(column + 3);
+				}
+			}
+			resultSet.close();
+		}
+		finally {
+			statement.close();
+		}
+		return result;
+	}
+
+	private static Timestamp getHiveTime(ColumnStatistics hive, boolean minimum) {
+
+		// Hive's date/time strings sort in time order, so the smallest string is the earliest time...
+		Timestamp result = null;
+		try {
+			if(hive.textMin != null)
+				result = OracleColumnConverter.toTimestamp(minimum ? hive.textMin : hive.textMax);
+		}
+		catch(IllegalArgumentException ex) {
+			return null;
+		}
+
+		java.util.Date time = minimum ? hive.timeMin : hive.timeMax;
+		if(time != null && (result == null || (minimum ? time.before(result) : time.after(result))))
+			result = OracleColumnConverter.toTimestamp(time);
+		return result;
+	}
+
+	private static BigDecimal subtract(BigDecimal value, BigDecimal baseline) {
+
+		if(value == null)
+			value = BigDecimal.ZERO;
+		return baseline == null ? value : value.subtract(baseline);
+	}
+
+	private static void compare(List<String> mismatches, String columnName, String aggregate, Object oracleValue, Object hiveValue) {
+
+		if(oracleValue == null ? hiveValue != null : !oracleValue.equals(hiveValue))
+			mismatches.add(describeMismatch(columnName, aggregate, oracleValue, hiveValue));
+	}
+
+	private static void compare(List<String> mismatches
+								, String columnName
+								, String aggregate
+								, BigDecimal oracleValue
+								, BigDecimal hiveValue
+								, BigDecimal tolerance
+								, boolean relative) {
+
+		if(oracleValue == null || hiveValue == null) {
+			compare(mismatches, columnName, aggregate, oracleValue, hiveValue);
+			return;
+		}
+
+		if(relative)
+			tolerance = tolerance.add(oracleValue.abs().max(hiveValue.abs()).multiply(BigDecimal.valueOf(RELATIVE_TOLERANCE)));
+		if(oracleValue.subtract(hiveValue).abs().compareTo(tolerance) > 0)
+			mismatches.add(describeMismatch(columnName, aggregate, oracleValue.toPlainString(), hiveValue.stripTrailingZeros().toPlainString()));
+	}
+
+	private static void compareTimes(List<String> mismatches
+									, String columnName
+									, String aggregate
+									, Timestamp oracleValue
+									, Timestamp hiveValue
+									, long toleranceMillis) {
+
+		if(hiveValue == null)
+			return;	//<- The Hive values could not all be read as times
+		if(oracleValue == null || Math.abs(oracleValue.getTime() - hiveValue.getTime()) > toleranceMillis)
+			mismatches.add(describeMismatch(columnName, aggregate, oracleValue, hiveValue));
+	}
+
+	private static String describeMismatch(String columnName, String aggregate, Object oracleValue, Object hiveValue) {
+
+		return String.format("Verification failed for %s: %s is %s in Oracle, but %s in the rows loaded from Hive."
+							,columnName
+							,aggregate
+							,oracleValue
+							,hiveValue);
+	}
+
+	private static int compareCodePoints(String text1, String text2) {
+
+		// String.compareTo() compares UTF-16 chars, which order characters above U+FFFF differently to Oracle...
+		int idx1 = 0;
+		int idx2 = 0;
+		while(idx1 < text1.length() && idx2 < text2.length()) {
+			int codePoint1 = text1.codePointAt(idx1);
+			int codePoint2 = text2.codePointAt(idx2);
+			if(codePoint1 != codePoint2)
+				return codePoint1 < codePoint2 ? -1 : 1;
+			idx1 += Character.charCount(codePoint1);
+			idx2 += Character.charCount(codePoint2);
+		}
+		return (text1.length() - idx1) - (text2.length() - idx2);
+	}
+
+	private static boolean isLongText(String text) {
+
+		int start = (text.startsWith("-") || text.startsWith("+")) ? 1 : 0;
+		if(text.length() == start || text.length() - start > MAX_LONG_DIGITS)
+			return false;
+		for(int idx = start; idx < text.length(); idx++)
+			if(text.charAt(idx) < '0' || text.charAt(idx) > '9')
+				return false;
+		return true;
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+/**
+ * A set of 64-bit key hashes held off-heap in an open-addressing table with linear probing, at
+ * 8 bytes a slot rather than the 50 or so bytes of a boxed Long in a HashSet.
+ *
+ * The table doubles in size when it is three-quarters full, until doing so would take it over
+ * its memory limit, at which point the set is full and no more keys can be added.
+ *
+ * The keys are expected to be well-mixed hashes already, so their low bits are used as they are.
+ */
+public class LongHashSet {
+
+	private static final long INITIAL_CAPACITY = 1L << 16;
+	private static final int LOAD_FACTOR_PERCENT = 75;
+
+	private static final long EMPTY = 0;	//<- A key of 0 is held in containsZero instead
+
+	private final long maxBytes;
+
+	private OffHeapLongArray slots;
+	private long mask;
+	private long growAt;
+	private long size;
+	private boolean containsZero;
+
+	public LongHashSet(long maxBytes) {
+
+		this.maxBytes = maxBytes;
+		allocate(Math.max(1, Math.min(INITIAL_CAPACITY, Long.highestOneBit(Math.max(1, maxBytes / 8)))));
+	}
+
+	private void allocate(long capacity) {
+
+		this.slots = new OffHeapLongArray(capacity);
+		this.mask = capacity - 1;
+		this.growAt = (capacity * LOAD_FACTOR_PERCENT) / 100;
+	}
+
+	public long size() {
+		return this.size;
+	}
+
+	public long getBytes() {
+		return this.slots.getBytes();
+	}
+
+	/**
+	 * True if another key cannot be added without going over the memory limit.
+	 */
+	public boolean isFull() {
+
+		return this.size >= this.growAt && this.slots.getBytes() * 2 > this.maxBytes;
+	}
+
+	public boolean contains(long key) {
+
+		if(key == EMPTY)
+			return this.containsZero;
+
+		for(long idx = key & this.mask; ; idx = (idx + 1) & this.mask) {
+			long slot = this.slots.get(idx);
+			if(slot == key)
+				return true;
+			if(slot == EMPTY)
+				return false;
+		}
+	}
+
+	/**
+	 * @return True if the key was added, or false if it was already in the set.
+	 * @throws IllegalStateException If the set is full.
+	 */
+	public boolean add(long key) {
+
+		if(key == EMPTY) {
+			if(this.containsZero)
+				return false;
+			this.containsZero = true;
+			this.size++;
+			return true;
+		}
+
+		for(long idx = key & this.mask; ; idx = (idx + 1) & this.mask) {
+			long slot = this.slots.get(idx);
+			if(slot == key)
+				return false;
+			if(slot == EMPTY) {
+				if(this.size >= this.growAt) {
+					if(isFull())
+						throw new IllegalStateException("The set is full.");
+					grow();
+					return add(key);
+				}
+				this.slots.set(idx, key);
+				this.size++;
+				return true;
+			}
+		}
+	}
+
+	private void grow() {
+
+		OffHeapLongArray oldSlots = this.slots;
+		allocate(oldSlots.length() * 2);
+
+		for(long oldIdx = 0; oldIdx < oldSlots.length(); oldIdx++) {
+			long key = oldSlots.get(oldIdx);
+			if(key == EMPTY)
+				continue;
+			long idx = key & this.mask;
+			while(this.slots.get(idx) != EMPTY)
+				idx = (idx + 1) & this.mask;
+			this.slots.set(idx, key);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+/**
+ * A map from 64-bit key hashes to longs, held off-heap in the same way as LongHashSet, at 16
+ * bytes an entry.
+ *
+ * The keys and values are interleaved so that finding a key also brings its value into the cache.
+ */
+public class LongLongHashMap {
+
+	private static final long INITIAL_CAPACITY = 1L << 16;
+	private static final int LOAD_FACTOR_PERCENT = 75;
+
+	private static final long EMPTY = 0;	//<- A key of 0 is held in containsZero/zeroValue instead
+
+	private final long maxBytes;
+
+	private OffHeapLongArray slots;	//<- key, value, key, value...
+	private long mask;
+	private long growAt;
+	private long size;
+	private boolean containsZero;
+	private long zeroValue;
+
+	public LongLongHashMap(long maxBytes) {
+
+		this.maxBytes = maxBytes;
+		allocate(Math.max(1, Math.min(INITIAL_CAPACITY, Long.highestOneBit(Math.max(1, maxBytes / 16)))));
+	}
+
+	private void allocate(long capacity) {
+
+		this.slots = new OffHeapLongArray(capacity * 2);
+		this.mask = capacity - 1;
+		this.growAt = (capacity * LOAD_FACTOR_PERCENT) / 100;
+	}
+
+	public long size() {
+		return this.size;
+	}
+
+	public long getBytes() {
+		return this.slots.getBytes();
+	}
+
+	/**
+	 * True if another key cannot be added without going over the memory limit.
+	 */
+	public boolean isFull() {
+
+		return this.size >= this.growAt && this.slots.getBytes() * 2 > this.maxBytes;
+	}
+
+	/**
+	 * @return The key's value, or defaultValue if the key is not in the map.
+	 */
+	public long get(long key, long defaultValue) {
+
+		if(key == EMPTY)
+			return this.containsZero ? this.zeroValue : defaultValue;
+
+		for(long idx = key & this.mask; ; idx = (idx + 1) & this.mask) {
+			long slot = this.slots.get(idx * 2);
+			if(slot == key)
+				return this.slots.get(idx * 2 + 1);
+			if(slot == EMPTY)
+				return defaultValue;
+		}
+	}
+
+	/**
+	 * Adds the key, or replaces its value if it is already in the map.
+	 *
+	 * @throws IllegalStateException If the key is new and the map is full.
+	 */
+	public void put(long key, long value) {
+
+		if(key == EMPTY) {
+			if(!this.containsZero)
+				this.size++;
+			this.containsZero = true;
+			this.zeroValue = value;
+			return;
+		}
+
+		for(long idx = key & this.mask; ; idx = (idx + 1) & this.mask) {
+			long slot = this.slots.get(idx * 2);
+			if(slot == key) {
+				this.slots.set(idx * 2 + 1, value);
+				return;
+			}
+			if(slot == EMPTY) {
+				if(this.size >= this.growAt) {
+					if(isFull())
+						throw new IllegalStateException("The map is full.");
+					grow();
+					put(key, value);
+					return;
+				}
+				this.slots.set(idx * 2, key);
+				this.slots.set(idx * 2 + 1, value);
+				this.size++;
+				return;
+			}
+		}
+	}
+
+	private void grow() {
+
+		OffHeapLongArray oldSlots = this.slots;
+		allocate(oldSlots.length());	//<- Twice as many entries
+
+		for(long oldIdx = 0; oldIdx < oldSlots.length(); oldIdx += 2) {
+			long key = oldSlots.get(oldIdx);
+			if(key == EMPTY)
+				continue;
+			long idx = key & this.mask;
+			while(this.slots.get(idx * 2) != EMPTY)
+				idx = (idx + 1) & this.mask;
+			this.slots.set(idx * 2, key);
+			this.slots.set(idx * 2 + 1, oldSlots.get(oldIdx + 1));
+		}
+	}
+}
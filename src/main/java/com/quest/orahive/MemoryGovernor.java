@@ -0,0 +1,177 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.quest.orahive;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Keeps the memory held by batches of rows within a single budget for the whole run.
+ *
+ * Batches handed from one thread to another (see QueuedResultSet) are acquired before they are
+ * handed over, and the thread handing them over waits while the budget is used up. Batches that a
+ * thread builds and uses itself (a fetch from Hive, an Oracle insert batch) are only reserved,
+ * as waiting for them could never end; instead they are cut short once they reach getMaxBatchBytes().
+ *
+ * The sizes of rows are estimates of the heap they occupy, not exact figures.
+ */
+public class MemoryGovernor {
+
+	// The largest batch is this fraction of the budget, so that several batches can be held at once...
+	private static final int BATCHES_PER_BUDGET = 8;
+
+	private static final int OBJECT_HEADER_BYTES = 16;
+	private static final int REFERENCE_BYTES = 8;
+	private static final int STRING_BYTES = 40;
+	private static final int BIG_NUMBER_BYTES = 64;
+	private static final int DATE_BYTES = 32;
+	private static final int BOXED_VALUE_BYTES = 16;
+
+	private final long budgetBytes;
+	private final long maxBatchBytes;
+
+	private long inFlightBytes;
+	private long queuedBytes;
+	private long peakInFlightBytes;
+	private long waitTimeNanoSec;
+	private long batchesCutShort;
+
+	public MemoryGovernor(long budgetBytes) {
+
+		this.budgetBytes = Math.max(1, budgetBytes);
+		this.maxBatchBytes = Math.max(1, this.budgetBytes / BATCHES_PER_BUDGET);
+	}
+
+	public long getBudgetBytes() {
+		return this.budgetBytes;
+	}
+
+	/**
+	 * The size at which a batch of rows should be cut short, however many rows it was meant to hold.
+	 */
+	public long getMaxBatchBytes() {
+		return this.maxBatchBytes;
+	}
+
+	/**
+	 * Waits until the batch fits within the budget and then counts it against the budget until
+	 * releaseQueued() is called for it (usually by another thread).
+	 *
+	 * A batch is never kept waiting when no other queued batches are held, as nothing would release them.
+	 */
+	public synchronized void acquireQueued(long bytes) throws InterruptedException {
+
+		if(this.queuedBytes > 0 && this.inFlightBytes + bytes > this.budgetBytes) {
+			long start = System.nanoTime();
+			try {
+				while(this.queuedBytes > 0 && this.inFlightBytes + bytes > this.budgetBytes)
+					wait();
+			}
+			finally {
+				this.waitTimeNanoSec += System.nanoTime() - start;
+			}
+		}
+		this.queuedBytes += bytes;
+		add(bytes);
+	}
+
+	public synchronized void releaseQueued(long bytes) {
+
+		this.queuedBytes -= bytes;
+		add(-bytes);
+		notifyAll();
+	}
+
+	/**
+	 * Counts a batch that the calling thread holds itself against the budget until release() is called.
+	 */
+	public synchronized void reserve(long bytes) {
+
+		add(bytes);
+	}
+
+	public synchronized void release(long bytes) {
+
+		add(-bytes);
+		notifyAll();
+	}
+
+	private void add(long bytes) {
+
+		this.inFlightBytes += bytes;
+		this.peakInFlightBytes = Math.max(this.peakInFlightBytes, this.inFlightBytes);
+	}
+
+	public synchronized void batchCutShort() {
+
+		this.batchesCutShort++;
+	}
+
+	public synchronized long getPeakInFlightBytes() {
+		return this.peakInFlightBytes;
+	}
+
+	/**
+	 * The time spent waiting for the budget by threads handing batches over.
+	 */
+	public synchronized long getWaitTimeNanoSec() {
+		return this.waitTimeNanoSec;
+	}
+
+	public synchronized long getBatchesCutShort() {
+		return this.batchesCutShort;
+	}
+
+	public static long estimateRowBytes(Object[] row) {
+
+		long result = getRowOverheadBytes(row.length);
+		for(Object value : row)
+			result += estimateValueBytes(value);
+		return result;
+	}
+
+	/**
+	 * The size of a row before its values are counted.
+	 */
+	public static long getRowOverheadBytes(int columnCount) {
+
+		return OBJECT_HEADER_BYTES + (REFERENCE_BYTES * columnCount);
+	}
+
+	public static long estimateValueBytes(Object value) {
+
+		if(value == null)
+			return 0;
+		if(value instanceof String)
+			return estimateStringBytes(((String)value).length());
+		if(value instanceof BigDecimal || value instanceof BigInteger)
+			return BIG_NUMBER_BYTES;
+		if(value instanceof Number || value instanceof Boolean)
+			return BOXED_VALUE_BYTES;
+		if(value instanceof java.util.Date)
+			return DATE_BYTES;
+		if(value instanceof byte[])
+			return OBJECT_HEADER_BYTES + ((byte[])value).length;
+		return estimateStringBytes(value.toString().length());
+	}
+
+	public static long estimateStringBytes(int length) {
+
+		return STRING_BYTES + (2L * length);
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Reads every value of every row and then discards it, so that the load runs as fast as the
+ * Hive results can be fetched (and transformed, deduplicated, etc.).
+ */
+public class NullSink implements OraHiveSink {
+
+	private int columnCount;
+
+	@Override
+	public String getName() {
+		return "null";
+	}
+
+	@Override
+	public void open(List<OracleTableColumn> columns) throws SQLException {
+		this.columnCount = columns.size();
+	}
+
+	@Override
+	public long addRow(ResultSet resultSet) throws SQLException {
+
+		// The values are still read, as the Hive driver may not convert them until they are...
+		long result = MemoryGovernor.getRowOverheadBytes(this.columnCount);
+		for(int idx = 1; idx <= this.columnCount; idx++)	//<- JDBC is 1-based
+			result += MemoryGovernor.estimateValueBytes(resultSet.getObject(idx));
+		return result;
+	}
+
+	@Override
+	public void writeBatch() throws SQLException {
+	}
+
+	@Override
+	public void commit(boolean durable) throws SQLException {
+	}
+
+	@Override
+	public void rollback() {
+	}
+
+	@Override
+	public void close() throws SQLException {
+	}
+}
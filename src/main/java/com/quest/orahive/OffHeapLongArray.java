@@ -0,0 +1,63 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * A fixed-length array of longs, initially all 0, held in direct (off-heap) buffers so that it
+ * can be larger than a Java array and is never traced or copied by the garbage collector.
+ *
+ * The array is split into segments of up to 2^SEGMENT_BITS longs, as a single buffer cannot
+ * hold more than 2GB.
+ */
+public class OffHeapLongArray {
+
+	private static final int SEGMENT_BITS = 27;	//<- 1GB segments
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+	private final long length;
+	private final LongBuffer[] segments;
+
+	public OffHeapLongArray(long length) {
+
+		this.length = length;
+		this.segments = new LongBuffer[(int)((length + SEGMENT_MASK) >>> SEGMENT_BITS)];
+		for(int idx = 0; idx < this.segments.length; idx++) {
+			long segmentLength = Math.min(SEGMENT_MASK + 1, length - ((long)idx << SEGMENT_BITS));
+			this.segments[idx] = ByteBuffer.allocateDirect((int)(segmentLength * 8)).order(ByteOrder.nativeOrder()).asLongBuffer();
+		}
+	}
+
+	public long length() {
+		return this.length;
+	}
+
+	public long getBytes() {
+		return this.length * 8;
+	}
+
+	public long get(long idx) {
+		return this.segments[(int)(idx >>> SEGMENT_BITS)].get((int)(idx & SEGMENT_MASK));
+	}
+
+	public void set(long idx, long value) {
+		this.segments[(int)(idx >>> SEGMENT_BITS)].put((int)(idx & SEGMENT_MASK), value);
+	}
+}
@@ -19,8 +19,29 @@ package com.quest.orahive;
 public class OraHiveCounters {
 
 	public long oracleInsertTimeNanoSec;
+	public long oracleCommitTimeNanoSec;
+	public long oracleCommits;
+	public long oracleFinalCommitTimeNanoSec;
 	public long hiveQueryTimeNanoSec;
 	public long hiveFetchTimeNanoSec;
 	public long rowsProcessed;
+	public boolean hiveResultCacheHit;
+	public long rowsRejected;
+	public long oracleMergeTimeNanoSec;
+	public long rowsMerged;
+	public long oracleSwapTimeNanoSec;
+	public long oracleIndexRebuildTimeNanoSec;
+	public long oracleConstraintEnableTimeNanoSec;
+	public long duplicateKeys;
+	public long probableDuplicateKeys;
+	public long existingKeys;
+	public long oracleKeyReadTimeNanoSec;
+	public long rowsInserted;
+	public long rowsUpdated;
+	public long rowsUnchanged;
+	public long rowsDeleted;
+	public long oracleDeleteTimeNanoSec;
+	public ProgressReporter progress;
+	public PhaseAccounting phases = new PhaseAccounting();
 	
 }
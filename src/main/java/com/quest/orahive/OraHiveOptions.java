@@ -16,6 +16,7 @@
 
 package com.quest.orahive;
 
+import com.quest.orahive.Constants.DuplicateKeyAction;
 import com.quest.orahive.Constants.ExportMode;
 
 public class OraHiveOptions {
@@ -33,15 +34,69 @@ public class OraHiveOptions {
 	public String oracleTablespace;
 
 	public ExportMode exportMode;
+	public String[] keyColumns;
+	public boolean skipExistingKeys;
+	public String rowHashColumn;		//<- Empty unless only changed rows are to be merged
+	public boolean cdcDeletes;
+	public String oracleMetadataCacheDir;
+	
+	public boolean suspendIndexes;
+	public String[] disableConstraints;
+	public int indexRebuildParallelism;
+	public HiveResultRouter router;
+	public HiveResultTransformer transformer;
+	public SyntheticResultSet syntheticSource;	//<- Generates the rows instead of Hive
+	public String sink;		//<- Empty for the Oracle table, otherwise null, file:<path> or jdbc:<url>
+	public DuplicateKeyAction duplicateKeyAction;	//<- null unless duplicate keys are to be found
+	public long dedupMemoryMB;
 	public String hql;
 	
+	public int fetchSize;
+	public boolean planLoad;
+	public boolean planOnly;
+	public boolean planInsertBatchSize;
+	public boolean planCommitBatchCount;
+	public boolean planFetchSize;
+	
+	public int progressIntervalSec;
+	public long estimatedRows;
+	public String metricsFile;
+	public String flightRecordingFile;
+	public boolean verifyLoad;
+	
+	public String targetsFile;
+	public int targetBufferBatches;
+	public boolean virtualThreads;
+	
+	public long memoryBudgetMB;				//<- 0 for a share of the maximum heap size
+	public MemoryGovernor memoryGovernor;
+	public boolean offHeapBatches;
+	
+	public String hiveMetastoreUri;
+	public String[] hiveInputTables;
+	public String incrementalWatermarkFile;
+	
+	public String resultCacheDir;
+	public long resultCacheMaxMB;
+	public int resultCacheTtlHours;
+	
 	public int insertBatchSize;
 	public int commitBatchCount;
+	public boolean asyncCommit;
+	
+	public String rejectLimit;		//<- null unless DML error logging has been requested
+	public String errorLogTable;
+	public String errorLogTag;
 	
 	public OraHiveOptions() {
 		
 		this.insertBatchSize = Constants.DEFAULT_ORACLE_INSERT_BATCH_SIZE;
 		this.commitBatchCount = Constants.DEFAULT_ORACLE_INSERT_COMMIT_BATCH_COUNT;
 		this.exportMode = Constants.DEFAULT_EXPORT_MODE;
+		this.keyColumns = new String[0];
+		this.hiveInputTables = new String[0];
+		this.disableConstraints = new String[0];
+		this.indexRebuildParallelism = Constants.DEFAULT_ORACLE_INDEX_REBUILD_PARALLELISM;
+		this.dedupMemoryMB = Constants.DEFAULT_DEDUP_MEMORY_MB;
 	}
 }
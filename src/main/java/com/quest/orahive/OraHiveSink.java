@@ -0,0 +1,68 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Somewhere the Hive results are written to: an Oracle table (OracleSink), or, to measure the
+ * rest of the load on its own, nowhere (NullSink), a local file (FileSink) or a table in another
+ * database (JdbcSink).
+ *
+ * HiveJdbcClient reads the rows, decides when each batch is written and committed, and times
+ * every step, so the same metrics are reported whichever sink the rows go to.
+ */
+public interface OraHiveSink {
+
+	/**
+	 * A short name for the destination, for the log and the flight recording.
+	 */
+	String getName();
+
+	/**
+	 * Prepares to receive rows with the given columns.
+	 */
+	void open(List<OracleTableColumn> columns) throws SQLException;
+
+	/**
+	 * Adds the current row of the result-set to the batch being built.
+	 *
+	 * @return An estimate of the memory the row takes up until the batch is written.
+	 */
+	long addRow(ResultSet resultSet) throws SQLException;
+
+	/**
+	 * Writes the rows added since the last batch was written.
+	 */
+	void writeBatch() throws SQLException;
+
+	/**
+	 * Commits the batches written so far.
+	 *
+	 * @param durable False for the intermediate commits, which need not wait for the rows to be safely stored.
+	 */
+	void commit(boolean durable) throws SQLException;
+
+	/**
+	 * Abandons whatever has not been committed, after a failure.
+	 */
+	void rollback();
+
+	void close() throws SQLException;
+}
@@ -0,0 +1,38 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.quest.orahive;
+
+import java.sql.Connection;
+
+public class OraHiveTarget {
+
+	public String name;
+	public OraHiveOptions opts;
+	public OraHiveCounters counters;
+	public Connection oracleConnection;
+	public QueuedResultSet resultSet;
+	public boolean succeeded;
+	
+	public OraHiveTarget(String name, OraHiveOptions opts) {
+		
+		this.name = name;
+		this.opts = opts;
+		this.counters = new OraHiveCounters();
+	}
+	
+}
@@ -0,0 +1,296 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * Binds Hive values to a parameter of an Oracle insert as the type of the column they are
+ * inserted into, so that the driver does not have to convert each value from whatever Java
+ * type Hive returned it as.
+ *
+ * A value that cannot be converted is bound as it is, leaving Oracle to convert it or report
+ * (or log) the error just as it would have done without a converter.
+ */
+public abstract class OracleColumnConverter {
+
+	// NUMBER columns of up to this many digits (with no scale) always fit in a long...
+	private static final int MAX_LONG_PRECISION = 18;
+
+	private final int sqlType;
+
+	protected OracleColumnConverter(int sqlType) {
+		this.sqlType = sqlType;
+	}
+
+	/**
+	 * The java.sql.Types value that the column's values are bound as.
+	 */
+	public int getSqlType() {
+		return this.sqlType;
+	}
+
+	public static OracleColumnConverter create(OracleTableMetadata.Column column) {
+
+		String dataType = column.dataType;
+
+		if(dataType.equals("NUMBER")) {
+			if(column.scale == 0 && column.precision > 0 && column.precision <= MAX_LONG_PRECISION)
+				return new IntegerConverter();
+			return new DecimalConverter(column.precision >= 0 ? column.scale : -1);
+		}
+		if(dataType.equals("FLOAT"))
+			return new DecimalConverter(-1);
+		if(dataType.equals("BINARY_DOUBLE"))
+			return new DoubleConverter();
+		if(dataType.equals("BINARY_FLOAT"))
+			return new FloatConverter();
+		if(dataType.equals("DATE"))
+			return new TimestampConverter(false);
+		if(dataType.startsWith("TIMESTAMP"))
+			return new TimestampConverter(true);
+		if(dataType.equals("VARCHAR2") || dataType.equals("CHAR") || dataType.equals("CLOB") || dataType.equals("LONG"))
+			return new StringConverter(dataType.equals("CLOB") ? Types.CLOB : Types.VARCHAR, false);
+		if(dataType.equals("NVARCHAR2") || dataType.equals("NCHAR") || dataType.equals("NCLOB"))
+			return new StringConverter(dataType.equals("NCLOB") ? Types.NCLOB : Types.NVARCHAR, true);
+
+		// Anything else (RAW, INTERVAL, XMLTYPE...) is left to the driver...
+		return new ObjectConverter();
+	}
+
+	public void bind(PreparedStatement statement, int parameterIndex, Object value) throws SQLException {
+
+		if(value == null) {
+			statement.setNull(parameterIndex, this.sqlType);
+			return;
+		}
+
+		try {
+			bindValue(statement, parameterIndex, value);
+		}
+		catch(IllegalArgumentException ex) {	//<- Includes NumberFormatException
+			statement.setObject(parameterIndex, value);
+		}
+		catch(ArithmeticException ex) {
+			statement.setObject(parameterIndex, value);
+		}
+	}
+
+	protected abstract void bindValue(PreparedStatement statement, int parameterIndex, Object value) throws SQLException;
+
+	private static boolean isIntegral(Object value) {
+
+		return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+	}
+
+	/**
+	 * Hive has no decimal type, so a number arrives as a long, a double or a string, or as a BigDecimal
+	 * when a transform rule's product does not fit in a long.
+	 */
+	static BigDecimal toBigDecimal(Object value) {
+
+		if(value instanceof BigDecimal)
+			return (BigDecimal)value;
+		if(isIntegral(value))
+			return BigDecimal.valueOf(((Number)value).longValue());
+		if(value instanceof Number)
+			return BigDecimal.valueOf(((Number)value).doubleValue());
+		if(value instanceof Boolean)
+			return ((Boolean)value).booleanValue() ? BigDecimal.ONE : BigDecimal.ZERO;
+		return new BigDecimal(value.toString().trim());
+	}
+
+	private static class IntegerConverter extends OracleColumnConverter {
+
+		public IntegerConverter() {
+			super(Types.NUMERIC);
+		}
+
+		@Override
+		protected void bindValue(PreparedStatement statement, int parameterIndex, Object value) throws SQLException {
+
+			if(isIntegral(value))
+				statement.setLong(parameterIndex, ((Number)value).longValue());
+			else
+				// Oracle rounds half away from zero when a fraction is stored in an integer column...
+				statement.setLong(parameterIndex, toBigDecimal(value).setScale(0, RoundingMode.HALF_UP).longValueExact());
+		}
+	}
+
+	private static class DecimalConverter extends OracleColumnConverter {
+
+		private final int scale;
+
+		/**
+		 * @param scale The number of decimal places the column keeps, or -1 if it is not fixed.
+		 */
+		public DecimalConverter(int scale) {
+			super(Types.NUMERIC);
+			this.scale = scale;
+		}
+
+		@Override
+		protected void bindValue(PreparedStatement statement, int parameterIndex, Object value) throws SQLException {
+
+			if(isIntegral(value) && this.scale >= 0) {
+				statement.setLong(parameterIndex, ((Number)value).longValue());
+				return;
+			}
+
+			BigDecimal decimal = toBigDecimal(value);
+			if(this.scale >= 0 && decimal.scale() > this.scale)
+				decimal = decimal.setScale(this.scale, RoundingMode.HALF_UP);
+			statement.setBigDecimal(parameterIndex, decimal);
+		}
+	}
+
+	private static class DoubleConverter extends OracleColumnConverter {
+
+		public DoubleConverter() {
+			super(Types.DOUBLE);
+		}
+
+		@Override
+		protected void bindValue(PreparedStatement statement, int parameterIndex, Object value) throws SQLException {
+
+			if(value instanceof Number)
+				statement.setDouble(parameterIndex, ((Number)value).doubleValue());
+			else
+				statement.setDouble(parameterIndex, Double.parseDouble(value.toString().trim()));
+		}
+	}
+
+	private static class FloatConverter extends OracleColumnConverter {
+
+		public FloatConverter() {
+			super(Types.REAL);
+		}
+
+		@Override
+		protected void bindValue(PreparedStatement statement, int parameterIndex, Object value) throws SQLException {
+
+			if(value instanceof Number)
+				statement.setFloat(parameterIndex, ((Number)value).floatValue());
+			else
+				statement.setFloat(parameterIndex, Float.parseFloat(value.toString().trim()));
+		}
+	}
+
+	/**
+	 * Hive returns dates and times as strings ("yyyy-mm-dd" or "yyyy-mm-dd hh:mm:ss[.fffffffff]"),
+	 * or as a number of seconds since 1970 (from unix_timestamp()).
+	 */
+	static Timestamp toTimestamp(Object value) {
+
+		if(value instanceof Timestamp)
+			return (Timestamp)value;
+		if(value instanceof java.util.Date)
+			return new Timestamp(((java.util.Date)value).getTime());
+		if(isIntegral(value))
+			return new Timestamp(((Number)value).longValue() * 1000);
+
+		String text = value.toString().trim();
+		if(text.length() == 10)
+			text += " 00:00:00";
+		else if(text.length() > 10 && text.charAt(10) == 'T')
+			text = text.substring(0, 10) + " " + text.substring(11);
+		return Timestamp.valueOf(text);
+	}
+
+	private static class TimestampConverter extends OracleColumnConverter {
+
+		private final boolean fractionalSeconds;
+
+		public TimestampConverter(boolean fractionalSeconds) {
+			super(Types.TIMESTAMP);
+			this.fractionalSeconds = fractionalSeconds;
+		}
+
+		@Override
+		protected void bindValue(PreparedStatement statement, int parameterIndex, Object value) throws SQLException {
+
+			Timestamp timestamp = toTimestamp(value);
+
+			// An Oracle DATE has no fractional seconds...
+			if(!this.fractionalSeconds && timestamp.getNanos() != 0) {
+				timestamp = new Timestamp(timestamp.getTime());
+				timestamp.setNanos(0);
+			}
+			statement.setTimestamp(parameterIndex, timestamp);
+		}
+	}
+
+	/**
+	 * The text a value is stored as in a character column.
+	 */
+	static String toText(Object value) {
+
+		if(value instanceof String)
+			return (String)value;
+		if(value instanceof Double || value instanceof Float)
+			// Written the way Oracle writes a number as text, e.g. 1 rather than 1.0...
+			return BigDecimal.valueOf(((Number)value).doubleValue()).stripTrailingZeros().toPlainString();
+		if(value instanceof Boolean)
+			// As the driver binds a boolean, which is also how OraHive creates a table's boolean columns...
+			return ((Boolean)value).booleanValue() ? "1" : "0";
+		return value.toString();
+	}
+
+	private static class StringConverter extends OracleColumnConverter {
+
+		private final boolean national;
+
+		public StringConverter(int sqlType, boolean national) {
+			super(sqlType);
+			this.national = national;
+		}
+
+		@Override
+		protected void bindValue(PreparedStatement statement, int parameterIndex, Object value) throws SQLException {
+
+			String text = toText(value);
+			if(this.national)
+				statement.setNString(parameterIndex, text);
+			else
+				statement.setString(parameterIndex, text);
+		}
+	}
+
+	private static class ObjectConverter extends OracleColumnConverter {
+
+		public ObjectConverter() {
+			super(Types.VARCHAR);
+		}
+
+		@Override
+		public void bind(PreparedStatement statement, int parameterIndex, Object value) throws SQLException {
+
+			statement.setObject(parameterIndex, value);
+		}
+
+		@Override
+		protected void bindValue(PreparedStatement statement, int parameterIndex, Object value) throws SQLException {
+
+			statement.setObject(parameterIndex, value);
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Inserts the rows into an Oracle table or partition with a batched INSERT statement.
+ *
+ * Sinks that share a connection share its transaction, so committing one commits them all.
+ */
+public class OracleSink implements OraHiveSink {
+
+	private final Connection connection;
+	private final String insertSql;
+	private final String name;
+	private final boolean asyncCommit;
+
+	private List<OracleTableColumn> columns;
+	private PreparedStatement statement;
+
+	/**
+	 * @param name The table (or partition) the statement inserts into.
+	 * @param asyncCommit True if the intermediate commits need not wait for the redo to be written.
+	 */
+	public OracleSink(Connection connection, String insertSql, String name, boolean asyncCommit) {
+
+		this.connection = connection;
+		this.insertSql = insertSql;
+		this.name = name;
+		this.asyncCommit = asyncCommit;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public void open(List<OracleTableColumn> columns) throws SQLException {
+
+		this.columns = columns;
+		this.statement = this.connection.prepareStatement(this.insertSql);
+	}
+
+	@Override
+	public long addRow(ResultSet resultSet) throws SQLException {
+
+		long result = bindRow(this.statement, this.columns, resultSet);
+		this.statement.addBatch();
+		return result;
+	}
+
+	/**
+	 * Binds the current row of the Hive results to the parameters of the insert statement,
+	 * and returns an estimate of the memory it takes up.
+	 */
+	private static long bindRow(PreparedStatement statement
+								, List<OracleTableColumn> columns
+								, ResultSet resultSet) throws SQLException {
+
+		// Rows held off-heap are bound without being turned back into objects, unless the values are
+		// to be converted (the columns either all have converters or none of them do)...
+		if(resultSet instanceof QueuedResultSet && columns.get(0).converter == null) {
+			long result = ((QueuedResultSet)resultSet).bindCurrentRow(statement);
+			if(result >= 0)
+				return result;
+		}
+
+		long result = MemoryGovernor.getRowOverheadBytes(columns.size());
+		for(int idx = 0; idx < columns.size(); idx++) {
+			OracleColumnConverter converter = columns.get(idx).converter;
+			Object value = resultSet.getObject(idx + 1);	//<- JDBC is 1-based
+			if(converter != null)
+				converter.bind(statement, idx + 1, value);
+			else
+				statement.setObject(idx + 1, value);
+			result += MemoryGovernor.estimateValueBytes(value);
+		}
+		return result;
+	}
+
+	@Override
+	public void writeBatch() throws SQLException {
+
+		this.statement.executeBatch();
+		this.statement.clearBatch();
+	}
+
+	@Override
+	public void commit(boolean durable) throws SQLException {
+
+		if(!durable && this.asyncCommit) {
+			// Don't wait for the redo to be written; the final commit is made durably...
+			Statement commitStatement = this.connection.createStatement();
+			try {
+				commitStatement.execute("COMMIT WRITE BATCH NOWAIT");
+			}
+			finally {
+				commitStatement.close();
+			}
+		}
+		else
+			this.connection.commit();
+	}
+
+	@Override
+	public void rollback() {
+
+		try {
+			this.connection.rollback();
+		}
+		catch(SQLException e) {}
+	}
+
+	@Override
+	public void close() throws SQLException {
+
+		if(this.statement != null)
+			this.statement.close();
+	}
+}
@@ -21,6 +21,7 @@ public class OracleTableColumn {
 	private String name;
 	public int sqlType;
 	public String oracleDataType;
+	public OracleColumnConverter converter;	//<- null to let the driver convert the Hive values
 	
 	public void setName(String name) {
 		this.name = fixUpOracleColumnName(name);
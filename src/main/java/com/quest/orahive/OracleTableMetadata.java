@@ -0,0 +1,391 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The columns of an existing Oracle table, as described by ALL_TAB_COLUMNS.
+ *
+ * The metadata is kept for the rest of the run and, if a cache directory is given, for later
+ * runs too. A cached copy is used for as long as the table's LAST_DDL_TIME in ALL_OBJECTS is
+ * unchanged, so reusing it costs one small dictionary query rather than reading every column.
+ */
+public class OracleTableMetadata {
+
+	private static final Log LOG = LogFactory.getLog(OracleTableMetadata.class);
+
+	private static final String FILE_EXTENSION = ".columns";
+	private static final String TEMP_FILE_EXTENSION = ".tmp";
+	private static final String FILE_ENCODING = "UTF-8";
+	private static final int MAX_SYNONYM_LINKS = 8;
+
+	// Names that can be used in SQL without being quoted...
+	private static final Pattern SIMPLE_NAME_PATTERN = Pattern.compile("[A-Z][A-Z0-9_$#]*");
+
+	private static final Map<String, OracleTableMetadata> LOADED = new HashMap<String, OracleTableMetadata>();
+
+	public static class Column {
+
+		public String name;
+		public String dataType;
+		public int dataLength;
+		public int charLength;
+		public int precision = -1;	//<- -1 when ALL_TAB_COLUMNS has NULL
+		public int scale = -1;
+		public boolean nullable;
+
+		/**
+		 * The column's name as it must be written in SQL.
+		 */
+		public String getSqlName() {
+
+			if(SIMPLE_NAME_PATTERN.matcher(this.name).matches())
+				return this.name;
+			return "\"" + this.name + "\"";
+		}
+
+		/**
+		 * The column's type as it would be written in a CREATE TABLE statement.
+		 */
+		public String describe() {
+
+			if(this.dataType.equals("NUMBER") && this.precision >= 0)
+				return this.scale > 0 ? String.format("NUMBER(%d,%d)", this.precision, this.scale)
+									  : String.format("NUMBER(%d)", this.precision);
+			if(this.dataType.endsWith("CHAR") || this.dataType.endsWith("CHAR2"))
+				return String.format("%s(%d)", this.dataType, this.charLength);
+			if(this.dataType.equals("RAW"))
+				return String.format("RAW(%d)", this.dataLength);
+			return this.dataType;
+		}
+	}
+
+	private final String owner;
+	private final String tableName;
+	private final String lastDdlTime;
+	private final List<Column> columns;
+
+	private OracleTableMetadata(String owner, String tableName, String lastDdlTime, List<Column> columns) {
+
+		this.owner = owner;
+		this.tableName = tableName;
+		this.lastDdlTime = lastDdlTime;
+		this.columns = Collections.unmodifiableList(columns);
+	}
+
+	public String getOwner() {
+		return this.owner;
+	}
+
+	public String getTableName() {
+		return this.tableName;
+	}
+
+	public List<Column> getColumns() {
+		return this.columns;
+	}
+
+	/**
+	 * The column with this name (ignoring case), or null if there is no such column.
+	 */
+	public Column getColumn(String name) {
+
+		for(Column column : this.columns)
+			if(column.name.equalsIgnoreCase(name))
+				return column;
+
+		// A quoted name matches exactly...
+		if(name.length() > 2 && name.startsWith("\"") && name.endsWith("\""))
+			for(Column column : this.columns)
+				if(column.name.equals(name.substring(1, name.length() - 1)))
+					return column;
+		return null;
+	}
+
+	/**
+	 * @param tableName The table name, optionally qualified by its owner; an unqualified name is looked up in the current schema.
+	 * 					A synonym is followed to the table it stands for.
+	 * @param cacheDirectory Where the metadata is kept between runs, or null if it is not.
+	 * @return The table's metadata, or null if there is no such table (or the name is of a view).
+	 */
+	public static OracleTableMetadata get(Connection connection, String tableName, File cacheDirectory) throws SQLException {
+
+		String owner = null;
+		int idx = tableName.indexOf('.');
+		if(idx >= 0) {
+			owner = tableName.substring(0, idx).toUpperCase();
+			tableName = tableName.substring(idx + 1);
+		}
+		tableName = tableName.toUpperCase();
+
+		String[] ddlState = getLastDdlTime(connection, owner, tableName);
+		if(ddlState == null)
+			return null;
+		owner = ddlState[0];
+		tableName = ddlState[1];
+		String lastDdlTime = ddlState[2];
+
+		String key = owner + "." + tableName;
+		synchronized(LOADED) {
+			OracleTableMetadata result = LOADED.get(key);
+			if(result == null || !result.lastDdlTime.equals(lastDdlTime)) {
+				result = readCacheFile(cacheDirectory, key);
+				if(result != null && !result.lastDdlTime.equals(lastDdlTime)) {
+					LOG.debug(String.format("The Oracle table %s has changed since its metadata was cached.", key));
+					result = null;
+				}
+
+				if(result == null) {
+					result = new OracleTableMetadata(owner, tableName, lastDdlTime, readColumns(connection, owner, tableName));
+					writeCacheFile(cacheDirectory, key, result);
+				}
+				LOADED.put(key, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Returns {owner, table name, last DDL time} for the table the name refers to, or null if it
+	 * does not refer to a table.
+	 */
+	private static String[] getLastDdlTime(Connection connection, String owner, String tableName) throws SQLException {
+
+		// A synonym may stand for another synonym; the chain is followed a few links at most...
+		for(int link = 0; link < MAX_SYNONYM_LINKS; link++) {
+
+			// An unqualified name can also be a public synonym, if the current schema has nothing of that name...
+			String sql = String.format("SELECT owner, object_type, TO_CHAR(last_ddl_time, 'YYYY-MM-DD HH24:MI:SS') \n" +
+										"FROM all_objects \n" +
+										"WHERE object_name = ? AND object_type IN ('TABLE', 'VIEW', 'SYNONYM') \n" +
+										"AND %s \n" +
+										"ORDER BY DECODE(owner, 'PUBLIC', 1, 0)"
+										,owner == null ? "(owner = SYS_CONTEXT('USERENV', 'CURRENT_SCHEMA') OR (owner = 'PUBLIC' AND object_type = 'SYNONYM'))"
+													   : "owner = ?");
+
+			String[] object = null;
+			PreparedStatement statement = connection.prepareStatement(sql);
+			try {
+				statement.setString(1, tableName);
+				if(owner != null)
+					statement.setString(2, owner);
+
+				ResultSet resultSet = statement.executeQuery();
+				if(resultSet.next())
+					object = new String[] {resultSet.getString(1), resultSet.getString(2), resultSet.getString(3)};
+				resultSet.close();
+			}
+			finally {
+				statement.close();
+			}
+
+			if(object == null)
+				return null;
+			if("TABLE".equals(object[1]))
+				return new String[] {object[0], tableName, object[2]};
+			if(!"SYNONYM".equals(object[1])) {
+				LOG.debug(String.format("%s.%s is a %s rather than a table.", object[0], tableName, object[1].toLowerCase()));
+				return null;
+			}
+
+			String[] target = getSynonymTarget(connection, object[0], tableName);
+			if(target == null)
+				return null;
+			owner = target[0];
+			tableName = target[1];
+		}
+		return null;
+	}
+
+	/**
+	 * Returns {owner, name} of the object the synonym stands for, or null if it is in another database.
+	 */
+	private static String[] getSynonymTarget(Connection connection, String owner, String synonymName) throws SQLException {
+
+		PreparedStatement statement = connection.prepareStatement("SELECT table_owner, table_name, db_link FROM all_synonyms \n" +
+																	"WHERE owner = ? AND synonym_name = ?");
+		try {
+			statement.setString(1, owner);
+			statement.setString(2, synonymName);
+
+			ResultSet resultSet = statement.executeQuery();
+			String[] result = null;
+			if(resultSet.next() && resultSet.getString(3) == null)
+				result = new String[] {resultSet.getString(1), resultSet.getString(2)};
+			resultSet.close();
+			return result;
+		}
+		finally {
+			statement.close();
+		}
+	}
+
+	private static List<Column> readColumns(Connection connection, String owner, String tableName) throws SQLException {
+
+		String sql = "SELECT column_name, data_type, data_length, char_length, data_precision, data_scale, nullable \n" +
+					 "FROM all_tab_columns \n" +
+					 "WHERE owner = ? AND table_name = ? \n" +
+					 "ORDER BY column_id";
+
+		List<Column> result = new ArrayList<Column>();
+		PreparedStatement statement = connection.prepareStatement(sql);
+		try {
+			statement.setString(1, owner);
+			statement.setString(2, tableName);
+
+			ResultSet resultSet = statement.executeQuery();
+			while(resultSet.next()) {
+				Column column = new Column();
+				column.name = resultSet.getString(1);
+				column.dataType = resultSet.getString(2);
+				column.dataLength = resultSet.getInt(3);
+				column.charLength = resultSet.getInt(4);
+				column.precision = resultSet.getInt(5);
+				if(resultSet.wasNull())
+					column.precision = -1;
+				column.scale = resultSet.getInt(6);
+				if(resultSet.wasNull())
+					column.scale = -1;
+				column.nullable = "Y".equals(resultSet.getString(7));
+				result.add(column);
+			}
+			resultSet.close();
+		}
+		finally {
+			statement.close();
+		}
+
+		LOG.debug(String.format("Read the definitions of the %d columns of the Oracle table %s.%s."
+								,result.size()
+								,owner
+								,tableName));
+		return result;
+	}
+
+	private static File getCacheFile(File cacheDirectory, String key) {
+
+		return new File(cacheDirectory, key.replaceAll("[^A-Za-z0-9_$#.]", "_") + FILE_EXTENSION);
+	}
+
+	// The cache file has a line with the owner, the table name and its last DDL time, then a line
+	// of tab-separated values for each column...
+
+	private static OracleTableMetadata readCacheFile(File cacheDirectory, String key) {
+
+		if(cacheDirectory == null)
+			return null;
+
+		File file = getCacheFile(cacheDirectory, key);
+		if(!file.isFile())
+			return null;
+
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), FILE_ENCODING));
+			try {
+				String[] header = reader.readLine().split("\t");
+
+				List<Column> columns = new ArrayList<Column>();
+				String line;
+				while((line = reader.readLine()) != null) {
+					String[] values = line.split("\t");
+					Column column = new Column();
+					column.name = values[0];
+					column.dataType = values[1];
+					column.dataLength = Integer.parseInt(values[2]);
+					column.charLength = Integer.parseInt(values[3]);
+					column.precision = Integer.parseInt(values[4]);
+					column.scale = Integer.parseInt(values[5]);
+					column.nullable = Boolean.parseBoolean(values[6]);
+					columns.add(column);
+				}
+				return new OracleTableMetadata(header[0], header[1], header[2], columns);
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch(Exception ex) {
+			LOG.warn(String.format("Unable to read the cached Oracle table metadata in \"%s\"; it will be read again.", file), ex);
+			return null;
+		}
+	}
+
+	private static void writeCacheFile(File cacheDirectory, String key, OracleTableMetadata metadata) {
+
+		if(cacheDirectory == null)
+			return;
+
+		File file = getCacheFile(cacheDirectory, key);
+		File tempFile = new File(file.getPath() + TEMP_FILE_EXTENSION);
+		try {
+			if(!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs())
+				throw new IOException(String.format("Unable to create the directory \"%s\".", cacheDirectory));
+
+			Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), FILE_ENCODING));
+			try {
+				writer.write(String.format("%s\t%s\t%s\n", metadata.owner, metadata.tableName, metadata.lastDdlTime));
+				for(Column column : metadata.columns)
+					writer.write(String.format("%s\t%s\t%d\t%d\t%d\t%d\t%s\n"
+												,column.name
+												,column.dataType
+												,column.dataLength
+												,column.charLength
+												,column.precision
+												,column.scale
+												,column.nullable));
+			}
+			finally {
+				writer.close();
+			}
+
+			// The file is only given its name once it is complete, so that another run never reads half of it.
+			// A rename replaces the old file in one step where it can (POSIX); elsewhere it is deleted first...
+			if(!tempFile.renameTo(file)) {
+				if(file.exists() && !file.delete())
+					throw new IOException(String.format("Unable to replace \"%s\".", file));
+				if(!tempFile.renameTo(file))
+					throw new IOException(String.format("Unable to rename \"%s\" to \"%s\".", tempFile, file));
+			}
+		}
+		catch(IOException ex) {
+			LOG.warn(String.format("Unable to cache the metadata of the Oracle table %s in \"%s\".", key, cacheDirectory), ex);
+			tempFile.delete();
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.quest.orahive;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+/**
+ * The wall-clock time, CPU time and bytes allocated by one thread in each phase of a load,
+ * which shows whether a load is bound by CPU, allocation or waiting on the network.
+ *
+ * The thread calls switchTo() as it moves from one phase to another, which is done per batch
+ * rather than per row. Only the thread being measured may call switchTo(); the figures may be
+ * read once it has finished.
+ */
+public class PhaseAccounting {
+
+	public enum Phase {
+
+		HIVE_FETCH("Waiting for Hive (Thrift fetch)"),
+		HIVE_DESERIALIZE("Deserializing Hive rows"),
+		HAND_OVER("Handing rows to the targets"),
+		QUEUE_WAIT("Waiting for other threads"),
+		ORACLE_BIND("Reading and binding rows"),
+		ORACLE_EXECUTE("Executing Oracle batches"),
+		ORACLE_COMMIT("Committing to Oracle");
+
+		private final String description;
+
+		private Phase(String description) {
+			this.description = description;
+		}
+
+		public String getDescription() {
+			return this.description;
+		}
+	}
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final boolean CPU_TIME_SUPPORTED = enableThreadCpuTime();
+	private static final Method GET_THREAD_ALLOCATED_BYTES = getThreadAllocatedBytesMethod();
+
+	private final long[] wallNanoSec = new long[Phase.values().length];
+	private final long[] cpuNanoSec = new long[Phase.values().length];
+	private final long[] allocatedBytes = new long[Phase.values().length];
+
+	private Phase current;
+	private long lastWallNanoSec;
+	private long lastCpuNanoSec;
+	private long lastAllocatedBytes;
+
+	private static boolean enableThreadCpuTime() {
+
+		try {
+			if(!THREADS.isCurrentThreadCpuTimeSupported())
+				return false;
+			if(!THREADS.isThreadCpuTimeEnabled())
+				THREADS.setThreadCpuTimeEnabled(true);
+			return true;
+		}
+		catch(UnsupportedOperationException ex) {
+			return false;
+		}
+	}
+
+	private static Method getThreadAllocatedBytesMethod() {
+
+		// Only HotSpot reports the bytes allocated by a thread...
+		try {
+			Class<?> hotSpotThreads = Class.forName("com.sun.management.ThreadMXBean");
+			if(!hotSpotThreads.isInstance(THREADS))
+				return null;
+			return hotSpotThreads.getMethod("getThreadAllocatedBytes", long.class);
+		}
+		catch(Exception ex) {
+			return null;
+		}
+	}
+
+	public static boolean isCpuTimeSupported() {
+		return CPU_TIME_SUPPORTED;
+	}
+
+	public static boolean isAllocationSupported() {
+		return GET_THREAD_ALLOCATED_BYTES != null;
+	}
+
+	/**
+	 * Charges everything since the last switch to the current phase and starts the given one.
+	 * A null phase stops the accounting until the next switch.
+	 *
+	 * @return The phase that was current, so that a nested phase can switch back to it.
+	 */
+	public Phase switchTo(Phase phase) {
+
+		Phase result = this.current;
+		if(result == phase)
+			return result;
+
+		long wallNanoSec = System.nanoTime();
+		long cpuNanoSec = CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : 0;
+		long allocatedBytes = getCurrentThreadAllocatedBytes();
+
+		if(result != null) {
+			this.wallNanoSec[result.ordinal()] += wallNanoSec - this.lastWallNanoSec;
+			this.cpuNanoSec[result.ordinal()] += cpuNanoSec - this.lastCpuNanoSec;
+			this.allocatedBytes[result.ordinal()] += allocatedBytes - this.lastAllocatedBytes;
+		}
+
+		this.current = phase;
+		this.lastWallNanoSec = wallNanoSec;
+		this.lastCpuNanoSec = cpuNanoSec;
+		this.lastAllocatedBytes = allocatedBytes;
+		return result;
+	}
+
+	public void stop() {
+
+		switchTo(null);
+	}
+
+	/**
+	 * The bytes allocated so far by the calling thread, or 0 when the JVM does not report them.
+	 */
+	static long getCurrentThreadAllocatedBytes() {
+
+		if(GET_THREAD_ALLOCATED_BYTES == null)
+			return 0;
+		try {
+			return (Long)GET_THREAD_ALLOCATED_BYTES.invoke(THREADS, Thread.currentThread().getId());
+		}
+		catch(Exception ex) {
+			return 0;
+		}
+	}
+
+	public long getWallNanoSec(Phase phase) {
+		return this.wallNanoSec[phase.ordinal()];
+	}
+
+	public long getCpuNanoSec(Phase phase) {
+		return this.cpuNanoSec[phase.ordinal()];
+	}
+
+	public long getAllocatedBytes(Phase phase) {
+		return this.allocatedBytes[phase.ordinal()];
+	}
+
+	public boolean isEmpty() {
+
+		for(long wallNanoSec : this.wallNanoSec)
+			if(wallNanoSec > 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * A table of the phases that took any time, for the summary at the end of a run.
+	 */
+	public String describe() {
+
+		StringBuilder result = new StringBuilder();
+		result.append(String.format("\n\t%-34s %10s %10s %14s", "Phase", "Wall (s)", "CPU (s)", "Allocated (MB)"));
+
+		for(Phase phase : Phase.values()) {
+			if(getWallNanoSec(phase) == 0)
+				continue;
+			result.append(String.format("\n\t%-34s %10.3f %10s %14s"
+										,phase.getDescription()
+										,getWallNanoSec(phase) / Math.pow(10,9)
+										,CPU_TIME_SUPPORTED ? String.format("%.3f", getCpuNanoSec(phase) / Math.pow(10,9)) : "n/a"
+										,isAllocationSupported() ? String.format("%,.1f", getAllocatedBytes(phase) / (1024.0 * 1024.0)) : "n/a"));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Appends a line per phase of "<name>,<phase>,<wall ns>,<cpu ns>,<allocated bytes>", where
+	 * -1 means the JVM cannot measure that figure.
+	 */
+	public void appendMetrics(StringBuilder metrics, String name) {
+
+		for(Phase phase : Phase.values()) {
+			if(getWallNanoSec(phase) == 0)
+				continue;
+			metrics.append(String.format("%s,%s,%d,%d,%d\n"
+										,name
+										,phase.toString().toLowerCase()
+										,getWallNanoSec(phase)
+										,CPU_TIME_SUPPORTED ? getCpuNanoSec(phase) : -1
+										,isAllocationSupported() ? getAllocatedBytes(phase) : -1));
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Logs the number of rows loaded, the current throughput and (when the total number of rows
+ * can be estimated) the percentage complete and the time remaining, at a fixed interval.
+ *
+ * The loading thread only publishes its row count via update(), which it does once per batch.
+ */
+public class ProgressReporter extends TimerTask {
+
+	private static final Log LOG = LogFactory.getLog(ProgressReporter.class);
+
+	// Weight given to the latest interval's throughput when estimating the time remaining...
+	private static final double RATE_SMOOTHING = 0.3;
+
+	private final long estimatedRows;
+	private Timer timer;
+
+	private volatile long rowsProcessed;
+
+	private long startTime;
+	private long lastReportTime;
+	private long lastReportRows;
+	private double smoothedRate = -1;
+
+	/**
+	 * @param estimatedRows The expected number of rows, or -1 if it is not known.
+	 */
+	public ProgressReporter(long estimatedRows) {
+
+		this.estimatedRows = estimatedRows;
+	}
+
+	public void start(long intervalMillis) {
+
+		this.startTime = System.nanoTime();
+		this.lastReportTime = this.startTime;
+
+		this.timer = new Timer("OraHive progress", true);
+		this.timer.scheduleAtFixedRate(this, intervalMillis, intervalMillis);
+	}
+
+	public void stop() {
+
+		cancel();
+		if(this.timer != null)
+			this.timer.cancel();
+	}
+
+	public void update(long rowsProcessed) {
+
+		this.rowsProcessed = rowsProcessed;
+	}
+
+	@Override
+	public void run() {
+
+		long now = System.nanoTime();
+		long rows = this.rowsProcessed;
+
+		double intervalSec = (now - this.lastReportTime) / Math.pow(10,9);
+		double intervalRate = intervalSec > 0 ? (rows - this.lastReportRows) / intervalSec : 0;
+		if(this.smoothedRate < 0)
+			this.smoothedRate = intervalRate;
+		else
+			this.smoothedRate = (RATE_SMOOTHING * intervalRate) + ((1 - RATE_SMOOTHING) * this.smoothedRate);
+
+		this.lastReportTime = now;
+		this.lastReportRows = rows;
+
+		StringBuilder message = new StringBuilder();
+		message.append(String.format("Progress: %,d rows", rows));
+		if(this.estimatedRows > 0)
+			message.append(String.format(" of about %,d (%.1f%%)"
+										,this.estimatedRows
+										,Math.min(100.0, (rows * 100.0) / this.estimatedRows)));
+
+		message.append(String.format(", %,.0f rows/sec, elapsed %s"
+									,intervalRate
+									,formatDuration((now - this.startTime) / 1000000000L)));
+
+		if(this.estimatedRows > 0) {
+			if(rows >= this.estimatedRows)
+				message.append(", the estimated number of rows has been exceeded");
+			else if(this.smoothedRate > 0)
+				message.append(String.format(", ETA %s"
+											,formatDuration((long)((this.estimatedRows - rows) / this.smoothedRate))));
+		}
+
+		LOG.info(message.toString());
+	}
+
+	private static String formatDuration(long seconds) {
+
+		return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+	}
+}
@@ -0,0 +1,298 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The rows of another result-set, handed over in batches through a bounded queue
+ * by a thread that is reading it (see HiveResultFanOut).
+ *
+ * The reading thread blocks once the queue is full, so a slow consumer can only
+ * fall behind by the number of batches the queue holds. A batch that is shared by
+ * several consumers counts against the MemoryGovernor until the last of them is done with it.
+ */
+public class QueuedResultSet extends ForwardOnlyResultSet {
+
+	private static final RowBatch END_OF_ROWS = new RowBatch(new Object[0][], 0, null, 1);
+	private static final long POLL_INTERVAL_MILLISEC = 100;
+
+	/**
+	 * Rows put into one or more QueuedResultSets, each of which calls release() when it is done with them.
+	 * The rows are held either as objects or in a RowArena.
+	 */
+	public static class RowBatch {
+
+		private final Object[][] rows;
+		private final RowArena arena;
+		private final RowArena.Pool arenaPool;
+		private final long bytes;
+		private final MemoryGovernor governor;
+		private final AtomicInteger holders;
+
+		/**
+		 * @param bytes The estimated size of the rows, already acquired from the governor (if there is one).
+		 * @param holders The number of QueuedResultSets the batch will be put into.
+		 */
+		public RowBatch(Object[][] rows, long bytes, MemoryGovernor governor, int holders) {
+
+			this(rows, null, null, bytes, governor, holders);
+		}
+
+		/**
+		 * The arena is given back to the pool once every holder has released the batch.
+		 */
+		public RowBatch(RowArena arena, RowArena.Pool arenaPool, long bytes, MemoryGovernor governor, int holders) {
+
+			this(null, arena, arenaPool, bytes, governor, holders);
+		}
+
+		private RowBatch(Object[][] rows, RowArena arena, RowArena.Pool arenaPool, long bytes, MemoryGovernor governor, int holders) {
+
+			this.rows = rows;
+			this.arena = arena;
+			this.arenaPool = arenaPool;
+			this.bytes = bytes;
+			this.governor = governor;
+			this.holders = new AtomicInteger(holders);
+		}
+
+		public int getRowCount() {
+			return (this.arena == null) ? this.rows.length : this.arena.getRowCount();
+		}
+
+		public void release() {
+
+			if(this.holders.decrementAndGet() != 0)
+				return;
+
+			if(this.governor != null)
+				this.governor.releaseQueued(this.bytes);
+			if(this.arena != null)
+				this.arenaPool.give(this.arena);
+		}
+	}
+
+	private final String name;
+	private final SimpleResultSetMetaData metaData;
+	private final BlockingQueue<RowBatch> queue;
+
+	private PhaseAccounting phases;
+
+	private volatile boolean abandoned;
+	private volatile SQLException failure;
+	private long stallTimeNanoSec;
+
+	private RowBatch currentBatch = END_OF_ROWS;
+	private final RowArena.Reader arenaReader = new RowArena.Reader();
+	private int rowIdx = -1;
+	private boolean endOfRows;
+
+	public QueuedResultSet(String name, ResultSetMetaData metaData, int maxBatches) throws SQLException {
+
+		this.name = name;
+		this.metaData = new SimpleResultSetMetaData(metaData);
+		this.queue = new ArrayBlockingQueue<RowBatch>(Math.max(1, maxBatches));
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * The time the reading thread has spent waiting for this result-set's queue to have room.
+	 */
+	public long getStallTimeNanoSec() {
+		return this.stallTimeNanoSec;
+	}
+
+	public boolean isAbandoned() {
+		return this.abandoned;
+	}
+
+	/**
+	 * Account for the consumer's time waiting for rows as a phase of its own.
+	 */
+	public void setPhaseAccounting(PhaseAccounting phases) {
+		this.phases = phases;
+	}
+
+	/**
+	 * Called by the reading thread. Returns false if the consumer has stopped reading, in which
+	 * case the caller is still responsible for releasing the batch.
+	 */
+	public boolean put(RowBatch batch) throws InterruptedException {
+
+		if(this.abandoned)
+			return false;
+
+		if(this.queue.offer(batch))
+			return putDone();
+
+		long start = System.nanoTime();
+		try {
+			while(!this.abandoned)
+				if(this.queue.offer(batch, POLL_INTERVAL_MILLISEC, TimeUnit.MILLISECONDS))
+					return putDone();
+			return false;
+		}
+		finally {
+			this.stallTimeNanoSec += System.nanoTime() - start;
+		}
+	}
+
+	private boolean putDone() {
+
+		// The consumer may have abandoned the queue while the batch was being put...
+		if(this.abandoned)
+			releaseQueuedBatches();
+		return true;
+	}
+
+	private void releaseQueuedBatches() {
+
+		RowBatch batch;
+		while((batch = this.queue.poll()) != null)
+			batch.release();
+	}
+
+	/**
+	 * Called by the reading thread once all of the rows have been put.
+	 */
+	public void finish() throws InterruptedException {
+
+		put(END_OF_ROWS);
+	}
+
+	/**
+	 * Called by the reading thread when the rows cannot be read. The consumer's next call
+	 * to next() will throw.
+	 */
+	public void fail(SQLException ex) {
+
+		this.failure = ex;
+	}
+
+	/**
+	 * Called by the consumer when it will read no more rows, so that the reading thread
+	 * stops waiting for it.
+	 */
+	public void abandon() {
+
+		this.abandoned = true;
+
+		this.currentBatch.release();
+		this.currentBatch = END_OF_ROWS;
+		this.arenaReader.reset(null);
+		this.rowIdx = -1;
+		releaseQueuedBatches();
+	}
+
+	@Override
+	public boolean next() throws SQLException {
+
+		if(this.endOfRows)
+			return false;
+
+		this.rowIdx++;
+		while(this.rowIdx >= this.currentBatch.getRowCount()) {
+
+			// Once released, an arena may be reused for other rows...
+			this.currentBatch.release();
+			this.currentBatch = END_OF_ROWS;
+			this.arenaReader.reset(null);
+
+			RowBatch batch = takeBatch();
+			if(batch == END_OF_ROWS) {
+				this.endOfRows = true;
+				this.currentBatch = END_OF_ROWS;
+				return false;
+			}
+			this.currentBatch = batch;
+			this.arenaReader.reset(batch.arena);
+			this.rowIdx = 0;
+		}
+		return true;
+	}
+
+	private RowBatch takeBatch() throws SQLException {
+
+		RowBatch result = this.queue.poll();
+		if(result != null)
+			return result;
+
+		PhaseAccounting.Phase previousPhase = null;
+		if(this.phases != null)
+			previousPhase = this.phases.switchTo(PhaseAccounting.Phase.QUEUE_WAIT);
+		try {
+			while(true) {
+				if(this.failure != null)
+					throw new SQLException(String.format("The rows for \"%s\" could not be read.", this.name), this.failure);
+
+				result = this.queue.poll(POLL_INTERVAL_MILLISEC, TimeUnit.MILLISECONDS);
+				if(result != null)
+					return result;
+			}
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new SQLException(String.format("Interrupted while waiting for the rows for \"%s\".", this.name), ex);
+		}
+		finally {
+			if(this.phases != null)
+				this.phases.switchTo(previousPhase);
+		}
+	}
+
+	@Override
+	public Object getObject(int columnIndex) throws SQLException {
+
+		if(this.currentBatch.arena != null)
+			return this.arenaReader.getObject(this.rowIdx, columnIndex - 1);
+		return this.currentBatch.rows[this.rowIdx][columnIndex - 1];
+	}
+
+	/**
+	 * Binds the current row straight from its arena to the parameters of the statement.
+	 *
+	 * @return The size of the row, or -1 if the current batch is not held in an arena.
+	 */
+	public long bindCurrentRow(PreparedStatement statement) throws SQLException {
+
+		if(this.currentBatch.arena == null)
+			return -1;
+		return this.arenaReader.bind(this.rowIdx, statement);
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return this.metaData;
+	}
+
+	@Override
+	public void close() throws SQLException {
+
+		super.close();
+		abandon();
+	}
+}
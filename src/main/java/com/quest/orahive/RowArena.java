@@ -0,0 +1,381 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.quest.orahive;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+
+/**
+ * A batch of rows encoded into direct (off-heap) buffers, so that batches waiting in a queue
+ * are not objects the garbage collector has to trace and copy.
+ *
+ * Each value has a fixed-width slot: a tag byte for its type followed by 8 bytes holding a
+ * numeric value, or the offset and length of a string held in a separate region of chars.
+ * Timestamps (which the transformation rules may produce) are kept to the millisecond, and
+ * values of any other types that Hive does not return are kept as strings.
+ *
+ * An arena is written by one thread and, once it has been handed over, read by any number of
+ * threads each through its own Reader. Arenas are reused via a Pool.
+ */
+public class RowArena {
+
+	private static final int SLOT_BYTES = 9;
+	private static final int GROWTH_FACTOR = 2;
+
+	// Guess at the average length of a string when sizing a new arena...
+	private static final int INITIAL_CHARS_PER_VALUE = 16;
+
+	private static final byte NULL = 0;
+	private static final byte INT = 1;
+	private static final byte LONG = 2;
+	private static final byte SHORT = 3;
+	private static final byte BYTE = 4;
+	private static final byte DOUBLE = 5;
+	private static final byte FLOAT = 6;
+	private static final byte BOOLEAN = 7;
+	private static final byte STRING = 8;
+	private static final byte DECIMAL = 9;
+	private static final byte TIMESTAMP = 10;	//<- To the millisecond
+
+	private final int columnCount;
+	private final int[] sqlTypes;
+	private final int rowBytes;
+
+	private ByteBuffer slots;
+	private ByteBuffer charBytes;
+	private CharBuffer chars;
+	private char[] scratch = new char[256];
+
+	private int rowCount;
+	private int charCount;
+
+	/**
+	 * @param sqlTypes The java.sql.Types of the columns, used when binding nulls.
+	 */
+	public RowArena(int[] sqlTypes, int initialRows) {
+
+		this.columnCount = sqlTypes.length;
+		this.sqlTypes = sqlTypes.clone();
+		this.rowBytes = this.columnCount * SLOT_BYTES;
+
+		initialRows = Math.max(1, initialRows);
+		this.slots = ByteBuffer.allocateDirect(initialRows * this.rowBytes).order(ByteOrder.nativeOrder());
+		allocateChars(initialRows * Math.max(1, this.columnCount) * INITIAL_CHARS_PER_VALUE);
+	}
+
+	private void allocateChars(int capacity) {
+
+		this.charBytes = ByteBuffer.allocateDirect(capacity * 2).order(ByteOrder.nativeOrder());
+		this.chars = this.charBytes.asCharBuffer();
+	}
+
+	public int getColumnCount() {
+		return this.columnCount;
+	}
+
+	public int getRowCount() {
+		return this.rowCount;
+	}
+
+	/**
+	 * The number of bytes holding rows. The arena's buffers may be larger.
+	 */
+	public long getUsedBytes() {
+		return ((long)this.rowCount * this.rowBytes) + (2L * this.charCount);
+	}
+
+	public long getCapacityBytes() {
+		return (long)this.slots.capacity() + this.charBytes.capacity();
+	}
+
+	public void clear() {
+
+		this.rowCount = 0;
+		this.charCount = 0;
+	}
+
+	/**
+	 * Appends the current row of the result-set.
+	 */
+	public void addRow(ResultSet resultSet) throws SQLException {
+
+		ensureSlotCapacity();
+
+		int slot = this.rowCount * this.rowBytes;
+		for(int idx = 0; idx < this.columnCount; idx++) {
+			putValue(slot, resultSet.getObject(idx + 1));	//<- JDBC is 1-based
+			slot += SLOT_BYTES;
+		}
+		this.rowCount++;
+	}
+
+	private void ensureSlotCapacity() {
+
+		int required = (this.rowCount + 1) * this.rowBytes;
+		if(required <= this.slots.capacity())
+			return;
+
+		ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(required, this.slots.capacity() * GROWTH_FACTOR)).order(ByteOrder.nativeOrder());
+		ByteBuffer used = this.slots.duplicate();
+		used.position(0).limit(this.rowCount * this.rowBytes);
+		grown.put(used);
+		this.slots = grown;
+	}
+
+	private void putValue(int slot, Object value) {
+
+		if(value == null)
+			this.slots.put(slot, NULL);
+		else if(value instanceof String)
+			putString(slot, STRING, (String)value);
+		else if(value instanceof Integer)
+			putLong(slot, INT, ((Integer)value).intValue());
+		else if(value instanceof Long)
+			putLong(slot, LONG, ((Long)value).longValue());
+		else if(value instanceof Double)
+			putDouble(slot, DOUBLE, ((Double)value).doubleValue());
+		else if(value instanceof Float)
+			putDouble(slot, FLOAT, ((Float)value).floatValue());
+		else if(value instanceof Short)
+			putLong(slot, SHORT, ((Short)value).shortValue());
+		else if(value instanceof Byte)
+			putLong(slot, BYTE, ((Byte)value).byteValue());
+		else if(value instanceof Boolean)
+			putLong(slot, BOOLEAN, ((Boolean)value).booleanValue() ? 1 : 0);
+		else if(value instanceof BigDecimal)
+			putString(slot, DECIMAL, value.toString());
+		else if(value instanceof Timestamp)
+			putLong(slot, TIMESTAMP, ((Timestamp)value).getTime());
+		else
+			putString(slot, STRING, value.toString());
+	}
+
+	private void putLong(int slot, byte tag, long value) {
+
+		this.slots.put(slot, tag);
+		this.slots.putLong(slot + 1, value);
+	}
+
+	private void putDouble(int slot, byte tag, double value) {
+
+		this.slots.put(slot, tag);
+		this.slots.putDouble(slot + 1, value);
+	}
+
+	private void putString(int slot, byte tag, String value) {
+
+		int length = value.length();
+		ensureCharCapacity(length);
+
+		if(this.scratch.length < length)
+			this.scratch = new char[Math.max(length, this.scratch.length * GROWTH_FACTOR)];
+		value.getChars(0, length, this.scratch, 0);
+
+		this.chars.position(this.charCount);
+		this.chars.put(this.scratch, 0, length);
+
+		this.slots.put(slot, tag);
+		this.slots.putInt(slot + 1, this.charCount);
+		this.slots.putInt(slot + 5, length);
+		this.charCount += length;
+	}
+
+	private void ensureCharCapacity(int length) {
+
+		int required = this.charCount + length;
+		if(required <= this.chars.capacity())
+			return;
+
+		CharBuffer used = this.chars.duplicate();
+		used.position(0).limit(this.charCount);
+		allocateChars(Math.max(required, this.chars.capacity() * GROWTH_FACTOR));
+		this.chars.put(used);
+	}
+
+	/**
+	 * Reads the rows of an arena. Each reading thread needs its own Reader.
+	 */
+	public static class Reader {
+
+		private RowArena arena;
+		private CharBuffer chars;
+		private char[] scratch = new char[256];
+
+		public void reset(RowArena arena) {
+
+			this.arena = arena;
+			this.chars = (arena == null) ? null : arena.chars.duplicate();
+		}
+
+		public Object getObject(int row, int column) {
+
+			int slot = getSlot(row, column);
+			ByteBuffer slots = this.arena.slots;
+
+			switch(slots.get(slot)) {
+				case NULL:		return null;
+				case INT:		return Integer.valueOf((int)slots.getLong(slot + 1));
+				case LONG:		return Long.valueOf(slots.getLong(slot + 1));
+				case SHORT:		return Short.valueOf((short)slots.getLong(slot + 1));
+				case BYTE:		return Byte.valueOf((byte)slots.getLong(slot + 1));
+				case DOUBLE:	return Double.valueOf(slots.getDouble(slot + 1));
+				case FLOAT:		return Float.valueOf((float)slots.getDouble(slot + 1));
+				case BOOLEAN:	return Boolean.valueOf(slots.getLong(slot + 1) != 0);
+				case DECIMAL:	return new BigDecimal(getString(slot));
+				case TIMESTAMP:	return new Timestamp(slots.getLong(slot + 1));
+				default:		return getString(slot);
+			}
+		}
+
+		/**
+		 * Binds a row to the parameters of a statement, without boxing its numeric values.
+		 *
+		 * @return The number of bytes the row occupies in the arena.
+		 */
+		public long bind(int row, PreparedStatement statement) throws SQLException {
+
+			int slot = getSlot(row, 0);
+			ByteBuffer slots = this.arena.slots;
+			long result = this.arena.rowBytes;
+
+			for(int idx = 0; idx < this.arena.columnCount; idx++) {
+				int parameterIndex = idx + 1;	//<- JDBC is 1-based
+				switch(slots.get(slot)) {
+					case NULL:
+						statement.setNull(parameterIndex, this.arena.sqlTypes[idx]);
+						break;
+					case INT:
+					case SHORT:
+					case BYTE:
+						statement.setInt(parameterIndex, (int)slots.getLong(slot + 1));
+						break;
+					case LONG:
+						statement.setLong(parameterIndex, slots.getLong(slot + 1));
+						break;
+					case DOUBLE:
+						statement.setDouble(parameterIndex, slots.getDouble(slot + 1));
+						break;
+					case FLOAT:
+						statement.setFloat(parameterIndex, (float)slots.getDouble(slot + 1));
+						break;
+					case BOOLEAN:
+						statement.setBoolean(parameterIndex, slots.getLong(slot + 1) != 0);
+						break;
+					case DECIMAL:
+						statement.setBigDecimal(parameterIndex, new BigDecimal(getString(slot)));
+						result += 2L * slots.getInt(slot + 5);
+						break;
+					case TIMESTAMP:
+						statement.setTimestamp(parameterIndex, new Timestamp(slots.getLong(slot + 1)));
+						break;
+					default:
+						statement.setString(parameterIndex, getString(slot));
+						result += 2L * slots.getInt(slot + 5);
+						break;
+				}
+				slot += SLOT_BYTES;
+			}
+			return result;
+		}
+
+		public boolean isNull(int row, int column) {
+
+			return this.arena.slots.get(getSlot(row, column)) == NULL;
+		}
+
+		/**
+		 * The value of an integral or boolean column (a boolean is 0 or 1).
+		 */
+		public long getLong(int row, int column) {
+
+			return this.arena.slots.getLong(getSlot(row, column) + 1);
+		}
+
+		public double getDouble(int row, int column) {
+
+			return this.arena.slots.getDouble(getSlot(row, column) + 1);
+		}
+
+		public String getString(int row, int column) {
+
+			return getString(getSlot(row, column));
+		}
+
+		private int getSlot(int row, int column) {
+
+			return (row * this.arena.rowBytes) + (column * SLOT_BYTES);
+		}
+
+		private String getString(int slot) {
+
+			int offset = this.arena.slots.getInt(slot + 1);
+			int length = this.arena.slots.getInt(slot + 5);
+
+			if(this.scratch.length < length)
+				this.scratch = new char[Math.max(length, this.scratch.length * GROWTH_FACTOR)];
+			this.chars.position(offset);
+			this.chars.get(this.scratch, 0, length);
+			return new String(this.scratch, 0, length);
+		}
+	}
+
+	/**
+	 * Arenas that are no longer in use, kept so that their buffers are not allocated again.
+	 */
+	public static class Pool {
+
+		private final int[] sqlTypes;
+		private final int initialRows;
+		private final ArrayDeque<RowArena> arenas = new ArrayDeque<RowArena>();
+
+		private int arenasAllocated;
+
+		public Pool(int[] sqlTypes, int initialRows) {
+
+			this.sqlTypes = sqlTypes.clone();
+			this.initialRows = initialRows;
+		}
+
+		public synchronized RowArena take() {
+
+			RowArena result = this.arenas.poll();
+			if(result == null) {
+				result = new RowArena(this.sqlTypes, this.initialRows);
+				this.arenasAllocated++;
+			}
+			return result;
+		}
+
+		public synchronized void give(RowArena arena) {
+
+			arena.clear();
+			this.arenas.push(arena);
+		}
+
+		public synchronized int getArenasAllocated() {
+			return this.arenasAllocated;
+		}
+	}
+}
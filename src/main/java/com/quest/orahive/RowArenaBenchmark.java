@@ -0,0 +1,313 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.quest.orahive;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Compares the allocation rate and garbage collection of handing batches of rows from a reading
+ * thread to a loading thread (as HiveResultFanOut does) as arrays of row objects and as pooled
+ * off-heap RowArenas.
+ *
+ * The rows have a mix of BIGINT, DOUBLE and STRING columns, and are produced as boxed objects,
+ * as a Hive result-set produces them. The loading thread reads every value as it would to bind it.
+ *
+ * Usage: java -cp orahive.jar com.quest.orahive.RowArenaBenchmark [rows] [batch-size] [queued-batches]
+ */
+public class RowArenaBenchmark {
+
+	private static final int DEFAULT_ROWS = 2000000;
+	private static final int DEFAULT_BATCH_SIZE = 1000;
+	private static final int DEFAULT_QUEUED_BATCHES = 16;
+
+	private static final int[] COLUMN_TYPES = {Types.BIGINT, Types.BIGINT, Types.BIGINT
+												,Types.DOUBLE, Types.DOUBLE
+												,Types.VARCHAR, Types.VARCHAR, Types.VARCHAR};
+
+	private static final Object[] END_OF_ROWS = new Object[0];
+
+	public static void main(String[] args) throws Exception {
+
+		int rows = getArgument(args, 0, DEFAULT_ROWS);
+		int batchSize = getArgument(args, 1, DEFAULT_BATCH_SIZE);
+		int queuedBatches = getArgument(args, 2, DEFAULT_QUEUED_BATCHES);
+
+		System.out.println(String.format("%,d rows of %d columns in batches of %,d, up to %d batches queued (java %s)"
+										,rows
+										,COLUMN_TYPES.length
+										,batchSize
+										,queuedBatches
+										,System.getProperty("java.version")));
+		System.out.println(String.format("%-14s %12s %16s %14s %14s %12s", "Batches", "Elapsed (ms)", "Allocated (MB)", "MB allocated/s", "GC collections", "GC time (ms)"));
+
+		// A first pass of each to warm up the JIT...
+		runObjects(rows / 10, batchSize, queuedBatches);
+		runArenas(rows / 10, batchSize, queuedBatches);
+
+		report("Row objects", runObjects(rows, batchSize, queuedBatches));
+		report("Off-heap", runArenas(rows, batchSize, queuedBatches));
+	}
+
+	private static int getArgument(String[] args, int idx, int defaultValue) {
+
+		return args.length > idx ? Integer.parseInt(args[idx]) : defaultValue;
+	}
+
+	private static long[] runObjects(final int rows, final int batchSize, int queuedBatches) throws Exception {
+
+		final BlockingQueue<Object[]> queue = new ArrayBlockingQueue<Object[]>(queuedBatches);
+		Measurement measurement = new Measurement();
+
+		Loader loader = new Loader(measurement) {
+			@Override
+			protected void load() throws Exception {
+				Object[] batch;
+				while((batch = queue.take()) != END_OF_ROWS) {
+					for(Object row : batch) {
+						Object[] values = (Object[])row;
+						for(int idx = 0; idx < values.length; idx++) {
+							Object value = values[idx];
+							if(value == null)
+								continue;
+							switch(COLUMN_TYPES[idx]) {
+								case Types.BIGINT:	this.checksum += ((Long)value).longValue(); break;
+								case Types.DOUBLE:	this.checksum += (long)((Double)value).doubleValue(); break;
+								default:			this.checksum += ((String)value).length(); break;
+							}
+						}
+					}
+				}
+			}
+		};
+		loader.start();
+
+		Source source = new Source(rows);
+		Object[] batch = new Object[batchSize];
+		int rowIdx = 0;
+		while(source.next()) {
+			Object[] values = new Object[COLUMN_TYPES.length];
+			for(int idx = 0; idx < values.length; idx++)
+				values[idx] = source.getObject(idx + 1);
+			batch[rowIdx++] = values;
+			if(rowIdx == batchSize) {
+				queue.put(batch);
+				batch = new Object[batchSize];
+				rowIdx = 0;
+			}
+		}
+		if(rowIdx > 0) {
+			Object[] lastBatch = new Object[rowIdx];
+			System.arraycopy(batch, 0, lastBatch, 0, rowIdx);
+			queue.put(lastBatch);
+		}
+		queue.put(END_OF_ROWS);
+
+		measurement.addThreadAllocatedBytes();
+		loader.join();
+		return measurement.finish();
+	}
+
+	private static long[] runArenas(final int rows, final int batchSize, int queuedBatches) throws Exception {
+
+		final BlockingQueue<Object[]> queue = new ArrayBlockingQueue<Object[]>(queuedBatches);
+		final RowArena.Pool pool = new RowArena.Pool(COLUMN_TYPES, batchSize);
+		Measurement measurement = new Measurement();
+
+		Loader loader = new Loader(measurement) {
+			@Override
+			protected void load() throws Exception {
+				RowArena.Reader reader = new RowArena.Reader();
+				Object[] batch;
+				while((batch = queue.take()) != END_OF_ROWS) {
+					RowArena arena = (RowArena)batch[0];
+					reader.reset(arena);
+					for(int row = 0; row < arena.getRowCount(); row++) {
+						for(int idx = 0; idx < COLUMN_TYPES.length; idx++) {
+							if(reader.isNull(row, idx))
+								continue;
+							switch(COLUMN_TYPES[idx]) {
+								case Types.BIGINT:	this.checksum += reader.getLong(row, idx); break;
+								case Types.DOUBLE:	this.checksum += (long)reader.getDouble(row, idx); break;
+								default:			this.checksum += reader.getString(row, idx).length(); break;
+							}
+						}
+					}
+					reader.reset(null);
+					pool.give(arena);
+				}
+			}
+		};
+		loader.start();
+
+		Source source = new Source(rows);
+		RowArena arena = pool.take();
+		while(source.next()) {
+			arena.addRow(source);
+			if(arena.getRowCount() == batchSize) {
+				queue.put(new Object[] {arena});
+				arena = pool.take();
+			}
+		}
+		if(arena.getRowCount() > 0)
+			queue.put(new Object[] {arena});
+		queue.put(END_OF_ROWS);
+
+		measurement.addThreadAllocatedBytes();
+		loader.join();
+		return measurement.finish();
+	}
+
+	private static void report(String name, long[] measurement) {
+
+		double elapsedSec = measurement[0] / Math.pow(10,9);
+		double allocatedMB = measurement[1] / (1024.0 * 1024.0);
+
+		System.out.println(String.format("%-14s %,12d %,16.1f %,14.1f %,14d %,12d"
+										,name
+										,measurement[0] / 1000000
+										,allocatedMB
+										,allocatedMB / elapsedSec
+										,measurement[2]
+										,measurement[3]));
+	}
+
+	/**
+	 * Rows as a Hive result-set would produce them: boxed numbers and newly decoded strings.
+	 */
+	private static class Source extends ForwardOnlyResultSet {
+
+		private final int rows;
+		private final SimpleResultSetMetaData metaData = new SimpleResultSetMetaData();
+		private final char[] text = "The quick brown fox jumps over the lazy dog, again and again and again.".toCharArray();
+		private int row;
+
+		public Source(int rows) {
+
+			this.rows = rows;
+			for(int idx = 0; idx < COLUMN_TYPES.length; idx++)
+				this.metaData.addColumn("c" + idx, COLUMN_TYPES[idx]);
+		}
+
+		@Override
+		public boolean next() throws SQLException {
+			return ++this.row <= this.rows;
+		}
+
+		@Override
+		public Object getObject(int columnIndex) throws SQLException {
+
+			switch(COLUMN_TYPES[columnIndex - 1]) {
+				case Types.BIGINT:	return Long.valueOf(1000000L * this.row + columnIndex);
+				case Types.DOUBLE:	return Double.valueOf(this.row / 7.0);
+				default:			return new String(this.text, columnIndex, 20 + ((this.row + columnIndex) % 40));
+			}
+		}
+
+		@Override
+		public ResultSetMetaData getMetaData() throws SQLException {
+			return this.metaData;
+		}
+	}
+
+	private abstract static class Loader extends Thread {
+
+		private final Measurement measurement;
+		protected long checksum;
+
+		public Loader(Measurement measurement) {
+			this.measurement = measurement;
+		}
+
+		protected abstract void load() throws Exception;
+
+		@Override
+		public void run() {
+
+			try {
+				load();
+			}
+			catch(Exception ex) {
+				throw new RuntimeException(ex);
+			}
+			finally {
+				this.measurement.addThreadAllocatedBytes();
+			}
+		}
+	}
+
+	private static class Measurement {
+
+		private final long start;
+		private final long gcCountBefore;
+		private final long gcTimeBefore;
+		private long allocatedBytes;
+
+		public Measurement() {
+
+			System.gc();
+			this.gcCountBefore = getGcCount();
+			this.gcTimeBefore = getGcTimeMillis();
+
+			// The creating thread's allocations are counted from now on...
+			this.allocatedBytes = -PhaseAccounting.getCurrentThreadAllocatedBytes();
+			this.start = System.nanoTime();
+		}
+
+		/**
+		 * Adds the bytes allocated by the calling thread, which is either the thread that created
+		 * this measurement or one that started after it.
+		 */
+		public synchronized void addThreadAllocatedBytes() {
+
+			this.allocatedBytes += PhaseAccounting.getCurrentThreadAllocatedBytes();
+		}
+
+		private static long getGcCount() {
+
+			long result = 0;
+			for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+				result += Math.max(0, gc.getCollectionCount());
+			return result;
+		}
+
+		private static long getGcTimeMillis() {
+
+			long result = 0;
+			for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+				result += Math.max(0, gc.getCollectionTime());
+			return result;
+		}
+
+		/**
+		 * Returns {elapsed nanoseconds, bytes allocated, garbage collections, garbage collection milliseconds}.
+		 */
+		public synchronized long[] finish() {
+
+			return new long[] {System.nanoTime() - this.start
+								,this.allocatedBytes
+								,getGcCount() - this.gcCountBefore
+								,getGcTimeMillis() - this.gcTimeBefore};
+		}
+	}
+}
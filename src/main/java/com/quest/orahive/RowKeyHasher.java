@@ -0,0 +1,210 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Reduces the key columns of a row to a 64-bit hash.
+ *
+ * Values are hashed by what they mean rather than by their Java type, so that the same key read
+ * from Hive (as a long, a double or a string) and from Oracle (as a BigDecimal or a Timestamp)
+ * hashes the same: whole numbers hash as longs, other numbers as doubles, dates and times as
+ * milliseconds, and anything else as its text.
+ */
+public class RowKeyHasher {
+
+	private static final long SEED = 0xCBF29CE484222325L;	//<- FNV-1a
+	private static final long PRIME = 0x100000001B3L;
+
+	private static final long NULL_TAG = 0x6E756C6CL;
+	private static final long NUMBER_TAG = 0x6E756D62L;
+	private static final long TEXT_TAG = 0x74657874L;
+	private static final long TIME_TAG = 0x74696D65L;
+
+	private static final double MAX_LONG_DOUBLE = 9.2233720368547758E18;
+
+	private final String[] columnNames;
+	private final int[] columns;
+	private int[] columnTypes;	//<- The java.sql.Types of the Oracle key columns, or null if they are unknown
+
+	/**
+	 * @param keyColumns The key column names, matched to the result set's columns ignoring case.
+	 * @throws SQLException If a key column is not in the result set.
+	 */
+	public RowKeyHasher(ResultSetMetaData metaData, String[] keyColumns) throws SQLException {
+
+		this.columnNames = new String[keyColumns.length];
+		this.columns = new int[keyColumns.length];
+
+		for(int idx = 0; idx < keyColumns.length; idx++) {
+			for(int column = 1; column <= metaData.getColumnCount(); column++)	//<- JDBC is 1-based
+				if(metaData.getColumnLabel(column).equalsIgnoreCase(keyColumns[idx])) {
+					this.columnNames[idx] = metaData.getColumnLabel(column);
+					this.columns[idx] = column;
+					break;
+				}
+			if(this.columns[idx] == 0)
+				throw new SQLException(String.format("The key column \"%s\" is not in the Hive results.", keyColumns[idx]));
+		}
+	}
+
+	/**
+	 * Hashes the first columnCount columns of the result set, in order.
+	 */
+	public RowKeyHasher(ResultSetMetaData metaData, int columnCount) throws SQLException {
+
+		this.columnNames = new String[columnCount];
+		this.columns = new int[this.columnNames.length];
+		for(int idx = 0; idx < this.columns.length; idx++) {
+			this.columnNames[idx] = metaData.getColumnLabel(idx + 1);
+			this.columns[idx] = idx + 1;
+		}
+	}
+
+	/**
+	 * Hashes each key value as it would be stored in an Oracle column of this type (e.g. a Hive
+	 * string as a number for a NUMBER column), so that it hashes the same as the value read back
+	 * from Oracle.
+	 *
+	 * @param sqlTypes The java.sql.Types of the key columns, in order.
+	 */
+	public void setColumnTypes(int[] sqlTypes) {
+		this.columnTypes = sqlTypes;
+	}
+
+	/**
+	 * The hash of the key columns of the result set's current row.
+	 */
+	public long hash(ResultSet resultSet) throws SQLException {
+
+		long hash = SEED;
+		for(int idx = 0; idx < this.columns.length; idx++) {
+			Object value = resultSet.getObject(this.columns[idx]);
+			if(this.columnTypes != null && value != null)
+				value = toColumnType(value, this.columnTypes[idx]);
+			hash = hashValue(hash, value);
+		}
+		return finish(hash);
+	}
+
+	/**
+	 * The key columns of the result set's current row, for messages.
+	 */
+	public String describe(ResultSet resultSet) throws SQLException {
+
+		StringBuilder result = new StringBuilder();
+		for(int idx = 0; idx < this.columns.length; idx++) {
+			if(idx > 0)
+				result.append(", ");
+			result.append(this.columnNames[idx]).append('=').append(resultSet.getObject(this.columns[idx]));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * The value as Oracle would store it, or the value itself if it cannot be converted (Oracle
+	 * would reject it anyway).
+	 */
+	private static Object toColumnType(Object value, int sqlType) {
+
+		try {
+			switch(sqlType) {
+				case Types.NUMERIC:
+				case Types.DOUBLE:
+				case Types.REAL:
+					return value instanceof String ? OracleColumnConverter.toBigDecimal(value) : value;
+				case Types.TIMESTAMP:
+					return OracleColumnConverter.toTimestamp(value);
+				case Types.VARCHAR:
+				case Types.NVARCHAR:
+				case Types.CLOB:
+				case Types.NCLOB:
+					return OracleColumnConverter.toText(value);
+				default:
+					return value;
+			}
+		}
+		catch(IllegalArgumentException ex) {	//<- Includes NumberFormatException
+			return value;
+		}
+	}
+
+	static long hashValue(long hash, Object value) {
+
+		if(value == null)
+			return mix(hash, NULL_TAG);
+
+		if(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+			return mix(mix(hash, NUMBER_TAG), ((Number)value).longValue());
+
+		if(value instanceof BigDecimal) {
+			BigDecimal decimal = (BigDecimal)value;
+			if(decimal.signum() == 0 || decimal.scale() <= 0 || decimal.stripTrailingZeros().scale() <= 0) {
+				if(decimal.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) >= 0 && decimal.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) <= 0)
+					return mix(mix(hash, NUMBER_TAG), decimal.longValue());
+			}
+			return hashDouble(hash, decimal.doubleValue());
+		}
+
+		if(value instanceof Number)
+			return hashDouble(hash, ((Number)value).doubleValue());
+
+		if(value instanceof Boolean)	//<- As the driver binds a boolean
+			return mix(mix(hash, NUMBER_TAG), ((Boolean)value).booleanValue() ? 1 : 0);
+
+		if(value instanceof java.util.Date)
+			return mix(mix(hash, TIME_TAG), ((java.util.Date)value).getTime());
+
+		String text = value.toString();
+		hash = mix(hash, TEXT_TAG);
+		for(int idx = 0; idx < text.length(); idx++)
+			hash = (hash ^ text.charAt(idx)) * PRIME;
+		return mix(hash, text.length());	//<- So that "ab","c" and "a","bc" differ
+	}
+
+	private static long hashDouble(long hash, double value) {
+
+		if(value == Math.rint(value) && Math.abs(value) < MAX_LONG_DOUBLE)
+			return mix(mix(hash, NUMBER_TAG), (long)value);
+		return mix(mix(hash, NUMBER_TAG), Double.doubleToLongBits(value));
+	}
+
+	private static long mix(long hash, long value) {
+
+		hash = (hash ^ value) * PRIME;
+		return hash ^ (hash >>> 29);
+	}
+
+	/**
+	 * MurmurHash3's finalizer, so that every bit of the result depends on every bit of the key
+	 * (the hash sets use the low bits as they are).
+	 */
+	private static long finish(long hash) {
+
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,192 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Column labels and java.sql.Types for the result-sets OraHive produces itself.
+ */
+public class SimpleResultSetMetaData implements ResultSetMetaData {
+
+	private final List<String> columnLabels;
+	private final List<Integer> columnTypes;
+
+	public SimpleResultSetMetaData() {
+
+		this.columnLabels = new ArrayList<String>();
+		this.columnTypes = new ArrayList<Integer>();
+	}
+
+	public SimpleResultSetMetaData(ResultSetMetaData metaData) throws SQLException {
+
+		this();
+		for(int idx = 1; idx <= metaData.getColumnCount(); idx++)
+			addColumn(metaData.getColumnLabel(idx), metaData.getColumnType(idx));
+	}
+
+	public void addColumn(String columnLabel, int columnType) {
+
+		this.columnLabels.add(columnLabel);
+		this.columnTypes.add(columnType);
+	}
+
+	@Override
+	public int getColumnCount() throws SQLException {
+		return this.columnLabels.size();
+	}
+
+	@Override
+	public String getColumnLabel(int column) throws SQLException {
+		return this.columnLabels.get(column - 1);
+	}
+
+	@Override
+	public String getColumnName(int column) throws SQLException {
+		return getColumnLabel(column);
+	}
+
+	@Override
+	public int getColumnType(int column) throws SQLException {
+		return this.columnTypes.get(column - 1);
+	}
+
+	@Override
+	public String getColumnTypeName(int column) throws SQLException {
+
+		switch(getColumnType(column)) {
+			case java.sql.Types.VARCHAR: return "string";
+			case java.sql.Types.BOOLEAN: return "boolean";
+			case java.sql.Types.TINYINT: return "tinyint";
+			case java.sql.Types.SMALLINT: return "smallint";
+			case java.sql.Types.INTEGER: return "int";
+			case java.sql.Types.BIGINT: return "bigint";
+			case java.sql.Types.FLOAT: return "float";
+			case java.sql.Types.DOUBLE: return "double";
+			case java.sql.Types.TIMESTAMP: return "timestamp";
+			default: return "";
+		}
+	}
+
+	@Override
+	public String getColumnClassName(int column) throws SQLException {
+
+		switch(getColumnType(column)) {
+			case java.sql.Types.VARCHAR: return String.class.getName();
+			case java.sql.Types.BOOLEAN: return Boolean.class.getName();
+			case java.sql.Types.TINYINT: return Byte.class.getName();
+			case java.sql.Types.SMALLINT: return Short.class.getName();
+			case java.sql.Types.INTEGER: return Integer.class.getName();
+			case java.sql.Types.BIGINT: return Long.class.getName();
+			case java.sql.Types.FLOAT: return Float.class.getName();
+			case java.sql.Types.DOUBLE: return Double.class.getName();
+			case java.sql.Types.TIMESTAMP: return java.sql.Timestamp.class.getName();
+			default: return Object.class.getName();
+		}
+	}
+
+	@Override
+	public int getColumnDisplaySize(int column) throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public int getPrecision(int column) throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public int getScale(int column) throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public int isNullable(int column) throws SQLException {
+		return ResultSetMetaData.columnNullableUnknown;
+	}
+
+	@Override
+	public boolean isAutoIncrement(int column) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean isCaseSensitive(int column) throws SQLException {
+		return getColumnType(column) == java.sql.Types.VARCHAR;
+	}
+
+	@Override
+	public boolean isSearchable(int column) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean isCurrency(int column) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean isSigned(int column) throws SQLException {
+		return getColumnType(column) != java.sql.Types.VARCHAR;
+	}
+
+	@Override
+	public boolean isReadOnly(int column) throws SQLException {
+		return true;
+	}
+
+	@Override
+	public boolean isWritable(int column) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean isDefinitelyWritable(int column) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public String getSchemaName(int column) throws SQLException {
+		return "";
+	}
+
+	@Override
+	public String getTableName(int column) throws SQLException {
+		return "";
+	}
+
+	@Override
+	public String getCatalogName(int column) throws SQLException {
+		return "";
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if(iface.isInstance(this))
+			return (T)this;
+		throw new SQLException(String.format("Not a wrapper for %s.", iface.getName()));
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this);
+	}
+}
@@ -0,0 +1,307 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Properties;
+
+/**
+ * Generates rows of a declared schema in place of the results of a Hive query, so that the Oracle
+ * side of a load can be measured on its own, as fast as it can take the rows.
+ *
+ * The schema is read from a properties file:
+ *
+ * 	rows=<number of rows>
+ * 	seed=<number>					(default 0; the same seed gives the same rows)
+ * 	columns=<column>,<column>,...
+ * 	<column>.type=int|bigint|double|string|boolean|timestamp
+ * 	<column>.length=<length>|<min>-<max>	(strings only; default 10)
+ * 	<column>.nulls=<fraction of the rows that are NULL>	(default 0)
+ * 	<column>.distinct=<number of values>|unique	(default unique)
+ *
+ * Unique int, bigint and timestamp columns count up from 1 (or one second after midnight on
+ * 1 January 2011), so they can be used as keys; unique strings are only certain to be unique if
+ * they are at least 16 characters long. Columns with few distinct values draw them from a pool
+ * generated up front, so that most rows cost no more than a random number per column.
+ */
+public class SyntheticResultSet extends ForwardOnlyResultSet {
+
+	private static final int MAX_POOL_SIZE = 1 << 16;
+	private static final int DEFAULT_STRING_LENGTH = 10;
+	private static final long BASE_TIME_MILLIS = Timestamp.valueOf("2011-01-01 00:00:00").getTime();
+
+	private static final char[] STRING_CHARACTERS = "0123456789abcdef".toCharArray();
+
+	private static class Column {
+		int sqlType;
+		int minLength = DEFAULT_STRING_LENGTH;
+		int maxLength = DEFAULT_STRING_LENGTH;
+		long nullThreshold;		//<- Compared with 53 random bits
+		long distinct;			//<- 0 if every row has its own value
+		long salt;
+		Object[] pool;
+	}
+
+	private final String fileName;
+	private final long rowCount;
+	private final long seed;
+	private final Column[] columns;
+	private final SimpleResultSetMetaData metaData = new SimpleResultSetMetaData();
+	private final Object[] row;
+
+	private long rowNumber;
+	private long randomState;
+
+	public SyntheticResultSet(Properties properties, String fileName) {
+
+		this.fileName = fileName;
+		this.rowCount = parseLong(properties, "rows", null);
+		this.seed = parseLong(properties, "seed", "0");
+		this.randomState = this.seed;
+
+		String columnNames = properties.getProperty("columns", "").trim();
+		if(columnNames.isEmpty())
+			throw new IllegalArgumentException(String.format("The synthetic source \"%s\" must list its columns in the \"columns\" property.", fileName));
+
+		String[] names = columnNames.split("\\s*,\\s*");
+		this.columns = new Column[names.length];
+		for(int idx = 0; idx < names.length; idx++) {
+			this.columns[idx] = parseColumn(properties, names[idx], idx);
+			this.metaData.addColumn(names[idx], this.columns[idx].sqlType);
+		}
+		this.row = new Object[this.columns.length];
+	}
+
+	public static SyntheticResultSet load(String fileName) throws IOException {
+
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(fileName);
+		try {
+			properties.load(in);
+		}
+		finally {
+			in.close();
+		}
+		return new SyntheticResultSet(properties, fileName);
+	}
+
+	private Column parseColumn(Properties properties, String name, int position) {
+
+		Column result = new Column();
+		result.salt = mix(this.seed + position * 0x9E3779B97F4A7C15L);
+
+		String type = properties.getProperty(name + ".type", "").trim().toLowerCase();
+		if(type.equals("int"))
+			result.sqlType = Types.INTEGER;
+		else if(type.equals("bigint"))
+			result.sqlType = Types.BIGINT;
+		else if(type.equals("double"))
+			result.sqlType = Types.DOUBLE;
+		else if(type.equals("string"))
+			result.sqlType = Types.VARCHAR;
+		else if(type.equals("boolean"))
+			result.sqlType = Types.BOOLEAN;
+		else if(type.equals("timestamp"))
+			result.sqlType = Types.TIMESTAMP;
+		else
+			throw invalidProperty(name + ".type", type);
+
+		String length = properties.getProperty(name + ".length");
+		if(length != null) {
+			try {
+				String[] range = length.trim().split("\\s*-\\s*");
+				if(range.length > 2)
+					throw invalidProperty(name + ".length", length);
+				result.minLength = Integer.parseInt(range[0]);
+				result.maxLength = Integer.parseInt(range[range.length - 1]);
+			}
+			catch(NumberFormatException ex) {
+				throw invalidProperty(name + ".length", length);
+			}
+			if(result.minLength < 0 || result.maxLength < result.minLength)
+				throw invalidProperty(name + ".length", length);
+		}
+
+		String nulls = properties.getProperty(name + ".nulls", "0");
+		try {
+			double fraction = Double.parseDouble(nulls.trim());
+			if(fraction < 0 || fraction > 1)
+				throw invalidProperty(name + ".nulls", nulls);
+			result.nullThreshold = (long)(fraction * (1L << 53));
+		}
+		catch(NumberFormatException ex) {
+			throw invalidProperty(name + ".nulls", nulls);
+		}
+
+		String distinct = properties.getProperty(name + ".distinct", "unique").trim();
+		if(!distinct.equalsIgnoreCase("unique")) {
+			try {
+				result.distinct = Long.parseLong(distinct);
+			}
+			catch(NumberFormatException ex) {
+				throw invalidProperty(name + ".distinct", distinct);
+			}
+			if(result.distinct <= 0)
+				throw invalidProperty(name + ".distinct", distinct);
+		}
+
+		if(result.distinct > 0 && result.distinct <= MAX_POOL_SIZE) {
+			result.pool = new Object[(int)result.distinct];
+			for(int idx = 0; idx < result.pool.length; idx++)
+				result.pool[idx] = getValue(result, idx);
+		}
+		return result;
+	}
+
+	private long parseLong(Properties properties, String propertyName, String defaultValue) {
+
+		String value = properties.getProperty(propertyName, defaultValue);
+		if(value == null)
+			throw new IllegalArgumentException(String.format("The synthetic source \"%s\" must have a \"%s\" property.", this.fileName, propertyName));
+		try {
+			long result = Long.parseLong(value.trim());
+			if(result < 0)
+				throw invalidProperty(propertyName, value);
+			return result;
+		}
+		catch(NumberFormatException ex) {
+			throw invalidProperty(propertyName, value);
+		}
+	}
+
+	private IllegalArgumentException invalidProperty(String propertyName, String value) {
+
+		return new IllegalArgumentException(String.format("The synthetic source \"%s\" has an invalid value for \"%s\": \"%s\"."
+														,this.fileName
+														,propertyName
+														,value));
+	}
+
+	public long getRowCount() {
+		return this.rowCount;
+	}
+
+	public String describe() {
+
+		return String.format("Generating %d rows of %d columns from the synthetic source \"%s\" (seed %d)."
+							,this.rowCount
+							,this.columns.length
+							,this.fileName
+							,this.seed);
+	}
+
+	@Override
+	public boolean next() throws SQLException {
+
+		if(this.rowNumber == this.rowCount)
+			return false;
+
+		for(int idx = 0; idx < this.columns.length; idx++) {
+			Column column = this.columns[idx];
+
+			if(column.nullThreshold > 0 && (nextRandom() >>> 11) < column.nullThreshold) {
+				this.row[idx] = null;
+				continue;
+			}
+
+			if(column.distinct == 0)
+				this.row[idx] = getValue(column, this.rowNumber);
+			else {
+				long valueIndex = (nextRandom() >>> 1) % column.distinct;
+				this.row[idx] = column.pool != null ? column.pool[(int)valueIndex] : getValue(column, valueIndex);
+			}
+		}
+		this.rowNumber++;
+		return true;
+	}
+
+	/**
+	 * The value with the given index, which is always the same for a column.
+	 */
+	private static Object getValue(Column column, long valueIndex) {
+
+		switch(column.sqlType) {
+			case Types.INTEGER:
+				return Integer.valueOf((int)(valueIndex + 1));
+
+			case Types.BIGINT:
+				return Long.valueOf(valueIndex + 1);
+
+			case Types.DOUBLE:
+				return Double.valueOf((valueIndex + 1) + (mix(column.salt ^ valueIndex) >>> 11) / (double)(1L << 53));
+
+			case Types.BOOLEAN:
+				return Boolean.valueOf((mix(column.salt ^ valueIndex) & 1) == 1);
+
+			case Types.TIMESTAMP:
+				return new Timestamp(BASE_TIME_MILLIS + (valueIndex + 1) * 1000L);
+
+			default:
+				return getString(column, valueIndex);
+		}
+	}
+
+	// The first 16 characters are the hex digits of a one-to-one mix of the value index, so they
+	// differ for every index...
+
+	private static String getString(Column column, long valueIndex) {
+
+		long bits = mix(column.salt ^ valueIndex);
+		int length = column.minLength;
+		if(column.maxLength > column.minLength)
+			length += (int)((mix(bits) >>> 1) % (column.maxLength - column.minLength + 1));
+
+		char[] result = new char[length];
+		for(int idx = 0; idx < length; idx++) {
+			if(idx > 0 && idx % 16 == 0)
+				bits = mix(bits);
+			result[idx] = STRING_CHARACTERS[(int)(bits >>> ((idx % 16) * 4)) & 15];
+		}
+		return new String(result);
+	}
+
+	// SplitMix64...
+
+	private long nextRandom() {
+
+		this.randomState += 0x9E3779B97F4A7C15L;
+		return mix(this.randomState);
+	}
+
+	private static long mix(long value) {
+
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+
+	@Override
+	public Object getObject(int columnIndex) throws SQLException {
+		return this.row[columnIndex - 1];
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return this.metaData;
+	}
+}
@@ -0,0 +1,199 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Runs a group of tasks that mostly block on JDBC sockets, and waits for all of them to finish.
+ *
+ * When the JVM supports virtual threads (Java 21 onwards) each task gets its own virtual thread,
+ * otherwise the tasks run on ordinary threads. Virtual threads are looked up reflectively so that
+ * OraHive still runs on the JVMs supported by the Hadoop/Hive client libraries.
+ *
+ * If a task fails, the tasks that are still running are interrupted and join() throws the failure.
+ * Closing the scope interrupts any tasks that have not finished.
+ */
+public class WorkerScope {
+
+	private static final Log LOG = LogFactory.getLog(WorkerScope.class);
+
+	private static final long JOIN_POLL_INTERVAL_SEC = 60;
+
+	private final String name;
+	private final boolean virtualThreads;
+	private final ExecutorService executor;
+	private final List<Future<?>> futures;
+
+	private volatile Throwable failure;
+
+	public WorkerScope(String name, boolean preferVirtualThreads) {
+
+		this.name = name;
+		this.futures = new ArrayList<Future<?>>();
+
+		ExecutorService virtualThreadExecutor = null;
+		if(preferVirtualThreads)
+			virtualThreadExecutor = createVirtualThreadExecutor(name);
+
+		this.virtualThreads = (virtualThreadExecutor != null);
+		if(this.virtualThreads)
+			this.executor = virtualThreadExecutor;
+		else
+			this.executor = Executors.newCachedThreadPool(createPlatformThreadFactory(name));
+	}
+
+	public boolean usesVirtualThreads() {
+		return this.virtualThreads;
+	}
+
+	public static boolean virtualThreadsAvailable() {
+
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		}
+		catch(NoSuchMethodException ex) {
+			return false;
+		}
+	}
+
+	private static ExecutorService createVirtualThreadExecutor(String name) {
+
+		if(!virtualThreadsAvailable())
+			return null;
+
+		try {
+			// Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory())...
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+			ThreadFactory threadFactory = (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+
+			Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			return (ExecutorService)newThreadPerTaskExecutor.invoke(null, threadFactory);
+		}
+		catch(Exception ex) {
+			LOG.debug("Unable to create a virtual thread executor.", ex);
+			return null;
+		}
+	}
+
+	private static ThreadFactory createPlatformThreadFactory(final String name) {
+
+		return new ThreadFactory() {
+
+			private final AtomicInteger threadCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+
+				Thread result = new Thread(runnable, String.format("%s-%d", name, this.threadCount.getAndIncrement()));
+				result.setDaemon(true);
+				return result;
+			}
+		};
+	}
+
+	public <T> Future<T> fork(final Callable<T> task) {
+
+		Future<T> result = this.executor.submit(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				try {
+					return task.call();
+				}
+				catch(Exception ex) {
+					failed(ex);
+					throw ex;
+				}
+				catch(Error ex) {
+					failed(ex);
+					throw ex;
+				}
+			}
+		});
+
+		synchronized(this.futures) {
+			this.futures.add(result);
+		}
+		return result;
+	}
+
+	private void failed(Throwable ex) {
+
+		synchronized(this.futures) {
+			if(this.failure != null)
+				return;
+			this.failure = ex;
+		}
+		LOG.debug(String.format("A task in \"%s\" has failed; cancelling the others.", this.name), ex);
+		cancel();
+	}
+
+	/**
+	 * Interrupts the tasks that have not finished.
+	 */
+	public void cancel() {
+
+		List<Future<?>> futures;
+		synchronized(this.futures) {
+			futures = new ArrayList<Future<?>>(this.futures);
+		}
+		for(Future<?> future : futures)
+			future.cancel(true);
+	}
+
+	/**
+	 * Waits for all of the tasks to finish (including any that have been cancelled), and throws
+	 * the first failure if any of them failed. No more tasks can be forked afterwards.
+	 */
+	public void join() throws InterruptedException, ExecutionException {
+
+		this.executor.shutdown();
+		try {
+			while(!this.executor.awaitTermination(JOIN_POLL_INTERVAL_SEC, TimeUnit.SECONDS))
+				LOG.debug(String.format("Waiting for the tasks in \"%s\" to finish.", this.name));
+		}
+		catch(InterruptedException ex) {
+			cancel();
+			throw ex;
+		}
+
+		if(this.failure != null)
+			throw new ExecutionException(String.format("A task in \"%s\" failed.", this.name), this.failure);
+	}
+
+	public void close() {
+
+		cancel();
+		this.executor.shutdownNow();
+	}
+}
@@ -0,0 +1,168 @@
+/**
+ *   Copyright 2011 Quest Software, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.quest.orahive;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares the cost of running many tasks that spend most of their time blocked (as the Hive
+ * and Oracle workers do on their JDBC sockets) on virtual threads, on one platform thread per
+ * task, and on a fixed-size pool of platform threads.
+ *
+ * Usage: java -cp orahive.jar com.quest.orahive.WorkerScopeBenchmark [tasks] [round-trips] [round-trip-ms] [pool-size]
+ */
+public class WorkerScopeBenchmark {
+
+	private static final int DEFAULT_TASKS = 1000;
+	private static final int DEFAULT_ROUND_TRIPS = 20;
+	private static final int DEFAULT_ROUND_TRIP_MILLISEC = 5;
+	private static final int DEFAULT_POOL_SIZE = 64;
+
+	public static void main(String[] args) throws Exception {
+
+		int tasks = getArgument(args, 0, DEFAULT_TASKS);
+		int roundTrips = getArgument(args, 1, DEFAULT_ROUND_TRIPS);
+		int roundTripMillis = getArgument(args, 2, DEFAULT_ROUND_TRIP_MILLISEC);
+		int poolSize = getArgument(args, 3, DEFAULT_POOL_SIZE);
+
+		System.out.println(String.format("%,d tasks of %d blocking round-trips of %d ms each (java %s)"
+										,tasks
+										,roundTrips
+										,roundTripMillis
+										,System.getProperty("java.version")));
+		System.out.println(String.format("%-30s %12s %16s %14s", "Threads", "Elapsed (ms)", "Peak JVM threads", "Heap used (MB)"));
+
+		// A first pass to warm up the JIT...
+		runWorkerScope(tasks, roundTrips, roundTripMillis, false);
+
+		if(WorkerScope.virtualThreadsAvailable())
+			report("Virtual, one per task", runWorkerScope(tasks, roundTrips, roundTripMillis, true));
+		else
+			System.out.println("Virtual threads are not supported by this JVM.");
+
+		report("Platform, one per task", runWorkerScope(tasks, roundTrips, roundTripMillis, false));
+		report(String.format("Platform, pool of %d", poolSize), runFixedPool(tasks, roundTrips, roundTripMillis, poolSize));
+	}
+
+	private static int getArgument(String[] args, int idx, int defaultValue) {
+
+		return args.length > idx ? Integer.parseInt(args[idx]) : defaultValue;
+	}
+
+	private static Callable<Integer> createTask(final int roundTrips, final int roundTripMillis) {
+
+		return new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				for(int idx = 0; idx < roundTrips; idx++)
+					Thread.sleep(roundTripMillis);
+				return roundTrips;
+			}
+		};
+	}
+
+	private static long[] runWorkerScope(int tasks, int roundTrips, int roundTripMillis, boolean virtualThreads) throws Exception {
+
+		Measurement measurement = new Measurement();
+
+		WorkerScope scope = new WorkerScope("benchmark", virtualThreads);
+		try {
+			for(int idx = 0; idx < tasks; idx++)
+				scope.fork(createTask(roundTrips, roundTripMillis));
+			measurement.sample();
+			scope.join();
+		}
+		finally {
+			scope.close();
+		}
+
+		return measurement.finish();
+	}
+
+	private static long[] runFixedPool(int tasks, int roundTrips, int roundTripMillis, int poolSize) throws Exception {
+
+		Measurement measurement = new Measurement();
+
+		ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+		try {
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>(tasks);
+			for(int idx = 0; idx < tasks; idx++)
+				futures.add(executor.submit(createTask(roundTrips, roundTripMillis)));
+			measurement.sample();
+			for(Future<Integer> future : futures)
+				future.get();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		return measurement.finish();
+	}
+
+	private static void report(String name, long[] measurement) {
+
+		System.out.println(String.format("%-30s %,12d %,16d %,14.1f"
+										,name
+										,measurement[0] / 1000000
+										,measurement[1]
+										,measurement[2] / (1024.0 * 1024.0)));
+	}
+
+	private static class Measurement {
+
+		private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		private final long start;
+		private final long heapBefore;
+		private long peakHeapUsed;
+
+		public Measurement() {
+
+			System.gc();
+			this.heapBefore = getHeapUsed();
+			this.threads.resetPeakThreadCount();
+			this.start = System.nanoTime();
+		}
+
+		private static long getHeapUsed() {
+
+			Runtime runtime = Runtime.getRuntime();
+			return runtime.totalMemory() - runtime.freeMemory();
+		}
+
+		public void sample() {
+
+			this.peakHeapUsed = Math.max(this.peakHeapUsed, getHeapUsed() - this.heapBefore);
+		}
+
+		/**
+		 * Returns {elapsed nanoseconds, peak number of platform threads, peak extra heap used}.
+		 */
+		public long[] finish() {
+
+			long elapsed = System.nanoTime() - this.start;
+			sample();
+			return new long[] {elapsed, this.threads.getPeakThreadCount(), this.peakHeapUsed};
+		}
+	}
+}